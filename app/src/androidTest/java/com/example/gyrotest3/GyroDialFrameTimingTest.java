@@ -0,0 +1,117 @@
+package com.example.gyrotest3;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented benchmark: frame cost of the dial with its static layer cached vs redrawn
+ * every frame, from the window's FrameMetrics. Results are logged under "FrameTiming" for
+ * comparison; frame times on a shared device are too noisy to assert on.
+ *
+ * The service started by MainActivity is pointed at a dead local address, so the benchmark
+ * neither depends on nor streams to a real server. The app's prefs are restored afterwards.
+ */
+@RunWith(AndroidJUnit4.class)
+public class GyroDialFrameTimingTest {
+
+    private static final String TAG = "FrameTiming";
+    private static final int WARMUP_FRAMES = 30;
+    private static final int FRAMES = 300;
+    private static final String DEAD_SERVER_URL = "http://127.0.0.1:9/";
+
+    private SharedPreferences prefs;
+    private Boolean savedStaticLayer;
+    private String savedRiderName;
+    private String savedServerUrls;
+
+    @Before
+    public void savePrefs() {
+        prefs = InstrumentationRegistry.getInstrumentation().getTargetContext()
+                .getSharedPreferences("app_prefs", Context.MODE_PRIVATE);
+        savedStaticLayer = prefs.contains("dial_static_layer") ? prefs.getBoolean("dial_static_layer", false) : null;
+        savedRiderName = prefs.getString("rider_name", null);
+        savedServerUrls = prefs.getString("server_urls", null);
+    }
+
+    @After
+    public void restorePrefs() {
+        SharedPreferences.Editor editor = prefs.edit();
+        if (savedStaticLayer != null) {
+            editor.putBoolean("dial_static_layer", savedStaticLayer);
+        } else {
+            editor.remove("dial_static_layer");
+        }
+        editor.putString("rider_name", savedRiderName);
+        editor.putString("server_urls", savedServerUrls); // null removes the key
+        editor.commit();
+    }
+
+    @Test
+    public void staticLayer_frameCost() {
+        FrameTimingMonitor.Report full = measure(false);
+        FrameTimingMonitor.Report layered = measure(true);
+        Log.i(TAG, "Redrawn every frame: " + full);
+        Log.i(TAG, "Static layer:        " + layered);
+
+        assertTrue(full.frames > FRAMES / 2);
+        assertTrue(layered.frames > FRAMES / 2);
+    }
+
+    private FrameTimingMonitor.Report measure(boolean staticLayer) {
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        prefs.edit()
+                .putBoolean("dial_static_layer", staticLayer)
+                .putString("rider_name", "Benchmark")
+                .putString("server_urls", DEAD_SERVER_URL)
+                .commit();
+
+        FrameTimingMonitor monitor = new FrameTimingMonitor(Long.MAX_VALUE);
+        try (ActivityScenario<MainActivity> scenario = ActivityScenario.launch(MainActivity.class)) {
+            View[] dial = new View[1];
+            scenario.onActivity(activity -> {
+                ViewGroup content = activity.findViewById(android.R.id.content);
+                dial[0] = ((ViewGroup) content.getChildAt(0)).getChildAt(0);
+            });
+
+            for (int i = 0; i < WARMUP_FRAMES; i++) {
+                drawFrame(instrumentation, dial[0]);
+            }
+            scenario.onActivity(activity -> activity.getWindow()
+                    .addOnFrameMetricsAvailableListener(monitor, new Handler(Looper.getMainLooper())));
+            for (int i = 0; i < FRAMES; i++) {
+                drawFrame(instrumentation, dial[0]);
+            }
+
+            FrameTimingMonitor.Report[] report = new FrameTimingMonitor.Report[1];
+            scenario.onActivity(activity -> {
+                activity.getWindow().removeOnFrameMetricsAvailableListener(monitor);
+                report[0] = monitor.takeReport(SystemClock.elapsedRealtimeNanos());
+            });
+            return report[0];
+        }
+    }
+
+    private static void drawFrame(Instrumentation instrumentation, View dial) {
+        instrumentation.runOnMainSync(dial::invalidate);
+        instrumentation.waitForIdleSync();
+        SystemClock.sleep(17); // let the frame reach the render thread
+    }
+}
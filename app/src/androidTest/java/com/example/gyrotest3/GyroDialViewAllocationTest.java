@@ -0,0 +1,56 @@
+package com.example.gyrotest3;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Debug;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented test: drawing the dial must not allocate once it has been laid out.
+ */
+@RunWith(AndroidJUnit4.class)
+public class GyroDialViewAllocationTest {
+
+    private static final int WIDTH = 1920;
+    private static final int HEIGHT = 1080;
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void onDraw_allocatesNothingPerFrame() {
+        try (ActivityScenario<MainActivity> scenario = ActivityScenario.launch(MainActivity.class)) {
+            scenario.onActivity(activity -> {
+                ViewGroup content = activity.findViewById(android.R.id.content);
+                View dial = ((ViewGroup) content.getChildAt(0)).getChildAt(0);
+
+                dial.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                        View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+                dial.layout(0, 0, WIDTH, HEIGHT);
+
+                Canvas canvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+
+                // First frames may populate caches (text layout, glyphs)
+                for (int i = 0; i < 10; i++) {
+                    dial.draw(canvas);
+                }
+
+                Debug.resetThreadAllocCount();
+                Debug.startAllocCounting();
+                for (int i = 0; i < 100; i++) {
+                    dial.draw(canvas);
+                }
+                Debug.stopAllocCounting();
+
+                assertEquals(0, Debug.getThreadAllocCount());
+            });
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.gyrotest3;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import com.example.gyrotest3.core.FrameRateLimiter;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * DialRenderScheduler - Coalesces dial redraw requests onto vsync
+ *
+ * Any number of {@link #requestFrame} calls between two vsyncs result in at most one
+ * frame callback. On that callback the frame is held back until the FPS cap allows it,
+ * then the {@link Target} latches the latest values and is only invalidated if
+ * something visible changed.
+ */
+final class DialRenderScheduler implements Choreographer.FrameCallback {
+
+    interface Target {
+        /**
+         * Latches the latest values; returns true if the next frame would look different
+         */
+        boolean latchFrame();
+
+        void invalidate();
+    }
+
+    private final Target target;
+    private final FrameRateLimiter limiter;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean framePending = new AtomicBoolean(false);
+    private final Runnable postFrameCallback = this::postFrameCallback;
+
+    // Frame statistics, main thread only
+    private long framesDrawn = 0;
+    private long framesSkipped = 0;
+
+    DialRenderScheduler(Target target, int maxFps) {
+        this.target = target;
+        this.limiter = new FrameRateLimiter(maxFps);
+    }
+
+    /**
+     * Safe to call from any thread, e.g. after each sensor pipeline publish
+     */
+    void requestFrame() {
+        if (framePending.compareAndSet(false, true)) {
+            mainHandler.post(postFrameCallback);
+        }
+    }
+
+    /**
+     * Main thread only
+     */
+    void setMaxFps(int maxFps) {
+        limiter.setMaxFps(maxFps);
+    }
+
+    void stop() {
+        mainHandler.removeCallbacks(postFrameCallback);
+        Choreographer.getInstance().removeFrameCallback(this);
+        framePending.set(false);
+    }
+
+    long getFramesDrawn() { return framesDrawn; }
+    long getFramesSkipped() { return framesSkipped; }
+
+    private void postFrameCallback() {
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!limiter.isFrameDue(frameTimeNanos)) {
+            postFrameCallback();
+            return;
+        }
+
+        // Clear before latching so a publish racing with this frame schedules another one
+        framePending.set(false);
+
+        if (target.latchFrame()) {
+            limiter.onFrameRendered(frameTimeNanos);
+            target.invalidate();
+            framesDrawn++;
+        } else {
+            framesSkipped++;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.gyrotest3;
+
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+import com.example.gyrotest3.core.LatencyHistogram;
+
+/**
+ * FrameTimingMonitor - Per-frame cost of the window from {@link FrameMetrics}
+ *
+ * Three figures per frame: DRAW is the main thread recording the display list in
+ * {@code onDraw}, ISSUE the render thread handing the frame's commands to the GPU, and TOTAL
+ * the whole frame from input to swap. They land in {@link LatencyHistogram}s in microseconds
+ * and are summarized every report interval into {@link #getLastReport()}, which the dial's
+ * latency overlay shows, so a change such as the dial's static layer can be measured on a
+ * device.
+ *
+ * Register it with {@link Window#addOnFrameMetricsAvailableListener} on the main thread's
+ * handler; all methods are main thread only.
+ */
+final class FrameTimingMonitor implements Window.OnFrameMetricsAvailableListener {
+
+    private static final String TAG = "FrameTiming";
+    private static final long HIGHEST_MICROS = 1_000_000L;
+
+    private final long reportIntervalNanos;
+    private final LatencyHistogram draw = new LatencyHistogram(HIGHEST_MICROS, 2);
+    private final LatencyHistogram issue = new LatencyHistogram(HIGHEST_MICROS, 2);
+    private final LatencyHistogram total = new LatencyHistogram(HIGHEST_MICROS, 2);
+    private long intervalStartNanos = SystemClock.elapsedRealtimeNanos();
+    private Report lastReport;
+
+    FrameTimingMonitor(long reportIntervalNanos) {
+        this.reportIntervalNanos = reportIntervalNanos;
+    }
+
+    @Override
+    public void onFrameMetricsAvailable(Window window, FrameMetrics metrics, int dropCountSinceLastInvocation) {
+        if (metrics.getMetric(FrameMetrics.FIRST_DRAW_FRAME) == 1) {
+            return; // includes inflation and layout
+        }
+        draw.recordValue(metrics.getMetric(FrameMetrics.DRAW_DURATION) / 1_000);
+        issue.recordValue(metrics.getMetric(FrameMetrics.COMMAND_ISSUE_DURATION) / 1_000);
+        total.recordValue(metrics.getMetric(FrameMetrics.TOTAL_DURATION) / 1_000);
+
+        long now = SystemClock.elapsedRealtimeNanos();
+        if (now - intervalStartNanos >= reportIntervalNanos) {
+            Log.d(TAG, takeReport(now).toString());
+        }
+    }
+
+    /**
+     * Summarizes the frames since the last report and starts a new interval
+     */
+    Report takeReport(long nowNanos) {
+        Report report = new Report(draw.getTotalCount(),
+                draw.getValueAtPercentile(50), draw.getValueAtPercentile(99),
+                issue.getValueAtPercentile(50), issue.getValueAtPercentile(99),
+                total.getValueAtPercentile(50), total.getValueAtPercentile(99));
+        draw.reset();
+        issue.reset();
+        total.reset();
+        intervalStartNanos = nowNanos;
+        lastReport = report;
+        return report;
+    }
+
+    /**
+     * Most recent report, or null before the first one
+     */
+    Report getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Percentiles of one interval in microseconds
+     */
+    static final class Report {
+        final long frames;
+        final long drawP50Micros;
+        final long drawP99Micros;
+        final long issueP50Micros;
+        final long issueP99Micros;
+        final long totalP50Micros;
+        final long totalP99Micros;
+
+        Report(long frames, long drawP50Micros, long drawP99Micros, long issueP50Micros, long issueP99Micros,
+               long totalP50Micros, long totalP99Micros) {
+            this.frames = frames;
+            this.drawP50Micros = drawP50Micros;
+            this.drawP99Micros = drawP99Micros;
+            this.issueP50Micros = issueP50Micros;
+            this.issueP99Micros = issueP99Micros;
+            this.totalP50Micros = totalP50Micros;
+            this.totalP99Micros = totalP99Micros;
+        }
+
+        @Override
+        public String toString() {
+            return "Frames=" + frames + " p50/p99 us: draw " + drawP50Micros + "/" + drawP99Micros
+                    + ", issue " + issueP50Micros + "/" + issueP99Micros
+                    + ", total " + totalP50Micros + "/" + totalP99Micros;
+        }
+    }
+}
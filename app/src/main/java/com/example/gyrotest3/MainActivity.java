@@ -1,40 +1,33 @@
 package com.example.gyrotest3;
 
 import android.content.pm.ActivityInfo;
+import android.content.pm.PackageManager;
+import android.content.ComponentName;
 import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.RectF;
 import android.graphics.Typeface;
-import android.hardware.Sensor;
-import android.hardware.SensorEvent;
-import android.hardware.SensorEventListener;
-import android.hardware.SensorManager;
-import android.location.Location;
-import android.location.LocationListener;
-import android.location.LocationManager;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
 import android.util.Log;
 import android.view.View;
-import android.widget.Toast;
 import android.widget.Button;
 import android.widget.LinearLayout;
 import android.view.Gravity;
 
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
-import io.socket.client.IO;
-import io.socket.client.Socket;
-
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.net.URISyntaxException;
-
 import android.content.SharedPreferences;
-import java.util.UUID;
 import androidx.appcompat.app.AlertDialog;
 import android.widget.EditText;
 import android.text.InputType;
@@ -42,107 +35,78 @@ import android.text.InputType;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 
+import com.example.gyrotest3.core.AttitudeSnapshot;
+import com.example.gyrotest3.core.CharFormat;
+import com.example.gyrotest3.core.DialDisplayState;
+import com.example.gyrotest3.core.SensorHistory;
+import com.example.gyrotest3.core.Sparkline;
+import com.example.gyrotest3.core.TelemetryLatency;
+
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * MainActivity - Android Gyroscope + GPS Data Transmission App
  *
- * Hybrid speed measurement: GPS for accuracy, accelerometer for smooth real-time updates
- * Jump detection: Monitors vertical acceleration to detect airtime
+ * Telemetry runs in {@link TelemetryService}, which keeps streaming with the screen off;
+ * this activity starts it, binds to it while visible and draws its latest snapshot on the
+ * dial. Finishing the activity ends the ride and stops the service.
  */
-public class MainActivity extends AppCompatActivity implements SensorEventListener {
+public class MainActivity extends AppCompatActivity {
 
     // ========================================
     // CONSTANTS
     // ========================================
 
     private static final String TAG = "GyroSocket";
-    //private static final String SERVER_URL = "http://3.91.244.249:5000/";
-    private static final String SERVER_URL = "http://18.207.115.76:5000/";
-    private static final long SEND_INTERVAL = 100;
-    private static final int LOCATION_PERMISSION_REQUEST_CODE = 100;
-
-    // ========================================
-    // DEVICE & USER MANAGEMENT
-    // ========================================
-
-    private String deviceId;
-    private String riderName;
-
-    // ========================================
-    // SENSOR COMPONENTS
-    // ========================================
+    private static final int PERMISSION_REQUEST_CODE = 100;
 
-    private float currentGForce = 0;
-    private boolean wasAirborne = false;
-    private long airborneStartTime = 0;
+    // Dial frame-rate caps; battery saver halves redraws
+    private static final int DIAL_MAX_FPS = 60;
+    private static final int DIAL_BATTERY_SAVER_FPS = 30;
 
-    // Step Counter
-    private int totalSteps = 0;
-    private int initialSteps = -1;
-    private int sessionSteps = 0;
+    // Graph panel: 120 columns over 10-60 s ("graph_window_s" pref, default 30 s)
+    private static final int GRAPH_COLUMNS = 120;
+    private static final int GRAPH_MIN_WINDOW_S = 10;
+    private static final int GRAPH_MAX_WINDOW_S = 60;
+    private static final int GRAPH_DEFAULT_WINDOW_S = 30;
 
-    private SensorManager sensorManager;
-    private Sensor accelerometer;
-    private Sensor magnetometer;
-    private Sensor stepCounter;
-    private GyroDialView dialView;
-    private float currentYaw = 0;
-    private float currentPitch = 0;
-    private float currentRoll = 0;
-    private boolean dialActive = false;
-    private String availableMotionSensors = "";
-
-    private float[] accelerometerValues = new float[3];
-    private float[] magnetometerValues = new float[3];
-    private boolean hasAccelerometerData = false;
-    private boolean hasMagnetometerData = false;
-    private float[] rotationMatrix = new float[9];
-    private float[] orientationValues = new float[3];
+    // Frame timing summarized (and logged) every 5 s
+    private static final long FRAME_REPORT_INTERVAL_NANOS = 5_000_000_000L;
 
     // ========================================
-    // GPS & SPEED (HYBRID APPROACH)
+    // SERVICE CONNECTION
     // ========================================
 
-    private LocationManager locationManager;
-    private float currentSpeed = 0; // km/h (display speed)
-    private float smoothedSpeed = 0; // Internal smoothed value
-    private float lastGPSSpeed = 0; // Last GPS reading
-    private long lastGPSUpdateTime = 0; // Timestamp of last GPS update
-    private static final float SPEED_SMOOTHING = 0.15f; // GPS blend factor
+    // Main thread only; null while unbound
+    private TelemetryService service;
+    private String riderName;
 
-    private LocationListener locationListener = new LocationListener() {
+    private final ServiceConnection serviceConnection = new ServiceConnection() {
         @Override
-        public void onLocationChanged(Location location) {
-            lastGPSSpeed = location.getSpeed() * 3.6f; // m/s to km/h
-            lastGPSUpdateTime = System.currentTimeMillis();
-            smoothedSpeed = lastGPSSpeed; // Anchor to GPS
-            Log.d(TAG, "GPS Speed Update: " + String.format("%.2f", lastGPSSpeed) + " km/h");
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            service = ((TelemetryService.LocalBinder) binder).getService();
+            onServiceBound();
         }
 
         @Override
-        public void onProviderEnabled(String provider) {}
-
-        @Override
-        public void onProviderDisabled(String provider) {}
-
-        @Override
-        public void onStatusChanged(String provider, int status, Bundle extras) {}
+        public void onServiceDisconnected(ComponentName name) {
+            service = null;
+        }
     };
 
-    // ========================================
-    // NETWORK & SOCKET.IO
-    // ========================================
-
-    private Socket socket;
-    private boolean socketConnected = false;
-    private long lastSendTime = 0;
-    private boolean deviceState = true;
-
     // ========================================
     // UI COMPONENTS
     // ========================================
 
     private Button connectionButton;
     private LinearLayout mainLayout;
+    private GyroDialView dialView;
+    private DialRenderScheduler dialRenderScheduler;
+    // Latency debug overlay on the dial, toggled by a long press; UI thread only
+    private boolean latencyOverlay = false;
+    private final FrameTimingMonitor frameTiming = new FrameTimingMonitor(FRAME_REPORT_INTERVAL_NANOS);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     // ========================================
     // LIFECYCLE METHODS
@@ -152,77 +116,68 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
-        initializeDeviceAndRider();
+        initializeRider();
         setupUI();
-        initializeComponents();
-        connectToServer();
+        requestMissingPermissions();
+        ContextCompat.startForegroundService(this, new Intent(this, TelemetryService.class));
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        bindService(new Intent(this, TelemetryService.class), serviceConnection, Context.BIND_AUTO_CREATE);
+        getWindow().addOnFrameMetricsAvailableListener(frameTiming, mainHandler);
     }
 
     @Override
     protected void onResume() {
         super.onResume();
-        registerSensorListener();
-        registerLocationListener();
-
-        if (socket != null && !socket.connected()) {
-            connectToServer();
+        if (service != null) {
+            service.onViewerResumed();
         }
     }
 
     @Override
-    protected void onPause() {
-        super.onPause();
-        unregisterSensorListener();
-        unregisterLocationListener();
+    protected void onStop() {
+        super.onStop();
+        // Nothing to draw while hidden: the service streams on without waking the dial
+        if (service != null) {
+            service.setFrameListener(null);
+            service.setListener(null);
+            service = null;
+        }
+        unbindService(serviceConnection);
+        dialRenderScheduler.stop();
+        getWindow().removeOnFrameMetricsAvailableListener(frameTiming);
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        cleanup();
+        if (isFinishing()) {
+            stopService(new Intent(this, TelemetryService.class));
+        }
     }
 
-    // ========================================
-    // INITIALIZATION METHODS
-    // ========================================
-
-    private void saveDeviceToServer() {
-        if (socket == null || !socketConnected || riderName == null || riderName.isEmpty()) {
-            return;
+    private void onServiceBound() {
+        service.setListener(this::onConnectionChanged);
+        service.setFrameListener(dialRenderScheduler::requestFrame);
+        if (riderName != null && !riderName.isEmpty()) {
+            service.setRiderName(riderName);
         }
-
-        try {
-            JSONObject deviceData = new JSONObject();
-            deviceData.put("deviceId", deviceId);
-            deviceData.put("rider", riderName);
-            deviceData.put("state", deviceState ? "on" : "off");
-
-            socket.emit("save_device", deviceData);
-            Log.d(TAG, "Device saved: " + deviceId + " - " + riderName);
-        } catch (JSONException e) {
-            Log.e(TAG, "Error saving device", e);
+        if (hasPermission(android.Manifest.permission.ACCESS_FINE_LOCATION)) {
+            service.onLocationPermissionGranted();
         }
+        service.onViewerResumed();
+        dialRenderScheduler.requestFrame();
     }
 
-    private void initializeDeviceAndRider() {
-        SharedPreferences prefs = getSharedPreferences("app_prefs", MODE_PRIVATE);
-        initializeDeviceId(prefs);
-        initializeRiderName(prefs);
-    }
-
-    private void initializeDeviceId(SharedPreferences prefs) {
-        deviceId = prefs.getString("device_id", null);
-
-        if (deviceId == null || deviceId.isEmpty()) {
-            deviceId = UUID.randomUUID().toString();
-            prefs.edit().putString("device_id", deviceId).apply();
-            Log.d("DeviceID", "New device ID generated: " + deviceId);
-        } else {
-            Log.d("DeviceID", "Existing device ID found: " + deviceId);
-        }
-    }
+    // ========================================
+    // INITIALIZATION METHODS
+    // ========================================
 
-    private void initializeRiderName(SharedPreferences prefs) {
+    private void initializeRider() {
+        SharedPreferences prefs = getSharedPreferences("app_prefs", MODE_PRIVATE);
         riderName = prefs.getString("rider_name", null);
 
         if (riderName == null || riderName.isEmpty()) {
@@ -247,7 +202,9 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
             prefs.edit().putString("rider_name", riderName).apply();
             Log.d("RiderName", "New rider name entered: " + riderName);
 
-            saveDeviceToServer();
+            if (service != null) {
+                service.setRiderName(riderName);
+            }
 
             if (dialView != null) {
                 dialView.invalidate();
@@ -257,6 +214,38 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
         builder.show();
     }
 
+    /**
+     * Location for GPS speed; notifications so the foreground service is visible on API 33+
+     */
+    private void requestMissingPermissions() {
+        List<String> missing = new ArrayList<>();
+        if (!hasPermission(android.Manifest.permission.ACCESS_FINE_LOCATION)) {
+            missing.add(android.Manifest.permission.ACCESS_FINE_LOCATION);
+            missing.add(android.Manifest.permission.ACCESS_COARSE_LOCATION);
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && !hasPermission(android.Manifest.permission.POST_NOTIFICATIONS)) {
+            missing.add(android.Manifest.permission.POST_NOTIFICATIONS);
+        }
+        if (!missing.isEmpty()) {
+            ActivityCompat.requestPermissions(this, missing.toArray(new String[0]), PERMISSION_REQUEST_CODE);
+        }
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions,
+                                           @NonNull int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        if (requestCode == PERMISSION_REQUEST_CODE && service != null
+                && hasPermission(android.Manifest.permission.ACCESS_FINE_LOCATION)) {
+            service.onLocationPermissionGranted();
+        }
+    }
+
+    private boolean hasPermission(String permission) {
+        return ContextCompat.checkSelfPermission(this, permission) == PackageManager.PERMISSION_GRANTED;
+    }
+
     private void setupUI() {
         if (getSupportActionBar() != null) {
             getSupportActionBar().hide();
@@ -277,12 +266,31 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
                 LinearLayout.LayoutParams.MATCH_PARENT
         );
         dialView.setLayoutParams(dialParams);
-        dialActive = true;
+
+        SharedPreferences prefs = getSharedPreferences("app_prefs", MODE_PRIVATE);
+        int maxFps = prefs.getBoolean("battery_saver", false) ? DIAL_BATTERY_SAVER_FPS : DIAL_MAX_FPS;
+        dialRenderScheduler = new DialRenderScheduler(dialView, maxFps);
+        latencyOverlay = prefs.getBoolean("latency_overlay", false);
+        int graphWindowSeconds = Math.max(GRAPH_MIN_WINDOW_S, Math.min(GRAPH_MAX_WINDOW_S,
+                prefs.getInt("graph_window_s", GRAPH_DEFAULT_WINDOW_S)));
+        dialView.setGraphPanel(prefs.getBoolean("graph_panel", true), graphWindowSeconds * 1_000_000_000L);
+        dialView.setStaticLayerEnabled(prefs.getBoolean("dial_static_layer", true));
+        dialView.setOnLongClickListener(v -> {
+            toggleLatencyOverlay();
+            return true;
+        });
 
         mainLayout.addView(dialView);
         setContentView(mainLayout);
     }
 
+    private void toggleLatencyOverlay() {
+        latencyOverlay = !latencyOverlay;
+        getSharedPreferences("app_prefs", MODE_PRIVATE).edit()
+                .putBoolean("latency_overlay", latencyOverlay).apply();
+        dialView.invalidate();
+    }
+
     private void setupConnectionButton() {
         connectionButton = new Button(this);
         connectionButton.setText("CONNECT");
@@ -302,503 +310,44 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
         connectionButton.setOnClickListener(v -> toggleConnection());
     }
 
-    private void initializeComponents() {
-        initializeSensors();
-        initializeSocket();
-    }
-
     // ========================================
     // CONNECTION MANAGEMENT
     // ========================================
 
     private void toggleConnection() {
-        if (socketConnected) {
-            disconnectFromServer();
-        } else {
-            connectToServer();
+        if (service == null) {
+            return;
         }
-    }
-
-    private void updateConnectionButton() {
-        runOnUiThread(() -> {
-            if (socketConnected) {
-                connectionButton.setText("DISCONNECT");
-                connectionButton.setBackgroundColor(Color.rgb(244, 67, 54));
-            } else {
-                connectionButton.setText("CONNECT");
-                connectionButton.setBackgroundColor(Color.BLUE);
-            }
-        });
-    }
-
-    private void connectToServer() {
-        if (socket != null && !socket.connected()) {
-            Log.d(TAG, "Connecting to server...");
+        if (service.isConnected()) {
+            service.disconnect();
+        } else {
             connectionButton.setEnabled(false);
             connectionButton.setText("CONNECTING...");
-            socket.connect();
+            service.connect();
         }
     }
 
-    private void disconnectFromServer() {
-        if (socket != null && socket.connected()) {
-            Log.d(TAG, "Disconnecting from server...");
-            connectionButton.setEnabled(false);
-            connectionButton.setText("DISCONNECTING...");
-            socket.disconnect();
-        }
-    }
-
-    // ========================================
-    // SENSOR MANAGEMENT
-    // ========================================
-
-    private void initializeSensors() {
-        sensorManager = (SensorManager) getSystemService(Context.SENSOR_SERVICE);
-        listAvailableMotionSensors();
-
-        accelerometer = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
-        magnetometer = sensorManager.getDefaultSensor(Sensor.TYPE_MAGNETIC_FIELD);
-        stepCounter = sensorManager.getDefaultSensor(Sensor.TYPE_STEP_COUNTER);
-        locationManager = (LocationManager) getSystemService(Context.LOCATION_SERVICE);
-
-        if (accelerometer == null) {
-            showToast("Accelerometer not available", Toast.LENGTH_LONG);
-        }
-
-        if (magnetometer == null) {
-            Log.w(TAG, "Magnetometer not available - Yaw will not work");
-            showToast("Magnetometer not available - Yaw disabled", Toast.LENGTH_SHORT);
+    private void onConnectionChanged(boolean connected) {
+        dialView.setConnectionStatus(connected);
+        if (connected) {
+            connectionButton.setText("DISCONNECT");
+            connectionButton.setBackgroundColor(Color.rgb(244, 67, 54));
         } else {
-            Log.d(TAG, "Magnetometer available - Full orientation tracking enabled");
-        }
-
-        if (stepCounter == null) {
-            Log.w(TAG, "Step Counter not available");
-            showToast("Step Counter not available", Toast.LENGTH_SHORT);
-        } else {
-            Log.d(TAG, "Step Counter available - Step tracking enabled");
-        }
-    }
-
-    private void registerSensorListener() {
-        if (accelerometer != null && sensorManager != null) {
-            sensorManager.registerListener(this, accelerometer, SensorManager.SENSOR_DELAY_UI);
-            Log.d(TAG, "Accelerometer listener registered");
-        }
-
-        if (magnetometer != null && sensorManager != null) {
-            sensorManager.registerListener(this, magnetometer, SensorManager.SENSOR_DELAY_UI);
-            Log.d(TAG, "Magnetometer listener registered");
-        }
-
-        if (stepCounter != null && sensorManager != null) {
-            sensorManager.registerListener(this, stepCounter, SensorManager.SENSOR_DELAY_UI);
-            Log.d(TAG, "Step Counter listener registered");
-        }
-    }
-
-    private void registerLocationListener() {
-        if (ContextCompat.checkSelfPermission(this, android.Manifest.permission.ACCESS_FINE_LOCATION)
-                == android.content.pm.PackageManager.PERMISSION_GRANTED) {
-            locationManager.requestLocationUpdates(
-                    LocationManager.GPS_PROVIDER,
-                    1000, // Update every 1 second (typical GPS rate)
-                    0,
-                    locationListener
-            );
-            Log.d(TAG, "GPS listener registered");
-        } else {
-            ActivityCompat.requestPermissions(this,
-                    new String[]{android.Manifest.permission.ACCESS_FINE_LOCATION},
-                    LOCATION_PERMISSION_REQUEST_CODE);
-        }
-    }
-
-    private void unregisterSensorListener() {
-        if (sensorManager != null) {
-            sensorManager.unregisterListener(this);
-        }
-    }
-
-    private void unregisterLocationListener() {
-        if (locationManager != null) {
-            locationManager.removeUpdates(locationListener);
-        }
-    }
-
-    private void listAvailableMotionSensors() {
-        if (sensorManager == null) return;
-
-        java.util.List<Sensor> sensors = sensorManager.getSensorList(Sensor.TYPE_ALL);
-        StringBuilder sensorList = new StringBuilder("Motion-Related Sensors:\n");
-
-        for (Sensor sensor : sensors) {
-            if (isMotionSensor(sensor.getType())) {
-                sensorList.append("• ").append(getSensorTypeName(sensor.getType())).append("\n");
-            }
-        }
-
-        availableMotionSensors = sensorList.toString();
-    }
-
-    private boolean isMotionSensor(int sensorType) {
-        switch (sensorType) {
-            case Sensor.TYPE_ACCELEROMETER:
-            case Sensor.TYPE_GYROSCOPE:
-            case Sensor.TYPE_MAGNETIC_FIELD:
-            case Sensor.TYPE_ROTATION_VECTOR:
-            case Sensor.TYPE_ORIENTATION:
-            case Sensor.TYPE_GRAVITY:
-            case Sensor.TYPE_LINEAR_ACCELERATION:
-            case Sensor.TYPE_GAME_ROTATION_VECTOR:
-            case Sensor.TYPE_GEOMAGNETIC_ROTATION_VECTOR:
-            case Sensor.TYPE_STEP_COUNTER:
-            case Sensor.TYPE_STEP_DETECTOR:
-                return true;
-            default:
-                return false;
-        }
-    }
-
-    private String getSensorTypeName(int sensorType) {
-        switch (sensorType) {
-            case Sensor.TYPE_ACCELEROMETER: return "Accelerometer";
-            case Sensor.TYPE_GYROSCOPE: return "Gyroscope";
-            case Sensor.TYPE_MAGNETIC_FIELD: return "Magnetometer";
-            case Sensor.TYPE_ROTATION_VECTOR: return "Rotation Vector";
-            case Sensor.TYPE_ORIENTATION: return "Orientation (Deprecated)";
-            case Sensor.TYPE_GRAVITY: return "Gravity";
-            case Sensor.TYPE_LINEAR_ACCELERATION: return "Linear Acceleration";
-            case Sensor.TYPE_GAME_ROTATION_VECTOR: return "Game Rotation Vector";
-            case Sensor.TYPE_GEOMAGNETIC_ROTATION_VECTOR: return "Geomagnetic Rotation Vector";
-            case Sensor.TYPE_STEP_COUNTER: return "Step Counter";
-            case Sensor.TYPE_STEP_DETECTOR: return "Step Detector";
-            default: return "Unknown Motion Sensor (Type: " + sensorType + ")";
-        }
-    }
-
-    // ========================================
-    // SENSOR EVENT HANDLING
-    // ========================================
-
-    @Override
-    public void onSensorChanged(SensorEvent event) {
-        if (event.sensor.getType() == Sensor.TYPE_ACCELEROMETER) {
-            System.arraycopy(event.values, 0, accelerometerValues, 0, 3);
-            hasAccelerometerData = true;
-            processAccelerometerData(event.values);
-        } else if (event.sensor.getType() == Sensor.TYPE_MAGNETIC_FIELD) {
-            System.arraycopy(event.values, 0, magnetometerValues, 0, 3);
-            hasMagnetometerData = true;
-        } else if (event.sensor.getType() == Sensor.TYPE_STEP_COUNTER) {
-            processStepCounter(event.values[0]);
-        }
-
-        if (hasAccelerometerData && hasMagnetometerData) {
-            calculateOrientation();
-        }
-    }
-
-    @Override
-    public void onAccuracyChanged(Sensor sensor, int accuracy) {
-        String sensorName = (sensor.getType() == Sensor.TYPE_ACCELEROMETER) ? "Accelerometer" :
-                (sensor.getType() == Sensor.TYPE_MAGNETIC_FIELD) ? "Magnetometer" : "Unknown";
-        Log.d(TAG, sensorName + " accuracy changed to: " + accuracy);
-    }
-
-    private void processAccelerometerData(float[] values) {
-        float x = values[0];
-        float y = values[1];
-        float z = values[2];
-
-        currentRoll = (float) Math.toDegrees(Math.atan2(-y, Math.sqrt(x * x + z * z)));
-        currentPitch = (float) Math.toDegrees(Math.atan2(x, Math.sqrt(y * y + z * z)));
-
-        float totalAccel = (float) Math.sqrt(x * x + y * y + z * z);
-        currentGForce = totalAccel / 9.81f;
-
-        if (magnetometer == null) {
-            currentYaw = 0;
-        }
-
-        // Update smoothed speed (hybrid GPS + accelerometer)
-        updateSmoothedSpeed();
-
-        // Detect jumps/airtime
-        detectJump();
-
-        updateDialView();
-        sendAttitudeData();
-    }
-
-    /**
-     * Hybrid speed calculation: GPS for truth, accelerometer for smooth updates
-     */
-    private void updateSmoothedSpeed() {
-        long timeSinceGPS = System.currentTimeMillis() - lastGPSUpdateTime;
-
-        if (timeSinceGPS < 2000) {
-            // Recent GPS update - blend GPS with current estimate
-            smoothedSpeed = lastGPSSpeed * SPEED_SMOOTHING + smoothedSpeed * (1 - SPEED_SMOOTHING);
-        } else {
-            // No recent GPS - gently decay speed
-            smoothedSpeed *= 0.98f;
-        }
-
-        // Clamp small values to zero
-        if (smoothedSpeed < 0.1f) {
-            smoothedSpeed = 0;
-        }
-
-        currentSpeed = smoothedSpeed;
-    }
-
-    /**
-     * Detects jump/airtime based on vertical acceleration
-     */
-    private void detectJump() {
-        // Vertical acceleration indicates airtime
-        float verticalAccel = accelerometerValues[2]; // Z-axis
-
-        if (Math.abs(verticalAccel) < 1.5f) { // ~0G = airborne
-            if (!wasAirborne) {
-                wasAirborne = true;
-                airborneStartTime = System.currentTimeMillis();
-                Log.d(TAG, "AIRBORNE - Jump detected!");
-            }
-        } else {
-            if (wasAirborne) {
-                long flightTime = System.currentTimeMillis() - airborneStartTime;
-                Log.d(TAG, "LANDED - Flight time: " + flightTime + "ms");
-                wasAirborne = false;
-            }
-        }
-    }
-
-    /**
-     * Processes step counter data
-     */
-    private void processStepCounter(float steps) {
-        totalSteps = (int) steps;
-
-        // Initialize baseline on first reading
-        if (initialSteps == -1) {
-            initialSteps = totalSteps;
-            sessionSteps = 0;
-            Log.d(TAG, "Step counter initialized at: " + initialSteps);
-        } else {
-            sessionSteps = totalSteps - initialSteps;
-            Log.d(TAG, "Steps this session: " + sessionSteps);
-        }
-    }
-
-    private void calculateOrientation() {
-        if (SensorManager.getRotationMatrix(rotationMatrix, null, accelerometerValues, magnetometerValues)) {
-            SensorManager.getOrientation(rotationMatrix, orientationValues);
-
-            float azimuth = (float) Math.toDegrees(orientationValues[0]);
-            if (azimuth < 0) {
-                azimuth += 360;
-            }
-
-            currentYaw = azimuth;
-
-            updateDialView();
-            sendAttitudeData();
-        }
-    }
-
-    private void updateDialView() {
-        if (dialView != null && dialActive) {
-            dialView.setAngles(currentYaw, currentPitch, currentRoll);
-        }
-    }
-
-    // ========================================
-    // SOCKET.IO MANAGEMENT
-    // ========================================
-
-    private void initializeSocket() {
-        try {
-            Log.d(TAG, "Initializing Socket.IO connection to: " + SERVER_URL);
-
-            IO.Options opts = new IO.Options();
-            opts.transports = new String[]{"websocket"};
-            socket = IO.socket(SERVER_URL, opts);
-
-            setupSocketEventListeners();
-
-        } catch (URISyntaxException e) {
-            Log.e(TAG, "URI Syntax error", e);
-            showToast("Invalid server URL", Toast.LENGTH_LONG);
-        } catch (Exception e) {
-            Log.e(TAG, "Error initializing socket", e);
-        }
-    }
-
-    private void setupSocketEventListeners() {
-        socket.on(Socket.EVENT_CONNECT, args -> runOnUiThread(() -> {
-            socketConnected = true;
-            Log.d(TAG, "✓ Connected to server");
-            showToast("✓ Connected to server", Toast.LENGTH_SHORT);
-
-            saveDeviceToServer();
-            requestDeviceState();
-
-            if (dialView != null) {
-                dialView.setConnectionStatus(true);
-            }
-            updateConnectionButton();
-            connectionButton.setEnabled(true);
-        }));
-
-        socket.on(Socket.EVENT_DISCONNECT, args -> runOnUiThread(() -> {
-            socketConnected = false;
-            Log.d(TAG, "✗ Disconnected from server");
-            showToast("✗ Disconnected from server", Toast.LENGTH_SHORT);
-            if (dialView != null) {
-                dialView.setConnectionStatus(false);
-            }
-            updateConnectionButton();
-            connectionButton.setEnabled(true);
-            scheduleReconnection();
-        }));
-
-        socket.on(Socket.EVENT_CONNECT_ERROR, args -> runOnUiThread(() -> {
-            socketConnected = false;
-            String error = args.length > 0 ? args[0].toString() : "Unknown error";
-            Log.e(TAG, "✗ Connection error: " + error);
-            showToast("Connection failed - retrying...", Toast.LENGTH_SHORT);
-            if (dialView != null) {
-                dialView.setConnectionStatus(false);
-            }
-            updateConnectionButton();
-            connectionButton.setEnabled(true);
-            scheduleReconnection();
-        }));
-
-        socket.on("device_state_updated", args -> runOnUiThread(() -> {
-            try {
-                JSONObject data = (JSONObject) args[0];
-                String receivedDeviceId = data.getString("deviceId");
-                String newState = data.getString("state");
-
-                if (deviceId.equals(receivedDeviceId)) {
-                    deviceState = "on".equals(newState);
-                    showToast("Device state changed to: " + newState, Toast.LENGTH_SHORT);
-                    Log.d(TAG, "State updated from web: " + newState);
-
-                    if (dialView != null) {
-                        dialView.invalidate();
-                    }
-                }
-            } catch (Exception e) {
-                Log.e(TAG, "Error parsing state update", e);
-            }
-        }));
-
-        socket.on("device_state_response", args -> runOnUiThread(() -> {
-            try {
-                JSONObject data = (JSONObject) args[0];
-                String state = data.getString("state");
-                deviceState = "on".equals(state);
-                Log.d(TAG, "Current device state: " + state);
-            } catch (Exception e) {
-                Log.e(TAG, "Error parsing state response", e);
-            }
-        }));
-    }
-
-    private void sendAttitudeData() {
-        if (socket == null || !socketConnected) {
-            return;
-        }
-
-        long currentTime = System.currentTimeMillis();
-        if (currentTime - lastSendTime < SEND_INTERVAL) {
-            return;
-        }
-        lastSendTime = currentTime;
-
-        String displayName = (riderName != null && !riderName.isEmpty()) ? riderName : "Unknown Rider";
-
-        try {
-            JSONObject attitudeData = createAttitudeDataJson(displayName);
-            socket.emit("attitude_update", attitudeData);
-            logDataTransmission(currentTime, displayName);
-        } catch (JSONException e) {
-            Log.e(TAG, "Error creating attitude JSON", e);
-        }
-    }
-
-    private JSONObject createAttitudeDataJson(String displayName) throws JSONException {
-        JSONObject attitudeData = new JSONObject();
-        attitudeData.put("pitch", Math.round(currentPitch * 10.0) / 10.0);
-        attitudeData.put("yaw", Math.round(currentYaw * 10.0) / 10.0);
-        attitudeData.put("roll", Math.round(currentRoll * 10.0) / 10.0);
-        attitudeData.put("stream", deviceState ? "on" : "off");
-        attitudeData.put("rider", "gyro_app");
-        attitudeData.put("riderDisplayName", displayName);
-        attitudeData.put("gforce", Math.round(currentGForce * 100.0) / 100.0);
-        attitudeData.put("speed", Math.round(currentSpeed * 100.0) / 100.0);
-        attitudeData.put("airborne", wasAirborne);
-        attitudeData.put("steps", sessionSteps);
-
-        return attitudeData;
-    }
-
-    private void logDataTransmission(long currentTime, String displayName) {
-        if (currentTime % 1000 < SEND_INTERVAL) {
-            Log.d(TAG, String.format("Sent [%s]: P=%.1f°, Y=%.1f°, R=%.1f°, Speed=%.1f km/h, Stream=%s",
-                    displayName, currentPitch, currentYaw, currentRoll, currentSpeed, deviceState ? "on" : "off"));
-        }
-    }
-
-    // ========================================
-    // UTILITY METHODS
-    // ========================================
-
-    private void showToast(String message, int duration) {
-        Toast.makeText(this, message, duration).show();
-    }
-
-    private void scheduleReconnection() {
-        new android.os.Handler(getMainLooper()).postDelayed(() -> {
-            if (!socketConnected && socket != null) {
-                Log.d(TAG, "Attempting automatic reconnection...");
-                connectToServer();
-            }
-        }, 3000);
-    }
-
-    private void cleanup() {
-        if (socket != null) {
-            socket.disconnect();
-            Log.d(TAG, "Socket disconnected in onDestroy");
+            connectionButton.setText("CONNECT");
+            connectionButton.setBackgroundColor(Color.BLUE);
         }
+        connectionButton.setEnabled(true);
     }
 
-    private void requestDeviceState() {
-        if (socket == null || !socketConnected) {
-            return;
-        }
-
-        try {
-            JSONObject requestData = new JSONObject();
-            requestData.put("deviceId", deviceId);
-
-            socket.emit("get_device_state", requestData);
-        } catch (JSONException e) {
-            Log.e(TAG, "Error requesting device state", e);
-        }
-    }
 
     // ========================================
     // CUSTOM VIEW - GYRO DIAL DISPLAY
     // ========================================
 
-    private class GyroDialView extends View {
+    private class GyroDialView extends View implements DialRenderScheduler.Target {
+
+        private static final int LOGO_WIDTH = 360;
+        private static final int LOGO_HEIGHT = 94;
 
         private final Paint backgroundPaint;
         private final Paint backgroundCirclePaint;
@@ -808,15 +357,81 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
         private final Paint statusPaint;
         private final Paint titlePaint;
         private final Paint labelPaint;
+        private final Paint centerDotPaint;
+        private final Paint cardinalPaint;
+        private final Paint overlayPaint;
+        private final Paint graphPaint;
+        private final Paint graphFramePaint;
 
         private Bitmap logoBitmap;
+        private Bitmap scaledLogo;
         private boolean connected = false;
 
+        // Values being drawn, latched at display precision by the render scheduler
+        private final DialDisplayState displayState = new DialDisplayState();
+        private float currentYaw = 0;
+        private float currentPitch = 0;
+        private float currentRoll = 0;
+        private float currentSpeed = 0;
+        private float currentGForce = 0;
+        private int sessionSteps = 0;
+
+        // Layout, recomputed in onSizeChanged so onDraw allocates nothing
+        private int logoX;
+        private int logoY;
+        private int gaugeRadius;
+        private int gaugeCenterY;
+        private int pitchCenterX;
+        private int rollCenterX;
+        private int yawCenterX;
+        private int statusY;
+        private final int[] statusX = new int[5];
+        private final RectF pitchArcBounds = new RectF();
+        private final RectF rollArcBounds = new RectF();
+        private final RectF yawArcBounds = new RectF();
+
+        // Graph panel under the status line, one graph per history channel below
+        private final int[] graphChannels = {SensorHistory.PITCH, SensorHistory.ROLL,
+                SensorHistory.GFORCE, SensorHistory.SPEED};
+        private final String[] graphLabels = {"PITCH", "ROLL", "G-FORCE", "SPEED"};
+        private final float[] graphLow = {-90f, -90f, 0f, 0f};
+        private final float[] graphHigh = {90f, 90f, 3f, 20f}; // speed grows with the ride
+        private final int[] graphColors = {
+                Color.rgb(33, 150, 243),
+                Color.rgb(255, 193, 7),
+                Color.rgb(255, 152, 0),
+                Color.rgb(156, 39, 176)
+        };
+        private final Sparkline[] graphs = new Sparkline[graphChannels.length];
+        private final float[][] graphLines = new float[graphChannels.length][];
+        private final int[] graphLineFloats = new int[graphChannels.length];
+        private final RectF[] graphBounds = new RectF[graphChannels.length];
+        private boolean graphPanel = false;
+
+        // Background, logo, gauge chrome and graph frames, drawn once per layout
+        private boolean staticLayerEnabled = true;
+        private Bitmap staticLayer;
+        private Canvas staticLayerCanvas;
+        private boolean staticLayerValid = false;
+        private boolean yawAvailable = false;
+
+        // Reusable text buffers for drawText(char[], ...)
+        private final char[] valueText = new char[16];
+        private final char[] statusText = new char[32];
+        private final char[] overlayText = new char[64];
+        private TelemetryLatency.Report overlayReport;
+        private TelemetryService.Stats overlayStats;
+        private FrameTimingMonitor.Report overlayFrames;
+        private final TelemetryLatency.Stage[] latencyStages = TelemetryLatency.Stage.values();
+        private String riderLabel;
+        private String riderLabelSource;
+
         private final int[] gaugeColors = {
                 Color.rgb(33, 150, 243),
                 Color.rgb(255, 193, 7),
                 Color.rgb(158, 158, 158)
         };
+        private final int yawColor = Color.rgb(76, 175, 80);
 
         public GyroDialView(Context context) {
             super(context);
@@ -831,8 +446,22 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
             statusPaint = createStatusPaint();
             titlePaint = createTitlePaint();
             labelPaint = createLabelPaint();
+            centerDotPaint = createCenterDotPaint();
+            cardinalPaint = createCardinalPaint();
+            overlayPaint = createOverlayPaint();
+            graphPaint = createGraphPaint();
+            graphFramePaint = createGraphFramePaint();
+
+            // No view background: the static layer paints every pixel
+        }
 
-            setBackgroundColor(Color.WHITE);
+        /**
+         * Draws the static content every frame instead of from the cached layer, for comparison
+         */
+        void setStaticLayerEnabled(boolean enabled) {
+            staticLayerEnabled = enabled;
+            allocateStaticLayer(getWidth(), getHeight());
+            invalidate();
         }
 
         private Paint createBackgroundPaint() {
@@ -908,11 +537,65 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
             return paint;
         }
 
-        public void setAngles(float yaw, float pitch, float roll) {
-            currentYaw = yaw;
-            currentPitch = pitch;
-            currentRoll = roll;
-            invalidate();
+        private Paint createCenterDotPaint() {
+            Paint paint = new Paint();
+            paint.setStyle(Paint.Style.FILL);
+            paint.setAntiAlias(true);
+            return paint;
+        }
+
+        private Paint createCardinalPaint() {
+            Paint paint = new Paint();
+            paint.setColor(Color.rgb(158, 158, 158));
+            paint.setTextSize(16);
+            paint.setTextAlign(Paint.Align.CENTER);
+            paint.setAntiAlias(true);
+            return paint;
+        }
+
+        private Paint createGraphPaint() {
+            Paint paint = new Paint();
+            paint.setStyle(Paint.Style.STROKE);
+            paint.setStrokeWidth(2);
+            paint.setStrokeCap(Paint.Cap.ROUND);
+            paint.setAntiAlias(true);
+            return paint;
+        }
+
+        private Paint createGraphFramePaint() {
+            Paint paint = new Paint();
+            paint.setColor(Color.rgb(230, 230, 230));
+            paint.setStyle(Paint.Style.STROKE);
+            paint.setStrokeWidth(1);
+            return paint;
+        }
+
+        private Paint createOverlayPaint() {
+            Paint paint = new Paint();
+            paint.setColor(Color.rgb(97, 97, 97));
+            paint.setTextSize(16);
+            paint.setTextAlign(Paint.Align.LEFT);
+            paint.setAntiAlias(true);
+            paint.setTypeface(Typeface.MONOSPACE);
+            return paint;
+        }
+
+        /**
+         * Shows or hides the rolling graphs; call before the first layout
+         */
+        void setGraphPanel(boolean visible, long windowNanos) {
+            graphPanel = visible;
+            for (int g = 0; g < graphs.length; g++) {
+                if (graphs[g] == null) {
+                    graphs[g] = new Sparkline(graphChannels[g], GRAPH_COLUMNS, windowNanos);
+                    graphLines[g] = new float[graphs[g].maxLineFloats()];
+                    graphBounds[g] = new RectF();
+                } else {
+                    graphs[g].setWindow(windowNanos);
+                    graphLineFloats[g] = 0;
+                }
+            }
+            requestLayout();
         }
 
         public void setConnectionStatus(boolean connected) {
@@ -920,135 +603,401 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
             invalidate();
         }
 
+        @Override
+        protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight) {
+            super.onSizeChanged(width, height, oldWidth, oldHeight);
+
+            if (logoBitmap != null && scaledLogo == null) {
+                scaledLogo = Bitmap.createScaledBitmap(logoBitmap, LOGO_WIDTH, LOGO_HEIGHT, true);
+            }
+
+            int logoHeight = (logoBitmap != null) ? LOGO_HEIGHT : 0;
+            int graphHeight = graphPanel ? height / 6 : 0;
+            gaugeRadius = Math.min(width / 6, (height - graphHeight) / 4) - 20;
+            int circleAreaHeight = gaugeRadius * 2 + 100;
+            int connectionStatusHeight = 60;
+
+            int totalContentHeight = logoHeight + circleAreaHeight + connectionStatusHeight + 60 + graphHeight;
+
+            int currentY = Math.max(20, (height - totalContentHeight) / 2);
+
+            logoX = (width - LOGO_WIDTH) / 2;
+            logoY = currentY;
+            if (logoBitmap != null) {
+                currentY += LOGO_HEIGHT + 40;
+            }
+
+            gaugeCenterY = currentY + gaugeRadius + 60;
+            pitchCenterX = width / 4;
+            rollCenterX = width / 2;
+            yawCenterX = 3 * width / 4;
+            setArcBounds(pitchArcBounds, pitchCenterX);
+            setArcBounds(rollArcBounds, rollCenterX);
+            setArcBounds(yawArcBounds, yawCenterX);
+            currentY = gaugeCenterY + gaugeRadius + 80;
+
+            statusY = currentY + 20;
+            int spacing = width / 5;
+            for (int i = 0; i < statusX.length; i++) {
+                statusX[i] = i * spacing + spacing / 2;
+            }
+
+            if (graphPanel) {
+                layoutGraphs(width, statusY + 30, graphHeight);
+            }
+            allocateStaticLayer(width, height);
+        }
+
+        /**
+         * Graphs side by side, each with its label above the plot area
+         */
+        private void layoutGraphs(int width, int top, int graphHeight) {
+            int margin = 20;
+            float graphWidth = (width - margin * (graphs.length + 1)) / (float) graphs.length;
+            for (int g = 0; g < graphs.length; g++) {
+                float left = margin + g * (graphWidth + margin);
+                graphBounds[g].set(left, top + 24, left + graphWidth, top + graphHeight);
+                buildGraphLines(g);
+            }
+        }
+
+        private void buildGraphLines(int g) {
+            RectF bounds = graphBounds[g];
+            float high = graphHigh[g];
+            if (graphChannels[g] == SensorHistory.SPEED) {
+                float max = graphs[g].maxValue();
+                high = (max > high) ? max : high; // also false for NaN
+            }
+            graphLineFloats[g] = graphs[g].toLines(graphLines[g], bounds.left, bounds.top,
+                    bounds.width(), bounds.height(), graphLow[g], high);
+        }
+
+        private void setArcBounds(RectF bounds, int centerX) {
+            bounds.set(centerX - gaugeRadius, gaugeCenterY - gaugeRadius,
+                    centerX + gaugeRadius, gaugeCenterY + gaugeRadius);
+        }
+
         @Override
         protected void onDraw(Canvas canvas) {
             super.onDraw(canvas);
 
-            int width = getWidth();
-            int height = getHeight();
-
-            canvas.drawRect(0, 0, width, height, backgroundPaint);
+            if (staticLayerEnabled && ensureStaticLayer()) {
+                canvas.drawBitmap(staticLayer, 0, 0, null);
+            } else {
+                drawStaticContent(canvas);
+            }
 
-            int logoHeight = (logoBitmap != null) ? 94 : 0;
-            int circleRadius = Math.min(width / 6, height / 4) - 20;
-            int circleAreaHeight = circleRadius * 2 + 100;
-            int connectionStatusHeight = 60;
+            drawCenteredProgressCircles(canvas);
+            drawCenteredConnectionStatus(canvas);
+            if (graphPanel) {
+                drawGraphLines(canvas);
+            }
+            if (latencyOverlay) {
+                drawLatencyOverlay(canvas);
+            }
+        }
 
-            int totalContentHeight = logoHeight + circleAreaHeight + connectionStatusHeight + 60;
+        /**
+         * Everything that only changes with the layout or sensor availability
+         */
+        private void drawStaticContent(Canvas canvas) {
+            canvas.drawRect(0, 0, getWidth(), getHeight(), backgroundPaint);
+            drawCenteredLogo(canvas);
+            drawGaugeChrome(canvas);
+            if (graphPanel) {
+                drawGraphFrames(canvas);
+            }
+        }
 
-            int startY = Math.max(20, (height - totalContentHeight) / 2);
-            int currentY = startY;
+        /**
+         * Redraws the static layer if it is stale; false if the view has no size yet
+         */
+        private boolean ensureStaticLayer() {
+            if (staticLayer == null) {
+                return false;
+            }
+            if (!staticLayerValid) {
+                drawStaticContent(staticLayerCanvas);
+                staticLayerValid = true;
+            }
+            return true;
+        }
 
-            currentY = drawCenteredLogo(canvas, width, currentY);
-            currentY = drawCenteredProgressCircles(canvas, width, currentY, circleRadius);
-            currentY = drawCenteredConnectionStatus(canvas, width, currentY);
+        /**
+         * One bitmap the size of the view, allocated per layout and redrawn only when stale
+         */
+        private void allocateStaticLayer(int width, int height) {
+            if (staticLayer != null) {
+                staticLayer.recycle();
+                staticLayer = null;
+                staticLayerCanvas = null;
+            }
+            if (staticLayerEnabled && width > 0 && height > 0) {
+                staticLayer = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+                staticLayerCanvas = new Canvas(staticLayer);
+            }
+            staticLayerValid = false;
         }
 
-        private int drawCenteredLogo(Canvas canvas, int width, int startY) {
-            int currentY = startY;
+        @Override
+        protected void onDetachedFromWindow() {
+            super.onDetachedFromWindow();
+            allocateStaticLayer(0, 0);
+        }
 
-            if (logoBitmap != null) {
-                int logoWidth = 360;
-                int logoHeight = 94;
+        @Override
+        protected void onAttachedToWindow() {
+            super.onAttachedToWindow();
+            if (staticLayer == null) {
+                allocateStaticLayer(getWidth(), getHeight());
+            }
+        }
 
-                Bitmap scaledLogo = Bitmap.createScaledBitmap(logoBitmap, logoWidth, logoHeight, true);
+        @Override
+        public boolean latchFrame() {
+            AttitudeSnapshot snapshot = (service != null) ? service.latest() : AttitudeSnapshot.EMPTY;
+            boolean changed = latchLatencyReport();
+            changed |= latchGraphs();
+            boolean hasYaw = service != null && service.hasMagnetometer();
+            if (hasYaw != yawAvailable) {
+                yawAvailable = hasYaw;
+                staticLayerValid = false;
+                changed = true;
+            }
+            if (!displayState.update(snapshot)) {
+                return changed;
+            }
 
-                int logoX = (width - logoWidth) / 2;
-                canvas.drawBitmap(scaledLogo, logoX, currentY, null);
+            // Arcs use the rounded values too, so an unchanged state is an identical frame
+            currentYaw = displayState.yawDegrees;
+            currentPitch = displayState.pitchDegrees;
+            currentRoll = displayState.rollDegrees;
+            currentSpeed = displayState.speedTenths / 10f;
+            currentGForce = displayState.gForceHundredths / 100f;
+            sessionSteps = displayState.steps;
+            return true;
+        }
 
-                currentY += logoHeight + 40;
+        /**
+         * Folds the samples published since the last frame into the graphs and rebuilds the
+         * line arrays of those that changed; the cost does not depend on the sample rate
+         */
+        private boolean latchGraphs() {
+            SensorHistory history = (service != null) ? service.history() : null;
+            if (!graphPanel || history == null) {
+                return false;
             }
+            boolean changed = false;
+            for (int g = 0; g < graphs.length; g++) {
+                if (graphs[g].update(history)) {
+                    buildGraphLines(g);
+                    changed = true;
+                }
+            }
+            return changed;
+        }
 
-            return currentY;
+        private void drawGraphFrames(Canvas canvas) {
+            for (int g = 0; g < graphs.length; g++) {
+                RectF bounds = graphBounds[g];
+                canvas.drawRect(bounds, graphFramePaint);
+                canvas.drawText(graphLabels[g], bounds.centerX(), bounds.top - 6, labelPaint);
+            }
         }
 
-        private int drawCenteredConnectionStatus(Canvas canvas, int width, int startY) {
-            startY += 20;
+        private void drawGraphLines(Canvas canvas) {
+            for (int g = 0; g < graphs.length; g++) {
+                if (graphLineFloats[g] > 0) {
+                    graphPaint.setColor(graphColors[g]);
+                    canvas.drawLines(graphLines[g], 0, graphLineFloats[g], graphPaint);
+                }
+            }
+        }
 
-            int spacing = width / 5; // Changed from /4 to /5 for 5 items
-            int pos1X = spacing / 2;
-            int pos2X = spacing + spacing / 2;
-            int pos3X = 2 * spacing + spacing / 2;
-            int pos4X = 3 * spacing + spacing / 2;
-            int pos5X = 4 * spacing + spacing / 2;
+        /**
+         * Picks up a new latency report and service stats while the overlay is shown; both
+         * change every few seconds
+         */
+        private boolean latchLatencyReport() {
+            if (!latencyOverlay || service == null) {
+                return false;
+            }
+            TelemetryLatency.Report report = service.getTelemetryLatency().getLastReport();
+            TelemetryService.Stats stats = service.getLastStats();
+            FrameTimingMonitor.Report frames = frameTiming.getLastReport();
+            if (report == overlayReport && stats == overlayStats && frames == overlayFrames) {
+                return false;
+            }
+            overlayReport = report;
+            overlayStats = stats;
+            overlayFrames = frames;
+            return true;
+        }
 
-            if (riderName != null && !riderName.isEmpty()) {
-                statusPaint.setColor(Color.rgb(158, 158, 158));
-                statusPaint.setTextSize(20);
-                statusPaint.setTextAlign(Paint.Align.CENTER);
-                canvas.drawText("RIDER: " + riderName.toUpperCase(), pos1X, startY, statusPaint);
+        /**
+         * One line per stage with its p50/p99/p999 in milliseconds, formatted without allocating
+         */
+        private void drawLatencyOverlay(Canvas canvas) {
+            int y = 24;
+            TelemetryLatency.Report report = overlayReport;
+            if (report == null) {
+                int length = CharFormat.append("latency: collecting...", overlayText, 0);
+                canvas.drawText(overlayText, 0, length, 12, y, overlayPaint);
+                return;
             }
 
-            String statusText;
-            int statusColor;
+            int length = CharFormat.append("stage   p50    p99    p999 ms", overlayText, 0);
+            canvas.drawText(overlayText, 0, length, 12, y, overlayPaint);
+            for (TelemetryLatency.Stage stage : latencyStages) {
+                if (report.count(stage) == 0) {
+                    continue;
+                }
+                y += 20;
+                length = padTo(CharFormat.append(stage.label, overlayText, 0), 7);
+                for (int p = 0; p < TelemetryLatency.PERCENTILES.length; p++) {
+                    int start = length + 1;
+                    length = start + CharFormat.formatFixed(report.percentileMicros(stage, p) / 1000f, 1,
+                            overlayText, start);
+                    overlayText[start - 1] = ' ';
+                    length = padTo(length, start + 6);
+                }
+                canvas.drawText(overlayText, 0, length, 12, y, overlayPaint);
+            }
 
-            if (connected) {
-                statusText = "● CONNECTED";
-                statusColor = Color.rgb(76, 175, 80);
-            } else {
-                statusText = "● DISCONNECTED";
-                statusColor = Color.rgb(244, 67, 54);
+            y += 20;
+            length = CharFormat.append("acked ", overlayText, 0);
+            length += CharFormat.formatInt((int) report.acked, overlayText, length);
+            overlayText[length++] = '/';
+            length += CharFormat.formatInt((int) report.sampled, overlayText, length);
+            canvas.drawText(overlayText, 0, length, 12, y, overlayPaint);
+
+            TelemetryService.Stats stats = overlayStats;
+            if (stats != null) {
+                y += 20;
+                length = CharFormat.formatFixed(stats.sensorEventsPerSecond, 0, overlayText, 0);
+                length += CharFormat.append(" ev/s ", overlayText, length);
+                length += CharFormat.formatFixed(stats.messagesPerSecond, 1, overlayText, length);
+                length += CharFormat.append(" msg/s ", overlayText, length);
+                length += CharFormat.formatFixed(stats.milliAmpHoursPerHour(), 0, overlayText, length);
+                length += CharFormat.append(" mAh/h", overlayText, length);
+                canvas.drawText(overlayText, 0, length, 12, y, overlayPaint);
             }
 
-            statusPaint.setColor(statusColor);
-            statusPaint.setTextSize(20);
-            statusPaint.setTextAlign(Paint.Align.CENTER);
-            canvas.drawText(statusText, pos2X, startY, statusPaint);
+            FrameTimingMonitor.Report frames = overlayFrames;
+            if (frames != null) {
+                y += 20;
+                length = CharFormat.append("frame draw ", overlayText, 0);
+                length = appendMillisPair(frames.drawP50Micros, frames.drawP99Micros, length);
+                length += CharFormat.append(" gpu ", overlayText, length);
+                length = appendMillisPair(frames.issueP50Micros, frames.issueP99Micros, length);
+                length += CharFormat.append(" ms", overlayText, length);
+                canvas.drawText(overlayText, 0, length, 12, y, overlayPaint);
+            }
+        }
 
-            String speedText = String.format("%.1f km/h", currentSpeed);
-            int speedColor = currentSpeed > 1.0f ? Color.rgb(33, 150, 243) : Color.rgb(158, 158, 158);
+        /**
+         * "p50/p99" in milliseconds at overlayText[length]; returns the new length
+         */
+        private int appendMillisPair(long p50Micros, long p99Micros, int length) {
+            length += CharFormat.formatFixed(p50Micros / 1000f, 1, overlayText, length);
+            overlayText[length++] = '/';
+            return length + CharFormat.formatFixed(p99Micros / 1000f, 1, overlayText, length);
+        }
 
-            statusPaint.setColor(speedColor);
-            statusPaint.setTextSize(20);
-            statusPaint.setTextAlign(Paint.Align.CENTER);
-            canvas.drawText(speedText, pos3X, startY, statusPaint);
-
-            float gForce = 0;
-            if (accelerometerValues != null) {
-                float x = accelerometerValues[0];
-                float y = accelerometerValues[1];
-                float z = accelerometerValues[2];
-                float totalAccel = (float) Math.sqrt(x * x + y * y + z * z);
-                gForce = totalAccel / 9.81f;
+        private int padTo(int length, int width) {
+            while (length < width) {
+                overlayText[length++] = ' ';
             }
+            return length;
+        }
 
-            String gForceText = String.format("%.2f G", gForce);
-            int gForceColor = gForce > 1.5f ? Color.rgb(255, 152, 0) : Color.rgb(158, 158, 158);
+        private void drawCenteredLogo(Canvas canvas) {
+            if (scaledLogo != null) {
+                canvas.drawBitmap(scaledLogo, logoX, logoY, null);
+            }
+        }
 
-            statusPaint.setColor(gForceColor);
+        private void drawCenteredConnectionStatus(Canvas canvas) {
             statusPaint.setTextSize(20);
             statusPaint.setTextAlign(Paint.Align.CENTER);
-            canvas.drawText(gForceText, pos4X, startY, statusPaint);
 
-            // Step counter display
-            String stepsText = sessionSteps + " steps";
-            int stepsColor = sessionSteps > 0 ? Color.rgb(156, 39, 176) : Color.rgb(158, 158, 158);
+            String label = getRiderLabel();
+            if (label != null) {
+                statusPaint.setColor(Color.rgb(158, 158, 158));
+                canvas.drawText(label, statusX[0], statusY, statusPaint);
+            }
 
-            statusPaint.setColor(stepsColor);
-            statusPaint.setTextSize(20);
-            statusPaint.setTextAlign(Paint.Align.CENTER);
-            canvas.drawText(stepsText, pos5X, startY, statusPaint);
+            if (connected) {
+                statusPaint.setColor(Color.rgb(76, 175, 80));
+                canvas.drawText("● CONNECTED", statusX[1], statusY, statusPaint);
+            } else {
+                statusPaint.setColor(Color.rgb(244, 67, 54));
+                canvas.drawText("● DISCONNECTED", statusX[1], statusY, statusPaint);
+            }
+
+            int length = CharFormat.formatFixed(currentSpeed, 1, statusText, 0);
+            length += CharFormat.append(" km/h", statusText, length);
+            statusPaint.setColor(currentSpeed > 1.0f ? Color.rgb(33, 150, 243) : Color.rgb(158, 158, 158));
+            canvas.drawText(statusText, 0, length, statusX[2], statusY, statusPaint);
+
+            length = CharFormat.formatFixed(currentGForce, 2, statusText, 0);
+            length += CharFormat.append(" G", statusText, length);
+            statusPaint.setColor(currentGForce > 1.5f ? Color.rgb(255, 152, 0) : Color.rgb(158, 158, 158));
+            canvas.drawText(statusText, 0, length, statusX[3], statusY, statusPaint);
 
-            return startY + 30;
+            // Step counter display
+            length = CharFormat.formatInt(sessionSteps, statusText, 0);
+            length += CharFormat.append(" steps", statusText, length);
+            statusPaint.setColor(sessionSteps > 0 ? Color.rgb(156, 39, 176) : Color.rgb(158, 158, 158));
+            canvas.drawText(statusText, 0, length, statusX[4], statusY, statusPaint);
         }
 
-        private int drawCenteredProgressCircles(Canvas canvas, int width, int startY, int circleRadius) {
-            int centerY = startY + circleRadius + 60;
+        /**
+         * "RIDER: NAME", rebuilt only when the rider name changes
+         */
+        private String getRiderLabel() {
+            String name = riderName;
+            if (name == null || name.isEmpty()) {
+                return null;
+            }
+            if (!name.equals(riderLabelSource)) {
+                riderLabelSource = name;
+                riderLabel = "RIDER: " + name.toUpperCase();
+            }
+            return riderLabel;
+        }
 
-            int leftX = width / 4;
-            int centerX = width / 2;
-            int rightX = 3 * width / 4;
+        // ----------------------------------------
+        // Gauges: chrome goes into the static layer, arcs and values are drawn per frame
+        // ----------------------------------------
 
-            drawPitchCircle(canvas, leftX, centerY, circleRadius);
-            drawRollCircle(canvas, centerX, centerY, circleRadius);
-            drawYawCircle(canvas, rightX, centerY, circleRadius);
+        private void drawGaugeChrome(Canvas canvas) {
+            drawPitchChrome(canvas, pitchCenterX, gaugeCenterY, gaugeRadius);
+            drawRollChrome(canvas, rollCenterX, gaugeCenterY, gaugeRadius);
+            drawYawChrome(canvas, yawCenterX, gaugeCenterY, gaugeRadius);
+        }
 
-            return centerY + circleRadius + 80;
+        private void drawCenteredProgressCircles(Canvas canvas) {
+            drawPitchCircle(canvas, pitchCenterX, gaugeCenterY);
+            drawRollCircle(canvas, rollCenterX, gaugeCenterY);
+            if (yawAvailable) {
+                drawYawNeedle(canvas, yawCenterX, gaugeCenterY, currentYaw, yawColor);
+            }
         }
 
-        private void drawPitchCircle(Canvas canvas, int centerX, int centerY, int radius) {
+        private void drawPitchChrome(Canvas canvas, int centerX, int centerY, int radius) {
             canvas.drawCircle(centerX, centerY, radius, backgroundCirclePaint);
 
+            textPaint.setTextSize(16);
+            canvas.drawText("degrees", centerX, centerY + 30, textPaint);
+            textPaint.setTextSize(14);
+            canvas.drawText("Range: ±90°", centerX, centerY + 50, textPaint);
+
+            titlePaint.setTextSize(24);
+            canvas.drawText("TILT (TURNUP)", centerX, centerY - radius - 50, titlePaint);
+        }
+
+        private void drawPitchCircle(Canvas canvas, int centerX, int centerY) {
             float normalizedPitch = Math.abs(currentPitch) / 90f;
             normalizedPitch = Math.min(1.0f, normalizedPitch);
 
@@ -1058,35 +1007,19 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
                 float sweepAngle = normalizedPitch * 90f;
 
                 if (currentPitch >= 0) {
-                    canvas.drawArc(
-                            centerX - radius, centerY - radius,
-                            centerX + radius, centerY + radius,
-                            -90f - sweepAngle, sweepAngle, false, progressPaint
-                    );
-
-                    canvas.drawArc(
-                            centerX - radius, centerY - radius,
-                            centerX + radius, centerY + radius,
-                            -90f, sweepAngle, false, progressPaint
-                    );
-
+                    canvas.drawArc(pitchArcBounds, -90f - sweepAngle, sweepAngle, false, progressPaint);
+                    canvas.drawArc(pitchArcBounds, -90f, sweepAngle, false, progressPaint);
                 } else {
-                    canvas.drawArc(
-                            centerX - radius, centerY - radius,
-                            centerX + radius, centerY + radius,
-                            90f, sweepAngle, false, progressPaint
-                    );
-
-                    canvas.drawArc(
-                            centerX - radius, centerY - radius,
-                            centerX + radius, centerY + radius,
-                            90f - sweepAngle, sweepAngle, false, progressPaint
-                    );
+                    canvas.drawArc(pitchArcBounds, 90f, sweepAngle, false, progressPaint);
+                    canvas.drawArc(pitchArcBounds, 90f - sweepAngle, sweepAngle, false, progressPaint);
                 }
             }
 
-            valuePaint.setTextSize(48);
-            canvas.drawText(String.format("%.0f", currentPitch), centerX, centerY + 8, valuePaint);
+            drawDegrees(canvas, currentPitch, centerX, centerY);
+        }
+
+        private void drawRollChrome(Canvas canvas, int centerX, int centerY, int radius) {
+            canvas.drawCircle(centerX, centerY, radius, backgroundCirclePaint);
 
             textPaint.setTextSize(16);
             canvas.drawText("degrees", centerX, centerY + 30, textPaint);
@@ -1094,12 +1027,10 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
             canvas.drawText("Range: ±90°", centerX, centerY + 50, textPaint);
 
             titlePaint.setTextSize(24);
-            canvas.drawText("TILT (TURNUP)", centerX, centerY - radius - 50, titlePaint);
+            canvas.drawText("LEAN (TABLE TOP)", centerX, centerY - radius - 50, titlePaint);
         }
 
-        private void drawRollCircle(Canvas canvas, int centerX, int centerY, int radius) {
-            canvas.drawCircle(centerX, centerY, radius, backgroundCirclePaint);
-
+        private void drawRollCircle(Canvas canvas, int centerX, int centerY) {
             float normalizedRoll = Math.abs(currentRoll) / 90f;
             normalizedRoll = Math.min(1.0f, normalizedRoll);
 
@@ -1109,49 +1040,21 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
                 float sweepAngle = normalizedRoll * 90f;
 
                 if (currentRoll >= 0) {
-                    canvas.drawArc(
-                            centerX - radius, centerY - radius,
-                            centerX + radius, centerY + radius,
-                            0f - sweepAngle, sweepAngle, false, progressPaint
-                    );
-
-                    canvas.drawArc(
-                            centerX - radius, centerY - radius,
-                            centerX + radius, centerY + radius,
-                            0f, sweepAngle, false, progressPaint
-                    );
-
+                    canvas.drawArc(rollArcBounds, 0f - sweepAngle, sweepAngle, false, progressPaint);
+                    canvas.drawArc(rollArcBounds, 0f, sweepAngle, false, progressPaint);
                 } else {
-                    canvas.drawArc(
-                            centerX - radius, centerY - radius,
-                            centerX + radius, centerY + radius,
-                            180f, sweepAngle, false, progressPaint
-                    );
-
-                    canvas.drawArc(
-                            centerX - radius, centerY - radius,
-                            centerX + radius, centerY + radius,
-                            180f - sweepAngle, sweepAngle, false, progressPaint
-                    );
+                    canvas.drawArc(rollArcBounds, 180f, sweepAngle, false, progressPaint);
+                    canvas.drawArc(rollArcBounds, 180f - sweepAngle, sweepAngle, false, progressPaint);
                 }
             }
 
-            valuePaint.setTextSize(48);
-            canvas.drawText(String.format("%.0f", currentRoll), centerX, centerY + 8, valuePaint);
-
-            textPaint.setTextSize(16);
-            canvas.drawText("degrees", centerX, centerY + 30, textPaint);
-            textPaint.setTextSize(14);
-            canvas.drawText("Range: ±90°", centerX, centerY + 50, textPaint);
-
-            titlePaint.setTextSize(24);
-            canvas.drawText("LEAN (TABLE TOP)", centerX, centerY - radius - 50, titlePaint);
+            drawDegrees(canvas, currentRoll, centerX, centerY);
         }
 
-        private void drawYawCircle(Canvas canvas, int centerX, int centerY, int radius) {
-            if (magnetometer == null) {
-                canvas.drawCircle(centerX, centerY, radius, backgroundCirclePaint);
+        private void drawYawChrome(Canvas canvas, int centerX, int centerY, int radius) {
+            canvas.drawCircle(centerX, centerY, radius, backgroundCirclePaint);
 
+            if (!yawAvailable) {
                 valuePaint.setTextSize(36);
                 valuePaint.setColor(Color.rgb(158, 158, 158));
                 canvas.drawText("N/A", centerX, centerY + 8, valuePaint);
@@ -1162,12 +1065,17 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
 
                 valuePaint.setColor(Color.rgb(33, 33, 33));
             } else {
-                int yawColor = Color.rgb(76, 175, 80);
-
-                drawYawProgressCircle(canvas, centerX, centerY, radius, currentYaw, yawColor);
-
-                valuePaint.setTextSize(48);
-                canvas.drawText(String.format("%.0f", currentYaw), centerX, centerY + 8, valuePaint);
+                centerDotPaint.setColor(yawColor);
+                canvas.drawCircle(centerX, centerY, 8, centerDotPaint);
+
+                cardinalPaint.setTextAlign(Paint.Align.CENTER);
+                canvas.drawText("N", centerX, centerY - radius - 10, cardinalPaint);
+                cardinalPaint.setTextAlign(Paint.Align.LEFT);
+                canvas.drawText("E", centerX + radius + 10, centerY + 5, cardinalPaint);
+                cardinalPaint.setTextAlign(Paint.Align.CENTER);
+                canvas.drawText("S", centerX, centerY + radius + 25, cardinalPaint);
+                cardinalPaint.setTextAlign(Paint.Align.RIGHT);
+                canvas.drawText("W", centerX - radius - 10, centerY + 5, cardinalPaint);
 
                 textPaint.setTextSize(16);
                 canvas.drawText("degrees", centerX, centerY + 30, textPaint);
@@ -1179,38 +1087,24 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
             canvas.drawText("TURN (TURNDOWN)", centerX, centerY - radius - 50, titlePaint);
         }
 
-        private void drawYawProgressCircle(Canvas canvas, int centerX, int centerY, int radius, float yaw, int color) {
-            canvas.drawCircle(centerX, centerY, radius, backgroundCirclePaint);
-
+        private void drawYawNeedle(Canvas canvas, int centerX, int centerY, float yaw, int color) {
             progressPaint.setColor(color);
 
             float needleAngle = yaw - 90f;
 
-            canvas.drawArc(
-                    centerX - radius, centerY - radius,
-                    centerX + radius, centerY + radius,
-                    needleAngle - 5, 10, false, progressPaint
-            );
-
-            Paint centerDotPaint = new Paint();
-            centerDotPaint.setColor(color);
-            centerDotPaint.setStyle(Paint.Style.FILL);
-            centerDotPaint.setAntiAlias(true);
-            canvas.drawCircle(centerX, centerY, 8, centerDotPaint);
-
-            Paint cardinalPaint = new Paint();
-            cardinalPaint.setColor(Color.rgb(158, 158, 158));
-            cardinalPaint.setTextSize(16);
-            cardinalPaint.setTextAlign(Paint.Align.CENTER);
-            cardinalPaint.setAntiAlias(true);
-
-            canvas.drawText("N", centerX, centerY - radius - 10, cardinalPaint);
-            cardinalPaint.setTextAlign(Paint.Align.LEFT);
-            canvas.drawText("E", centerX + radius + 10, centerY + 5, cardinalPaint);
-            cardinalPaint.setTextAlign(Paint.Align.CENTER);
-            canvas.drawText("S", centerX, centerY + radius + 25, cardinalPaint);
-            cardinalPaint.setTextAlign(Paint.Align.RIGHT);
-            canvas.drawText("W", centerX - radius - 10, centerY + 5, cardinalPaint);
+            canvas.drawArc(yawArcBounds, needleAngle - 5, 10, false, progressPaint);
+
+            drawDegrees(canvas, yaw, centerX, centerY);
+        }
+
+        /**
+         * Whole-degree gauge value, formatted without allocating
+         */
+        private void drawDegrees(Canvas canvas, float degrees, int centerX, int centerY) {
+            valuePaint.setTextSize(48);
+            int length = CharFormat.formatFixed(degrees, 0, valueText, 0);
+            canvas.drawText(valueText, 0, length, centerX, centerY + 8, valuePaint);
         }
     }
-}
\ No newline at end of file
+}
+
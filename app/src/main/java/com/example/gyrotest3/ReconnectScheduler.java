@@ -0,0 +1,139 @@
+package com.example.gyrotest3;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.gyrotest3.core.ExponentialBackoff;
+import com.example.gyrotest3.core.ReconnectController;
+
+import java.util.Random;
+
+/**
+ * ReconnectScheduler - Runs {@link ReconnectController} on the main thread
+ *
+ * Posts the single pending attempt on a main-thread Handler and feeds the controller
+ * default-network changes from {@link ConnectivityManager}. {@link ServerConnectionPool}
+ * keeps one per server. All public methods must be called on the main thread.
+ */
+final class ReconnectScheduler implements ReconnectController.Actions {
+
+    private static final String TAG = "GyroSocket";
+
+    private static final long BACKOFF_BASE_MS = 1_000;
+    private static final long BACKOFF_MAX_MS = 60_000;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ConnectivityManager connectivityManager;
+    private final String name;
+    private final Runnable connector;
+    private final ReconnectController controller;
+    private final Runnable attempt;
+
+    private final ConnectivityManager.NetworkCallback networkCallback = new ConnectivityManager.NetworkCallback() {
+        @Override
+        public void onAvailable(Network network) {
+            mainHandler.post(() -> {
+                Log.d(TAG, "Network available - resuming reconnection to " + name);
+                controller.onNetworkAvailable();
+            });
+        }
+
+        @Override
+        public void onLost(Network network) {
+            mainHandler.post(() -> {
+                Log.d(TAG, "Network lost - suspending reconnection to " + name);
+                controller.onNetworkLost();
+            });
+        }
+    };
+
+    /**
+     * @param name      server the attempts go to, for logs
+     * @param connector starts one connection attempt; called on the main thread
+     */
+    ReconnectScheduler(Context context, String name, Runnable connector) {
+        this.connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        this.name = name;
+        this.connector = connector;
+        this.controller = new ReconnectController(this,
+                new ExponentialBackoff(BACKOFF_BASE_MS, BACKOFF_MAX_MS, new Random()));
+        this.attempt = controller::onAttemptDue;
+    }
+
+    void start() {
+        if (connectivityManager == null) {
+            return;
+        }
+        if (connectivityManager.getActiveNetwork() == null) {
+            controller.onNetworkLost();
+        }
+        connectivityManager.registerDefaultNetworkCallback(networkCallback);
+    }
+
+    void stop() {
+        controller.disable();
+        if (connectivityManager != null) {
+            try {
+                connectivityManager.unregisterNetworkCallback(networkCallback);
+            } catch (IllegalArgumentException e) {
+                // Never registered
+            }
+        }
+    }
+
+    // ========================================
+    // SOCKET SIGNALS (main thread)
+    // ========================================
+
+    void requestConnect() {
+        controller.requestConnect(SystemClock.elapsedRealtime());
+    }
+
+    void disable() {
+        controller.disable();
+    }
+
+    void onConnected() {
+        controller.onConnected(SystemClock.elapsedRealtime());
+        Log.d(TAG, "Reconnect stats for " + name + ": attempts=" + controller.getAttempts()
+                + ", reconnects=" + controller.getReconnects()
+                + ", duplicateSignals=" + controller.getDuplicateSignals()
+                + ", lastTimeToReconnect=" + controller.getLastTimeToReconnectMillis() + "ms"
+                + ", maxTimeToReconnect=" + controller.getMaxTimeToReconnectMillis() + "ms");
+    }
+
+    void onConnectionLost() {
+        controller.onConnectionLost(SystemClock.elapsedRealtime());
+    }
+
+    ReconnectController getController() {
+        return controller;
+    }
+
+    // ========================================
+    // CONTROLLER ACTIONS
+    // ========================================
+
+    @Override
+    public void scheduleAttempt(long delayMillis) {
+        mainHandler.removeCallbacks(attempt);
+        mainHandler.postDelayed(attempt, delayMillis);
+        Log.d(TAG, "Reconnection attempt to " + name + " in " + delayMillis + "ms (failures: "
+                + controller.getConsecutiveFailures() + ")");
+    }
+
+    @Override
+    public void cancelAttempt() {
+        mainHandler.removeCallbacks(attempt);
+    }
+
+    @Override
+    public void connectNow() {
+        connector.run();
+    }
+}
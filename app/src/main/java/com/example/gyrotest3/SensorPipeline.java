@@ -0,0 +1,619 @@
+package com.example.gyrotest3;
+
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener2;
+import android.hardware.SensorManager;
+import android.location.Location;
+import android.location.LocationListener;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import com.example.gyrotest3.core.AttitudeProcessor;
+import com.example.gyrotest3.core.AttitudeSnapshot;
+import com.example.gyrotest3.core.FifoDrain;
+import com.example.gyrotest3.core.JumpEvent;
+import com.example.gyrotest3.core.MotionState;
+import com.example.gyrotest3.core.OrientationFusion;
+import com.example.gyrotest3.core.SensorHistory;
+import com.example.gyrotest3.core.SensorTraceWriter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * SensorPipeline - Sensor fusion on a dedicated HandlerThread
+ *
+ * Sensor and GPS callbacks are delivered on the pipeline thread, which is the only
+ * writer of the {@link AttitudeProcessor}. Each event publishes an immutable
+ * {@link AttitudeSnapshot} through an {@link AtomicReference}, so the UI reads the
+ * latest value on its own schedule and never blocks the sensor thread. Every snapshot is
+ * also appended to a {@link SensorHistory} that any thread can read windows from.
+ *
+ * Motion sensor rates follow the processor's {@link MotionState}: fast with a short hardware
+ * batching latency while riding, slow and heavily batched when idle. Sensors are re-registered
+ * on the pipeline thread whenever the state's policy changes. Without an
+ * {@link OrientationFusion} engine the magnetometer only drives yaw and never runs faster
+ * than {@link SensorManager#SENSOR_DELAY_UI}.
+ *
+ * Events are processed by their own {@link SensorEvent#timestamp}, so results do not depend on
+ * how bursty delivery is. With hardware batching on, {@link #stop(Runnable)} flushes the sensor
+ * FIFOs and processes what was queued before unregistering.
+ *
+ * Raw events can be recorded to a {@link SensorTraceWriter} trace for replay on the JVM.
+ */
+final class SensorPipeline implements SensorEventListener2 {
+
+    private static final String TAG = "GyroSocket";
+
+    /**
+     * Receives every snapshot on the pipeline thread; must return quickly and never block
+     */
+    interface Consumer {
+        void onSnapshot(AttitudeSnapshot snapshot, int sensorType);
+    }
+
+    /**
+     * Receives each completed jump on the pipeline thread
+     */
+    interface JumpListener {
+        void onJump(JumpEvent jump);
+    }
+
+    /**
+     * Receives motion state changes on the pipeline thread, after sensors were re-registered;
+     * {@code state.samePolicyAs(previous)} means only the state changed, not its rates
+     */
+    interface MotionStateListener {
+        void onMotionStateChanged(MotionState state, MotionState previous);
+    }
+
+    /**
+     * Receives each GPS fix on the pipeline thread, after the speed filter
+     */
+    interface LocationConsumer {
+        void onLocation(Location location);
+    }
+
+    private static final int UI_PERIOD_US = 60_000;
+    private static final long FLUSH_TIMEOUT_MS = 500;
+    // Snapshots kept for graphs and filters: 80 s at 200 publishes/s, 448 KB
+    private static final int HISTORY_CAPACITY = 16_384;
+
+    private final SensorManager sensorManager;
+    private final Sensor accelerometer;
+    private final Sensor magnetometer;
+    private final Sensor stepCounter;
+    private final Sensor gyroscope;
+    private final Sensor rotationVector;
+    private final boolean fused;
+
+    private final HandlerThread thread;
+    private final Handler handler;
+    private final AttitudeProcessor processor;
+    private final AtomicReference<AttitudeSnapshot> latest = new AtomicReference<>(AttitudeSnapshot.EMPTY);
+    private final SensorHistory history = new SensorHistory(HISTORY_CAPACITY, SensorHistory.ATTITUDE_CHANNELS);
+
+    private volatile Consumer networkConsumer;
+    private volatile Runnable uiInvalidator;
+    private volatile JumpListener jumpListener;
+    private volatile MotionStateListener motionStateListener;
+    private volatile LocationConsumer locationConsumer;
+
+    // Guards registration, which changes from both the UI and the pipeline thread
+    private final Object registrationLock = new Object();
+    private final FifoDrain drain = new FifoDrain(new FifoDrain.Sensors() {
+        @Override
+        public void register() {
+            registerMotionSensors(appliedState);
+            if (stepCounter != null) {
+                sensorManager.registerListener(SensorPipeline.this, stepCounter, SensorManager.SENSOR_DELAY_UI,
+                        handler);
+                Log.d(TAG, "Step Counter listener registered");
+            }
+        }
+
+        @Override
+        public void reregister() {
+            unregisterMotionSensors();
+            registerMotionSensors(appliedState);
+        }
+
+        @Override
+        public void unregister() {
+            sensorManager.unregisterListener(SensorPipeline.this);
+        }
+    });
+    private volatile MotionState appliedState = MotionState.IDLE;
+    private volatile boolean hardwareBatching = true;
+    private volatile int minSamplingPeriodUs = 0; // server limit, see setMinSamplingPeriod
+
+    // Pipeline thread only
+    private SensorTraceWriter traceWriter;
+    private volatile long eventsProcessed = 0; // written on the pipeline thread only
+    private Runnable drainedCallback;
+
+    private final LocationListener locationListener = new LocationListener() {
+        @Override
+        public void onLocationChanged(Location location) {
+            recordLocation(location);
+            processor.onLocation(location.getElapsedRealtimeNanos(), location.getSpeed(),
+                    speedAccuracyOf(location), location.hasBearing() ? location.getBearing() : Float.NaN);
+            Log.d(TAG, "GPS Speed Update: " + String.format("%.2f", location.getSpeed() * 3.6f)
+                    + " km/h, estimate " + String.format("%.2f", processor.getSpeedFilter().getSpeedKmh()) + " km/h");
+
+            LocationConsumer consumer = locationConsumer;
+            if (consumer != null) {
+                consumer.onLocation(location);
+            }
+        }
+
+        @Override
+        public void onProviderEnabled(String provider) {}
+
+        @Override
+        public void onProviderDisabled(String provider) {}
+
+        @Override
+        public void onStatusChanged(String provider, int status, Bundle extras) {}
+    };
+
+    SensorPipeline(SensorManager sensorManager, Sensor accelerometer, Sensor magnetometer, Sensor stepCounter) {
+        this(sensorManager, accelerometer, magnetometer, stepCounter, null, null, null);
+    }
+
+    /**
+     * @param gyroscope      fed to {@code fusion}; may be null
+     * @param rotationVector TYPE_ROTATION_VECTOR or TYPE_GAME_ROTATION_VECTOR; may be null
+     * @param fusion         null keeps raw accelerometer/magnetometer angles
+     */
+    SensorPipeline(SensorManager sensorManager, Sensor accelerometer, Sensor magnetometer, Sensor stepCounter,
+                   Sensor gyroscope, Sensor rotationVector, OrientationFusion fusion) {
+        this.sensorManager = sensorManager;
+        this.accelerometer = accelerometer;
+        this.magnetometer = magnetometer;
+        this.stepCounter = stepCounter;
+        this.gyroscope = gyroscope; // also measures rotation during jumps
+        this.rotationVector = fusion != null ? rotationVector : null;
+        this.fused = fusion != null;
+        this.processor = new AttitudeProcessor(magnetometer != null, fusion);
+
+        thread = new HandlerThread("SensorPipeline", Process.THREAD_PRIORITY_DISPLAY);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    // ========================================
+    // LIFECYCLE
+    // ========================================
+
+    void start() {
+        if (sensorManager == null) {
+            return;
+        }
+
+        synchronized (registrationLock) {
+            drain.start(); // while draining, resumes at the current rates
+        }
+    }
+
+    void stop() {
+        stop(null);
+    }
+
+    /**
+     * Flushes the hardware FIFOs and unregisters once the queued events are processed, or
+     * after {@link #FLUSH_TIMEOUT_MS}
+     *
+     * @param drained runs on the pipeline thread afterwards; may be null
+     */
+    void stop(Runnable drained) {
+        if (sensorManager == null) {
+            if (drained != null) {
+                handler.post(drained);
+            }
+            return;
+        }
+        int generation;
+        synchronized (registrationLock) {
+            generation = drain.stop();
+        }
+        handler.post(() -> beginDrain(generation, drained));
+    }
+
+    /**
+     * Unregisters immediately, dropping anything still queued in the FIFOs
+     */
+    private void unregisterNow() {
+        if (sensorManager == null) {
+            return;
+        }
+        synchronized (registrationLock) {
+            drain.unregisterNow();
+        }
+    }
+
+    /**
+     * Batching on or off for the next registration; off delivers every event as it happens
+     */
+    void setHardwareBatching(boolean enabled) {
+        hardwareBatching = enabled;
+    }
+
+    /**
+     * Samples the motion sensors no faster than {@code periodUs}, whatever the motion state
+     * asks for; 0 lifts the limit. Re-registers on the pipeline thread if the rate changes.
+     */
+    void setMinSamplingPeriod(int periodUs) {
+        if (periodUs == minSamplingPeriodUs) {
+            return;
+        }
+        int previous = minSamplingPeriodUs;
+        minSamplingPeriodUs = periodUs;
+        handler.post(() -> {
+            int statePeriod = appliedState.samplingPeriodUs;
+            if (Math.max(statePeriod, previous) != Math.max(statePeriod, periodUs)) {
+                synchronized (registrationLock) {
+                    drain.onRatesChanged();
+                }
+            }
+        });
+    }
+
+    /**
+     * Registers accelerometer, magnetometer, gyroscope and rotation vector at the rates of
+     * {@code state}, capped by the sampling limit; caller holds the registration lock
+     */
+    private void registerMotionSensors(MotionState state) {
+        int period = Math.max(state.samplingPeriodUs, minSamplingPeriodUs);
+        int latency = hardwareBatching ? state.maxReportLatencyUs : 0;
+        int magnetometerPeriod = fused ? period : Math.max(period, UI_PERIOD_US);
+
+        register(accelerometer, period, latency, "Accelerometer");
+        register(magnetometer, magnetometerPeriod, latency, "Magnetometer");
+        register(gyroscope, period, latency, "Gyroscope");
+        register(rotationVector, period, latency, "Rotation vector");
+    }
+
+    private void register(Sensor sensor, int periodUs, int latencyUs, String name) {
+        if (sensor == null) {
+            return;
+        }
+        sensorManager.registerListener(this, sensor, periodUs, latencyUs, handler);
+        Log.d(TAG, name + " listener registered: " + periodUs + "us, batch " + latencyUs + "us"
+                + (sensor.getFifoMaxEventCount() > 0 ? "" : " (no FIFO)"));
+    }
+
+    /**
+     * Moves the motion sensors to the policy of the processor's current state (pipeline thread)
+     */
+    private void applyMotionState(MotionState state) {
+        MotionState previous = appliedState;
+        if (state == previous) {
+            return;
+        }
+        appliedState = state;
+        Log.d(TAG, "Motion state " + previous + " -> " + state);
+
+        if (!state.samePolicyAs(previous)) {
+            synchronized (registrationLock) {
+                drain.onRatesChanged();
+            }
+        }
+
+        MotionStateListener listener = motionStateListener;
+        if (listener != null) {
+            listener.onMotionStateChanged(state, previous);
+        }
+    }
+
+    private void unregisterMotionSensors() {
+        for (Sensor sensor : new Sensor[]{accelerometer, magnetometer, gyroscope, rotationVector}) {
+            if (sensor != null) {
+                sensorManager.unregisterListener(this, sensor);
+            }
+        }
+    }
+
+    // ========================================
+    // FIFO DRAIN (pipeline thread)
+    // ========================================
+
+    private void beginDrain(int generation, Runnable drained) {
+        int flushes = registeredSensorCount();
+        boolean flushing = hardwareBatching && flushes > 0 && sensorManager.flush(this);
+        boolean superseded;
+        synchronized (registrationLock) {
+            superseded = drain.beginDrain(generation, flushing ? flushes : 0);
+        }
+        if (superseded) {
+            runDrainedCallback();
+        }
+        drainedCallback = drained;
+
+        if (!flushing) {
+            finishDrain(generation);
+            return;
+        }
+        handler.postDelayed(() -> finishDrain(generation), FLUSH_TIMEOUT_MS);
+    }
+
+    @Override
+    public void onFlushCompleted(Sensor sensor) {
+        synchronized (registrationLock) {
+            if (!drain.onFlushCompleted()) {
+                return;
+            }
+            logDrained();
+        }
+        runDrainedCallback();
+    }
+
+    private void finishDrain(int generation) {
+        synchronized (registrationLock) {
+            if (!drain.finishDrain(generation)) {
+                return; // already finished
+            }
+            logDrained();
+        }
+        runDrainedCallback();
+    }
+
+    private void logDrained() {
+        if (drain.isRegistered()) {
+            Log.d(TAG, "Sensor FIFOs flushed, sensors resumed");
+        } else {
+            Log.d(TAG, "Sensor FIFOs drained" + (drain.getPendingFlushes() > 0 ? " (timed out)" : ""));
+        }
+    }
+
+    private void runDrainedCallback() {
+        Runnable drained = drainedCallback;
+        drainedCallback = null;
+        if (drained != null) {
+            drained.run();
+        }
+    }
+
+    private int registeredSensorCount() {
+        int count = 0;
+        for (Sensor sensor : new Sensor[]{accelerometer, magnetometer, gyroscope, rotationVector, stepCounter}) {
+            if (sensor != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    void shutdown() {
+        unregisterNow();
+        handler.post(this::closeTraceWriter);
+        thread.quitSafely();
+    }
+
+    // ========================================
+    // TRACE RECORDING
+    // ========================================
+
+    /**
+     * Starts recording every raw sensor event and location fix to {@code file}
+     */
+    void startTraceRecording(File file) {
+        handler.post(() -> {
+            closeTraceWriter();
+            File directory = file.getParentFile();
+            if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+                Log.e(TAG, "Cannot create trace directory " + directory);
+                return;
+            }
+            try {
+                traceWriter = new SensorTraceWriter(new FileOutputStream(file));
+                Log.d(TAG, "Recording sensor trace to " + file);
+            } catch (IOException e) {
+                Log.e(TAG, "Cannot start sensor trace", e);
+            }
+        });
+    }
+
+    void stopTraceRecording() {
+        handler.post(this::closeTraceWriter);
+    }
+
+    private void recordSensorEvent(SensorEvent event) {
+        try {
+            traceWriter.writeSensor(event.sensor.getType(), event.timestamp, event.values,
+                    event.values.length, event.accuracy);
+        } catch (IOException e) {
+            Log.e(TAG, "Sensor trace write failed - recording stopped", e);
+            closeTraceWriter();
+        }
+    }
+
+    private void recordLocation(Location location) {
+        if (traceWriter == null) {
+            return;
+        }
+        try {
+            traceWriter.writeLocation(location.getElapsedRealtimeNanos(), location.getLatitude(),
+                    location.getLongitude(), location.getSpeed(), speedAccuracyOf(location),
+                    location.hasAccuracy() ? location.getAccuracy() : Float.NaN,
+                    location.hasBearing() ? location.getBearing() : Float.NaN);
+        } catch (IOException e) {
+            Log.e(TAG, "Sensor trace write failed - recording stopped", e);
+            closeTraceWriter();
+        }
+    }
+
+    /**
+     * 1-sigma speed accuracy in m/s, or NaN before API 26 or when the fix has none
+     */
+    private static float speedAccuracyOf(Location location) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && location.hasSpeedAccuracy()) {
+            return location.getSpeedAccuracyMetersPerSecond();
+        }
+        return Float.NaN;
+    }
+
+    private void closeTraceWriter() {
+        if (traceWriter == null) {
+            return;
+        }
+        try {
+            traceWriter.close();
+            Log.d(TAG, "Sensor trace closed: " + traceWriter.getRecordsWritten() + " records");
+        } catch (IOException e) {
+            Log.e(TAG, "Error closing sensor trace", e);
+        }
+        traceWriter = null;
+    }
+
+    // ========================================
+    // CONSUMERS
+    // ========================================
+
+    void setNetworkConsumer(Consumer consumer) {
+        networkConsumer = consumer;
+    }
+
+    void setJumpListener(JumpListener listener) {
+        jumpListener = listener;
+    }
+
+    void setMotionStateListener(MotionStateListener listener) {
+        motionStateListener = listener;
+    }
+
+    void setLocationConsumer(LocationConsumer consumer) {
+        locationConsumer = consumer;
+    }
+
+    /**
+     * Motion state whose sampling policy is currently in effect
+     */
+    MotionState getMotionState() {
+        return appliedState;
+    }
+
+    /**
+     * Called from the pipeline thread after each publish; use a thread-safe invalidate
+     */
+    void setUiInvalidator(Runnable invalidator) {
+        uiInvalidator = invalidator;
+    }
+
+    AttitudeSnapshot latest() {
+        return latest.get();
+    }
+
+    /**
+     * Recent snapshots, appended on the pipeline thread; read windows from any thread
+     */
+    SensorHistory history() {
+        return history;
+    }
+
+    /**
+     * Runs work on the pipeline thread, e.g. flushing state owned by a consumer
+     */
+    void post(Runnable work) {
+        handler.post(work);
+    }
+
+    void postDelayed(Runnable work, long delayMillis) {
+        handler.postDelayed(work, delayMillis);
+    }
+
+    Looper getLooper() {
+        return thread.getLooper();
+    }
+
+    LocationListener getLocationListener() {
+        return locationListener;
+    }
+
+    /**
+     * Sensor events handled since construction; safe to read from any thread
+     */
+    long getEventsProcessed() {
+        return eventsProcessed;
+    }
+
+    // ========================================
+    // SENSOR EVENT HANDLING (pipeline thread)
+    // ========================================
+
+    @Override
+    public void onSensorChanged(SensorEvent event) {
+        int sensorType = event.sensor.getType();
+        eventsProcessed++;
+        if (traceWriter != null) {
+            recordSensorEvent(event);
+        }
+
+        // Same dispatch as TraceReplayer, so recorded traces replay through identical code
+        boolean wasAirborne = processor.isAirborne();
+        processor.onSensor(sensorType, event.values, event.values.length, event.timestamp);
+
+        if (sensorType == Sensor.TYPE_ACCELEROMETER) {
+            logAirtimeTransition(wasAirborne);
+            dispatchJump(processor.pollJump());
+            if (processor.getMotionState() != appliedState) {
+                // Re-register outside the callback the sensor queue is still dispatching
+                handler.post(() -> applyMotionState(processor.getMotionState()));
+            }
+        } else if (sensorType == Sensor.TYPE_STEP_COUNTER) {
+            Log.d(TAG, "Steps this session: " + processor.getSessionSteps());
+        }
+
+        processor.updateOrientation();
+        publish(processor.snapshot(event.timestamp), sensorType);
+    }
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int accuracy) {
+        String sensorName = (sensor.getType() == Sensor.TYPE_ACCELEROMETER) ? "Accelerometer" :
+                (sensor.getType() == Sensor.TYPE_MAGNETIC_FIELD) ? "Magnetometer" : "Unknown";
+        Log.d(TAG, sensorName + " accuracy changed to: " + accuracy);
+    }
+
+    private void publish(AttitudeSnapshot snapshot, int sensorType) {
+        latest.set(snapshot);
+        history.append(snapshot);
+
+        Consumer consumer = networkConsumer;
+        if (consumer != null) {
+            consumer.onSnapshot(snapshot, sensorType);
+        }
+
+        Runnable invalidator = uiInvalidator;
+        if (invalidator != null) {
+            invalidator.run();
+        }
+    }
+
+    private void dispatchJump(JumpEvent jump) {
+        if (jump == null) {
+            return;
+        }
+        Log.d(TAG, "Jump completed: " + jump);
+        JumpListener listener = jumpListener;
+        if (listener != null) {
+            listener.onJump(jump);
+        }
+    }
+
+    private void logAirtimeTransition(boolean wasAirborne) {
+        if (!wasAirborne && processor.isAirborne()) {
+            Log.d(TAG, "AIRBORNE - Jump detected!");
+        } else if (wasAirborne && !processor.isAirborne()) {
+            Log.d(TAG, "LANDED - Flight time: " + processor.getLastFlightTime() + "ms");
+        }
+    }
+}
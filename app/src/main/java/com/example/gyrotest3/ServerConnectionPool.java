@@ -0,0 +1,222 @@
+package com.example.gyrotest3;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.gyrotest3.core.EndpointPool;
+
+import io.socket.client.Ack;
+import io.socket.client.IO;
+import io.socket.client.Socket;
+
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ServerConnectionPool - Runs {@link EndpointPool} over one Socket.IO client per server
+ *
+ * Each endpoint gets its own socket and {@link ReconnectScheduler}, so a server that is down
+ * retries with its own backoff while another one carries telemetry. Endpoints are probed
+ * with an acked {@code ping_probe} over their existing connection. The service only sees
+ * the active socket through {@link Listener}. All methods must be called on the main thread.
+ */
+final class ServerConnectionPool implements EndpointPool.Actions {
+
+    private static final String TAG = "GyroSocket";
+
+    private static final long PROBE_INTERVAL_MS = 5_000;
+    private static final long PROBE_TIMEOUT_MS = 3_000;
+    private static final int MAX_PROBE_FAILURES = 2;
+    private static final float SWITCH_RATIO = 0.7f;
+    private static final long MIN_SWITCH_GAIN_MS = 30;
+
+    interface Listener {
+        /**
+         * Telemetry moves to {@code socket}, already connected; null when no server is reachable
+         */
+        void onActiveChanged(Socket socket, String url);
+    }
+
+    interface SocketInitializer {
+        /**
+         * Attach application event handlers; events from sockets that are not active should be ignored
+         */
+        void onSocketCreated(Socket socket);
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<String> urls = new ArrayList<>();
+    private final List<Socket> sockets = new ArrayList<>();
+    private final List<ReconnectScheduler> schedulers = new ArrayList<>();
+    private final Listener listener;
+    private final EndpointPool pool;
+    private boolean started = false;
+
+    private final Runnable tick = new Runnable() {
+        @Override
+        public void run() {
+            pool.onTick(SystemClock.elapsedRealtime());
+            mainHandler.postDelayed(this, PROBE_INTERVAL_MS);
+        }
+    };
+
+    /**
+     * @param serverUrls invalid URLs are logged and skipped
+     * @throws IllegalArgumentException if no URL is usable
+     */
+    ServerConnectionPool(Context context, String[] serverUrls, SocketInitializer initializer, Listener listener) {
+        this.listener = listener;
+
+        for (String url : serverUrls) {
+            try {
+                IO.Options opts = new IO.Options();
+                opts.transports = new String[]{"websocket"};
+                // Retries are driven per endpoint by ReconnectScheduler so there is one loop per server
+                opts.reconnection = false;
+                Socket socket = IO.socket(url, opts);
+
+                int endpoint = sockets.size();
+                urls.add(url);
+                sockets.add(socket);
+                schedulers.add(new ReconnectScheduler(context, url, () -> connectSocket(endpoint)));
+                listenForConnection(socket, endpoint);
+                initializer.onSocketCreated(socket);
+            } catch (URISyntaxException e) {
+                Log.e(TAG, "Skipping invalid server URL " + url, e);
+            }
+        }
+
+        if (sockets.isEmpty()) {
+            throw new IllegalArgumentException("No valid server URL");
+        }
+        pool = new EndpointPool(sockets.size(), this, PROBE_TIMEOUT_MS, MAX_PROBE_FAILURES,
+                SWITCH_RATIO, MIN_SWITCH_GAIN_MS);
+    }
+
+    private void listenForConnection(Socket socket, int endpoint) {
+        socket.on(Socket.EVENT_CONNECT, args -> mainHandler.post(() -> {
+            Log.d(TAG, "✓ Connected to " + urls.get(endpoint));
+            schedulers.get(endpoint).onConnected();
+            pool.onConnected(endpoint);
+        }));
+
+        socket.on(Socket.EVENT_DISCONNECT, args -> mainHandler.post(() -> {
+            Log.d(TAG, "✗ Disconnected from " + urls.get(endpoint));
+            schedulers.get(endpoint).onConnectionLost();
+            pool.onDisconnected(endpoint);
+        }));
+
+        socket.on(Socket.EVENT_CONNECT_ERROR, args -> mainHandler.post(() -> {
+            String error = args.length > 0 ? args[0].toString() : "Unknown error";
+            Log.e(TAG, "✗ Connection error on " + urls.get(endpoint) + ": " + error);
+            schedulers.get(endpoint).onConnectionLost();
+            pool.onDisconnected(endpoint);
+        }));
+    }
+
+    // ========================================
+    // LIFECYCLE (main thread)
+    // ========================================
+
+    /**
+     * Starts network monitoring; connections open on {@link #requestConnect}
+     */
+    void start() {
+        for (ReconnectScheduler scheduler : schedulers) {
+            scheduler.start();
+        }
+    }
+
+    /**
+     * Connects the best endpoint and a hot standby; endpoints already retrying connect now
+     */
+    void requestConnect() {
+        if (!started) {
+            started = true;
+            pool.start();
+            mainHandler.removeCallbacks(tick);
+            mainHandler.postDelayed(tick, PROBE_INTERVAL_MS);
+            return;
+        }
+        for (int i = 0; i < sockets.size(); i++) {
+            if (pool.isWanted(i) && !pool.isConnected(i)) {
+                schedulers.get(i).requestConnect();
+            }
+        }
+    }
+
+    /**
+     * Explicit disconnect: closes every connection until the next {@link #requestConnect}
+     */
+    void disconnect() {
+        started = false;
+        mainHandler.removeCallbacks(tick);
+        pool.stop();
+    }
+
+    void stop() {
+        disconnect();
+        for (ReconnectScheduler scheduler : schedulers) {
+            scheduler.stop();
+        }
+    }
+
+    EndpointPool getPool() {
+        return pool;
+    }
+
+    String getUrl(int endpoint) {
+        return urls.get(endpoint);
+    }
+
+    // ========================================
+    // POOL ACTIONS
+    // ========================================
+
+    @Override
+    public void connect(int endpoint) {
+        schedulers.get(endpoint).requestConnect();
+    }
+
+    @Override
+    public void disconnect(int endpoint) {
+        schedulers.get(endpoint).disable();
+        Socket socket = sockets.get(endpoint);
+        if (socket.connected()) {
+            socket.disconnect();
+        }
+    }
+
+    @Override
+    public void probe(int endpoint, int probeId) {
+        sockets.get(endpoint).emit("ping_probe", probeId, (Ack) args ->
+                mainHandler.post(() -> pool.onProbeAck(endpoint, probeId, SystemClock.elapsedRealtime())));
+    }
+
+    @Override
+    public void activeChanged(int previous, int active) {
+        if (active == EndpointPool.NONE) {
+            Log.d(TAG, "No server reachable");
+            listener.onActiveChanged(null, null);
+            return;
+        }
+        Log.d(TAG, "Telemetry server: " + urls.get(active) + " (rtt " + pool.getRttMillis(active)
+                + "ms, failovers=" + pool.getFailovers() + ", switches=" + pool.getLatencySwitches() + ")");
+        listener.onActiveChanged(sockets.get(active), urls.get(active));
+    }
+
+    /**
+     * Starts one connection attempt; only the endpoint's {@link ReconnectScheduler} calls this
+     */
+    private void connectSocket(int endpoint) {
+        Socket socket = sockets.get(endpoint);
+        if (!socket.connected()) {
+            Log.d(TAG, "Connecting to " + urls.get(endpoint) + "...");
+            socket.connect();
+        }
+    }
+}
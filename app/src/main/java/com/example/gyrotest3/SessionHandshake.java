@@ -0,0 +1,176 @@
+package com.example.gyrotest3;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.gyrotest3.core.SessionEnvelope;
+
+import io.socket.client.Ack;
+import io.socket.client.Socket;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * SessionHandshake - register_session on the active socket and the identity it buys
+ *
+ * Once per connection the device describes itself with register_session; the server acks
+ * with a numeric session id that replaces rider identity in every hot message. Servers that
+ * do not know the handshake never ack, and messages keep their legacy identity fields. Acks
+ * from an earlier connection are ignored.
+ *
+ * Registration runs on the main thread; {@link #putIdentity} and {@link #wrapBinary} may be
+ * called from any thread.
+ */
+final class SessionHandshake {
+
+    private static final String TAG = "GyroSocket";
+
+    interface Listener {
+        /**
+         * The server accepted the session on the current connection (main thread)
+         */
+        void onSessionRegistered(int sessionId);
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final String deviceId;
+    private final Listener listener;
+    private volatile String riderName;
+    // Server-assigned id for this connection; 0 until register_session is acked
+    private volatile int sessionId = 0;
+
+    // Main thread only
+    private Socket socket;
+    private int connectionGeneration = 0; // bumped on every active server change
+
+    /**
+     * @param riderName may still be unset on first launch, see {@link #setRiderName}
+     */
+    SessionHandshake(String deviceId, String riderName, Listener listener) {
+        this.deviceId = deviceId;
+        this.riderName = riderName;
+        this.listener = listener;
+    }
+
+    /**
+     * Telemetry moved to {@code socket}, null when no server is reachable; the session of
+     * the previous connection ends
+     */
+    void onConnectionChanged(Socket socket) {
+        this.socket = socket;
+        connectionGeneration++;
+        sessionId = 0;
+    }
+
+    /**
+     * The server no longer knows the session; messages carry legacy identity until the next
+     * registration is acked
+     */
+    void onSessionUnknown() {
+        Log.d(TAG, "Server dropped session " + sessionId + " - registering again");
+        sessionId = 0;
+    }
+
+    /**
+     * Sends register_session if connected
+     *
+     * @param description what the server should know about this device; identity is added here
+     */
+    void register(JSONObject description) {
+        if (socket == null) {
+            return;
+        }
+
+        try {
+            description.put("deviceId", deviceId);
+            description.put("rider", "gyro_app");
+            description.put("riderDisplayName", getRiderDisplayName());
+
+            // Acks arrive on the event thread; one from an earlier connection is ignored
+            int generation = connectionGeneration;
+            socket.emit("register_session", description,
+                    (Ack) args -> mainHandler.post(() -> onRegistered(generation, args)));
+        } catch (JSONException e) {
+            Log.e(TAG, "Error registering session", e);
+        }
+    }
+
+    /**
+     * Ack of register_session: {"sessionId": n} or a bare number
+     *
+     * @param generation connection the registration was sent on
+     */
+    private void onRegistered(int generation, Object[] args) {
+        if (generation != connectionGeneration) {
+            Log.d(TAG, "Ignoring session ack from a previous connection");
+            return;
+        }
+        int id = 0;
+        if (args.length > 0 && args[0] instanceof JSONObject) {
+            id = ((JSONObject) args[0]).optInt("sessionId", 0);
+        } else if (args.length > 0 && args[0] instanceof Number) {
+            id = ((Number) args[0]).intValue();
+        }
+
+        if (id <= 0 || socket == null) {
+            Log.w(TAG, "Session registration not accepted");
+            return;
+        }
+
+        sessionId = id;
+        Log.d(TAG, "Session registered: " + id);
+        listener.onSessionRegistered(id);
+    }
+
+    // ========================================
+    // IDENTITY (any thread)
+    // ========================================
+
+    /**
+     * Session id when registered, otherwise the fields the server used to key on
+     */
+    void putIdentity(JSONObject payload) throws JSONException {
+        int session = sessionId;
+        if (session > 0) {
+            payload.put("sid", session);
+            return;
+        }
+        payload.put("deviceId", deviceId);
+        payload.put("rider", "gyro_app");
+        payload.put("riderDisplayName", getRiderDisplayName());
+    }
+
+    /**
+     * Binary hot messages carry the session id in a {@link SessionEnvelope} once registered
+     */
+    Object wrapBinary(byte[] payload) {
+        int session = sessionId;
+        return session > 0 ? SessionEnvelope.wrap(session, payload) : payload;
+    }
+
+    void setRiderName(String name) {
+        riderName = name;
+    }
+
+    /**
+     * Null or empty until the rider picked a name
+     */
+    String getRiderName() {
+        return riderName;
+    }
+
+    String getRiderDisplayName() {
+        String name = riderName;
+        return (name != null && !name.isEmpty()) ? name : "Unknown Rider";
+    }
+
+    boolean isRegistered() {
+        return sessionId > 0;
+    }
+
+    int getSessionId() {
+        return sessionId;
+    }
+}
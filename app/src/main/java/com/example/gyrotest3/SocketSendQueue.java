@@ -0,0 +1,231 @@
+package com.example.gyrotest3;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.gyrotest3.core.OutboundQueue;
+import com.example.gyrotest3.core.TelemetryLatency;
+
+import io.socket.client.Ack;
+import io.socket.client.Socket;
+import io.socket.thread.EventThread;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * SocketSendQueue - Runs {@link OutboundQueue} over the active Socket.IO connection
+ *
+ * Queues messages on the sensor pipeline thread and emits them on the active socket, with an
+ * ack that frees the message's window slot unless the server does not ack the event. Durable
+ * JSON messages get their identity from {@link SessionHandshake} when they leave, binary ones
+ * its session envelope. Traced messages feed {@link TelemetryLatency} with their QUEUE, WRITE
+ * and ACK stages. Durable messages still queued when the connection drops are handed back
+ * through {@link Listener} to be journaled.
+ *
+ * All methods except {@link #setSocket} and {@link #sendControl} must be called on the
+ * sensor pipeline thread.
+ */
+final class SocketSendQueue {
+
+    private static final String TAG = "GyroSocket";
+
+    /** Sensor timestamp of messages that are not live attitude data */
+    static final long UNTRACED = 0;
+
+    private static final long TICK_MS = 500;
+
+    interface Listener {
+        /**
+         * A durable message was still queued when the connection dropped
+         */
+        void onUnsent(String event, Object payload);
+
+        /**
+         * A message was shed to make room for newer ones
+         */
+        void onDropped(OutboundQueue.Message message);
+    }
+
+    private final SensorPipeline pipeline;
+    private final SessionHandshake session;
+    private final TelemetryLatency telemetryLatency;
+    private final Listener listener;
+    private final OutboundQueue queue;
+    // Written on the main thread; null while no server is reachable
+    private volatile Socket socket;
+
+    private final Runnable tick = new Runnable() {
+        @Override
+        public void run() {
+            queue.onTick(SystemClock.elapsedRealtimeNanos());
+            pipeline.postDelayed(this, TICK_MS);
+        }
+    };
+
+    /**
+     * @param capacity       messages held at most
+     * @param maxInFlight    messages sent but not acked yet
+     * @param ackTimeoutNanos an ack missing this long frees its slot
+     */
+    SocketSendQueue(SensorPipeline pipeline, SessionHandshake session, TelemetryLatency telemetryLatency,
+                    Listener listener, int capacity, int maxInFlight, long ackTimeoutNanos) {
+        this.pipeline = pipeline;
+        this.session = session;
+        this.telemetryLatency = telemetryLatency;
+        this.listener = listener;
+        this.queue = new OutboundQueue(new OutboundQueue.Sender() {
+            @Override
+            public void send(OutboundQueue.Message message) {
+                emit(message);
+            }
+
+            @Override
+            public void dropped(OutboundQueue.Message message) {
+                onDropped(message);
+            }
+        }, capacity, maxInFlight, ackTimeoutNanos);
+    }
+
+    /**
+     * Starts expiring missing acks
+     */
+    void start() {
+        pipeline.postDelayed(tick, TICK_MS);
+    }
+
+    /**
+     * Telemetry moved to {@code socket}, null when no server is reachable (main thread)
+     */
+    void setSocket(Socket socket) {
+        this.socket = socket;
+        // Reads the socket when it runs, so back-to-back changes settle on the last
+        pipeline.post(this::onConnectionChanged);
+    }
+
+    OutboundQueue getQueue() {
+        return queue;
+    }
+
+    // ========================================
+    // SENDING
+    // ========================================
+
+    /**
+     * Queues a message for the active socket; PROCESS and QUEUE latency are recorded here
+     *
+     * @param durable        journal the message if the connection drops before it is sent
+     * @param sensorNanos    sensor timestamp of the newest sample in the message, or
+     *                       {@link #UNTRACED} for messages that are not live attitude data
+     * @param processedNanos when the pipeline finished the snapshot the message was built from
+     */
+    void enqueue(String event, Object payload, OutboundQueue.Policy policy, boolean durable,
+                 long sensorNanos, long processedNanos) {
+        long nowNanos = SystemClock.elapsedRealtimeNanos();
+        boolean traced = sensorNanos != UNTRACED
+                && telemetryLatency.onQueued(sensorNanos, processedNanos, nowNanos);
+        queue.offer(event, payload, policy, new Outgoing(durable, sensorNanos, nowNanos, traced), nowNanos);
+    }
+
+    /**
+     * Non-telemetry messages from any thread; dropped while offline, the server gets them
+     * again after the next connect
+     */
+    void sendControl(String event, JSONObject payload, OutboundQueue.Policy policy) {
+        pipeline.post(() -> enqueue(event, payload, policy, false, UNTRACED, UNTRACED));
+    }
+
+    /**
+     * Emits with an ack, which frees the message's slot in the window; without one if the
+     * server does not ack the event, since Socket.IO keeps every pending ack until it is called
+     */
+    private void emit(OutboundQueue.Message message) {
+        Outgoing outgoing = (Outgoing) message.getContext();
+        outgoing.messageId = message.id;
+        Socket target = socket;
+        if (target == null) {
+            return; // disconnected after the queue last heard; the ack timeout frees the slot
+        }
+
+        Object payload = message.getPayload();
+        if (payload instanceof byte[]) {
+            payload = session.wrapBinary((byte[]) payload);
+        } else if (outgoing.durable) {
+            try {
+                session.putIdentity((JSONObject) payload);
+            } catch (JSONException e) {
+                Log.e(TAG, "Error adding identity to " + message.event, e);
+            }
+        }
+
+        if (message.isAckExpected()) {
+            target.emit(message.event, payload, outgoing);
+        } else {
+            target.emit(message.event, payload);
+        }
+        if (outgoing.traced) {
+            // The event thread runs tasks in order, so this runs once the emit reached the transport
+            EventThread.exec(outgoing);
+        }
+    }
+
+    private void onDropped(OutboundQueue.Message message) {
+        listener.onDropped(message);
+        long dropped = queue.getDropped();
+        if (dropped == 1 || dropped % 100 == 0) {
+            Log.w(TAG, "Uplink backed up - shed " + dropped + " stale messages (queue depth "
+                    + queue.getDepth() + ")");
+        }
+    }
+
+    /**
+     * Messages still queued when the connection drops go to the journal, or are dropped if not durable
+     */
+    private void onConnectionChanged() {
+        boolean connected = socket != null;
+        if (!connected) {
+            for (OutboundQueue.Message message : queue.takeQueued()) {
+                if (((Outgoing) message.getContext()).durable) {
+                    listener.onUnsent(message.event, message.getPayload());
+                }
+            }
+        }
+        queue.setConnected(connected, SystemClock.elapsedRealtimeNanos());
+    }
+
+    /**
+     * Send-path state of one queued message: whether it is journaled, its latency trace and
+     * its ack. The write stamp and the ack run on the Socket.IO event thread.
+     */
+    private final class Outgoing implements Runnable, Ack {
+        final boolean durable;
+        final long sensorNanos;
+        final long queuedNanos;
+        final boolean traced;
+        long messageId;
+        private long writtenNanos;
+
+        Outgoing(boolean durable, long sensorNanos, long queuedNanos, boolean traced) {
+            this.durable = durable;
+            this.sensorNanos = sensorNanos;
+            this.queuedNanos = queuedNanos;
+            this.traced = traced;
+        }
+
+        @Override
+        public void run() {
+            writtenNanos = SystemClock.elapsedRealtimeNanos();
+            telemetryLatency.onWritten(queuedNanos, writtenNanos);
+        }
+
+        @Override
+        public void call(Object... args) {
+            long ackedNanos = SystemClock.elapsedRealtimeNanos();
+            if (traced) {
+                telemetryLatency.onAcked(sensorNanos, writtenNanos, ackedNanos);
+            }
+            long id = messageId;
+            pipeline.post(() -> queue.onAcked(id, ackedNanos));
+        }
+    }
+}
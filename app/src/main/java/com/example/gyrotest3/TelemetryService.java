@@ -0,0 +1,1861 @@
+package com.example.gyrotest3;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.content.pm.ServiceInfo;
+import android.hardware.Sensor;
+import android.hardware.SensorManager;
+import android.location.LocationManager;
+import android.os.BatteryManager;
+import android.os.Binder;
+import android.os.Build;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+import android.widget.Toast;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.content.ContextCompat;
+
+import io.socket.client.Ack;
+import io.socket.client.Socket;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+import com.example.gyrotest3.core.AttitudeBatchCodec;
+import com.example.gyrotest3.core.AttitudeBatcher;
+import com.example.gyrotest3.core.AttitudeFrameCodec;
+import com.example.gyrotest3.core.AttitudeSnapshot;
+import com.example.gyrotest3.core.AttitudeStreamEncoder;
+import com.example.gyrotest3.core.JournalReplayer;
+import com.example.gyrotest3.core.JumpEvent;
+import com.example.gyrotest3.core.MahonyFusion;
+import com.example.gyrotest3.core.MotionState;
+import com.example.gyrotest3.core.OrientationFusion;
+import com.example.gyrotest3.core.OutboundQueue;
+import com.example.gyrotest3.core.RotationVectorFusion;
+import com.example.gyrotest3.core.RunAnalytics;
+import com.example.gyrotest3.core.SensorHistory;
+import com.example.gyrotest3.core.StreamControl;
+import com.example.gyrotest3.core.TelemetryJournal;
+import com.example.gyrotest3.core.TelemetryLatency;
+import com.example.gyrotest3.core.TelemetryTransport;
+
+/**
+ * TelemetryService - Sensor → fusion → network pipeline as a foreground service
+ *
+ * Owns the {@link SensorPipeline}, GPS, the server connections and everything that turns
+ * snapshots into telemetry, so streaming carries on with the screen off or the phone in a
+ * pocket. A partial wake lock keeps the CPU running for the socket while the stream is on and
+ * the rider is moving; the motion sensors use hardware batching, so the pipeline thread wakes
+ * up for a FIFO's worth of events at a time. The session handshake and the send queue live
+ * in {@link SessionHandshake} and {@link SocketSendQueue}.
+ *
+ * {@link MainActivity} starts the service, binds to it and only draws: it reads the latest
+ * snapshot, the latency report and the {@link Stats} cost counters, and hears about
+ * connection changes through {@link Listener}. The service stops when the activity finishes,
+ * or from the Stop action of its notification.
+ */
+public class TelemetryService extends Service {
+
+    // ========================================
+    // CONSTANTS
+    // ========================================
+
+    private static final String TAG = "GyroSocket";
+    // Telemetry servers; the "server_urls" pref (comma-separated) overrides them to add more
+    private static final String[] DEFAULT_SERVER_URLS = {
+            "http://18.207.115.76:5000/"
+    };
+
+    // Wire format for attitude updates; servers that do not ack register_session predate
+    // binary frames and batches, so they get JSON attitude_update messages whatever the preference
+    private static final String WIRE_FORMAT_JSON = StreamControl.ENCODING_JSON;
+    private static final String WIRE_FORMAT_BINARY = StreamControl.ENCODING_BINARY;
+    private static final String WIRE_FORMAT_DELTA = StreamControl.ENCODING_DELTA; // per-update path; batches stay binary
+    private static final String DEFAULT_WIRE_FORMAT = WIRE_FORMAT_BINARY;
+    private static final StreamControl.Command RESET_STREAM_CONTROL =
+            new StreamControl.Command(true, null, null, null, null, null);
+
+    // Delta stream: a keyframe every 50 updates (5 s at the riding rate)
+    private static final int STREAM_KEYFRAME_INTERVAL = 50;
+
+    // Batched upload: every accelerometer sample is kept and flushed as one attitude_batch
+    private static final int BATCH_MAX_SAMPLES = 20;
+    private static final long BATCH_MAX_LATENCY_NANOS = 250_000_000L;
+    private static final int BATCH_CAPACITY = 10 * BATCH_MAX_SAMPLES;
+    private static final int BATCH_STATS_LOG_INTERVAL = 50;
+
+    // Offline journal: 64 x 256 KB segments, replayed 20 records every 200 ms
+    private static final int JOURNAL_SEGMENT_SIZE = 256 * 1024;
+    private static final int JOURNAL_MAX_SEGMENTS = 64;
+    private static final int JOURNAL_REPLAY_BATCH = 20;
+    private static final long JOURNAL_REPLAY_INTERVAL_MS = 200;
+
+    // Orientation engine; "auto" prefers the hardware rotation vector, then the gyro filter
+    private static final String FUSION_AUTO = "auto";
+    private static final String FUSION_ROTATION_VECTOR = "rotation_vector";
+    private static final String FUSION_COMPLEMENTARY = "complementary";
+    private static final String FUSION_RAW = "raw";
+
+    // Send queue: 64 messages, at most 16 unacked; an ack missing for 2 s frees its slot
+    private static final int SEND_QUEUE_CAPACITY = 64;
+    private static final int SEND_QUEUE_MAX_IN_FLIGHT = 16;
+    private static final long SEND_QUEUE_ACK_TIMEOUT_NANOS = 2_000_000_000L;
+    // Journal replay waits while the queue is half full, so replay never crowds out live data
+    private static final int JOURNAL_REPLAY_MAX_QUEUE_DEPTH = SEND_QUEUE_CAPACITY / 2;
+
+    // Latency instrumentation: one live message in 10 is traced; percentiles reported every 10 s
+    private static final int LATENCY_ACK_SAMPLE_INTERVAL = 10;
+    private static final long LATENCY_REPORT_INTERVAL_MS = 10_000;
+    private static final long UNTRACED = SocketSendQueue.UNTRACED;
+
+    // Run summary pushed every 30 s; the dashboard can also ask for one
+    private static final long RUN_SUMMARY_INTERVAL_MS = 30_000;
+
+    // Foreground notification and wake lock; the lock is renewed with every latency report
+    // while streaming and moving, so it lapses a minute after the rider stops
+    private static final String NOTIFICATION_CHANNEL_ID = "telemetry";
+    private static final int NOTIFICATION_ID = 1;
+    private static final String ACTION_STOP = "com.example.gyrotest3.action.STOP_TELEMETRY";
+    private static final String WAKE_LOCK_TAG = "GyroTest3:telemetry";
+    private static final long WAKE_LOCK_TIMEOUT_MS = 60_000;
+
+    // ========================================
+    // DEVICE & USER MANAGEMENT
+    // ========================================
+
+    private String deviceId;
+    private SessionHandshake session;
+
+    // ========================================
+    // SENSOR COMPONENTS
+    // ========================================
+
+    private SensorManager sensorManager;
+    private Sensor accelerometer;
+    private Sensor magnetometer;
+    private Sensor stepCounter;
+    private Sensor gyroscope;
+    private Sensor rotationVector;
+    private SensorPipeline sensorPipeline;
+    private String availableMotionSensors = "";
+    private final List<String> motionSensorNames = new ArrayList<>();
+
+    // ========================================
+    // GPS
+    // ========================================
+
+    private LocationManager locationManager;
+
+    // ========================================
+    // NETWORK & SOCKET.IO
+    // ========================================
+
+    // Read on the sensor pipeline thread, written on the main thread
+    private volatile Socket socket;
+    private volatile boolean socketConnected = false;
+    // Mirrors streamControl's streaming flag for other threads
+    private volatile boolean deviceState = true;
+    // Effective format: the preference unless stream_control picked one, JSON for legacy servers
+    private volatile String wireFormat = WIRE_FORMAT_JSON;
+    private volatile String preferredWireFormat = DEFAULT_WIRE_FORMAT;
+    // Until this connection's register_session is acked; offline, the last server's answer holds
+    private volatile boolean legacyServer = true;
+    private volatile long sendIntervalMillis = MotionState.IDLE.sendIntervalMillis;
+    // Recorded on the sensor pipeline and Socket.IO event threads, read by the dial overlay
+    private final TelemetryLatency telemetryLatency =
+            new TelemetryLatency(LATENCY_ACK_SAMPLE_INTERVAL, SystemClock.elapsedRealtimeNanos());
+
+    // Owned by the sensor pipeline thread
+    private long lastSendTime = 0;
+    private long snapshotProcessedNanos = 0;
+    private final StreamControl streamControl = new StreamControl();
+    private final RunAnalytics runAnalytics = new RunAnalytics(SystemClock.elapsedRealtimeNanos());
+    private final byte[] attitudeFrameBuffer = new byte[AttitudeFrameCodec.MAX_FRAME_SIZE];
+    private final AttitudeStreamEncoder attitudeStreamEncoder = new AttitudeStreamEncoder(STREAM_KEYFRAME_INTERVAL);
+    private final byte[] attitudeStreamBuffer = new byte[AttitudeStreamEncoder.MAX_MESSAGE_SIZE];
+    private volatile boolean batchUpload = true;
+    private final AttitudeBatcher attitudeBatcher =
+            new AttitudeBatcher(BATCH_CAPACITY, BATCH_MAX_SAMPLES, BATCH_MAX_LATENCY_NANOS);
+    private final byte[] attitudeBatchBuffer = new byte[AttitudeBatchCodec.maxEncodedSize(BATCH_MAX_SAMPLES)];
+    private TelemetryJournal telemetryJournal;
+    private JournalReplayer journalReplayer;
+    private boolean journalReplayActive = false;
+    private SocketSendQueue sendQueue;
+
+    // Main thread only
+    private ServerConnectionPool serverPool;
+    private boolean locationUpdatesActive = false;
+
+    private final TelemetryTransport socketTransport = new TelemetryTransport() {
+        @Override
+        public boolean isConnected() {
+            return socket != null && socketConnected;
+        }
+
+        @Override
+        public void emit(String event, int kind, byte[] payload) {
+            emitJournaledTelemetry(event, kind, payload);
+        }
+    };
+
+    // ========================================
+    // SERVICE STATE
+    // ========================================
+
+    private final IBinder binder = new LocalBinder();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private PowerManager.WakeLock wakeLock;
+    // Main thread only
+    private Listener listener;
+
+    // Cost counters: baseline at start, last interval on the sensor pipeline thread
+    private long startedAtNanos;
+    private int startBatteryPercent;
+    private int startChargeMicroAmpHours;
+    private long statsIntervalStartNanos;
+    private long statsIntervalEvents;
+    private long statsIntervalMessages;
+    private volatile Stats lastStats;
+
+    // ========================================
+    // LIFECYCLE METHODS
+    // ========================================
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        startedAtNanos = SystemClock.elapsedRealtimeNanos();
+        statsIntervalStartNanos = startedAtNanos;
+        startInForeground();
+        acquireWakeLock();
+        readBatteryBaseline();
+
+        initializeDeviceAndRider();
+        initializeComponents();
+        registerSensorListener();
+        registerLocationListener();
+        if (serverPool != null) {
+            serverPool.requestConnect();
+        }
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        if (intent != null && ACTION_STOP.equals(intent.getAction())) {
+            Log.d(TAG, "Stop requested from the notification");
+            stopTelemetry();
+        }
+        // Not restarted after the process is killed: Android 12+ refuses a foreground start
+        // from the background, so the ride resumes when the rider opens the app again
+        return START_NOT_STICKY;
+    }
+
+    /**
+     * Android 15 limits dataSync foreground services, which is what the service runs as
+     * without location permission, to 6 hours a day; it must stop within seconds of this
+     */
+    @Override
+    public void onTimeout(int startId, int fgsType) {
+        Log.w(TAG, "Foreground time limit reached (type " + fgsType + ") - stopping telemetry");
+        stopTelemetry();
+    }
+
+    /**
+     * Drops the notification and stops; a bound viewer keeps the service alive until it unbinds
+     */
+    private void stopTelemetry() {
+        stopForeground(STOP_FOREGROUND_REMOVE);
+        stopSelf();
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return binder;
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        cleanup();
+    }
+
+    // ========================================
+    // VIEWER API (main thread)
+    // ========================================
+
+    final class LocalBinder extends Binder {
+        TelemetryService getService() {
+            return TelemetryService.this;
+        }
+    }
+
+    interface Listener {
+        void onConnectionChanged(boolean connected);
+    }
+
+    /**
+     * Reports the current state right away; null detaches
+     */
+    void setListener(Listener listener) {
+        this.listener = listener;
+        if (listener != null) {
+            listener.onConnectionChanged(socketConnected);
+        }
+    }
+
+    /**
+     * Runs on the sensor pipeline thread after each publish, e.g. to schedule a dial frame;
+     * null detaches
+     */
+    void setFrameListener(Runnable frameListener) {
+        if (sensorPipeline != null) {
+            sensorPipeline.setUiInvalidator(frameListener);
+        }
+    }
+
+    AttitudeSnapshot latest() {
+        return (sensorPipeline != null) ? sensorPipeline.latest() : AttitudeSnapshot.EMPTY;
+    }
+
+    /**
+     * Recent snapshots for graphs, or null before the sensors are set up
+     */
+    SensorHistory history() {
+        return (sensorPipeline != null) ? sensorPipeline.history() : null;
+    }
+
+    TelemetryLatency getTelemetryLatency() {
+        return telemetryLatency;
+    }
+
+    /**
+     * Cost counters of the last report interval, or null before the first one
+     */
+    Stats getLastStats() {
+        return lastStats;
+    }
+
+    boolean hasMagnetometer() {
+        return magnetometer != null;
+    }
+
+    boolean isConnected() {
+        return socketConnected;
+    }
+
+    void connect() {
+        if (serverPool != null) {
+            Log.d(TAG, "Connecting to server...");
+            serverPool.requestConnect();
+        }
+    }
+
+    void disconnect() {
+        if (serverPool != null) {
+            Log.d(TAG, "Disconnecting from server...");
+            serverPool.disconnect();
+        }
+    }
+
+    /**
+     * The viewer is back on screen: retry now rather than at the end of a backoff
+     */
+    void onViewerResumed() {
+        if (serverPool != null && !socketConnected) {
+            serverPool.requestConnect();
+        }
+    }
+
+    void setRiderName(String name) {
+        if (name.equals(session.getRiderName())) {
+            return;
+        }
+        session.setRiderName(name);
+        saveDeviceToServer();
+        registerSession();
+    }
+
+    void onLocationPermissionGranted() {
+        if (locationUpdatesActive) {
+            return;
+        }
+        startInForeground(); // now as a location service
+        registerLocationListener();
+    }
+
+    // ========================================
+    // FOREGROUND & POWER
+    // ========================================
+
+    /**
+     * Posts the ongoing notification; calling it again updates the foreground service type
+     */
+    private void startInForeground() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(NOTIFICATION_CHANNEL_ID, "Ride telemetry",
+                    NotificationManager.IMPORTANCE_LOW);
+            getSystemService(NotificationManager.class).createNotificationChannel(channel);
+        }
+
+        Intent open = new Intent(this, MainActivity.class).addFlags(Intent.FLAG_ACTIVITY_SINGLE_TOP);
+        Intent stop = new Intent(this, TelemetryService.class).setAction(ACTION_STOP);
+        Notification notification = new NotificationCompat.Builder(this, NOTIFICATION_CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_launcher_foreground)
+                .setContentTitle("Streaming ride telemetry")
+                .setContentIntent(PendingIntent.getActivity(this, 0, open, PendingIntent.FLAG_IMMUTABLE))
+                .addAction(android.R.drawable.ic_menu_close_clear_cancel, "Stop",
+                        PendingIntent.getService(this, 0, stop, PendingIntent.FLAG_IMMUTABLE))
+                .setOngoing(true)
+                .setCategory(NotificationCompat.CATEGORY_SERVICE)
+                .build();
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            // A location service needs the permission up front; until then it only syncs data
+            int type = hasLocationPermission() ? ServiceInfo.FOREGROUND_SERVICE_TYPE_LOCATION
+                    : ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC;
+            startForeground(NOTIFICATION_ID, notification, type);
+        } else {
+            startForeground(NOTIFICATION_ID, notification);
+        }
+    }
+
+    /**
+     * Without it the socket and the pipeline thread stall once the screen goes off; held for
+     * the first {@link #WAKE_LOCK_TIMEOUT_MS} while the connection comes up, then only as long
+     * as {@link #renewWakeLock} keeps it
+     */
+    private void acquireWakeLock() {
+        PowerManager power = getSystemService(PowerManager.class);
+        wakeLock = power.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, WAKE_LOCK_TAG);
+        wakeLock.setReferenceCounted(false);
+        wakeLock.acquire(WAKE_LOCK_TIMEOUT_MS);
+    }
+
+    /**
+     * Extends the wake lock while the stream is on and the rider is not idle; otherwise it
+     * lapses, so a bike left standing with the app running lets the CPU sleep. A sleeping
+     * phone picks the ride up again once the socket's next ping wakes it and the batched
+     * sensor events move the motion state (any thread)
+     */
+    private void renewWakeLock(MotionState state) {
+        if (wakeLock != null && deviceState && state != MotionState.IDLE) {
+            wakeLock.acquire(WAKE_LOCK_TIMEOUT_MS);
+        }
+    }
+
+    private void readBatteryBaseline() {
+        BatteryManager battery = getSystemService(BatteryManager.class);
+        startBatteryPercent = battery.getIntProperty(BatteryManager.BATTERY_PROPERTY_CAPACITY);
+        startChargeMicroAmpHours = battery.getIntProperty(BatteryManager.BATTERY_PROPERTY_CHARGE_COUNTER);
+    }
+
+    /**
+     * Closes the cost interval (sensor pipeline thread)
+     */
+    private Stats takeStats() {
+        long nowNanos = SystemClock.elapsedRealtimeNanos();
+        long events = sensorPipeline.getEventsProcessed();
+        long messages = sendQueue.getQueue().getSent();
+        float seconds = Math.max(1e-3f, (nowNanos - statsIntervalStartNanos) / 1e9f);
+
+        BatteryManager battery = getSystemService(BatteryManager.class);
+        int percent = battery.getIntProperty(BatteryManager.BATTERY_PROPERTY_CAPACITY);
+        int charge = battery.getIntProperty(BatteryManager.BATTERY_PROPERTY_CHARGE_COUNTER);
+        // Fuel gauges without a charge counter report 0 or Integer.MIN_VALUE
+        float milliAmpHours = (startChargeMicroAmpHours > 0 && charge > 0)
+                ? (startChargeMicroAmpHours - charge) / 1000f : Float.NaN;
+
+        Stats stats = new Stats((nowNanos - startedAtNanos) / 1_000_000L,
+                (events - statsIntervalEvents) / seconds, (messages - statsIntervalMessages) / seconds,
+                messages, startBatteryPercent - percent, milliAmpHours, battery.isCharging());
+        statsIntervalStartNanos = nowNanos;
+        statsIntervalEvents = events;
+        statsIntervalMessages = messages;
+        lastStats = stats;
+        return stats;
+    }
+
+    private String describeStats(Stats stats) {
+        return String.format(Locale.US, "Service: %.0f events/s, %.1f messages/s, %d sent, battery -%d%%"
+                        + " (%.0f mAh/h)%s over %ds",
+                stats.sensorEventsPerSecond, stats.messagesPerSecond, stats.messagesSent, stats.batteryPercentUsed,
+                stats.milliAmpHoursPerHour(), stats.charging ? " charging" : "", stats.uptimeMillis / 1_000L);
+    }
+
+    private JSONObject createStatsJson(Stats stats) throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("uptimeMs", stats.uptimeMillis);
+        json.put("eventsPerSec", Math.round(stats.sensorEventsPerSecond * 10.0) / 10.0);
+        json.put("messagesPerSec", Math.round(stats.messagesPerSecond * 10.0) / 10.0);
+        json.put("sent", stats.messagesSent);
+        json.put("batteryPercentUsed", stats.batteryPercentUsed);
+        if (!Float.isNaN(stats.milliAmpHoursUsed)) {
+            json.put("mAhUsed", Math.round(stats.milliAmpHoursUsed * 10.0) / 10.0);
+        }
+        json.put("charging", stats.charging);
+        return json;
+    }
+
+    /**
+     * Throughput over the last report interval; battery use since the service started
+     */
+    static final class Stats {
+        final long uptimeMillis;
+        final float sensorEventsPerSecond;
+        final float messagesPerSecond;
+        final long messagesSent;
+        final int batteryPercentUsed;
+        /** NaN if the fuel gauge has no charge counter */
+        final float milliAmpHoursUsed;
+        /** Battery figures mean little while charging */
+        final boolean charging;
+
+        Stats(long uptimeMillis, float sensorEventsPerSecond, float messagesPerSecond, long messagesSent,
+              int batteryPercentUsed, float milliAmpHoursUsed, boolean charging) {
+            this.uptimeMillis = uptimeMillis;
+            this.sensorEventsPerSecond = sensorEventsPerSecond;
+            this.messagesPerSecond = messagesPerSecond;
+            this.messagesSent = messagesSent;
+            this.batteryPercentUsed = batteryPercentUsed;
+            this.milliAmpHoursUsed = milliAmpHoursUsed;
+            this.charging = charging;
+        }
+
+        /** Average drain since start, NaN if unknown */
+        float milliAmpHoursPerHour() {
+            return uptimeMillis > 0 ? milliAmpHoursUsed * 3_600_000f / uptimeMillis : Float.NaN;
+        }
+    }
+
+    // ========================================
+    // INITIALIZATION METHODS
+    // ========================================
+
+    private void saveDeviceToServer() {
+        String riderName = session.getRiderName();
+        if (socket == null || !socketConnected || riderName == null || riderName.isEmpty()) {
+            return;
+        }
+
+        try {
+            JSONObject deviceData = new JSONObject();
+            deviceData.put("deviceId", deviceId);
+            deviceData.put("rider", riderName);
+            deviceData.put("state", deviceState ? "on" : "off");
+
+            sendQueue.sendControl("save_device", deviceData, OutboundQueue.Policy.NEVER_DROP);
+            Log.d(TAG, "Device saved: " + deviceId + " - " + riderName);
+        } catch (JSONException e) {
+            Log.e(TAG, "Error saving device", e);
+        }
+    }
+
+    private void initializeDeviceAndRider() {
+        SharedPreferences prefs = getSharedPreferences("app_prefs", MODE_PRIVATE);
+        initializeDeviceId(prefs);
+        initializeSession(prefs);
+        initializeWireFormat(prefs);
+    }
+
+    private void initializeDeviceId(SharedPreferences prefs) {
+        deviceId = prefs.getString("device_id", null);
+
+        if (deviceId == null || deviceId.isEmpty()) {
+            deviceId = UUID.randomUUID().toString();
+            prefs.edit().putString("device_id", deviceId).apply();
+            Log.d("DeviceID", "New device ID generated: " + deviceId);
+        } else {
+            Log.d("DeviceID", "Existing device ID found: " + deviceId);
+        }
+    }
+
+    /**
+     * The rider name may still be unset on first launch; the activity asks for it and calls
+     * {@link #setRiderName}
+     */
+    private void initializeSession(SharedPreferences prefs) {
+        String riderName = prefs.getString("rider_name", null);
+        if (riderName != null && !riderName.isEmpty()) {
+            Log.d("RiderName", "Using rider name: " + riderName);
+        }
+        session = new SessionHandshake(deviceId, riderName, this::onSessionRegistered);
+    }
+
+    private void initializeWireFormat(SharedPreferences prefs) {
+        String stored = prefs.getString("wire_format", DEFAULT_WIRE_FORMAT);
+        if (WIRE_FORMAT_JSON.equals(stored) || WIRE_FORMAT_DELTA.equals(stored)) {
+            preferredWireFormat = stored;
+        } else {
+            preferredWireFormat = WIRE_FORMAT_BINARY;
+        }
+        batchUpload = prefs.getBoolean("batch_upload", true);
+        Log.d(TAG, "Attitude wire format: " + preferredWireFormat + (batchUpload ? " (batched)" : "")
+                + ", json until the server registers a session");
+    }
+
+    private void initializeComponents() {
+        initializeSensors();
+        initializeSocket();
+        if (serverPool != null) {
+            serverPool.start();
+        }
+    }
+
+    // ========================================
+    // SENSOR MANAGEMENT
+    // ========================================
+
+    private void initializeSensors() {
+        sensorManager = (SensorManager) getSystemService(Context.SENSOR_SERVICE);
+        listAvailableMotionSensors();
+
+        accelerometer = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
+        magnetometer = sensorManager.getDefaultSensor(Sensor.TYPE_MAGNETIC_FIELD);
+        stepCounter = sensorManager.getDefaultSensor(Sensor.TYPE_STEP_COUNTER);
+        locationManager = (LocationManager) getSystemService(Context.LOCATION_SERVICE);
+
+        if (accelerometer == null) {
+            showToast("Accelerometer not available", Toast.LENGTH_LONG);
+        }
+
+        if (magnetometer == null) {
+            Log.w(TAG, "Magnetometer not available - Yaw will not work");
+            showToast("Magnetometer not available - Yaw disabled", Toast.LENGTH_SHORT);
+        } else {
+            Log.d(TAG, "Magnetometer available - Full orientation tracking enabled");
+        }
+
+        if (stepCounter == null) {
+            Log.w(TAG, "Step Counter not available");
+            showToast("Step Counter not available", Toast.LENGTH_SHORT);
+        } else {
+            Log.d(TAG, "Step Counter available - Step tracking enabled");
+        }
+
+        gyroscope = sensorManager.getDefaultSensor(Sensor.TYPE_GYROSCOPE);
+        rotationVector = sensorManager.getDefaultSensor(magnetometer != null
+                ? Sensor.TYPE_ROTATION_VECTOR : Sensor.TYPE_GAME_ROTATION_VECTOR);
+        OrientationFusion fusion = createOrientationFusion();
+
+        sensorPipeline = new SensorPipeline(sensorManager, accelerometer, magnetometer, stepCounter,
+                gyroscope, rotationVector, fusion);
+        sensorPipeline.setNetworkConsumer(this::onAttitudeSnapshot);
+        sensorPipeline.setJumpListener(this::onJump);
+        sensorPipeline.setMotionStateListener(this::onMotionStateChanged);
+        sensorPipeline.setLocationConsumer(location -> runAnalytics.onLocation(location.getLatitude(),
+                location.getLongitude(), location.hasAccuracy() ? location.getAccuracy() : Float.NaN));
+        // Batching lets the sensor hub fill its FIFO while the screen is off
+        sensorPipeline.setHardwareBatching(getSharedPreferences("app_prefs", MODE_PRIVATE)
+                .getBoolean("sensor_batching", true));
+        sendQueue = new SocketSendQueue(sensorPipeline, session, telemetryLatency, new SocketSendQueue.Listener() {
+            @Override
+            public void onUnsent(String event, Object payload) {
+                if (payload instanceof byte[]) {
+                    journalTelemetry(event, TelemetryJournal.KIND_BINARY, (byte[]) payload);
+                } else {
+                    journalJson(event, (JSONObject) payload);
+                }
+            }
+
+            @Override
+            public void onDropped(OutboundQueue.Message message) {
+                if ("attitude_stream".equals(message.event)) {
+                    // Later deltas refer to the dropped one; restart the stream from a keyframe
+                    attitudeStreamEncoder.requestKeyframe();
+                }
+            }
+        }, SEND_QUEUE_CAPACITY, SEND_QUEUE_MAX_IN_FLIGHT, SEND_QUEUE_ACK_TIMEOUT_NANOS);
+        sendQueue.start();
+        sensorPipeline.post(this::openTelemetryJournal);
+        sensorPipeline.postDelayed(this::reportLatency, LATENCY_REPORT_INTERVAL_MS);
+        sensorPipeline.postDelayed(this::pushRunSummary, RUN_SUMMARY_INTERVAL_MS);
+
+        if (getSharedPreferences("app_prefs", MODE_PRIVATE).getBoolean("record_trace", false)) {
+            File traceDir = new File(getFilesDir(), "traces");
+            sensorPipeline.startTraceRecording(new File(traceDir, "ride-" + System.currentTimeMillis() + ".trace"));
+        }
+    }
+
+    /**
+     * Picks the orientation engine from the "fusion_engine" preference and the sensors present
+     *
+     * @return null to keep raw accelerometer/magnetometer angles
+     */
+    private OrientationFusion createOrientationFusion() {
+        SharedPreferences prefs = getSharedPreferences("app_prefs", MODE_PRIVATE);
+        String engine = prefs.getString("fusion_engine", FUSION_AUTO);
+
+        boolean wantRotationVector = FUSION_AUTO.equals(engine) || FUSION_ROTATION_VECTOR.equals(engine);
+        boolean wantComplementary = FUSION_AUTO.equals(engine) || FUSION_COMPLEMENTARY.equals(engine);
+
+        if (wantRotationVector && rotationVector != null) {
+            Log.d(TAG, "Orientation: hardware " + getSensorTypeName(rotationVector.getType()));
+            return new RotationVectorFusion();
+        }
+        if (wantComplementary && gyroscope != null) {
+            Log.d(TAG, "Orientation: gyroscope complementary filter"
+                    + (magnetometer != null ? " with magnetometer" : " (relative yaw)"));
+            return new MahonyFusion(magnetometer != null);
+        }
+
+        Log.d(TAG, "Orientation: raw accelerometer/magnetometer");
+        return null;
+    }
+
+    private void registerSensorListener() {
+        if (sensorPipeline != null) {
+            sensorPipeline.start();
+        }
+    }
+
+    /**
+     * Without the permission GPS stays off until the activity reports it granted
+     */
+    private void registerLocationListener() {
+        if (locationUpdatesActive || sensorPipeline == null) {
+            return;
+        }
+        if (hasLocationPermission()) {
+            requestLocationUpdates(sensorPipeline.getMotionState());
+            locationUpdatesActive = true;
+        } else {
+            Log.w(TAG, "No location permission - GPS speed and distance disabled");
+        }
+    }
+
+    /**
+     * GPS at the interval of {@code state}, or of {@link MotionState#IDLE} while the server
+     * has the stream off; repeating the request for the same listener replaces the previous one
+     */
+    private void requestLocationUpdates(MotionState motionState) {
+        MotionState state = deviceState ? motionState : MotionState.IDLE;
+        locationManager.requestLocationUpdates(
+                LocationManager.GPS_PROVIDER,
+                state.gpsIntervalMillis,
+                0,
+                sensorPipeline.getLocationListener(),
+                sensorPipeline.getLooper()
+        );
+        Log.d(TAG, "GPS listener registered: every " + state.gpsIntervalMillis + "ms (" + state + ")");
+    }
+
+    private boolean hasLocationPermission() {
+        return ContextCompat.checkSelfPermission(this, android.Manifest.permission.ACCESS_FINE_LOCATION)
+                == android.content.pm.PackageManager.PERMISSION_GRANTED;
+    }
+
+    private void unregisterLocationListener() {
+        locationUpdatesActive = false;
+        if (locationManager != null && sensorPipeline != null) {
+            locationManager.removeUpdates(sensorPipeline.getLocationListener());
+        }
+    }
+
+    private void listAvailableMotionSensors() {
+        if (sensorManager == null) return;
+
+        java.util.List<Sensor> sensors = sensorManager.getSensorList(Sensor.TYPE_ALL);
+        StringBuilder sensorList = new StringBuilder("Motion-Related Sensors:\n");
+        motionSensorNames.clear();
+
+        for (Sensor sensor : sensors) {
+            if (isMotionSensor(sensor.getType())) {
+                String name = getSensorTypeName(sensor.getType());
+                sensorList.append("• ").append(name).append("\n");
+                motionSensorNames.add(name);
+            }
+        }
+
+        availableMotionSensors = sensorList.toString();
+    }
+
+    private boolean isMotionSensor(int sensorType) {
+        switch (sensorType) {
+            case Sensor.TYPE_ACCELEROMETER:
+            case Sensor.TYPE_GYROSCOPE:
+            case Sensor.TYPE_MAGNETIC_FIELD:
+            case Sensor.TYPE_ROTATION_VECTOR:
+            case Sensor.TYPE_ORIENTATION:
+            case Sensor.TYPE_GRAVITY:
+            case Sensor.TYPE_LINEAR_ACCELERATION:
+            case Sensor.TYPE_GAME_ROTATION_VECTOR:
+            case Sensor.TYPE_GEOMAGNETIC_ROTATION_VECTOR:
+            case Sensor.TYPE_STEP_COUNTER:
+            case Sensor.TYPE_STEP_DETECTOR:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private String getSensorTypeName(int sensorType) {
+        switch (sensorType) {
+            case Sensor.TYPE_ACCELEROMETER: return "Accelerometer";
+            case Sensor.TYPE_GYROSCOPE: return "Gyroscope";
+            case Sensor.TYPE_MAGNETIC_FIELD: return "Magnetometer";
+            case Sensor.TYPE_ROTATION_VECTOR: return "Rotation Vector";
+            case Sensor.TYPE_ORIENTATION: return "Orientation (Deprecated)";
+            case Sensor.TYPE_GRAVITY: return "Gravity";
+            case Sensor.TYPE_LINEAR_ACCELERATION: return "Linear Acceleration";
+            case Sensor.TYPE_GAME_ROTATION_VECTOR: return "Game Rotation Vector";
+            case Sensor.TYPE_GEOMAGNETIC_ROTATION_VECTOR: return "Geomagnetic Rotation Vector";
+            case Sensor.TYPE_STEP_COUNTER: return "Step Counter";
+            case Sensor.TYPE_STEP_DETECTOR: return "Step Detector";
+            default: return "Unknown Motion Sensor (Type: " + sensorType + ")";
+        }
+    }
+
+    // ========================================
+    // SNAPSHOT CONSUMPTION (sensor pipeline thread)
+    // ========================================
+
+    /**
+     * Scales upload spacing with the motion state and moves GPS to the matching interval;
+     * takeoff and landing (RIDING and AIRBORNE) leave GPS alone
+     */
+    private void onMotionStateChanged(MotionState state, MotionState previous) {
+        applySendInterval(state);
+        renewWakeLock(state);
+        if (state.samePolicyAs(previous)) {
+            return;
+        }
+
+        mainHandler.post(() -> {
+            if (locationUpdatesActive && hasLocationPermission()) {
+                requestLocationUpdates(state);
+            }
+        });
+    }
+
+    /**
+     * Upload spacing of {@code state}, stretched by the server's limit
+     */
+    private void applySendInterval(MotionState state) {
+        sendIntervalMillis = streamControl.sendIntervalMillis(state);
+        attitudeBatcher.setMaxLatencyNanos(Math.max(BATCH_MAX_LATENCY_NANOS, sendIntervalMillis * 1_000_000L));
+    }
+
+    private void onAttitudeSnapshot(AttitudeSnapshot received, int sensorType) {
+        if (sensorType == Sensor.TYPE_ACCELEROMETER) {
+            runAnalytics.onSample(received); // the run is tallied even while the stream is off
+        }
+        if (!streamControl.isStreaming()) {
+            return;
+        }
+        snapshotProcessedNanos = SystemClock.elapsedRealtimeNanos();
+        AttitudeSnapshot snapshot = maskFields(received);
+        if (batchUpload && !legacyServer) {
+            if (sensorType == Sensor.TYPE_ACCELEROMETER) {
+                recordAttitudeSample(snapshot);
+            }
+        } else {
+            sendAttitudeData(snapshot);
+        }
+    }
+
+    // ========================================
+    // SOCKET.IO MANAGEMENT
+    // ========================================
+
+    private void initializeSocket() {
+        String[] urls = DEFAULT_SERVER_URLS;
+        String configured = getSharedPreferences("app_prefs", MODE_PRIVATE).getString("server_urls", null);
+        if (configured != null && !configured.trim().isEmpty()) {
+            urls = configured.trim().split("\\s*,\\s*");
+        }
+
+        try {
+            Log.d(TAG, "Initializing Socket.IO connections to: " + String.join(", ", urls));
+            serverPool = new ServerConnectionPool(this, urls, this::setupSocketEventListeners,
+                    this::onActiveServerChanged);
+        } catch (IllegalArgumentException e) {
+            Log.e(TAG, "No usable server URL", e);
+            showToast("Invalid server URL", Toast.LENGTH_LONG);
+        }
+    }
+
+    /**
+     * Telemetry moved to another server (or to none); the new server gets a fresh session
+     */
+    private void onActiveServerChanged(Socket active, String url) {
+        session.onConnectionChanged(active);
+        socketConnected = false;
+        if (sensorPipeline != null) {
+            // Stream settings belong to the server that sent them
+            sensorPipeline.post(() -> applyStreamControl(RESET_STREAM_CONTROL, null));
+        }
+
+        if (active != null) {
+            socket = active;
+            socketConnected = true;
+            legacyServer = true; // until it acks register_session
+            if (sensorPipeline != null) {
+                sensorPipeline.post(this::applyWireFormat);
+            }
+            Log.d(TAG, "✓ Connected to server " + url);
+            showToast("✓ Connected to server", Toast.LENGTH_SHORT);
+
+            saveDeviceToServer();
+            registerSession();
+            requestDeviceState();
+            if (sensorPipeline != null) {
+                // The server starts a fresh stream decoder for every connection
+                sensorPipeline.post(attitudeStreamEncoder::requestKeyframe);
+                sensorPipeline.post(this::startJournalReplay);
+            }
+        } else {
+            Log.d(TAG, "✗ Disconnected from server");
+            showToast("✗ Disconnected from server", Toast.LENGTH_SHORT);
+        }
+
+        if (sendQueue != null) {
+            sendQueue.setSocket(active);
+        }
+
+        if (listener != null) {
+            listener.onConnectionChanged(socketConnected);
+        }
+    }
+
+    /**
+     * Application events for one pool socket; only the active socket's events are handled
+     */
+    private void setupSocketEventListeners(Socket s) {
+        s.on("device_state_updated", args -> mainHandler.post(() -> {
+            if (s != socket) {
+                return;
+            }
+            try {
+                JSONObject data = (JSONObject) args[0];
+                String receivedDeviceId = data.getString("deviceId");
+                String newState = data.getString("state");
+
+                if (deviceId.equals(receivedDeviceId)) {
+                    setStreaming("on".equals(newState));
+                    showToast("Device state changed to: " + newState, Toast.LENGTH_SHORT);
+                    Log.d(TAG, "State updated from web: " + newState);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error parsing state update", e);
+            }
+        }));
+
+        s.on("session_unknown", args -> mainHandler.post(() -> {
+            if (s != socket) {
+                return;
+            }
+            session.onSessionUnknown();
+            registerSession();
+        }));
+
+        s.on("attitude_resync", args -> {
+            if (s != socket) {
+                return;
+            }
+            Log.d(TAG, "Server lost the attitude stream - sending a keyframe");
+            if (sensorPipeline != null) {
+                sensorPipeline.post(attitudeStreamEncoder::requestKeyframe);
+            }
+        });
+
+        s.on("device_state_response", args -> mainHandler.post(() -> {
+            if (s != socket) {
+                return;
+            }
+            try {
+                JSONObject data = (JSONObject) args[0];
+                String state = data.getString("state");
+                setStreaming("on".equals(state));
+                Log.d(TAG, "Current device state: " + state);
+            } catch (Exception e) {
+                Log.e(TAG, "Error parsing state response", e);
+            }
+        }));
+
+        s.on("get_run_summary", args -> {
+            if (s != socket || args.length == 0 || !(args[args.length - 1] instanceof Ack)) {
+                return;
+            }
+            Ack ack = (Ack) args[args.length - 1];
+            boolean reset = args[0] instanceof JSONObject && ((JSONObject) args[0]).optBoolean("reset", false);
+            if (sensorPipeline != null) {
+                sensorPipeline.post(() -> replyRunSummary(ack, reset));
+            }
+        });
+
+        s.on("stream_control", args -> {
+            if (s != socket || args.length == 0 || !(args[0] instanceof JSONObject)) {
+                return;
+            }
+            JSONObject data = (JSONObject) args[0];
+            Ack ack = args[args.length - 1] instanceof Ack ? (Ack) args[args.length - 1] : null;
+            if (data.has("deviceId") && !deviceId.equals(data.optString("deviceId"))) {
+                return; // addressed to another device; without a deviceId it is for the whole fleet
+            }
+
+            StreamControl.Command command;
+            try {
+                command = parseStreamControl(data);
+            } catch (JSONException | IllegalArgumentException e) {
+                rejectStreamControl(ack, e);
+                return;
+            }
+            if (sensorPipeline != null) {
+                sensorPipeline.post(() -> applyStreamControl(command, ack));
+            }
+        });
+    }
+
+    // ========================================
+    // SESSION HANDSHAKE
+    // ========================================
+
+    /**
+     * Describes this device once per connection; {@link SessionHandshake} adds its identity
+     */
+    private void registerSession() {
+        if (socket == null || !socketConnected) {
+            return;
+        }
+
+        MotionState state = (sensorPipeline != null) ? sensorPipeline.getMotionState() : MotionState.IDLE;
+        try {
+            JSONObject description = new JSONObject();
+            description.put("state", deviceState ? "on" : "off");
+            description.put("sensors", new JSONArray(motionSensorNames));
+            description.put("samplingPeriodUs", state.samplingPeriodUs);
+            description.put("sendIntervalMillis", state.sendIntervalMillis);
+            description.put("gpsIntervalMillis", state.gpsIntervalMillis);
+            description.put("wireFormat", preferredWireFormat);
+            description.put("batchUpload", batchUpload);
+            description.put("streamControl", true);
+            session.register(description);
+        } catch (JSONException e) {
+            Log.e(TAG, "Error registering session", e);
+        }
+    }
+
+    /**
+     * The server knows the handshake, so it decodes the preferred format too; stream decoding
+     * state lives in the new session (main thread)
+     */
+    private void onSessionRegistered(int sessionId) {
+        legacyServer = false;
+        if (sensorPipeline != null) {
+            sensorPipeline.post(() -> {
+                applyWireFormat();
+                attitudeStreamEncoder.requestKeyframe();
+            });
+        }
+    }
+
+    // ========================================
+    // STREAM CONTROL (sensor pipeline thread)
+    // ========================================
+
+    /**
+     * {"state": "on"|"off", "sendIntervalMs": n, "samplingPeriodUs": n, "fields": [...],
+     * "encoding": "json"|"binary"|"delta", "reset": bool}; every key is optional
+     */
+    private static StreamControl.Command parseStreamControl(JSONObject data) throws JSONException {
+        Boolean streaming = null;
+        if (data.has("state")) {
+            String state = data.getString("state");
+            if (!"on".equals(state) && !"off".equals(state)) {
+                throw new IllegalArgumentException("Unknown state: " + state);
+            }
+            streaming = "on".equals(state);
+        }
+
+        String[] fields = null;
+        JSONArray names = data.optJSONArray("fields");
+        if (names != null) {
+            fields = new String[names.length()];
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = names.getString(i);
+            }
+        }
+
+        return new StreamControl.Command(data.optBoolean("reset", false), streaming,
+                data.has("sendIntervalMs") ? data.getLong("sendIntervalMs") : null,
+                data.has("samplingPeriodUs") ? data.getInt("samplingPeriodUs") : null,
+                fields, data.has("encoding") ? data.getString("encoding") : null);
+    }
+
+    /**
+     * device_state on/off from the dashboard: a stream_control command with only a state
+     */
+    private void setStreaming(boolean on) {
+        if (sensorPipeline == null) {
+            deviceState = on;
+            return;
+        }
+        StreamControl.Command command = new StreamControl.Command(false, on, null, null, null, null);
+        sensorPipeline.post(() -> applyStreamControl(command, null));
+    }
+
+    /**
+     * Applies a command and acks the resulting settings, or the reason it was rejected
+     */
+    private void applyStreamControl(StreamControl.Command command, Ack ack) {
+        boolean wasStreaming = streamControl.isStreaming();
+        boolean changed;
+        try {
+            changed = streamControl.apply(command);
+        } catch (IllegalArgumentException e) {
+            rejectStreamControl(ack, e);
+            return;
+        }
+
+        if (changed) {
+            if (wasStreaming && !streamControl.isStreaming()) {
+                // Samples taken before the server turned the stream off still go out
+                flushAttitudeBatch(SystemClock.elapsedRealtimeNanos(), true);
+            }
+            applyStreamSettings();
+        }
+
+        if (ack != null) {
+            try {
+                ack.call(createStreamControlJson());
+            } catch (JSONException e) {
+                Log.e(TAG, "Error creating stream control JSON", e);
+            }
+        }
+    }
+
+    private void rejectStreamControl(Ack ack, Exception e) {
+        Log.w(TAG, "Rejected stream_control: " + e.getMessage());
+        if (ack == null) {
+            return;
+        }
+        try {
+            JSONObject error = new JSONObject();
+            error.put("error", e.getMessage());
+            ack.call(error);
+        } catch (JSONException ignored) {
+            // Nothing to report the failure with
+        }
+    }
+
+    /**
+     * Moves send rate, encoding, sensors and GPS to the current stream control settings
+     */
+    private void applyStreamSettings() {
+        boolean streaming = streamControl.isStreaming();
+        deviceState = streaming;
+        applyWireFormat();
+        // New encoding or field set: the server's stream decoder starts over
+        attitudeStreamEncoder.requestKeyframe();
+
+        MotionState state = sensorPipeline.getMotionState();
+        applySendInterval(state);
+        renewWakeLock(state);
+        sensorPipeline.setMinSamplingPeriod(streamControl.minSamplingPeriodUs());
+        mainHandler.post(() -> {
+            if (locationUpdatesActive && hasLocationPermission()) {
+                requestLocationUpdates(sensorPipeline.getMotionState());
+            }
+        });
+
+        Log.d(TAG, "Stream control: " + (streaming ? "on" : "off") + ", " + wireFormat
+                + ", every " + sendIntervalMillis + "ms, sensors >= " + streamControl.minSamplingPeriodUs()
+                + "us, fields " + String.join(",", StreamControl.fieldNames(streamControl.getFields())));
+    }
+
+    /**
+     * JSON for a legacy server, otherwise the preference unless stream_control picked a format
+     */
+    private void applyWireFormat() {
+        String format = legacyServer ? WIRE_FORMAT_JSON : streamControl.encoding(preferredWireFormat);
+        if (!format.equals(wireFormat)) {
+            wireFormat = format;
+            Log.d(TAG, "Attitude wire format: " + format + (batchUpload && !legacyServer ? " (batched)" : ""));
+        }
+    }
+
+    private JSONObject createStreamControlJson() throws JSONException {
+        JSONObject settings = new JSONObject();
+        settings.put("state", streamControl.isStreaming() ? "on" : "off");
+        settings.put("sendIntervalMs", sendIntervalMillis);
+        settings.put("samplingPeriodUs", streamControl.minSamplingPeriodUs());
+        settings.put("fields", new JSONArray(StreamControl.fieldNames(streamControl.getFields())));
+        settings.put("encoding", wireFormat);
+        return settings;
+    }
+
+    /**
+     * Zeroes fields the server turned off, so binary frames and delta streams carry
+     * constants; JSON omits them instead
+     */
+    private AttitudeSnapshot maskFields(AttitudeSnapshot snapshot) {
+        int fields = streamControl.getFields();
+        if (fields == StreamControl.ALL_FIELDS) {
+            return snapshot;
+        }
+        return new AttitudeSnapshot(snapshot.timestampNanos,
+                (fields & AttitudeStreamEncoder.FIELD_PITCH) != 0 ? snapshot.pitch : 0,
+                (fields & AttitudeStreamEncoder.FIELD_YAW) != 0 ? snapshot.yaw : 0,
+                (fields & AttitudeStreamEncoder.FIELD_ROLL) != 0 ? snapshot.roll : 0,
+                (fields & AttitudeStreamEncoder.FIELD_GFORCE) != 0 ? snapshot.gForce : 0,
+                (fields & AttitudeStreamEncoder.FIELD_SPEED) != 0 ? snapshot.speed : 0,
+                (fields & AttitudeStreamEncoder.FIELD_FLAGS) != 0 && snapshot.airborne,
+                (fields & AttitudeStreamEncoder.FIELD_STEPS) != 0 ? snapshot.steps : 0);
+    }
+
+    // ========================================
+    // ATTITUDE UPDATES
+    // ========================================
+
+    private void sendAttitudeData(AttitudeSnapshot snapshot) {
+        if (telemetryJournal == null && (socket == null || !socketConnected)) {
+            return;
+        }
+
+        // Spaced by sample time: a burst from the sensor FIFO still yields evenly spaced samples
+        long sampleTime = snapshot.timestampNanos / 1_000_000L;
+        if (sampleTime - lastSendTime < sendIntervalMillis) {
+            return;
+        }
+        lastSendTime = sampleTime;
+        long currentTime = System.currentTimeMillis();
+
+        String displayName = session.getRiderDisplayName();
+
+        if (WIRE_FORMAT_BINARY.equals(wireFormat)) {
+            deliverTelemetry("attitude_frame", createAttitudeFrame(snapshot), OutboundQueue.Policy.DROP_OLDEST,
+                    snapshot.timestampNanos);
+            logDataTransmission(currentTime, displayName, snapshot);
+            return;
+        }
+
+        if (WIRE_FORMAT_DELTA.equals(wireFormat)) {
+            sendAttitudeStream(snapshot);
+            logDataTransmission(currentTime, displayName, snapshot);
+            return;
+        }
+
+        try {
+            JSONObject attitudeData = createAttitudeDataJson(snapshot);
+            deliverTelemetry("attitude_update", attitudeData, OutboundQueue.Policy.DROP_OLDEST,
+                    snapshot.timestampNanos);
+            logDataTransmission(currentTime, displayName, snapshot);
+        } catch (JSONException e) {
+            Log.e(TAG, "Error creating attitude JSON", e);
+        }
+    }
+
+    /**
+     * Binary attitude frame; rider identity comes from the session envelope added at emit time
+     */
+    private byte[] createAttitudeFrame(AttitudeSnapshot snapshot) {
+        int length = AttitudeFrameCodec.encode(attitudeFrameBuffer, 0,
+                snapshot.pitch, snapshot.yaw, snapshot.roll, snapshot.gForce, snapshot.speed,
+                snapshot.airborne, deviceState, snapshot.steps);
+        return Arrays.copyOf(attitudeFrameBuffer, length);
+    }
+
+    /**
+     * Keyframe/delta message while connected; deltas only decode in order on a live
+     * connection, so offline updates are journaled as self-contained attitude_frames
+     */
+    private void sendAttitudeStream(AttitudeSnapshot snapshot) {
+        if (socket == null || !socketConnected) {
+            attitudeStreamEncoder.requestKeyframe();
+            journalTelemetry("attitude_frame", TelemetryJournal.KIND_BINARY, createAttitudeFrame(snapshot));
+            return;
+        }
+
+        long epochOffsetMillis = System.currentTimeMillis() - SystemClock.elapsedRealtimeNanos() / 1_000_000L;
+        int length = attitudeStreamEncoder.encode(attitudeStreamBuffer, 0,
+                snapshot.timestampNanos / 1_000_000L + epochOffsetMillis,
+                snapshot.pitch, snapshot.yaw, snapshot.roll, snapshot.gForce, snapshot.speed,
+                snapshot.airborne, deviceState, snapshot.steps);
+        // Not durable: a queued delta cannot be journaled, the next keyframe restarts the stream
+        enqueue("attitude_stream", Arrays.copyOf(attitudeStreamBuffer, length), OutboundQueue.Policy.DROP_OLDEST,
+                false, snapshot.timestampNanos);
+    }
+
+    /**
+     * Measurements only; {@link #deliverTelemetry} adds the session or rider identity
+     */
+    private JSONObject createAttitudeDataJson(AttitudeSnapshot snapshot) throws JSONException {
+        JSONObject attitudeData = new JSONObject();
+        if (streamControl.includes(AttitudeStreamEncoder.FIELD_PITCH)) {
+            attitudeData.put("pitch", Math.round(snapshot.pitch * 10.0) / 10.0);
+        }
+        if (streamControl.includes(AttitudeStreamEncoder.FIELD_YAW)) {
+            attitudeData.put("yaw", Math.round(snapshot.yaw * 10.0) / 10.0);
+        }
+        if (streamControl.includes(AttitudeStreamEncoder.FIELD_ROLL)) {
+            attitudeData.put("roll", Math.round(snapshot.roll * 10.0) / 10.0);
+        }
+        attitudeData.put("stream", deviceState ? "on" : "off");
+        if (streamControl.includes(AttitudeStreamEncoder.FIELD_GFORCE)) {
+            attitudeData.put("gforce", Math.round(snapshot.gForce * 100.0) / 100.0);
+        }
+        if (streamControl.includes(AttitudeStreamEncoder.FIELD_SPEED)) {
+            attitudeData.put("speed", Math.round(snapshot.speed * 100.0) / 100.0);
+        }
+        if (streamControl.includes(AttitudeStreamEncoder.FIELD_FLAGS)) {
+            attitudeData.put("airborne", snapshot.airborne);
+        }
+        if (streamControl.includes(AttitudeStreamEncoder.FIELD_STEPS)) {
+            attitudeData.put("steps", snapshot.steps);
+        }
+
+        return attitudeData;
+    }
+
+    // ========================================
+    // JUMP EVENTS
+    // ========================================
+
+    private void onJump(JumpEvent jump) {
+        runAnalytics.onJump(jump);
+        sendJumpEvent(jump);
+    }
+
+    /**
+     * Sent as soon as the jump completes, outside the throttled attitude stream; journaled
+     * like any other telemetry while offline
+     */
+    private void sendJumpEvent(JumpEvent jump) {
+        if (!streamControl.isStreaming()) {
+            return;
+        }
+        long epochOffsetMillis = System.currentTimeMillis() - SystemClock.elapsedRealtimeNanos() / 1_000_000L;
+
+        try {
+            JSONObject data = new JSONObject();
+            data.put("takeoff", jump.takeoffNanos / 1_000_000L + epochOffsetMillis);
+            data.put("airtimeMs", jump.airtimeMillis);
+            data.put("peakLandingG", Math.round(jump.peakLandingG * 100.0) / 100.0);
+            if (jump.hasRotation()) {
+                data.put("rotation", Math.round(jump.rotationDegrees * 10.0) / 10.0);
+            }
+            deliverTelemetry("jump", data, OutboundQueue.Policy.NEVER_DROP, UNTRACED);
+            Log.d(TAG, "Jump sent: " + jump.airtimeMillis + "ms airtime");
+        } catch (JSONException e) {
+            Log.e(TAG, "Error creating jump JSON", e);
+        }
+    }
+
+    // ========================================
+    // BATCHED UPLOAD
+    // ========================================
+
+    /**
+     * Keeps every accelerometer sample; samples pile up in the ring while disconnected
+     */
+    private void recordAttitudeSample(AttitudeSnapshot snapshot) {
+        attitudeBatcher.record(snapshot.timestampNanos, snapshot.pitch, snapshot.yaw, snapshot.roll,
+                snapshot.gForce, snapshot.speed, snapshot.airborne, deviceState, snapshot.steps);
+
+        long nowNanos = SystemClock.elapsedRealtimeNanos();
+        if (attitudeBatcher.isFlushDue(nowNanos)) {
+            flushAttitudeBatch(nowNanos, false);
+        }
+    }
+
+    /**
+     * Emits pending samples as attitude_batch messages
+     *
+     * @param force send partial batches too (used on pause)
+     */
+    private void flushAttitudeBatch(long nowNanos, boolean force) {
+        // Without a journal, keep samples in the ring until the socket is back
+        if (telemetryJournal == null && (socket == null || !socketConnected)) {
+            return;
+        }
+
+        while (attitudeBatcher.batchSize() > 0 && (force || attitudeBatcher.isFlushDue(nowNanos))) {
+            // Timed by the newest sample, the one the dashboard shows; forced flushes are not timed
+            long sensorNanos = force ? UNTRACED : attitudeBatcher.timestampAt(attitudeBatcher.batchSize() - 1);
+
+            // Binary batches already share their header, so "delta" uses them unchanged
+            if (!WIRE_FORMAT_JSON.equals(wireFormat)) {
+                long epochOffsetNanos = System.currentTimeMillis() * 1_000_000L - SystemClock.elapsedRealtimeNanos();
+                int length = AttitudeBatchCodec.encode(attitudeBatcher, epochOffsetNanos, attitudeBatchBuffer);
+                deliverTelemetry("attitude_batch", Arrays.copyOf(attitudeBatchBuffer, length),
+                        OutboundQueue.Policy.DROP_OLDEST, sensorNanos);
+            } else {
+                try {
+                    deliverTelemetry("attitude_batch", createAttitudeBatchJson(), OutboundQueue.Policy.DROP_OLDEST,
+                            sensorNanos);
+                } catch (JSONException e) {
+                    Log.e(TAG, "Error creating attitude batch JSON", e);
+                }
+            }
+
+            attitudeBatcher.commitBatch(nowNanos);
+            logBatchStats();
+        }
+    }
+
+    private JSONObject createAttitudeBatchJson() throws JSONException {
+        long epochOffsetMillis = System.currentTimeMillis() - SystemClock.elapsedRealtimeNanos() / 1_000_000L;
+
+        JSONArray samples = new JSONArray();
+        for (int i = 0; i < attitudeBatcher.batchSize(); i++) {
+            int flags = attitudeBatcher.flagsAt(i);
+            JSONObject sample = new JSONObject();
+            sample.put("t", attitudeBatcher.timestampAt(i) / 1_000_000L + epochOffsetMillis);
+            if (streamControl.includes(AttitudeStreamEncoder.FIELD_PITCH)) {
+                sample.put("pitch", Math.round(attitudeBatcher.pitchAt(i) * 10.0) / 10.0);
+            }
+            if (streamControl.includes(AttitudeStreamEncoder.FIELD_YAW)) {
+                sample.put("yaw", Math.round(attitudeBatcher.yawAt(i) * 10.0) / 10.0);
+            }
+            if (streamControl.includes(AttitudeStreamEncoder.FIELD_ROLL)) {
+                sample.put("roll", Math.round(attitudeBatcher.rollAt(i) * 10.0) / 10.0);
+            }
+            if (streamControl.includes(AttitudeStreamEncoder.FIELD_GFORCE)) {
+                sample.put("gforce", Math.round(attitudeBatcher.gForceAt(i) * 100.0) / 100.0);
+            }
+            if (streamControl.includes(AttitudeStreamEncoder.FIELD_SPEED)) {
+                sample.put("speed", Math.round(attitudeBatcher.speedAt(i) * 100.0) / 100.0);
+            }
+            if (streamControl.includes(AttitudeStreamEncoder.FIELD_FLAGS)) {
+                sample.put("airborne", (flags & AttitudeFrameCodec.FLAG_AIRBORNE) != 0);
+            }
+            sample.put("stream", (flags & AttitudeFrameCodec.FLAG_STREAM_ON) != 0 ? "on" : "off");
+            if (streamControl.includes(AttitudeStreamEncoder.FIELD_STEPS)) {
+                sample.put("steps", attitudeBatcher.stepsAt(i));
+            }
+            samples.put(sample);
+        }
+
+        JSONObject batch = new JSONObject();
+        batch.put("samples", samples);
+        return batch;
+    }
+
+    private void logBatchStats() {
+        if (attitudeBatcher.getBatchesFlushed() % BATCH_STATS_LOG_INTERVAL == 0) {
+            Log.d(TAG, "Batch stats: batches=" + attitudeBatcher.getBatchesFlushed()
+                    + ", samples=" + attitudeBatcher.getSamplesFlushed()
+                    + ", dropped=" + attitudeBatcher.getSamplesDropped()
+                    + ", lastSize=" + attitudeBatcher.getLastBatchSize()
+                    + ", lastLatency=" + attitudeBatcher.getLastFlushLatencyNanos() / 1_000_000L + "ms"
+                    + ", maxLatency=" + attitudeBatcher.getMaxFlushLatencyNanos() / 1_000_000L + "ms");
+        }
+    }
+
+    // ========================================
+    // OFFLINE JOURNAL (sensor pipeline thread)
+    // ========================================
+
+    private void openTelemetryJournal() {
+        try {
+            telemetryJournal = new TelemetryJournal(new File(getFilesDir(), "telemetry-journal"),
+                    JOURNAL_SEGMENT_SIZE, JOURNAL_MAX_SEGMENTS);
+            journalReplayer = new JournalReplayer(telemetryJournal, socketTransport, JOURNAL_REPLAY_BATCH);
+            Log.d(TAG, "Telemetry journal opened, pending bytes: " + telemetryJournal.pendingBytes());
+
+            if (socketTransport.isConnected()) {
+                startJournalReplay();
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Telemetry journal unavailable - offline data will be dropped", e);
+        }
+    }
+
+    private void closeTelemetryJournal() {
+        if (telemetryJournal == null) {
+            return;
+        }
+        try {
+            telemetryJournal.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Error closing telemetry journal", e);
+        }
+        telemetryJournal = null;
+        journalReplayer = null;
+    }
+
+    /**
+     * Queues live when connected, otherwise journals the message for replay on reconnect
+     */
+    private void deliverTelemetry(String event, byte[] payload, OutboundQueue.Policy policy, long sensorNanos) {
+        if (socket != null && socketConnected) {
+            enqueue(event, payload, policy, true, sensorNanos);
+        } else {
+            journalTelemetry(event, TelemetryJournal.KIND_BINARY, payload);
+        }
+    }
+
+    /**
+     * Identity is added when the message leaves: the session id if it is sent, the legacy
+     * fields if it is journaled, since the session ends with the connection
+     */
+    private void deliverTelemetry(String event, JSONObject payload, OutboundQueue.Policy policy, long sensorNanos) {
+        if (socket != null && socketConnected) {
+            enqueue(event, payload, policy, true, sensorNanos);
+        } else {
+            journalJson(event, payload);
+        }
+    }
+
+    private void journalJson(String event, JSONObject payload) {
+        try {
+            payload.remove("sid");
+            session.putIdentity(payload);
+        } catch (JSONException e) {
+            Log.e(TAG, "Error adding identity to " + event, e);
+        }
+        journalTelemetry(event, TelemetryJournal.KIND_JSON, payload.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void journalTelemetry(String event, int kind, byte[] payload) {
+        if (telemetryJournal == null) {
+            return;
+        }
+        try {
+            telemetryJournal.append(event, kind, payload);
+        } catch (IOException | IllegalArgumentException e) {
+            Log.e(TAG, "Error journaling " + event, e);
+        }
+    }
+
+    /**
+     * Replayed records are never shed: they already left the journal
+     */
+    private void emitJournaledTelemetry(String event, int kind, byte[] payload) {
+        if (kind == TelemetryJournal.KIND_BINARY) {
+            enqueue(event, payload, OutboundQueue.Policy.NEVER_DROP, true, UNTRACED);
+            return;
+        }
+        try {
+            enqueue(event, new JSONObject(new String(payload, StandardCharsets.UTF_8)),
+                    OutboundQueue.Policy.NEVER_DROP, true, UNTRACED);
+        } catch (JSONException e) {
+            Log.e(TAG, "Dropping corrupt journaled " + event, e);
+        }
+    }
+
+    private void startJournalReplay() {
+        if (journalReplayer == null || journalReplayActive || telemetryJournal.isEmpty()) {
+            return;
+        }
+        journalReplayActive = true;
+        Log.d(TAG, "Replaying telemetry journal, pending bytes: " + telemetryJournal.pendingBytes());
+        replayJournalBatch();
+    }
+
+    /**
+     * One rate-limited replay step; reschedules itself until the journal is drained
+     */
+    private void replayJournalBatch() {
+        if (journalReplayer == null) {
+            journalReplayActive = false;
+            return;
+        }
+
+        if (sendQueue.getQueue().getDepth() > JOURNAL_REPLAY_MAX_QUEUE_DEPTH && socketTransport.isConnected()) {
+            // Uplink is backed up; try again once the queue has drained
+            sensorPipeline.postDelayed(this::replayJournalBatch, JOURNAL_REPLAY_INTERVAL_MS);
+            return;
+        }
+
+        try {
+            if (journalReplayer.replayBatch()) {
+                sensorPipeline.postDelayed(this::replayJournalBatch, JOURNAL_REPLAY_INTERVAL_MS);
+                return;
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error replaying telemetry journal", e);
+        }
+
+        journalReplayActive = false;
+        Log.d(TAG, "Journal replay stopped: replayed=" + telemetryJournal.getRecordsReplayed()
+                + ", evictedSegments=" + telemetryJournal.getSegmentsEvicted()
+                + ", pendingBytes=" + telemetryJournal.pendingBytes());
+    }
+
+    private void logDataTransmission(long currentTime, String displayName, AttitudeSnapshot snapshot) {
+        if (currentTime % 1000 < sendIntervalMillis) {
+            Log.d(TAG, String.format("Sent [%s]: P=%.1f°, Y=%.1f°, R=%.1f°, Speed=%.1f km/h, Stream=%s",
+                    displayName, snapshot.pitch, snapshot.yaw, snapshot.roll, snapshot.speed, deviceState ? "on" : "off"));
+        }
+    }
+
+    // ========================================
+    // SEND QUEUE (sensor pipeline thread)
+    // ========================================
+
+    /**
+     * Queues a message for the active socket, timed from the snapshot being processed
+     *
+     * @param durable     journal the message if the connection drops before it is sent
+     * @param sensorNanos sensor timestamp of the newest sample in the message, or
+     *                    {@link #UNTRACED} for messages that are not live attitude data
+     */
+    private void enqueue(String event, Object payload, OutboundQueue.Policy policy, boolean durable,
+                         long sensorNanos) {
+        sendQueue.enqueue(event, payload, policy, durable, sensorNanos, snapshotProcessedNanos);
+    }
+
+    // ========================================
+    // RUN ANALYTICS (sensor pipeline thread)
+    // ========================================
+
+    /**
+     * Pushes the run so far while connected and streaming; reschedules itself
+     */
+    private void pushRunSummary() {
+        sensorPipeline.postDelayed(this::pushRunSummary, RUN_SUMMARY_INTERVAL_MS);
+        if (socket == null || !socketConnected || !streamControl.isStreaming()) {
+            return;
+        }
+        try {
+            JSONObject summary = createRunSummaryJson(runAnalytics.summarize(SystemClock.elapsedRealtimeNanos()));
+            session.putIdentity(summary);
+            enqueue("run_summary", summary, OutboundQueue.Policy.COALESCE_LATEST, false, UNTRACED);
+        } catch (JSONException e) {
+            Log.e(TAG, "Error creating run summary JSON", e);
+        }
+    }
+
+    /**
+     * Answers get_run_summary; {"reset": true} closes the run and starts the next one
+     */
+    private void replyRunSummary(Ack ack, boolean reset) {
+        long nowNanos = SystemClock.elapsedRealtimeNanos();
+        RunAnalytics.Summary summary = runAnalytics.summarize(nowNanos);
+        if (reset) {
+            runAnalytics.reset(nowNanos);
+            Log.d(TAG, "Run closed after " + summary.durationMillis / 1_000L + "s, " + summary.jumps + " jumps");
+        }
+        try {
+            ack.call(createRunSummaryJson(summary));
+        } catch (JSONException e) {
+            Log.e(TAG, "Error creating run summary JSON", e);
+        }
+    }
+
+    private JSONObject createRunSummaryJson(RunAnalytics.Summary summary) throws JSONException {
+        JSONObject jumps = new JSONObject();
+        jumps.put("count", summary.jumps);
+        jumps.put("airtimeMs", summary.airtimeMillis);
+        jumps.put("longestMs", summary.longestAirtimeMillis);
+        jumps.put("maxLandingG", Math.round(summary.maxLandingG * 100.0) / 100.0);
+        if (!Float.isNaN(summary.maxRotationDegrees)) {
+            jumps.put("maxRotation", Math.round(summary.maxRotationDegrees * 10.0) / 10.0);
+        }
+
+        JSONObject histograms = new JSONObject();
+        histograms.put("lean", createHistogramJson(summary.leanHistogram));
+        histograms.put("tilt", createHistogramJson(summary.tiltHistogram));
+        histograms.put("gforce", createHistogramJson(summary.gForceHistogram));
+
+        JSONObject run = new JSONObject();
+        run.put("durationMs", summary.durationMillis);
+        run.put("samples", summary.samples);
+        run.put("movingMs", summary.movingMillis);
+        run.put("distanceM", Math.round(summary.distanceMeters * 10.0) / 10.0);
+        run.put("pitch", createStatJson(summary.pitch, 10.0));
+        run.put("roll", createStatJson(summary.roll, 10.0));
+        run.put("gforce", createStatJson(summary.gForce, 100.0));
+        run.put("speed", createStatJson(summary.speed, 100.0));
+        run.put("jumps", jumps);
+        run.put("histograms", histograms);
+        return run;
+    }
+
+    /**
+     * Min/max/mean rounded to 1/{@code scale}; values not known yet are left out
+     */
+    private static JSONObject createStatJson(RunAnalytics.Stat stat, double scale) throws JSONException {
+        JSONObject json = new JSONObject();
+        if (stat.getCount() > 0) {
+            json.put("min", Math.round(stat.getMin() * scale) / scale);
+            json.put("max", Math.round(stat.getMax() * scale) / scale);
+        }
+        if (!Float.isNaN(stat.getMean())) {
+            json.put("mean", Math.round(stat.getMean() * scale) / scale);
+        }
+        return json;
+    }
+
+    /**
+     * Milliseconds per bucket, from "start" in steps of "width"
+     */
+    private static JSONObject createHistogramJson(RunAnalytics.Histogram histogram) throws JSONException {
+        JSONArray millis = new JSONArray();
+        for (int i = 0; i < histogram.bucketCount(); i++) {
+            millis.put(histogram.millisAt(i));
+        }
+        JSONObject json = new JSONObject();
+        json.put("start", histogram.min);
+        json.put("width", histogram.bucketWidth);
+        json.put("ms", millis);
+        return json;
+    }
+
+    // ========================================
+    // LATENCY INSTRUMENTATION
+    // ========================================
+
+    /**
+     * Closes the latency interval, logs it and exports it while connected; reschedules
+     * itself on the sensor pipeline thread
+     */
+    private void reportLatency() {
+        TelemetryLatency.Report report = telemetryLatency.takeReport(SystemClock.elapsedRealtimeNanos());
+        Stats stats = takeStats();
+        sensorPipeline.postDelayed(this::reportLatency, LATENCY_REPORT_INTERVAL_MS);
+        renewWakeLock(sensorPipeline.getMotionState());
+        Log.d(TAG, describeStats(stats));
+        if (report.messages == 0) {
+            return;
+        }
+
+        Log.d(TAG, describeLatency(report));
+        if (socket == null || !socketConnected) {
+            return;
+        }
+        try {
+            enqueue("latency_metrics", createLatencyJson(report), OutboundQueue.Policy.COALESCE_LATEST, false,
+                    UNTRACED);
+        } catch (JSONException e) {
+            Log.e(TAG, "Error creating latency JSON", e);
+        }
+    }
+
+    private JSONObject createLatencyJson(TelemetryLatency.Report report) throws JSONException {
+        JSONObject stages = new JSONObject();
+        for (TelemetryLatency.Stage stage : TelemetryLatency.Stage.values()) {
+            JSONObject stats = new JSONObject();
+            stats.put("count", report.count(stage));
+            for (int p = 0; p < TelemetryLatency.PERCENTILES.length; p++) {
+                stats.put(TelemetryLatency.PERCENTILE_LABELS[p], report.percentileMicros(stage, p));
+            }
+            stats.put("max", report.maxMicros(stage));
+            stages.put(stage.label, stats);
+        }
+
+        JSONObject metrics = new JSONObject();
+        session.putIdentity(metrics);
+        metrics.put("intervalMs", report.intervalNanos / 1_000_000L);
+        metrics.put("messages", report.messages);
+        metrics.put("sampled", report.sampled);
+        metrics.put("acked", report.acked);
+        metrics.put("unit", "us");
+        metrics.put("stages", stages);
+
+        OutboundQueue outbound = sendQueue.getQueue();
+        JSONObject queue = new JSONObject();
+        queue.put("depth", outbound.getDepth());
+        queue.put("maxDepth", outbound.getMaxDepth());
+        queue.put("inFlight", outbound.getInFlight());
+        queue.put("dropped", outbound.getDropped());
+        queue.put("coalesced", outbound.getCoalesced());
+        queue.put("ackTimeouts", outbound.getAckTimeouts());
+        metrics.put("queue", queue);
+
+        Stats serviceStats = lastStats;
+        if (serviceStats != null) {
+            metrics.put("service", createStatsJson(serviceStats));
+        }
+        return metrics;
+    }
+
+    private String describeLatency(TelemetryLatency.Report report) {
+        OutboundQueue outbound = sendQueue.getQueue();
+        StringBuilder text = new StringBuilder("Latency p50/p99/p999 ms:");
+        for (TelemetryLatency.Stage stage : TelemetryLatency.Stage.values()) {
+            if (report.count(stage) == 0) {
+                continue;
+            }
+            text.append(' ').append(stage.label);
+            for (int p = 0; p < TelemetryLatency.PERCENTILES.length; p++) {
+                text.append(p == 0 ? " " : "/")
+                        .append(String.format(Locale.US, "%.1f", report.percentileMicros(stage, p) / 1000f));
+            }
+        }
+        return text.append(" (messages=").append(report.messages)
+                .append(", acked=").append(report.acked).append('/').append(report.sampled)
+                .append(", queueDepth=").append(outbound.getDepth()).append('/').append(outbound.getMaxDepth())
+                .append(", dropped=").append(outbound.getDropped())
+                .append(outbound.isAckless() ? ", server does not ack"
+                        : outbound.getAcklessEvents() > 0 ? ", unacked events " + outbound.getAcklessEvents() : "")
+                .append(')')
+                .toString();
+    }
+
+    // ========================================
+    // UTILITY METHODS
+    // ========================================
+
+    private void showToast(String message, int duration) {
+        Toast.makeText(this, message, duration).show();
+    }
+
+    private void cleanup() {
+        unregisterLocationListener();
+        if (serverPool != null) {
+            serverPool.stop();
+            Log.d(TAG, "Server connections closed in onDestroy");
+        }
+        if (sensorPipeline != null) {
+            SensorPipeline pipeline = sensorPipeline;
+            // Samples still queued in the sensor FIFOs make it into the final batch, journaled
+            // since the connections are closed; the CPU stays awake until the journal is closed
+            if (wakeLock != null) {
+                wakeLock.acquire(WAKE_LOCK_TIMEOUT_MS);
+            }
+            pipeline.stop(() -> {
+                flushAttitudeBatch(SystemClock.elapsedRealtimeNanos(), true);
+                closeTelemetryJournal();
+                pipeline.shutdown();
+                releaseWakeLock();
+            });
+        } else {
+            releaseWakeLock();
+        }
+    }
+
+    private void releaseWakeLock() {
+        if (wakeLock != null && wakeLock.isHeld()) {
+            wakeLock.release();
+        }
+    }
+
+    private void requestDeviceState() {
+        if (socket == null || !socketConnected) {
+            return;
+        }
+
+        try {
+            JSONObject requestData = new JSONObject();
+            requestData.put("deviceId", deviceId);
+
+            sendQueue.sendControl("get_device_state", requestData, OutboundQueue.Policy.COALESCE_LATEST);
+        } catch (JSONException e) {
+            Log.e(TAG, "Error requesting device state", e);
+        }
+    }
+}
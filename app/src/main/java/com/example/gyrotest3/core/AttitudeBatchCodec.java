@@ -0,0 +1,144 @@
+package com.example.gyrotest3.core;
+
+/**
+ * AttitudeBatchCodec - Binary encoding of one {@link AttitudeBatcher} flush
+ *
+ * Batch layout (big-endian), version 1:
+ *
+ *   version      1 byte   (= 1)
+ *   count        varint
+ *   baseMicros   8 bytes  epoch microseconds of the first sample
+ *   count x sample:
+ *     deltaMicros  varint  time since the previous sample (0 for the first)
+ *     body         12-16   flags, pitch, yaw, roll, gforce, speed, steps
+ *                          exactly as in {@link AttitudeFrameCodec} after its version byte
+ */
+public final class AttitudeBatchCodec {
+
+    public static final int VERSION = 1;
+
+    private static final int HEADER_MAX_SIZE = 1 + 5 + 8;
+    private static final int SAMPLE_MAX_SIZE = 10 + AttitudeFrameCodec.MAX_BODY_SIZE;
+
+    private AttitudeBatchCodec() {}
+
+    /**
+     * Worst-case encoded size of a batch holding {@code samples} samples
+     */
+    public static int maxEncodedSize(int samples) {
+        return HEADER_MAX_SIZE + samples * SAMPLE_MAX_SIZE;
+    }
+
+    /**
+     * Encodes the batcher's current batch without committing it
+     *
+     * @param epochOffsetNanos added to sensor timestamps to get epoch nanoseconds
+     * @return number of bytes written
+     */
+    public static int encode(AttitudeBatcher batcher, long epochOffsetNanos, byte[] out) {
+        int count = batcher.batchSize();
+        int position = 0;
+
+        out[position++] = (byte) VERSION;
+        position += AttitudeFrameCodec.putVarint(out, position, count);
+
+        long baseMicros = count > 0 ? (batcher.timestampAt(0) + epochOffsetNanos) / 1000 : 0;
+        putLong(out, position, baseMicros);
+        position += 8;
+
+        long previousMicros = baseMicros;
+        for (int i = 0; i < count; i++) {
+            long micros = (batcher.timestampAt(i) + epochOffsetNanos) / 1000;
+            position += AttitudeFrameCodec.putVarint(out, position, Math.max(0, micros - previousMicros));
+            previousMicros = Math.max(previousMicros, micros);
+
+            position += AttitudeFrameCodec.encodeBody(out, position, batcher.flagsAt(i),
+                    batcher.pitchAt(i), batcher.yawAt(i), batcher.rollAt(i),
+                    batcher.gForceAt(i), batcher.speedAt(i), batcher.stepsAt(i));
+        }
+
+        return position;
+    }
+
+    /**
+     * Reference decoder, mirrors what the server does with an attitude_batch payload
+     *
+     * @throws IllegalArgumentException if the batch is truncated or has an unknown version
+     */
+    public static Batch decode(byte[] in, int offset, int length) {
+        int limit = offset + length;
+        if (length < 1 + 1 + 8) {
+            throw new IllegalArgumentException("Batch too short: " + length + " bytes");
+        }
+
+        int version = in[offset] & 0xFF;
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported batch version: " + version);
+        }
+
+        int position = offset + 1;
+        long count = AttitudeFrameCodec.getVarint(in, position, limit);
+        position += AttitudeFrameCodec.varintLength(count);
+        if (count > length) {
+            throw new IllegalArgumentException("Implausible sample count: " + count);
+        }
+
+        if (position + 8 > limit) {
+            throw new IllegalArgumentException("Batch header truncated");
+        }
+        long micros = getLong(in, position);
+        position += 8;
+
+        long[] timestamps = new long[(int) count];
+        AttitudeFrame[] frames = new AttitudeFrame[(int) count];
+        for (int i = 0; i < count; i++) {
+            long delta = AttitudeFrameCodec.getVarint(in, position, limit);
+            position += AttitudeFrameCodec.varintLength(delta);
+            micros += delta;
+
+            AttitudeFrame frame = AttitudeFrameCodec.decodeBody(in, position, limit);
+            position += AttitudeFrameCodec.BODY_FIXED_SIZE + AttitudeFrameCodec.varintLength(frame.steps);
+
+            timestamps[i] = micros;
+            frames[i] = frame;
+        }
+
+        return new Batch(timestamps, frames);
+    }
+
+    public static Batch decode(byte[] in) {
+        return decode(in, 0, in.length);
+    }
+
+    static void putLong(byte[] out, int offset, long value) {
+        for (int i = 7; i >= 0; i--) {
+            out[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    static long getLong(byte[] in, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (in[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Decoded batch: parallel arrays of epoch microseconds and frames
+     */
+    public static final class Batch {
+        public final long[] timestampMicros;
+        public final AttitudeFrame[] frames;
+
+        Batch(long[] timestampMicros, AttitudeFrame[] frames) {
+            this.timestampMicros = timestampMicros;
+            this.frames = frames;
+        }
+
+        public int size() {
+            return frames.length;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.gyrotest3.core;
+
+/**
+ * AttitudeBatcher - Ring buffer of timestamped attitude samples flushed in batches
+ *
+ * Samples are stored in primitive columns so recording one costs no allocation.
+ * A flush is due once {@code maxBatchSize} samples are pending or the oldest pending
+ * sample is older than {@code maxLatencyNanos}. When the buffer is full (for example
+ * while the socket is down) the oldest sample is overwritten and counted as dropped.
+ *
+ * Not thread-safe: record, flush and read stats from the same thread.
+ */
+public final class AttitudeBatcher {
+
+    private final int capacity;
+    private final int maxBatchSize;
+    private long maxLatencyNanos;
+
+    private final long[] timestamps;
+    private final float[] pitch;
+    private final float[] yaw;
+    private final float[] roll;
+    private final float[] gForce;
+    private final float[] speed;
+    private final byte[] flags;
+    private final int[] steps;
+
+    private int head = 0; // index of the oldest pending sample
+    private int size = 0;
+
+    // Observability
+    private long batchesFlushed = 0;
+    private long samplesFlushed = 0;
+    private long samplesDropped = 0;
+    private int lastBatchSize = 0;
+    private long lastFlushLatencyNanos = 0;
+    private long maxFlushLatencyNanos = 0;
+
+    public AttitudeBatcher(int capacity, int maxBatchSize, long maxLatencyNanos) {
+        if (maxBatchSize <= 0 || capacity < maxBatchSize) {
+            throw new IllegalArgumentException("Need 0 < maxBatchSize <= capacity, got "
+                    + maxBatchSize + " / " + capacity);
+        }
+        this.capacity = capacity;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLatencyNanos = maxLatencyNanos;
+
+        timestamps = new long[capacity];
+        pitch = new float[capacity];
+        yaw = new float[capacity];
+        roll = new float[capacity];
+        gForce = new float[capacity];
+        speed = new float[capacity];
+        flags = new byte[capacity];
+        steps = new int[capacity];
+    }
+
+    // ========================================
+    // RECORDING
+    // ========================================
+
+    public void record(long timestampNanos, float pitch, float yaw, float roll, float gForce, float speed,
+                       boolean airborne, boolean streamOn, int steps) {
+        if (size == capacity) {
+            head = (head + 1) % capacity;
+            size--;
+            samplesDropped++;
+        }
+
+        int index = (head + size) % capacity;
+        this.timestamps[index] = timestampNanos;
+        this.pitch[index] = pitch;
+        this.yaw[index] = yaw;
+        this.roll[index] = roll;
+        this.gForce[index] = gForce;
+        this.speed[index] = speed;
+        this.flags[index] = (byte) ((airborne ? AttitudeFrameCodec.FLAG_AIRBORNE : 0)
+                | (streamOn ? AttitudeFrameCodec.FLAG_STREAM_ON : 0));
+        this.steps[index] = steps;
+        size++;
+    }
+
+    /**
+     * Changes the latency bound from the next {@link #isFlushDue} on, e.g. per motion state
+     */
+    public void setMaxLatencyNanos(long maxLatencyNanos) {
+        this.maxLatencyNanos = maxLatencyNanos;
+    }
+
+    public long getMaxLatencyNanos() { return maxLatencyNanos; }
+
+    /**
+     * True once the size or latency budget for the pending samples is exhausted
+     */
+    public boolean isFlushDue(long nowNanos) {
+        if (size == 0) {
+            return false;
+        }
+        return size >= maxBatchSize || nowNanos - timestamps[head] >= maxLatencyNanos;
+    }
+
+    // ========================================
+    // BATCH ACCESS
+    // ========================================
+
+    /**
+     * Number of samples the next batch will contain
+     */
+    public int batchSize() {
+        return Math.min(size, maxBatchSize);
+    }
+
+    public long timestampAt(int i) { return timestamps[slot(i)]; }
+    public float pitchAt(int i) { return pitch[slot(i)]; }
+    public float yawAt(int i) { return yaw[slot(i)]; }
+    public float rollAt(int i) { return roll[slot(i)]; }
+    public float gForceAt(int i) { return gForce[slot(i)]; }
+    public float speedAt(int i) { return speed[slot(i)]; }
+    public int flagsAt(int i) { return flags[slot(i)] & 0xFF; }
+    public int stepsAt(int i) { return steps[slot(i)]; }
+
+    /**
+     * Releases the current batch after it has been handed to the transport
+     */
+    public void commitBatch(long nowNanos) {
+        int batch = batchSize();
+        if (batch == 0) {
+            return;
+        }
+
+        lastFlushLatencyNanos = nowNanos - timestamps[head];
+        maxFlushLatencyNanos = Math.max(maxFlushLatencyNanos, lastFlushLatencyNanos);
+        lastBatchSize = batch;
+        batchesFlushed++;
+        samplesFlushed += batch;
+
+        head = (head + batch) % capacity;
+        size -= batch;
+    }
+
+    private int slot(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Sample " + i + " of " + size);
+        }
+        return (head + i) % capacity;
+    }
+
+    // ========================================
+    // STATS
+    // ========================================
+
+    public int pendingSamples() { return size; }
+    public int getMaxBatchSize() { return maxBatchSize; }
+    public long getBatchesFlushed() { return batchesFlushed; }
+    public long getSamplesFlushed() { return samplesFlushed; }
+    public long getSamplesDropped() { return samplesDropped; }
+    public int getLastBatchSize() { return lastBatchSize; }
+    public long getLastFlushLatencyNanos() { return lastFlushLatencyNanos; }
+    public long getMaxFlushLatencyNanos() { return maxFlushLatencyNanos; }
+}
@@ -0,0 +1,37 @@
+package com.example.gyrotest3.core;
+
+/**
+ * AttitudeFrame - One immutable telemetry sample as carried on the wire
+ *
+ * Angles are in degrees, G-force in G, speed in km/h.
+ */
+public final class AttitudeFrame {
+
+    public final float pitch;
+    public final float yaw;
+    public final float roll;
+    public final float gForce;
+    public final float speed;
+    public final boolean airborne;
+    public final boolean streamOn;
+    public final int steps;
+
+    public AttitudeFrame(float pitch, float yaw, float roll, float gForce, float speed,
+                         boolean airborne, boolean streamOn, int steps) {
+        this.pitch = pitch;
+        this.yaw = yaw;
+        this.roll = roll;
+        this.gForce = gForce;
+        this.speed = speed;
+        this.airborne = airborne;
+        this.streamOn = streamOn;
+        this.steps = steps;
+    }
+
+    @Override
+    public String toString() {
+        return "AttitudeFrame{pitch=" + pitch + ", yaw=" + yaw + ", roll=" + roll
+                + ", gForce=" + gForce + ", speed=" + speed + ", airborne=" + airborne
+                + ", streamOn=" + streamOn + ", steps=" + steps + "}";
+    }
+}
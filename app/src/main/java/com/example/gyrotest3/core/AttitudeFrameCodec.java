@@ -0,0 +1,214 @@
+package com.example.gyrotest3.core;
+
+/**
+ * AttitudeFrameCodec - Fixed-layout binary encoding of {@link AttitudeFrame}
+ *
+ * Frame layout (big-endian), version 1:
+ *
+ *   offset  size  field
+ *   0       1     version (= 1)
+ *   1       1     flags (bit 0 = airborne, bit 1 = stream on)
+ *   2       2     pitch   (signed, 0.1 degree)
+ *   4       2     yaw     (signed, 0.1 degree, 0..3600)
+ *   6       2     roll    (signed, 0.1 degree)
+ *   8       2     gforce  (signed, 0.01 G)
+ *   10      2     speed   (signed, 0.01 km/h)
+ *   12      1-5   steps   (unsigned LEB128 varint)
+ *
+ * The quantization matches the rounding the JSON payload already applies,
+ * so switching formats does not change what the server sees.
+ */
+public final class AttitudeFrameCodec {
+
+    public static final int VERSION = 1;
+
+    public static final int FLAG_AIRBORNE = 0x01;
+    public static final int FLAG_STREAM_ON = 0x02;
+
+    public static final float ANGLE_SCALE = 10f;
+    public static final float GFORCE_SCALE = 100f;
+    public static final float SPEED_SCALE = 100f;
+
+    static final int BODY_FIXED_SIZE = 11;
+    static final int FIXED_SIZE = 1 + BODY_FIXED_SIZE;
+    static final int MAX_BODY_SIZE = BODY_FIXED_SIZE + 5;
+    public static final int MAX_FRAME_SIZE = FIXED_SIZE + 5;
+
+    private AttitudeFrameCodec() {}
+
+    // ========================================
+    // ENCODING
+    // ========================================
+
+    public static byte[] encode(AttitudeFrame frame) {
+        byte[] buffer = new byte[MAX_FRAME_SIZE];
+        int length = encode(frame, buffer, 0);
+        return java.util.Arrays.copyOf(buffer, length);
+    }
+
+    /**
+     * Writes one frame into {@code out} starting at {@code offset}
+     *
+     * @return number of bytes written
+     */
+    public static int encode(AttitudeFrame frame, byte[] out, int offset) {
+        return encode(out, offset, frame.pitch, frame.yaw, frame.roll, frame.gForce, frame.speed,
+                frame.airborne, frame.streamOn, frame.steps);
+    }
+
+    /**
+     * Allocation-free variant for callers that keep values in primitives
+     *
+     * @return number of bytes written
+     */
+    public static int encode(byte[] out, int offset, float pitch, float yaw, float roll,
+                             float gForce, float speed, boolean airborne, boolean streamOn, int steps) {
+        int flags = (airborne ? FLAG_AIRBORNE : 0) | (streamOn ? FLAG_STREAM_ON : 0);
+
+        out[offset] = (byte) VERSION;
+        return 1 + encodeBody(out, offset + 1, flags, pitch, yaw, roll, gForce, speed, steps);
+    }
+
+    /**
+     * Writes everything after the version byte; shared with {@link AttitudeBatchCodec}
+     *
+     * @return number of bytes written
+     */
+    static int encodeBody(byte[] out, int offset, int flags, float pitch, float yaw, float roll,
+                          float gForce, float speed, int steps) {
+        out[offset] = (byte) flags;
+        putShort(out, offset + 1, quantize(pitch, ANGLE_SCALE));
+        putShort(out, offset + 3, quantize(yaw, ANGLE_SCALE));
+        putShort(out, offset + 5, quantize(roll, ANGLE_SCALE));
+        putShort(out, offset + 7, quantize(gForce, GFORCE_SCALE));
+        putShort(out, offset + 9, quantize(speed, SPEED_SCALE));
+
+        int varintLength = putVarint(out, offset + BODY_FIXED_SIZE, Math.max(0, steps));
+        return BODY_FIXED_SIZE + varintLength;
+    }
+
+    // ========================================
+    // DECODING
+    // ========================================
+
+    public static AttitudeFrame decode(byte[] in) {
+        return decode(in, 0, in.length);
+    }
+
+    /**
+     * Parses one frame from {@code in[offset, offset + length)}
+     *
+     * @throws IllegalArgumentException if the frame is truncated or has an unknown version
+     */
+    public static AttitudeFrame decode(byte[] in, int offset, int length) {
+        if (length < FIXED_SIZE + 1) {
+            throw new IllegalArgumentException("Frame too short: " + length + " bytes");
+        }
+
+        int version = in[offset] & 0xFF;
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported frame version: " + version);
+        }
+
+        return decodeBody(in, offset + 1, offset + length);
+    }
+
+    /**
+     * Parses everything after the version byte, never reading at or beyond {@code limit}
+     */
+    static AttitudeFrame decodeBody(byte[] in, int offset, int limit) {
+        if (limit - offset < BODY_FIXED_SIZE + 1) {
+            throw new IllegalArgumentException("Frame body too short: " + (limit - offset) + " bytes");
+        }
+
+        int flags = in[offset] & 0xFF;
+        float pitch = getShort(in, offset + 1) / ANGLE_SCALE;
+        float yaw = getShort(in, offset + 3) / ANGLE_SCALE;
+        float roll = getShort(in, offset + 5) / ANGLE_SCALE;
+        float gForce = getShort(in, offset + 7) / GFORCE_SCALE;
+        float speed = getShort(in, offset + 9) / SPEED_SCALE;
+        int steps = (int) getVarint(in, offset + BODY_FIXED_SIZE, limit);
+
+        return new AttitudeFrame(pitch, yaw, roll, gForce, speed,
+                (flags & FLAG_AIRBORNE) != 0, (flags & FLAG_STREAM_ON) != 0, steps);
+    }
+
+    /**
+     * Number of bytes {@link #putVarint} needs for {@code value}
+     */
+    static int varintLength(long value) {
+        int length = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    // ========================================
+    // PRIMITIVES
+    // ========================================
+
+    static short quantize(float value, float scale) {
+        float scaled = value * scale;
+        if (Float.isNaN(scaled)) {
+            return 0;
+        }
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(scaled)));
+    }
+
+    static void putShort(byte[] out, int offset, short value) {
+        out[offset] = (byte) (value >> 8);
+        out[offset + 1] = (byte) value;
+    }
+
+    static short getShort(byte[] in, int offset) {
+        return (short) (((in[offset] & 0xFF) << 8) | (in[offset + 1] & 0xFF));
+    }
+
+    /**
+     * Writes an unsigned LEB128 varint
+     *
+     * @return number of bytes written
+     */
+    static int putVarint(byte[] out, int offset, long value) {
+        int position = offset;
+        while ((value & ~0x7FL) != 0) {
+            out[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[position++] = (byte) value;
+        return position - offset;
+    }
+
+    /**
+     * Maps signed to unsigned so small magnitudes of either sign make short varints
+     */
+    static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Reads an unsigned LEB128 varint, never reading at or beyond {@code limit}
+     */
+    static long getVarint(byte[] in, int offset, int limit) {
+        long result = 0;
+        int shift = 0;
+        for (int position = offset; position < limit; position++) {
+            byte b = in[position];
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+            shift += 7;
+            if (shift > 63) {
+                break;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint at offset " + offset);
+    }
+}
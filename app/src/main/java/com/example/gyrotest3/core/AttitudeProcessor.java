@@ -0,0 +1,339 @@
+package com.example.gyrotest3.core;
+
+/**
+ * AttitudeProcessor - Sensor fusion state machine, free of Android dependencies
+ *
+ * Orientation: an {@link OrientationFusion} engine when one is supplied, otherwise pitch/roll
+ * straight from the accelerometer and yaw from accelerometer + magnetometer
+ * Speed: {@link SpeedKalmanFilter} over GPS fixes and forward acceleration along the GPS
+ * bearing (only available with a fusion engine, which knows where north is)
+ * Jump detection: {@link JumpDetector} on total acceleration, every sample
+ * Motion state: {@link MotionClassifier} over acceleration, steps, speed and airtime
+ *
+ * Owned by a single thread (the sensor pipeline); publish {@link #snapshot} to share results.
+ */
+public final class AttitudeProcessor {
+
+    private static final float GRAVITY = 9.81f;
+
+    private final boolean hasMagnetometer;
+    private final OrientationFusion fusion; // null = raw accelerometer/magnetometer angles
+    private final Clock clock;
+
+    // Orientation
+    private float currentYaw = 0;
+    private float currentPitch = 0;
+    private float currentRoll = 0;
+    private float currentGForce = 0;
+
+    private final float[] accelerometerValues = new float[3];
+    private final float[] magnetometerValues = new float[3];
+    private boolean hasAccelerometerData = false;
+    private boolean hasMagnetometerData = false;
+    private final float[] rotationMatrix = new float[9];
+
+    // Airtime
+    private final JumpDetector jumpDetector = new JumpDetector();
+
+    // Motion state
+    private final MotionClassifier motionClassifier = new MotionClassifier();
+    private long lastTimestampNanos = 0;
+
+    // Step Counter
+    private int initialSteps = -1;
+    private int sessionSteps = 0;
+
+    // Speed (km/h)
+    private float currentSpeed = 0;
+    private float lastGPSSpeed = 0;
+    private float lastGPSBearing = Float.NaN; // degrees clockwise from north
+    private final SpeedKalmanFilter speedFilter = new SpeedKalmanFilter();
+    private final float[] speedRotationMatrix = new float[9];
+
+    public AttitudeProcessor(boolean hasMagnetometer) {
+        this(hasMagnetometer, null);
+    }
+
+    public AttitudeProcessor(boolean hasMagnetometer, OrientationFusion fusion) {
+        this(hasMagnetometer, fusion, Clock.SYSTEM);
+    }
+
+    /**
+     * @param clock time source for events without a timestamp; a
+     *              {@link ReplayClock} for traces
+     */
+    public AttitudeProcessor(boolean hasMagnetometer, OrientationFusion fusion, Clock clock) {
+        this.hasMagnetometer = hasMagnetometer;
+        this.fusion = fusion;
+        this.clock = clock;
+    }
+
+    // ========================================
+    // SENSOR INPUT
+    // ========================================
+
+    /**
+     * Routes a raw sensor event by its {@link SensorTypes} type; unknown types are ignored
+     *
+     * @return true if the event was consumed
+     */
+    public boolean onSensor(int sensorType, float[] values, int valueCount, long timestampNanos) {
+        switch (sensorType) {
+            case SensorTypes.ACCELEROMETER:
+                onAccelerometer(values[0], values[1], values[2], timestampNanos);
+                return true;
+            case SensorTypes.MAGNETIC_FIELD:
+                onMagnetometer(values[0], values[1], values[2]);
+                return true;
+            case SensorTypes.GYROSCOPE:
+                onGyroscope(values[0], values[1], values[2], timestampNanos);
+                return true;
+            case SensorTypes.ROTATION_VECTOR:
+            case SensorTypes.GAME_ROTATION_VECTOR: {
+                float x = values[0], y = values[1], z = values[2];
+                float w = valueCount > 3 ? values[3] : (float) Math.sqrt(Math.max(0, 1 - x * x - y * y - z * z));
+                onRotationVector(x, y, z, w);
+                return true;
+            }
+            case SensorTypes.STEP_COUNTER:
+                onStepCounter(values[0]);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public void onAccelerometer(float x, float y, float z) {
+        onAccelerometer(x, y, z, clock.currentTimeMillis() * 1_000_000L);
+    }
+
+    /**
+     * @param timestampNanos sensor event timestamp, same time base as GPS fixes
+     */
+    public void onAccelerometer(float x, float y, float z, long timestampNanos) {
+        accelerometerValues[0] = x;
+        accelerometerValues[1] = y;
+        accelerometerValues[2] = z;
+        hasAccelerometerData = true;
+
+        if (fusion != null) {
+            fusion.onAccelerometer(x, y, z);
+        } else {
+            currentRoll = (float) Math.toDegrees(Math.atan2(-y, Math.sqrt(x * x + z * z)));
+            currentPitch = (float) Math.toDegrees(Math.atan2(x, Math.sqrt(y * y + z * z)));
+        }
+
+        float totalAccel = (float) Math.sqrt(x * x + y * y + z * z);
+        currentGForce = totalAccel / GRAVITY;
+
+        if (!hasMagnetometer && fusion == null) {
+            currentYaw = 0;
+        }
+
+        updateSpeed(timestampNanos);
+        jumpDetector.onAccelerometer(x, y, z, timestampNanos);
+        motionClassifier.onAccelerometer(x, y, z, timestampNanos, currentSpeed, jumpDetector.isAirborne());
+        lastTimestampNanos = timestampNanos;
+    }
+
+    public void onMagnetometer(float x, float y, float z) {
+        magnetometerValues[0] = x;
+        magnetometerValues[1] = y;
+        magnetometerValues[2] = z;
+        hasMagnetometerData = true;
+
+        if (fusion != null) {
+            fusion.onMagnetometer(x, y, z);
+        }
+    }
+
+    /**
+     * @param x,y,z angular rate in rad/s; feeds the fusion engine and jump rotation
+     */
+    public void onGyroscope(float x, float y, float z, long timestampNanos) {
+        jumpDetector.onGyroscope(x, y, z, timestampNanos);
+        if (fusion != null) {
+            fusion.onGyroscope(x, y, z, timestampNanos);
+        }
+    }
+
+    /**
+     * Rotation vector sensor quaternion; ignored without a fusion engine
+     */
+    public void onRotationVector(float x, float y, float z, float w) {
+        if (fusion != null) {
+            fusion.onRotationVector(x, y, z, w);
+        }
+    }
+
+    public void onStepCounter(float steps) {
+        int totalSteps = (int) steps;
+
+        // Initialize baseline on first reading
+        if (initialSteps == -1) {
+            initialSteps = totalSteps;
+            sessionSteps = 0;
+        } else {
+            sessionSteps = totalSteps - initialSteps;
+        }
+        motionClassifier.onSteps(sessionSteps, lastTimestampNanos);
+    }
+
+    /**
+     * @param speedKmh GPS ground speed in km/h, timestamped with the clock and of unknown accuracy
+     */
+    public void onGpsSpeed(float speedKmh) {
+        onLocation(clock.currentTimeMillis() * 1_000_000L, speedKmh / 3.6f, Float.NaN, Float.NaN);
+    }
+
+    /**
+     * @param elapsedNanos    fix time, same time base as sensor timestamps
+     * @param speedMs         ground speed, m/s
+     * @param speedAccuracyMs 1-sigma speed accuracy, or NaN
+     * @param bearingDeg      direction of travel, degrees clockwise from north, or NaN
+     */
+    public void onLocation(long elapsedNanos, float speedMs, float speedAccuracyMs, float bearingDeg) {
+        lastGPSSpeed = speedMs * 3.6f;
+        lastGPSBearing = bearingDeg;
+        speedFilter.onGpsSpeed(elapsedNanos, speedMs, speedAccuracyMs);
+        currentSpeed = speedFilter.getSpeedKmh();
+    }
+
+    /**
+     * Recomputes yaw once both accelerometer and magnetometer data are available, or all
+     * three angles from the fusion engine once it is ready
+     *
+     * @return true if the orientation was updated
+     */
+    public boolean updateOrientation() {
+        if (fusion != null) {
+            return updateFusedOrientation();
+        }
+        if (!hasAccelerometerData || !hasMagnetometerData) {
+            return false;
+        }
+        if (!computeRotationMatrix(rotationMatrix, accelerometerValues, magnetometerValues)) {
+            return false;
+        }
+
+        float azimuth = (float) Math.toDegrees(Math.atan2(rotationMatrix[1], rotationMatrix[4]));
+        if (azimuth < 0) {
+            azimuth += 360;
+        }
+
+        currentYaw = azimuth;
+        return true;
+    }
+
+    /**
+     * Same angle conventions as the raw path: pitch/roll from the device "up" vector
+     * (third matrix row, which is the normalized accelerometer when at rest)
+     */
+    private boolean updateFusedOrientation() {
+        if (!fusion.isReady()) {
+            return false;
+        }
+        fusion.getRotationMatrix(rotationMatrix);
+        float[] r = rotationMatrix;
+
+        currentPitch = (float) Math.toDegrees(Math.atan2(r[6], Math.sqrt(r[7] * r[7] + r[8] * r[8])));
+        currentRoll = (float) Math.toDegrees(Math.atan2(-r[7], Math.sqrt(r[6] * r[6] + r[8] * r[8])));
+
+        float azimuth = (float) Math.toDegrees(Math.atan2(r[1], r[4]));
+        if (azimuth < 0) {
+            azimuth += 360;
+        }
+        currentYaw = azimuth;
+        return true;
+    }
+
+    // ========================================
+    // DERIVED STATE
+    // ========================================
+
+    /**
+     * Propagates the speed filter with the horizontal acceleration along the GPS bearing
+     */
+    private void updateSpeed(long timestampNanos) {
+        float forwardAccel = Float.NaN;
+
+        if (fusion != null && fusion.isReady() && !Float.isNaN(lastGPSBearing)) {
+            fusion.getRotationMatrix(speedRotationMatrix);
+            float[] r = speedRotationMatrix;
+            float ax = accelerometerValues[0], ay = accelerometerValues[1], az = accelerometerValues[2];
+
+            // Horizontal world components; gravity lies entirely on the world up axis
+            float east = r[0] * ax + r[1] * ay + r[2] * az;
+            float north = r[3] * ax + r[4] * ay + r[5] * az;
+            double bearing = Math.toRadians(lastGPSBearing);
+            forwardAccel = (float) (east * Math.sin(bearing) + north * Math.cos(bearing));
+        }
+
+        speedFilter.predict(timestampNanos, forwardAccel);
+        currentSpeed = speedFilter.getSpeedKmh();
+    }
+
+    /**
+     * Same result as SensorManager.getRotationMatrix, so yaw is computable off-device
+     *
+     * @return false in free fall or when the field is parallel to gravity
+     */
+    static boolean computeRotationMatrix(float[] r, float[] gravity, float[] geomagnetic) {
+        float ax = gravity[0], ay = gravity[1], az = gravity[2];
+        float normSqA = ax * ax + ay * ay + az * az;
+        float freeFallThreshold = 0.01f * GRAVITY * GRAVITY;
+        if (normSqA < freeFallThreshold) {
+            return false;
+        }
+
+        float ex = geomagnetic[0], ey = geomagnetic[1], ez = geomagnetic[2];
+        float hx = ey * az - ez * ay;
+        float hy = ez * ax - ex * az;
+        float hz = ex * ay - ey * ax;
+        float normH = (float) Math.sqrt(hx * hx + hy * hy + hz * hz);
+        if (normH < 0.1f) {
+            return false;
+        }
+
+        float invH = 1.0f / normH;
+        hx *= invH;
+        hy *= invH;
+        hz *= invH;
+        float invA = 1.0f / (float) Math.sqrt(normSqA);
+        ax *= invA;
+        ay *= invA;
+        az *= invA;
+        float mx = ay * hz - az * hy;
+        float my = az * hx - ax * hz;
+        float mz = ax * hy - ay * hx;
+
+        r[0] = hx; r[1] = hy; r[2] = hz;
+        r[3] = mx; r[4] = my; r[5] = mz;
+        r[6] = ax; r[7] = ay; r[8] = az;
+        return true;
+    }
+
+    // ========================================
+    // OUTPUT
+    // ========================================
+
+    public AttitudeSnapshot snapshot(long timestampNanos) {
+        return new AttitudeSnapshot(timestampNanos, currentPitch, currentYaw, currentRoll,
+                currentGForce, currentSpeed, jumpDetector.isAirborne(), sessionSteps);
+    }
+
+    /**
+     * @return the jump completed by the last accelerometer event(s), or null
+     */
+    public JumpEvent pollJump() {
+        return jumpDetector.pollJump();
+    }
+
+    public boolean isAirborne() { return jumpDetector.isAirborne(); }
+    public MotionState getMotionState() { return motionClassifier.getState(); }
+    public MotionClassifier getMotionClassifier() { return motionClassifier; }
+    public long getLastFlightTime() { return jumpDetector.getLastAirtimeMillis(); }
+    public int getSessionSteps() { return sessionSteps; }
+    public float getLastGPSSpeed() { return lastGPSSpeed; }
+    public SpeedKalmanFilter getSpeedFilter() { return speedFilter; }
+}
@@ -0,0 +1,40 @@
+package com.example.gyrotest3.core;
+
+/**
+ * AttitudeSnapshot - Immutable result of processing one sensor event
+ *
+ * Published by the sensor pipeline and read by the UI and network consumers
+ * without locking. Angles are in degrees, G-force in G, speed in km/h.
+ */
+public final class AttitudeSnapshot {
+
+    public static final AttitudeSnapshot EMPTY = new AttitudeSnapshot(0, 0, 0, 0, 0, 0, false, 0);
+
+    public final long timestampNanos;
+    public final float pitch;
+    public final float yaw;
+    public final float roll;
+    public final float gForce;
+    public final float speed;
+    public final boolean airborne;
+    public final int steps;
+
+    public AttitudeSnapshot(long timestampNanos, float pitch, float yaw, float roll,
+                            float gForce, float speed, boolean airborne, int steps) {
+        this.timestampNanos = timestampNanos;
+        this.pitch = pitch;
+        this.yaw = yaw;
+        this.roll = roll;
+        this.gForce = gForce;
+        this.speed = speed;
+        this.airborne = airborne;
+        this.steps = steps;
+    }
+
+    @Override
+    public String toString() {
+        return "AttitudeSnapshot{t=" + timestampNanos + ", pitch=" + pitch + ", yaw=" + yaw
+                + ", roll=" + roll + ", gForce=" + gForce + ", speed=" + speed
+                + ", airborne=" + airborne + ", steps=" + steps + "}";
+    }
+}
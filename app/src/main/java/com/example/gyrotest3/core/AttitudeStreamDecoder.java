@@ -0,0 +1,195 @@
+package com.example.gyrotest3.core;
+
+/**
+ * AttitudeStreamDecoder - Reference decoder for {@link AttitudeStreamEncoder} messages
+ *
+ * Mirrors what the server keeps per connection. A keyframe is always accepted and resets
+ * the reference state. A delta is applied only if its sequence number directly follows the
+ * previous message; otherwise it is dropped and {@link #isResyncNeeded()} stays true until
+ * the next keyframe. The server answers the first dropped delta with an
+ * {@code attitude_resync} event, which makes the client send a keyframe right away.
+ *
+ * Not thread-safe: one decoder per stream.
+ */
+public final class AttitudeStreamDecoder {
+
+    private boolean synced = false;
+    private boolean resyncNeeded = false;
+    private int sequence;
+    private long millis;
+    private int pitch;
+    private int yaw;
+    private int roll;
+    private int gForce;
+    private int speed;
+    private int flags;
+    private int steps;
+
+    // Observability
+    private long gapsDetected = 0;
+    private long deltasDropped = 0;
+
+    public Sample decode(byte[] in) {
+        return decode(in, 0, in.length);
+    }
+
+    /**
+     * Parses one message from {@code in[offset, offset + length)}
+     *
+     * @return the reconstructed sample, or null if a delta arrived out of sync
+     * @throws IllegalArgumentException if the message is truncated or has an unknown version or type
+     */
+    public Sample decode(byte[] in, int offset, int length) {
+        int limit = offset + length;
+        if (length < 3) {
+            throw new IllegalArgumentException("Message too short: " + length + " bytes");
+        }
+
+        int header = in[offset] & 0xFF;
+        int version = header >>> 4;
+        if (version != AttitudeStreamEncoder.VERSION) {
+            throw new IllegalArgumentException("Unsupported stream version: " + version);
+        }
+
+        int type = header & 0x0F;
+        int messageSequence = in[offset + 1] & 0xFF;
+        int position = offset + 2;
+
+        switch (type) {
+            case AttitudeStreamEncoder.TYPE_KEYFRAME:
+                return decodeKeyframe(in, position, limit, messageSequence);
+            case AttitudeStreamEncoder.TYPE_DELTA:
+                return decodeDelta(in, position, limit, messageSequence);
+            default:
+                throw new IllegalArgumentException("Unknown stream message type: " + type);
+        }
+    }
+
+    private Sample decodeKeyframe(byte[] in, int position, int limit, int messageSequence) {
+        long epochMillis = AttitudeFrameCodec.getVarint(in, position, limit);
+        position += AttitudeFrameCodec.varintLength(epochMillis);
+        AttitudeFrame frame = AttitudeFrameCodec.decodeBody(in, position, limit);
+
+        millis = epochMillis;
+        flags = in[position] & 0xFF;
+        pitch = AttitudeFrameCodec.getShort(in, position + 1);
+        yaw = AttitudeFrameCodec.getShort(in, position + 3);
+        roll = AttitudeFrameCodec.getShort(in, position + 5);
+        gForce = AttitudeFrameCodec.getShort(in, position + 7);
+        speed = AttitudeFrameCodec.getShort(in, position + 9);
+        steps = frame.steps;
+
+        sequence = messageSequence;
+        synced = true;
+        resyncNeeded = false;
+        return new Sample(messageSequence, true, epochMillis, frame);
+    }
+
+    private Sample decodeDelta(byte[] in, int position, int limit, int messageSequence) {
+        if (!synced || messageSequence != ((sequence + 1) & 0xFF)) {
+            if (!resyncNeeded) {
+                gapsDetected++;
+            }
+            synced = false;
+            resyncNeeded = true;
+            deltasDropped++;
+            return null;
+        }
+
+        long deltaMillis = AttitudeFrameCodec.getVarint(in, position, limit);
+        position += AttitudeFrameCodec.varintLength(deltaMillis);
+        if (position >= limit) {
+            throw new IllegalArgumentException("Delta truncated before field mask");
+        }
+        int mask = in[position++] & 0xFF;
+
+        // Parse everything before touching state, so a malformed delta leaves it intact
+        int newPitch = pitch;
+        int newYaw = yaw;
+        int newRoll = roll;
+        int newGForce = gForce;
+        int newSpeed = speed;
+        int newFlags = flags;
+        long newSteps = steps;
+        long value;
+
+        if ((mask & AttitudeStreamEncoder.FIELD_PITCH) != 0) {
+            value = AttitudeFrameCodec.getVarint(in, position, limit);
+            position += AttitudeFrameCodec.varintLength(value);
+            newPitch += (int) AttitudeFrameCodec.unZigZag(value);
+        }
+        if ((mask & AttitudeStreamEncoder.FIELD_YAW) != 0) {
+            value = AttitudeFrameCodec.getVarint(in, position, limit);
+            position += AttitudeFrameCodec.varintLength(value);
+            newYaw = AttitudeStreamEncoder.normalizeYaw(newYaw + (int) AttitudeFrameCodec.unZigZag(value));
+        }
+        if ((mask & AttitudeStreamEncoder.FIELD_ROLL) != 0) {
+            value = AttitudeFrameCodec.getVarint(in, position, limit);
+            position += AttitudeFrameCodec.varintLength(value);
+            newRoll += (int) AttitudeFrameCodec.unZigZag(value);
+        }
+        if ((mask & AttitudeStreamEncoder.FIELD_GFORCE) != 0) {
+            value = AttitudeFrameCodec.getVarint(in, position, limit);
+            position += AttitudeFrameCodec.varintLength(value);
+            newGForce += (int) AttitudeFrameCodec.unZigZag(value);
+        }
+        if ((mask & AttitudeStreamEncoder.FIELD_SPEED) != 0) {
+            value = AttitudeFrameCodec.getVarint(in, position, limit);
+            position += AttitudeFrameCodec.varintLength(value);
+            newSpeed += (int) AttitudeFrameCodec.unZigZag(value);
+        }
+        if ((mask & AttitudeStreamEncoder.FIELD_FLAGS) != 0) {
+            if (position >= limit) {
+                throw new IllegalArgumentException("Delta truncated in flags");
+            }
+            newFlags = in[position++] & 0xFF;
+        }
+        if ((mask & AttitudeStreamEncoder.FIELD_STEPS) != 0) {
+            value = AttitudeFrameCodec.getVarint(in, position, limit);
+            newSteps += AttitudeFrameCodec.unZigZag(value);
+        }
+
+        millis += deltaMillis;
+        pitch = newPitch;
+        yaw = newYaw;
+        roll = newRoll;
+        gForce = newGForce;
+        speed = newSpeed;
+        flags = newFlags;
+        steps = (int) newSteps;
+        sequence = messageSequence;
+
+        AttitudeFrame frame = new AttitudeFrame(
+                pitch / AttitudeFrameCodec.ANGLE_SCALE, yaw / AttitudeFrameCodec.ANGLE_SCALE,
+                roll / AttitudeFrameCodec.ANGLE_SCALE, gForce / AttitudeFrameCodec.GFORCE_SCALE,
+                speed / AttitudeFrameCodec.SPEED_SCALE, (flags & AttitudeFrameCodec.FLAG_AIRBORNE) != 0,
+                (flags & AttitudeFrameCodec.FLAG_STREAM_ON) != 0, steps);
+        return new Sample(messageSequence, false, millis, frame);
+    }
+
+    /**
+     * True after a dropped delta until the next keyframe; the server should send one
+     * {@code attitude_resync} when this turns true
+     */
+    public boolean isResyncNeeded() { return resyncNeeded; }
+
+    public long getGapsDetected() { return gapsDetected; }
+    public long getDeltasDropped() { return deltasDropped; }
+
+    /**
+     * One reconstructed sample with its epoch milliseconds
+     */
+    public static final class Sample {
+        public final int sequence;
+        public final boolean keyframe;
+        public final long epochMillis;
+        public final AttitudeFrame frame;
+
+        Sample(int sequence, boolean keyframe, long epochMillis, AttitudeFrame frame) {
+            this.sequence = sequence;
+            this.keyframe = keyframe;
+            this.epochMillis = epochMillis;
+            this.frame = frame;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.gyrotest3.core;
+
+/**
+ * AttitudeStreamEncoder - Stateful keyframe + delta encoding of the live attitude stream
+ *
+ * Message layout (big-endian), version 1:
+ *
+ *   header       1 byte   version << 4 | type (1 = keyframe, 2 = delta)
+ *   sequence     1 byte   message counter, mod 256
+ *
+ *   keyframe:
+ *     epochMillis  varint
+ *     body         12-16   flags, pitch, yaw, roll, gforce, speed, steps
+ *                          exactly as in {@link AttitudeFrameCodec} after its version byte
+ *
+ *   delta:
+ *     deltaMillis  varint  time since the previous message
+ *     mask         1 byte  fields that changed, see FIELD_*
+ *     per set bit, in bit order:
+ *       pitch, yaw, roll, gforce, speed  zigzag varint, change in quantized units
+ *       flags                            1 byte, new value
+ *       steps                            zigzag varint, change
+ *
+ * Deltas are taken against the quantized values last sent, not the raw floats, so the
+ * decoder reconstructs exactly what a keyframe would have carried and rounding never
+ * accumulates. Yaw deltas take the short way round the circle.
+ *
+ * A keyframe goes out first, every {@code keyframeInterval} messages, and after
+ * {@link #requestKeyframe()} (new connection, or the server asked for a resync because
+ * {@link AttitudeStreamDecoder} saw a gap). Not thread-safe: encode from one thread.
+ */
+public final class AttitudeStreamEncoder {
+
+    public static final int VERSION = 1;
+
+    public static final int TYPE_KEYFRAME = 1;
+    public static final int TYPE_DELTA = 2;
+
+    public static final int FIELD_PITCH = 0x01;
+    public static final int FIELD_YAW = 0x02;
+    public static final int FIELD_ROLL = 0x04;
+    public static final int FIELD_GFORCE = 0x08;
+    public static final int FIELD_SPEED = 0x10;
+    public static final int FIELD_FLAGS = 0x20;
+    public static final int FIELD_STEPS = 0x40;
+
+    static final int YAW_FULL_TURN = 3600; // quantized units per 360 degrees
+
+    private static final int DELTA_MAX_SIZE = 2 + 10 + 1 + 5 * 3 + 1 + 5;
+    private static final int KEYFRAME_MAX_SIZE = 2 + 10 + AttitudeFrameCodec.MAX_BODY_SIZE;
+    public static final int MAX_MESSAGE_SIZE = Math.max(DELTA_MAX_SIZE, KEYFRAME_MAX_SIZE);
+
+    private final int keyframeInterval;
+
+    // Reference state: what the decoder holds after the last message
+    private int sequence = -1;
+    private long lastMillis;
+    private int pitch;
+    private int yaw;
+    private int roll;
+    private int gForce;
+    private int speed;
+    private int flags;
+    private int steps;
+    private int sinceKeyframe = 0;
+    private boolean keyframeRequested = true;
+
+    // Observability
+    private long keyframesSent = 0;
+    private long deltasSent = 0;
+    private long bytesEncoded = 0;
+
+    /**
+     * @param keyframeInterval messages per keyframe, counting the keyframe itself
+     */
+    public AttitudeStreamEncoder(int keyframeInterval) {
+        if (keyframeInterval <= 0) {
+            throw new IllegalArgumentException("keyframeInterval must be positive, got " + keyframeInterval);
+        }
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    /**
+     * Makes the next message a keyframe
+     */
+    public void requestKeyframe() {
+        keyframeRequested = true;
+    }
+
+    /**
+     * Writes the next message into {@code out} starting at {@code offset}
+     *
+     * @return number of bytes written, at most {@link #MAX_MESSAGE_SIZE}
+     */
+    public int encode(byte[] out, int offset, long epochMillis, float pitch, float yaw, float roll,
+                      float gForce, float speed, boolean airborne, boolean streamOn, int steps) {
+        int qPitch = AttitudeFrameCodec.quantize(pitch, AttitudeFrameCodec.ANGLE_SCALE);
+        int qYaw = normalizeYaw(AttitudeFrameCodec.quantize(yaw, AttitudeFrameCodec.ANGLE_SCALE));
+        int qRoll = AttitudeFrameCodec.quantize(roll, AttitudeFrameCodec.ANGLE_SCALE);
+        int qGForce = AttitudeFrameCodec.quantize(gForce, AttitudeFrameCodec.GFORCE_SCALE);
+        int qSpeed = AttitudeFrameCodec.quantize(speed, AttitudeFrameCodec.SPEED_SCALE);
+        int newFlags = (airborne ? AttitudeFrameCodec.FLAG_AIRBORNE : 0)
+                | (streamOn ? AttitudeFrameCodec.FLAG_STREAM_ON : 0);
+        int newSteps = Math.max(0, steps);
+
+        sequence = (sequence + 1) & 0xFF;
+        boolean keyframe = keyframeRequested || sinceKeyframe >= keyframeInterval;
+        int length = keyframe
+                ? writeKeyframe(out, offset, epochMillis, qPitch, qYaw, qRoll, qGForce, qSpeed, newFlags, newSteps)
+                : writeDelta(out, offset, epochMillis, qPitch, qYaw, qRoll, qGForce, qSpeed, newFlags, newSteps);
+
+        lastMillis = Math.max(lastMillis, epochMillis);
+        this.pitch = qPitch;
+        this.yaw = qYaw;
+        this.roll = qRoll;
+        this.gForce = qGForce;
+        this.speed = qSpeed;
+        this.flags = newFlags;
+        this.steps = newSteps;
+        bytesEncoded += length;
+        return length;
+    }
+
+    private int writeKeyframe(byte[] out, int offset, long epochMillis, int qPitch, int qYaw, int qRoll,
+                              int qGForce, int qSpeed, int newFlags, int newSteps) {
+        int position = offset;
+        out[position++] = (byte) (VERSION << 4 | TYPE_KEYFRAME);
+        out[position++] = (byte) sequence;
+        position += AttitudeFrameCodec.putVarint(out, position, Math.max(0, epochMillis));
+
+        out[position] = (byte) newFlags;
+        AttitudeFrameCodec.putShort(out, position + 1, (short) qPitch);
+        AttitudeFrameCodec.putShort(out, position + 3, (short) qYaw);
+        AttitudeFrameCodec.putShort(out, position + 5, (short) qRoll);
+        AttitudeFrameCodec.putShort(out, position + 7, (short) qGForce);
+        AttitudeFrameCodec.putShort(out, position + 9, (short) qSpeed);
+        position += AttitudeFrameCodec.BODY_FIXED_SIZE;
+        position += AttitudeFrameCodec.putVarint(out, position, newSteps);
+
+        keyframeRequested = false;
+        sinceKeyframe = 1;
+        keyframesSent++;
+        return position - offset;
+    }
+
+    private int writeDelta(byte[] out, int offset, long epochMillis, int qPitch, int qYaw, int qRoll,
+                           int qGForce, int qSpeed, int newFlags, int newSteps) {
+        int position = offset;
+        out[position++] = (byte) (VERSION << 4 | TYPE_DELTA);
+        out[position++] = (byte) sequence;
+        position += AttitudeFrameCodec.putVarint(out, position, Math.max(0, epochMillis - lastMillis));
+
+        int maskPosition = position++;
+        int mask = 0;
+        if (qPitch != pitch) {
+            mask |= FIELD_PITCH;
+            position += putSigned(out, position, qPitch - pitch);
+        }
+        if (qYaw != yaw) {
+            mask |= FIELD_YAW;
+            position += putSigned(out, position, yawDelta(yaw, qYaw));
+        }
+        if (qRoll != roll) {
+            mask |= FIELD_ROLL;
+            position += putSigned(out, position, qRoll - roll);
+        }
+        if (qGForce != gForce) {
+            mask |= FIELD_GFORCE;
+            position += putSigned(out, position, qGForce - gForce);
+        }
+        if (qSpeed != speed) {
+            mask |= FIELD_SPEED;
+            position += putSigned(out, position, qSpeed - speed);
+        }
+        if (newFlags != flags) {
+            mask |= FIELD_FLAGS;
+            out[position++] = (byte) newFlags;
+        }
+        if (newSteps != steps) {
+            mask |= FIELD_STEPS;
+            position += putSigned(out, position, (long) newSteps - steps);
+        }
+        out[maskPosition] = (byte) mask;
+
+        sinceKeyframe++;
+        deltasSent++;
+        return position - offset;
+    }
+
+    private static int putSigned(byte[] out, int offset, long value) {
+        return AttitudeFrameCodec.putVarint(out, offset, AttitudeFrameCodec.zigZag(value));
+    }
+
+    /**
+     * Quantized yaw in [0, 3600)
+     */
+    static int normalizeYaw(int quantizedYaw) {
+        int yaw = quantizedYaw % YAW_FULL_TURN;
+        return yaw < 0 ? yaw + YAW_FULL_TURN : yaw;
+    }
+
+    /**
+     * Shortest signed turn from {@code from} to {@code to}, both in [0, 3600)
+     */
+    static int yawDelta(int from, int to) {
+        int delta = to - from;
+        if (delta >= YAW_FULL_TURN / 2) {
+            delta -= YAW_FULL_TURN;
+        } else if (delta < -YAW_FULL_TURN / 2) {
+            delta += YAW_FULL_TURN;
+        }
+        return delta;
+    }
+
+    // ========================================
+    // STATS
+    // ========================================
+
+    public long getKeyframesSent() { return keyframesSent; }
+    public long getDeltasSent() { return deltasSent; }
+    public long getBytesEncoded() { return bytesEncoded; }
+}
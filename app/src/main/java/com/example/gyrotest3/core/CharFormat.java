@@ -0,0 +1,89 @@
+package com.example.gyrotest3.core;
+
+/**
+ * CharFormat - Number formatting into caller-owned char buffers
+ *
+ * Replaces String.format on per-frame paths: nothing here allocates, so the
+ * result can go straight to Canvas.drawText(char[], int, int, ...).
+ */
+public final class CharFormat {
+
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000};
+
+    private CharFormat() {}
+
+    /**
+     * Same digits as {@code String.format("%.Nf", value)} for N in 0..6, except that
+     * values rounding to zero never print a minus sign
+     *
+     * @return number of chars written
+     */
+    public static int formatFixed(float value, int decimals, char[] out, int offset) {
+        if (decimals < 0 || decimals >= POWERS_OF_TEN.length) {
+            throw new IllegalArgumentException("Unsupported decimals: " + decimals);
+        }
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+            return append("NaN", out, offset);
+        }
+
+        long scale = POWERS_OF_TEN[decimals];
+        long scaled = Math.round(Math.abs((double) value) * scale);
+
+        int position = offset;
+        if (value < 0 && scaled != 0) {
+            out[position++] = '-';
+        }
+
+        position += formatLong(scaled / scale, out, position);
+
+        if (decimals > 0) {
+            out[position++] = '.';
+            long fraction = scaled % scale;
+            for (int i = decimals - 1; i >= 0; i--) {
+                out[position + i] = (char) ('0' + fraction % 10);
+                fraction /= 10;
+            }
+            position += decimals;
+        }
+
+        return position - offset;
+    }
+
+    /**
+     * @return number of chars written
+     */
+    public static int formatInt(int value, char[] out, int offset) {
+        return formatLong(value, out, offset);
+    }
+
+    /**
+     * Copies {@code text} into {@code out}
+     *
+     * @return number of chars written
+     */
+    public static int append(String text, char[] out, int offset) {
+        text.getChars(0, text.length(), out, offset);
+        return text.length();
+    }
+
+    private static int formatLong(long value, char[] out, int offset) {
+        int position = offset;
+        if (value < 0) {
+            out[position++] = '-';
+        } else {
+            value = -value; // work in negatives so Long.MIN_VALUE is representable
+        }
+
+        int digits = 1;
+        for (long v = value / 10; v != 0; v /= 10) {
+            digits++;
+        }
+
+        for (int i = digits - 1; i >= 0; i--) {
+            out[position + i] = (char) ('0' - value % 10);
+            value /= 10;
+        }
+
+        return position + digits - offset;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.gyrotest3.core;
+
+/**
+ * Clock - Wall-clock source, injectable so recorded traces replay with their own time
+ */
+public interface Clock {
+
+    Clock SYSTEM = System::currentTimeMillis;
+
+    long currentTimeMillis();
+}
@@ -0,0 +1,48 @@
+package com.example.gyrotest3.core;
+
+/**
+ * DialDisplayState - Snapshot values quantized to the precision the dial shows
+ *
+ * Two snapshots that quantize to the same state render identical frames, so the
+ * render scheduler can skip drawing when {@link #update} reports no change.
+ */
+public final class DialDisplayState {
+
+    public int pitchDegrees;
+    public int rollDegrees;
+    public int yawDegrees;
+    public int speedTenths;       // km/h x 10, shown as %.1f
+    public int gForceHundredths;  // G x 100, shown as %.2f
+    public int steps;
+
+    private boolean initialized = false;
+
+    /**
+     * @return true if any displayed value changed
+     */
+    public boolean update(AttitudeSnapshot snapshot) {
+        int pitch = Math.round(snapshot.pitch);
+        int roll = Math.round(snapshot.roll);
+        int yaw = Math.round(snapshot.yaw);
+        int speed = Math.round(snapshot.speed * 10f);
+        int gForce = Math.round(snapshot.gForce * 100f);
+
+        boolean changed = !initialized
+                || pitch != pitchDegrees
+                || roll != rollDegrees
+                || yaw != yawDegrees
+                || speed != speedTenths
+                || gForce != gForceHundredths
+                || snapshot.steps != steps;
+
+        pitchDegrees = pitch;
+        rollDegrees = roll;
+        yawDegrees = yaw;
+        speedTenths = speed;
+        gForceHundredths = gForce;
+        steps = snapshot.steps;
+        initialized = true;
+
+        return changed;
+    }
+}
@@ -0,0 +1,324 @@
+package com.example.gyrotest3.core;
+
+/**
+ * EndpointPool - Picks the telemetry server from several endpoints by probed latency
+ *
+ * Every connected endpoint is pinged each {@link #onTick}; the round trip feeds an
+ * exponentially weighted RTT. An endpoint that misses {@code maxProbeFailures} probes in a
+ * row counts as unhealthy even while its socket still claims to be connected. An endpoint
+ * that has not answered a single probe since it connected is taken not to support probing:
+ * it stays healthy while connected, is no longer probed and never ranks on RTT.
+ *
+ * Two endpoints are kept connected: the active one, which carries telemetry, and a hot
+ * standby. When the active endpoint drops or turns unhealthy the standby is promoted at
+ * once, without paying for a new websocket handshake. A healthy active endpoint is only
+ * replaced when another one is faster by both {@code switchRatio} and
+ * {@code minSwitchGainMillis}, so similar servers do not flap. Endpoints that are neither
+ * active nor standby are disconnected.
+ *
+ * Not thread-safe: drive it from one thread (the UI thread on Android).
+ */
+public final class EndpointPool {
+
+    public static final int NONE = -1;
+
+    /**
+     * Side effects the platform layer performs for the pool
+     */
+    public interface Actions {
+        /** Keep the endpoint connected, retrying with backoff until told otherwise */
+        void connect(int endpoint);
+
+        void disconnect(int endpoint);
+
+        /** Ping the endpoint; answer with {@link #onProbeAck} carrying {@code probeId} */
+        void probe(int endpoint, int probeId);
+
+        /** Telemetry moves to {@code active}; {@link #NONE} when no endpoint is usable */
+        void activeChanged(int previous, int active);
+    }
+
+    private static final float RTT_SMOOTHING = 0.3f;
+
+    private final Actions actions;
+    private final int count;
+    private final long probeTimeoutMillis;
+    private final int maxProbeFailures;
+    private final float switchRatio;
+    private final long minSwitchGainMillis;
+
+    private final boolean[] wanted;
+    private final boolean[] connected;
+    private final float[] rttMillis;         // NaN until the first ack
+    private final int[] probeFailures;
+    private final boolean[] probeAnswered;   // acked a probe since it last connected
+    private final int[] probeId;
+    private final long[] probeSentMillis;    // -1 when no probe is outstanding
+    private final long[] dropStamp;          // order of the last drop; 0 = never dropped
+
+    private boolean running = false;
+    private int active = NONE;
+    private int standby = NONE;
+    private long drops = 0;
+
+    // Metrics
+    private long failovers = 0;
+    private long latencySwitches = 0;
+    private long probesLost = 0;
+
+    /**
+     * @param switchRatio          a faster endpoint must have at most this fraction of the active RTT
+     * @param minSwitchGainMillis  ...and be at least this many milliseconds faster
+     */
+    public EndpointPool(int endpoints, Actions actions, long probeTimeoutMillis, int maxProbeFailures,
+                        float switchRatio, long minSwitchGainMillis) {
+        if (endpoints <= 0) {
+            throw new IllegalArgumentException("Need at least one endpoint, got " + endpoints);
+        }
+        this.count = endpoints;
+        this.actions = actions;
+        this.probeTimeoutMillis = probeTimeoutMillis;
+        this.maxProbeFailures = maxProbeFailures;
+        this.switchRatio = switchRatio;
+        this.minSwitchGainMillis = minSwitchGainMillis;
+
+        wanted = new boolean[endpoints];
+        connected = new boolean[endpoints];
+        rttMillis = new float[endpoints];
+        probeFailures = new int[endpoints];
+        probeAnswered = new boolean[endpoints];
+        probeId = new int[endpoints];
+        probeSentMillis = new long[endpoints];
+        dropStamp = new long[endpoints];
+        java.util.Arrays.fill(rttMillis, Float.NaN);
+        java.util.Arrays.fill(probeSentMillis, -1);
+    }
+
+    // ========================================
+    // EVENTS
+    // ========================================
+
+    /**
+     * Connects the first endpoint and its standby; does nothing if already running
+     */
+    public void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        evaluate();
+    }
+
+    /**
+     * Disconnects everything until the next {@link #start}
+     */
+    public void stop() {
+        running = false;
+        for (int i = 0; i < count; i++) {
+            if (wanted[i]) {
+                wanted[i] = false;
+                actions.disconnect(i);
+            }
+        }
+        standby = NONE;
+        setActive(NONE);
+    }
+
+    public void onConnected(int endpoint) {
+        connected[endpoint] = true;
+        probeFailures[endpoint] = 0;
+        probeAnswered[endpoint] = false;
+        probeSentMillis[endpoint] = -1;
+        evaluate();
+    }
+
+    /**
+     * Disconnect or connect error; an endpoint that was up ranks last until it is up again
+     */
+    public void onDisconnected(int endpoint) {
+        if (connected[endpoint]) {
+            dropStamp[endpoint] = ++drops;
+            if (endpoint == standby) {
+                standby = NONE; // look for another standby rather than wait for this one
+            }
+        }
+        connected[endpoint] = false;
+        probeSentMillis[endpoint] = -1;
+        evaluate();
+    }
+
+    public void onProbeAck(int endpoint, int id, long nowMillis) {
+        if (id != probeId[endpoint] || probeSentMillis[endpoint] < 0) {
+            return; // late answer to a probe already counted as lost
+        }
+        float rtt = nowMillis - probeSentMillis[endpoint];
+        probeSentMillis[endpoint] = -1;
+        probeFailures[endpoint] = 0;
+        probeAnswered[endpoint] = true;
+        rttMillis[endpoint] = Float.isNaN(rttMillis[endpoint])
+                ? rtt : rttMillis[endpoint] + RTT_SMOOTHING * (rtt - rttMillis[endpoint]);
+        evaluate();
+    }
+
+    /**
+     * Expires unanswered probes, re-evaluates, then probes every connected endpoint that
+     * supports probing
+     */
+    public void onTick(long nowMillis) {
+        for (int i = 0; i < count; i++) {
+            if (probeSentMillis[i] >= 0 && nowMillis - probeSentMillis[i] >= probeTimeoutMillis) {
+                probeSentMillis[i] = -1;
+                probeFailures[i]++;
+                probesLost++;
+            }
+        }
+        evaluate();
+
+        if (!running) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            if (connected[i] && probeSentMillis[i] < 0 && isProbing(i)) {
+                probeSentMillis[i] = nowMillis;
+                actions.probe(i, ++probeId[i]);
+            }
+        }
+    }
+
+    // ========================================
+    // SELECTION
+    // ========================================
+
+    private void evaluate() {
+        if (!running) {
+            return;
+        }
+
+        int best = bestHealthy(NONE);
+        int newActive = active;
+        if (active == NONE || !isHealthy(active)) {
+            newActive = best;
+            if (active != NONE && best != NONE) {
+                failovers++;
+            }
+        } else if (best != NONE && best != active && isMuchFaster(best, active)) {
+            newActive = best;
+            latencySwitches++;
+        }
+
+        int first = newActive != NONE ? newActive : firstCandidate(NONE);
+        standby = pickStandby(first);
+        for (int i = 0; i < count; i++) {
+            boolean keep = i == first || i == standby;
+            if (keep && !wanted[i]) {
+                wanted[i] = true;
+                actions.connect(i);
+            } else if (!keep && wanted[i]) {
+                wanted[i] = false;
+                connected[i] = false;
+                probeSentMillis[i] = -1;
+                actions.disconnect(i);
+            }
+        }
+
+        setActive(newActive);
+    }
+
+    private void setActive(int newActive) {
+        if (newActive == active) {
+            return;
+        }
+        int previous = active;
+        active = newActive;
+        actions.activeChanged(previous, newActive);
+    }
+
+    private boolean isMuchFaster(int candidate, int current) {
+        float candidateRtt = rttMillis[candidate];
+        float currentRtt = rttMillis[current];
+        if (Float.isNaN(candidateRtt) || Float.isNaN(currentRtt)) {
+            return false;
+        }
+        return candidateRtt <= currentRtt * switchRatio && currentRtt - candidateRtt >= minSwitchGainMillis;
+    }
+
+    /**
+     * Healthy endpoint with the lowest RTT; measured ones before unmeasured, then by index
+     */
+    private int bestHealthy(int exclude) {
+        int best = NONE;
+        for (int i = 0; i < count; i++) {
+            if (i != exclude && isHealthy(i) && (best == NONE || ranksBefore(i, best))) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Best healthy endpoint other than {@code first}, else the standby still reconnecting,
+     * else the best candidate; sticking to one reconnecting standby keeps its backoff
+     */
+    private int pickStandby(int first) {
+        int healthy = bestHealthy(first);
+        if (healthy != NONE) {
+            return healthy;
+        }
+        if (standby != NONE && standby != first && wanted[standby]) {
+            return standby;
+        }
+        return firstCandidate(first);
+    }
+
+    /**
+     * Endpoint to (re)connect when none is healthy: least recently dropped, then lowest
+     * known RTT, then by index
+     */
+    private int firstCandidate(int exclude) {
+        int best = NONE;
+        for (int i = 0; i < count; i++) {
+            if (i != exclude && (best == NONE || ranksBefore(i, best))) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private boolean ranksBefore(int a, int b) {
+        if (dropStamp[a] != dropStamp[b] && !(isHealthy(a) && isHealthy(b))) {
+            return dropStamp[a] < dropStamp[b];
+        }
+        float rttA = rttMillis[a];
+        float rttB = rttMillis[b];
+        if (Float.isNaN(rttA) != Float.isNaN(rttB)) {
+            return !Float.isNaN(rttA);
+        }
+        return !Float.isNaN(rttA) && rttA < rttB;
+    }
+
+    // ========================================
+    // STATE
+    // ========================================
+
+    public boolean isHealthy(int endpoint) {
+        return connected[endpoint] && (probeFailures[endpoint] < maxProbeFailures || !probeAnswered[endpoint]);
+    }
+
+    /**
+     * False once an endpoint missed {@code maxProbeFailures} probes without answering any
+     * since it connected; probing resumes on its next connection
+     */
+    public boolean isProbing(int endpoint) {
+        return probeAnswered[endpoint] || probeFailures[endpoint] < maxProbeFailures;
+    }
+
+    public int getActive() { return active; }
+    public int getStandby() { return standby; }
+    public int size() { return count; }
+    public boolean isConnected(int endpoint) { return connected[endpoint]; }
+    public boolean isWanted(int endpoint) { return wanted[endpoint]; }
+    public float getRttMillis(int endpoint) { return rttMillis[endpoint]; }
+    public long getFailovers() { return failovers; }
+    public long getLatencySwitches() { return latencySwitches; }
+    public long getProbesLost() { return probesLost; }
+}
@@ -0,0 +1,42 @@
+package com.example.gyrotest3.core;
+
+import java.util.Random;
+
+/**
+ * ExponentialBackoff - Capped exponential delays with full jitter
+ *
+ * The delay for attempt n is uniform in [0, min(maxMillis, baseMillis * 2^n)), so a
+ * fleet of clients that lost the server at the same moment spreads its retries out
+ * instead of reconnecting in lockstep.
+ */
+public final class ExponentialBackoff {
+
+    private final long baseMillis;
+    private final long maxMillis;
+    private final Random random;
+
+    public ExponentialBackoff(long baseMillis, long maxMillis, Random random) {
+        if (baseMillis <= 0 || maxMillis < baseMillis) {
+            throw new IllegalArgumentException("Need 0 < base <= max, got " + baseMillis + " / " + maxMillis);
+        }
+        this.baseMillis = baseMillis;
+        this.maxMillis = maxMillis;
+        this.random = random;
+    }
+
+    /**
+     * Upper bound of the jitter window for {@code attempt} (0-based)
+     */
+    public long ceilingMillis(int attempt) {
+        int shift = Math.min(Math.max(attempt, 0), 62);
+        long ceiling = baseMillis << shift;
+        if (ceiling <= 0 || (ceiling >> shift) != baseMillis) {
+            return maxMillis; // overflowed
+        }
+        return Math.min(maxMillis, ceiling);
+    }
+
+    public long delayMillis(int attempt) {
+        return (long) (random.nextDouble() * ceilingMillis(attempt));
+    }
+}
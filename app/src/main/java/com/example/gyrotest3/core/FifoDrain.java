@@ -0,0 +1,151 @@
+package com.example.gyrotest3.core;
+
+/**
+ * FifoDrain - Sensor registration bookkeeping for flushing the hardware FIFOs before unregistering
+ *
+ * With hardware batching, events can sit in the sensor hub's FIFO for up to the report
+ * latency. Stopping therefore asks for a flush and unregisters only once every sensor has
+ * reported its flush complete, or on a timeout, so those events are still processed.
+ *
+ * Start and stop come from one thread, the drain and rate changes from another, so every
+ * start and stop bumps a generation: a drain only unregisters if nothing happened since its
+ * stop. A start while draining resumes with the sensors still registered. Rate changes are
+ * held back while a drain is about to unregister, and applied if a start resumes instead.
+ *
+ * Not thread-safe: callers hold one lock around every call (SensorPipeline's registration lock).
+ */
+public final class FifoDrain {
+
+    private static final int NONE = -1;
+
+    /**
+     * Platform side; called with the caller's lock held
+     */
+    public interface Sensors {
+        /** Registers every sensor at the current rates */
+        void register();
+
+        /** Moves the registered motion sensors to the current rates */
+        void reregister();
+
+        void unregister();
+    }
+
+    private final Sensors sensors;
+    private boolean registered = false;
+    private int generation = 0;
+    private int drainGeneration = NONE;
+    private int pendingFlushes = 0;
+    private boolean ratesChanged = false;
+
+    public FifoDrain(Sensors sensors) {
+        this.sensors = sensors;
+    }
+
+    // ========================================
+    // REGISTRATION
+    // ========================================
+
+    /**
+     * Registers, or resumes a drain in progress at the current rates
+     */
+    public void start() {
+        generation++;
+        if (!registered) {
+            sensors.register();
+            registered = true;
+        } else if (ratesChanged) {
+            sensors.reregister(); // held back by the drain this start cancelled
+        }
+        ratesChanged = false;
+    }
+
+    /**
+     * @return the generation to pass to {@link #beginDrain}
+     */
+    public int stop() {
+        return ++generation;
+    }
+
+    /**
+     * Unregisters right away; a drain still running becomes stale
+     */
+    public void unregisterNow() {
+        generation++;
+        sensors.unregister();
+        registered = false;
+        ratesChanged = false;
+    }
+
+    /**
+     * The motion sensor rates changed: re-registers now, or on resume if a drain is about to
+     * unregister anyway
+     */
+    public void onRatesChanged() {
+        if (!registered) {
+            return;
+        }
+        if (drainGeneration == generation) {
+            ratesChanged = true;
+            return;
+        }
+        sensors.reregister();
+    }
+
+    // ========================================
+    // DRAIN
+    // ========================================
+
+    /**
+     * Starts waiting for {@code flushes} flush completions; with none, finish it right away.
+     * Completions still due for an earlier drain (superseded or timed out) arrive first, so
+     * they are waited for too rather than counted against this drain's flushes.
+     *
+     * @param stopGeneration returned by {@link #stop}
+     * @return true if a drain was still running: it ends here without unregistering, the
+     *         caller runs its completion now
+     */
+    public boolean beginDrain(int stopGeneration, int flushes) {
+        boolean superseded = drainGeneration != NONE;
+        drainGeneration = stopGeneration;
+        pendingFlushes += flushes;
+        return superseded;
+    }
+
+    /**
+     * @return true if that was the last flush outstanding and the drain finished
+     */
+    public boolean onFlushCompleted() {
+        if (pendingFlushes > 0) {
+            pendingFlushes--;
+        }
+        if (drainGeneration == NONE || pendingFlushes > 0) {
+            return false;
+        }
+        return finishDrain(drainGeneration);
+    }
+
+    /**
+     * Ends the drain of {@code stopGeneration}, on the last flush or a timeout; unregisters
+     * unless a start or stop came after it
+     *
+     * @return false if that drain already finished
+     */
+    public boolean finishDrain(int stopGeneration) {
+        if (stopGeneration == NONE || stopGeneration != drainGeneration) {
+            return false;
+        }
+        drainGeneration = NONE;
+        if (stopGeneration == generation && registered) {
+            sensors.unregister();
+            registered = false;
+            ratesChanged = false;
+        }
+        return true;
+    }
+
+    public boolean isRegistered() { return registered; }
+    public boolean isDraining() { return drainGeneration != NONE; }
+    /** Flushes requested but not completed yet, including those of drains that timed out */
+    public int getPendingFlushes() { return pendingFlushes; }
+}
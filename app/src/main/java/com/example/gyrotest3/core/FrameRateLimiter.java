@@ -0,0 +1,38 @@
+package com.example.gyrotest3.core;
+
+/**
+ * FrameRateLimiter - Caps how often vsync-driven frames are actually rendered
+ *
+ * Frame times arrive on the display's vsync grid and jitter slightly, so a frame is
+ * accepted once at least three quarters of the target interval has passed. With a
+ * 30 fps cap on a 60 Hz display that renders every second vsync rather than
+ * drifting to every third.
+ */
+public final class FrameRateLimiter {
+
+    private long minIntervalNanos;
+    private long lastRenderNanos = Long.MIN_VALUE;
+
+    public FrameRateLimiter(int maxFps) {
+        setMaxFps(maxFps);
+    }
+
+    public void setMaxFps(int maxFps) {
+        if (maxFps <= 0) {
+            throw new IllegalArgumentException("maxFps must be positive, got " + maxFps);
+        }
+        minIntervalNanos = 1_000_000_000L / maxFps;
+    }
+
+    public boolean isFrameDue(long frameTimeNanos) {
+        if (lastRenderNanos == Long.MIN_VALUE) {
+            return true;
+        }
+        long tolerance = minIntervalNanos / 4;
+        return frameTimeNanos - lastRenderNanos >= minIntervalNanos - tolerance;
+    }
+
+    public void onFrameRendered(long frameTimeNanos) {
+        lastRenderNanos = frameTimeNanos;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.gyrotest3.core;
+
+import java.io.IOException;
+
+/**
+ * JournalReplayer - Drains a {@link TelemetryJournal} to the transport in small batches
+ *
+ * Each call to {@link #replayBatch} sends at most {@code maxRecordsPerBatch} records;
+ * the caller spaces calls out to rate-limit the replay so it does not starve live
+ * telemetry. Records are only consumed while the transport reports connected, so a
+ * drop mid-replay loses nothing.
+ */
+public final class JournalReplayer {
+
+    private final TelemetryJournal journal;
+    private final TelemetryTransport transport;
+    private final int maxRecordsPerBatch;
+
+    private final TelemetryJournal.RecordVisitor emitter = new TelemetryJournal.RecordVisitor() {
+        @Override
+        public boolean onRecord(String event, int kind, byte[] payload) {
+            if (!transport.isConnected()) {
+                return false;
+            }
+            transport.emit(event, kind, payload);
+            return true;
+        }
+    };
+
+    public JournalReplayer(TelemetryJournal journal, TelemetryTransport transport, int maxRecordsPerBatch) {
+        this.journal = journal;
+        this.transport = transport;
+        this.maxRecordsPerBatch = maxRecordsPerBatch;
+    }
+
+    /**
+     * @return true if records remain and another batch should be scheduled
+     */
+    public boolean replayBatch() throws IOException {
+        if (!transport.isConnected()) {
+            return false;
+        }
+        journal.replay(maxRecordsPerBatch, emitter);
+        return transport.isConnected() && !journal.isEmpty();
+    }
+}
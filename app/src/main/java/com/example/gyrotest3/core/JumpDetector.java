@@ -0,0 +1,166 @@
+package com.example.gyrotest3.core;
+
+/**
+ * JumpDetector - Airtime detection on total acceleration with hysteresis and debounce
+ *
+ * Uses the magnitude of the acceleration vector, so it does not care how the phone is
+ * mounted. A takeoff needs the magnitude below {@link #TAKEOFF_G} and then to stay below
+ * {@link #FREE_FALL_EXIT_G} for {@link #MIN_AIRTIME_NANOS}; a landing needs it above
+ * {@link #FREE_FALL_EXIT_G} for {@link #LANDING_DEBOUNCE_NANOS}. Takeoff and landing times
+ * are the start of each debounce window, so airtime is not shortened by the debounce.
+ *
+ * The jump is completed {@link #PEAK_WINDOW_NANOS} after landing, once the peak landing
+ * G is known. Feed every accelerometer sample; do not subsample.
+ *
+ * Not thread-safe: use from the sensor pipeline thread.
+ */
+public final class JumpDetector {
+
+    static final float TAKEOFF_G = 0.4f;
+    static final float FREE_FALL_EXIT_G = 0.6f;
+    static final long MIN_AIRTIME_NANOS = 100_000_000L;
+    static final long LANDING_DEBOUNCE_NANOS = 30_000_000L;
+    static final long PEAK_WINDOW_NANOS = 200_000_000L;
+    static final long MAX_AIRTIME_NANOS = 4_000_000_000L; // longer is a dropped phone
+
+    private static final float GRAVITY = 9.81f;
+
+    private enum State {
+        GROUNDED, TAKEOFF_PENDING, AIRBORNE, LANDING_PENDING, LANDED,
+        /** Free fall ran too long; wait for solid ground before arming again */
+        ABORTED
+    }
+
+    private State state = State.GROUNDED;
+    private long takeoffNanos;
+    private long landingNanos;
+    private float peakLandingG;
+
+    // Rotation while airborne
+    private float rotationRadians;
+    private boolean hasGyroscope = false;
+    private long lastGyroNanos = 0;
+
+    private JumpEvent completedJump;
+    private long lastAirtimeMillis = 0;
+    private long jumps = 0;
+    private long rejectedTakeoffs = 0;
+
+    // ========================================
+    // INPUT
+    // ========================================
+
+    /**
+     * @return true if a jump completed on this sample; collect it with {@link #pollJump}
+     */
+    public boolean onAccelerometer(float x, float y, float z, long timestampNanos) {
+        float g = (float) Math.sqrt(x * x + y * y + z * z) / GRAVITY;
+
+        switch (state) {
+            case GROUNDED:
+                if (g < TAKEOFF_G) {
+                    state = State.TAKEOFF_PENDING;
+                    takeoffNanos = timestampNanos;
+                    rotationRadians = 0;
+                }
+                return false;
+
+            case TAKEOFF_PENDING:
+                if (g >= FREE_FALL_EXIT_G) {
+                    state = State.GROUNDED;
+                    rejectedTakeoffs++;
+                } else if (timestampNanos - takeoffNanos >= MIN_AIRTIME_NANOS) {
+                    state = State.AIRBORNE;
+                }
+                return false;
+
+            case AIRBORNE:
+                if (timestampNanos - takeoffNanos > MAX_AIRTIME_NANOS) {
+                    state = State.ABORTED;
+                    rejectedTakeoffs++;
+                } else if (g >= FREE_FALL_EXIT_G) {
+                    state = State.LANDING_PENDING;
+                    landingNanos = timestampNanos;
+                    peakLandingG = g;
+                }
+                return false;
+
+            case LANDING_PENDING:
+                if (g < FREE_FALL_EXIT_G) {
+                    state = State.AIRBORNE; // a bump mid-air, not a landing
+                } else {
+                    peakLandingG = Math.max(peakLandingG, g);
+                    if (timestampNanos - landingNanos >= LANDING_DEBOUNCE_NANOS) {
+                        state = State.LANDED;
+                        lastAirtimeMillis = (landingNanos - takeoffNanos) / 1_000_000L;
+                    }
+                }
+                return false;
+
+            case LANDED:
+                peakLandingG = Math.max(peakLandingG, g);
+                if (timestampNanos - landingNanos >= PEAK_WINDOW_NANOS) {
+                    state = State.GROUNDED;
+                    completedJump = new JumpEvent(takeoffNanos, lastAirtimeMillis, peakLandingG,
+                            hasGyroscope ? (float) Math.toDegrees(rotationRadians) : Float.NaN);
+                    jumps++;
+                    return true;
+                }
+                return false;
+
+            case ABORTED:
+                if (g >= FREE_FALL_EXIT_G) {
+                    state = State.GROUNDED;
+                }
+                return false;
+
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Accumulates rotation (any axis) while airborne, in rad/s
+     */
+    public void onGyroscope(float x, float y, float z, long timestampNanos) {
+        long previous = lastGyroNanos;
+        lastGyroNanos = timestampNanos;
+        hasGyroscope = true;
+
+        boolean inFlight = state == State.TAKEOFF_PENDING || state == State.AIRBORNE
+                || state == State.LANDING_PENDING;
+        if (!inFlight || previous == 0 || timestampNanos <= previous) {
+            return;
+        }
+        // Only count rotation up to the landing itself
+        long end = state == State.LANDING_PENDING ? Math.min(timestampNanos, landingNanos) : timestampNanos;
+        long start = Math.max(previous, takeoffNanos);
+        if (end > start) {
+            rotationRadians += (float) Math.sqrt(x * x + y * y + z * z) * (end - start) * 1e-9f;
+        }
+    }
+
+    // ========================================
+    // OUTPUT
+    // ========================================
+
+    /**
+     * @return the jump completed since the last call, or null
+     */
+    public JumpEvent pollJump() {
+        JumpEvent jump = completedJump;
+        completedJump = null;
+        return jump;
+    }
+
+    /**
+     * True from a confirmed takeoff until the landing is confirmed
+     */
+    public boolean isAirborne() {
+        return state == State.AIRBORNE || state == State.LANDING_PENDING;
+    }
+
+    public long getLastAirtimeMillis() { return lastAirtimeMillis; }
+    public long getJumps() { return jumps; }
+    public long getRejectedTakeoffs() { return rejectedTakeoffs; }
+}
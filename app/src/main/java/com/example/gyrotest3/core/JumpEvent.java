@@ -0,0 +1,32 @@
+package com.example.gyrotest3.core;
+
+/**
+ * JumpEvent - One completed jump, from takeoff to landing
+ */
+public final class JumpEvent {
+
+    /** Takeoff time, sensor timestamp base (elapsed realtime) */
+    public final long takeoffNanos;
+    public final long airtimeMillis;
+    /** Highest total acceleration in the landing window, in g */
+    public final float peakLandingG;
+    /** Total rotation while airborne in degrees, or NaN without a gyroscope */
+    public final float rotationDegrees;
+
+    public JumpEvent(long takeoffNanos, long airtimeMillis, float peakLandingG, float rotationDegrees) {
+        this.takeoffNanos = takeoffNanos;
+        this.airtimeMillis = airtimeMillis;
+        this.peakLandingG = peakLandingG;
+        this.rotationDegrees = rotationDegrees;
+    }
+
+    public boolean hasRotation() {
+        return !Float.isNaN(rotationDegrees);
+    }
+
+    @Override
+    public String toString() {
+        return "JumpEvent{airtime=" + airtimeMillis + "ms, peakLandingG=" + peakLandingG
+                + ", rotation=" + rotationDegrees + "°}";
+    }
+}
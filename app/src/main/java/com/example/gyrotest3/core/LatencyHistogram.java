@@ -0,0 +1,174 @@
+package com.example.gyrotest3.core;
+
+/**
+ * LatencyHistogram - Fixed-size log-linear histogram in the HdrHistogram layout
+ *
+ * Values are counted in power-of-two buckets, each split into linear sub-buckets, so every
+ * recorded value keeps {@code significantDigits} decimal digits of precision from 1 up to
+ * {@code highestTrackableValue}. Recording is a couple of shifts and an array increment and
+ * never allocates. Values above the range are clamped and counted, negative values (clock
+ * steps) count as 0.
+ *
+ * Not thread-safe.
+ */
+public final class LatencyHistogram {
+
+    private final long highestTrackableValue;
+    private final int subBucketHalfCountMagnitude;
+    private final int subBucketHalfCount;
+    private final long subBucketMask;
+    private final int leadingZeroCountBase;
+    private final long[] counts;
+
+    private long totalCount = 0;
+    private long minValue = Long.MAX_VALUE;
+    private long maxValue = 0;
+    private double sum = 0;
+    private long clampedCount = 0;
+
+    /**
+     * @param highestTrackableValue largest value kept at full precision, at least 2
+     * @param significantDigits     decimal digits of precision, 1 to 4
+     */
+    public LatencyHistogram(long highestTrackableValue, int significantDigits) {
+        if (highestTrackableValue < 2) {
+            throw new IllegalArgumentException("Highest trackable value must be >= 2, got " + highestTrackableValue);
+        }
+        if (significantDigits < 1 || significantDigits > 4) {
+            throw new IllegalArgumentException("Significant digits must be 1..4, got " + significantDigits);
+        }
+        this.highestTrackableValue = highestTrackableValue;
+
+        long singleUnitResolution = 2 * (long) Math.pow(10, significantDigits);
+        int subBucketCountMagnitude = 64 - Long.numberOfLeadingZeros(singleUnitResolution - 1);
+        int subBucketCount = 1 << subBucketCountMagnitude;
+        subBucketHalfCountMagnitude = subBucketCountMagnitude - 1;
+        subBucketHalfCount = subBucketCount / 2;
+        subBucketMask = subBucketCount - 1;
+        leadingZeroCountBase = 63 - subBucketHalfCountMagnitude;
+
+        int bucketCount = 1;
+        long smallestUntrackable = subBucketCount;
+        while (smallestUntrackable <= highestTrackableValue) {
+            if (smallestUntrackable > Long.MAX_VALUE / 2) {
+                bucketCount++;
+                break;
+            }
+            smallestUntrackable <<= 1;
+            bucketCount++;
+        }
+        counts = new long[(bucketCount + 1) * subBucketHalfCount];
+    }
+
+    // ========================================
+    // RECORDING
+    // ========================================
+
+    public void recordValue(long value) {
+        if (value < 0) {
+            value = 0;
+        } else if (value > highestTrackableValue) {
+            value = highestTrackableValue;
+            clampedCount++;
+        }
+        counts[countsIndex(value)]++;
+        totalCount++;
+        sum += value;
+        if (value < minValue) {
+            minValue = value;
+        }
+        if (value > maxValue) {
+            maxValue = value;
+        }
+    }
+
+    /**
+     * Adds every count of {@code other}, which must have the same range and precision
+     */
+    public void add(LatencyHistogram other) {
+        if (other.counts.length != counts.length || other.subBucketHalfCount != subBucketHalfCount) {
+            throw new IllegalArgumentException("Histogram layouts differ");
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        sum += other.sum;
+        clampedCount += other.clampedCount;
+        minValue = Math.min(minValue, other.minValue);
+        maxValue = Math.max(maxValue, other.maxValue);
+    }
+
+    public void reset() {
+        java.util.Arrays.fill(counts, 0);
+        totalCount = 0;
+        minValue = Long.MAX_VALUE;
+        maxValue = 0;
+        sum = 0;
+        clampedCount = 0;
+    }
+
+    // ========================================
+    // QUERIES
+    // ========================================
+
+    /**
+     * Highest value equivalent to the value at {@code percentile} (0..100); 0 when empty
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        double fraction = Math.min(Math.max(percentile, 0), 100) / 100.0;
+        long countAtPercentile = Math.max(1, (long) (fraction * totalCount + 0.5));
+
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            if (cumulative >= countAtPercentile) {
+                return Math.min(highestEquivalentValue(valueFromIndex(i)), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    public long getTotalCount() { return totalCount; }
+    public long getMinValue() { return totalCount == 0 ? 0 : minValue; }
+    public long getMaxValue() { return maxValue; }
+    public double getMean() { return totalCount == 0 ? 0 : sum / totalCount; }
+    public long getClampedCount() { return clampedCount; }
+
+    /**
+     * Largest value that lands in the same count as {@code value}
+     */
+    public long highestEquivalentValue(long value) {
+        int bucketIndex = bucketIndex(value);
+        int subBucketIndex = (int) (value >>> bucketIndex);
+        long lowest = (long) subBucketIndex << bucketIndex;
+        return lowest + (1L << bucketIndex) - 1;
+    }
+
+    // ========================================
+    // LAYOUT
+    // ========================================
+
+    private int bucketIndex(long value) {
+        return leadingZeroCountBase - Long.numberOfLeadingZeros(value | subBucketMask);
+    }
+
+    private int countsIndex(long value) {
+        int bucketIndex = bucketIndex(value);
+        int subBucketIndex = (int) (value >>> bucketIndex);
+        return ((bucketIndex + 1) << subBucketHalfCountMagnitude) + (subBucketIndex - subBucketHalfCount);
+    }
+
+    private long valueFromIndex(int index) {
+        int bucketIndex = (index >> subBucketHalfCountMagnitude) - 1;
+        int subBucketIndex = (index & (subBucketHalfCount - 1)) + subBucketHalfCount;
+        if (bucketIndex < 0) {
+            subBucketIndex -= subBucketHalfCount;
+            bucketIndex = 0;
+        }
+        return (long) subBucketIndex << bucketIndex;
+    }
+}
@@ -0,0 +1,253 @@
+package com.example.gyrotest3.core;
+
+/**
+ * MahonyFusion - Quaternion complementary filter (Mahony) over gyro, accel and magnetometer
+ *
+ * The gyroscope is integrated every event; the accelerometer (and magnetometer, when used)
+ * only steer the estimate through a proportional-integral correction. Accelerometer
+ * samples whose magnitude is far from 1 g, as in jumps, landings and hard turns, are
+ * not trusted and the filter coasts on the gyro until they settle.
+ *
+ * The first accelerometer sample sets the tilt; the first magnetometer sample after it
+ * sets the heading. Without a magnetometer, yaw is relative to the starting heading.
+ */
+public final class MahonyFusion implements OrientationFusion {
+
+    public static final float DEFAULT_KP = 1.0f;
+    public static final float DEFAULT_KI = 0.02f;
+
+    private static final float GRAVITY = 9.81f;
+    private static final float ACCEL_TRUST_BAND = 0.15f; // fraction of 1 g
+    private static final long MAX_GYRO_GAP_NANOS = 200_000_000L;
+
+    private final boolean useMagnetometer;
+    private final float kp;
+    private final float ki;
+
+    // Estimate, device to world (east, north, up)
+    private float q0 = 1, q1 = 0, q2 = 0, q3 = 0;
+    private boolean ready = false;
+    private boolean headingAligned = false;
+
+    // Integral feedback, rad/s
+    private float integralX = 0, integralY = 0, integralZ = 0;
+
+    // Latest inputs
+    private float ax, ay, az;
+    private float mx, my, mz;
+    private boolean hasAccelerometerData = false;
+    private boolean hasMagnetometerData = false;
+    private long lastGyroTimestamp = 0;
+
+    // Scratch, reused every event
+    private final float[] accelerometerValues = new float[3];
+    private final float[] magnetometerValues = new float[3];
+    private final float[] rotationMatrix = new float[9];
+    private final float[] quaternion = new float[4];
+
+    // Statistics
+    private long gyroUpdates = 0;
+    private long rejectedAccelerometerSamples = 0;
+
+    public MahonyFusion(boolean useMagnetometer) {
+        this(useMagnetometer, DEFAULT_KP, DEFAULT_KI);
+    }
+
+    public MahonyFusion(boolean useMagnetometer, float kp, float ki) {
+        this.useMagnetometer = useMagnetometer;
+        this.kp = kp;
+        this.ki = ki;
+    }
+
+    // ========================================
+    // SENSOR INPUT
+    // ========================================
+
+    @Override
+    public void onAccelerometer(float x, float y, float z) {
+        ax = x;
+        ay = y;
+        az = z;
+        hasAccelerometerData = true;
+
+        if (!ready) {
+            alignTilt();
+        }
+    }
+
+    @Override
+    public void onMagnetometer(float x, float y, float z) {
+        mx = x;
+        my = y;
+        mz = z;
+        hasMagnetometerData = true;
+
+        if (useMagnetometer && !headingAligned && hasAccelerometerData) {
+            alignHeading();
+        }
+    }
+
+    @Override
+    public void onRotationVector(float x, float y, float z, float w) {}
+
+    @Override
+    public void onGyroscope(float x, float y, float z, long timestampNanos) {
+        long previous = lastGyroTimestamp;
+        lastGyroTimestamp = timestampNanos;
+
+        long gapNanos = timestampNanos - previous;
+        if (!ready || previous == 0 || gapNanos <= 0 || gapNanos > MAX_GYRO_GAP_NANOS) {
+            return;
+        }
+        float dt = gapNanos * 1e-9f;
+
+        float ex = 0, ey = 0, ez = 0;
+        if (isAccelerometerTrusted()) {
+            float invA = 1.0f / (float) Math.sqrt(ax * ax + ay * ay + az * az);
+            float nax = ax * invA, nay = ay * invA, naz = az * invA;
+
+            // Estimated "up" in device axes: third row of the rotation matrix
+            float vx = 2 * (q1 * q3 - q0 * q2);
+            float vy = 2 * (q0 * q1 + q2 * q3);
+            float vz = q0 * q0 - q1 * q1 - q2 * q2 + q3 * q3;
+
+            ex = nay * vz - naz * vy;
+            ey = naz * vx - nax * vz;
+            ez = nax * vy - nay * vx;
+
+            if (useMagnetometer && hasMagnetometerData) {
+                float normM = (float) Math.sqrt(mx * mx + my * my + mz * mz);
+                if (normM > 1e-3f) {
+                    float nmx = mx / normM, nmy = my / normM, nmz = mz / normM;
+                    float[] r = rotationMatrix;
+                    Quaternions.toRotationMatrix(q0, q1, q2, q3, r);
+
+                    // Field in world axes; the reference keeps its dip but points due north
+                    float hx = r[0] * nmx + r[1] * nmy + r[2] * nmz;
+                    float hy = r[3] * nmx + r[4] * nmy + r[5] * nmz;
+                    float bz = r[6] * nmx + r[7] * nmy + r[8] * nmz;
+                    float by = (float) Math.sqrt(hx * hx + hy * hy);
+
+                    // Reference back in device axes
+                    float wx = r[3] * by + r[6] * bz;
+                    float wy = r[4] * by + r[7] * bz;
+                    float wz = r[5] * by + r[8] * bz;
+
+                    ex += nmy * wz - nmz * wy;
+                    ey += nmz * wx - nmx * wz;
+                    ez += nmx * wy - nmy * wx;
+                }
+            }
+        }
+
+        if (ki > 0) {
+            integralX += ki * ex * dt;
+            integralY += ki * ey * dt;
+            integralZ += ki * ez * dt;
+        }
+        float gx = x + kp * ex + integralX;
+        float gy = y + kp * ey + integralY;
+        float gz = z + kp * ez + integralZ;
+
+        // q' = q + 0.5 * q ⊗ (0, g) * dt
+        float halfDt = 0.5f * dt;
+        float a = q0, b = q1, c = q2, d = q3;
+        q0 = a + (-b * gx - c * gy - d * gz) * halfDt;
+        q1 = b + (a * gx + c * gz - d * gy) * halfDt;
+        q2 = c + (a * gy - b * gz + d * gx) * halfDt;
+        q3 = d + (a * gz + b * gy - c * gx) * halfDt;
+        normalize();
+
+        gyroUpdates++;
+    }
+
+    // ========================================
+    // CORRECTION
+    // ========================================
+
+    private boolean isAccelerometerTrusted() {
+        if (!hasAccelerometerData) {
+            return false;
+        }
+        float norm = (float) Math.sqrt(ax * ax + ay * ay + az * az);
+        if (Math.abs(norm - GRAVITY) > ACCEL_TRUST_BAND * GRAVITY) {
+            rejectedAccelerometerSamples++;
+            return false;
+        }
+        return true;
+    }
+
+    // ========================================
+    // INITIALIZATION
+    // ========================================
+
+    /**
+     * Shortest rotation taking the measured "up" onto world up; heading is arbitrary
+     */
+    private void alignTilt() {
+        float norm = (float) Math.sqrt(ax * ax + ay * ay + az * az);
+        if (norm < 0.1f * GRAVITY) {
+            return; // free fall, no usable gravity
+        }
+        float ux = ax / norm, uy = ay / norm, uz = az / norm;
+
+        if (uz < -0.9999f) {
+            q0 = 0; q1 = 1; q2 = 0; q3 = 0; // upside down
+        } else {
+            q0 = 1 + uz; q1 = uy; q2 = -ux; q3 = 0;
+            normalize();
+        }
+        ready = true;
+
+        if (useMagnetometer && hasMagnetometerData) {
+            alignHeading();
+        }
+    }
+
+    private void alignHeading() {
+        accelerometerValues[0] = ax;
+        accelerometerValues[1] = ay;
+        accelerometerValues[2] = az;
+        magnetometerValues[0] = mx;
+        magnetometerValues[1] = my;
+        magnetometerValues[2] = mz;
+        if (!AttitudeProcessor.computeRotationMatrix(rotationMatrix, accelerometerValues, magnetometerValues)) {
+            return;
+        }
+
+        Quaternions.fromRotationMatrix(rotationMatrix, quaternion);
+        q0 = quaternion[0];
+        q1 = quaternion[1];
+        q2 = quaternion[2];
+        q3 = quaternion[3];
+        normalize();
+        ready = true;
+        headingAligned = true;
+    }
+
+    private void normalize() {
+        float norm = (float) Math.sqrt(q0 * q0 + q1 * q1 + q2 * q2 + q3 * q3);
+        float inv = 1.0f / norm;
+        q0 *= inv;
+        q1 *= inv;
+        q2 *= inv;
+        q3 *= inv;
+    }
+
+    // ========================================
+    // OUTPUT
+    // ========================================
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void getRotationMatrix(float[] r) {
+        Quaternions.toRotationMatrix(q0, q1, q2, q3, r);
+    }
+
+    public long getGyroUpdates() { return gyroUpdates; }
+    public long getRejectedAccelerometerSamples() { return rejectedAccelerometerSamples; }
+}
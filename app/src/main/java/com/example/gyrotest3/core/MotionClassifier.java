@@ -0,0 +1,133 @@
+package com.example.gyrotest3.core;
+
+/**
+ * MotionClassifier - Idle / walking / riding / airborne from accel, steps and speed
+ *
+ * Activity is the standard deviation of total acceleration, tracked with a time-constant
+ * exponential window so it does not depend on the sampling rate (which this classifier
+ * itself changes). A state with more activity is entered on the first sample that calls
+ * for it, so a run never starts at idle rates; dropping to a calmer state requires the
+ * calmer reading to hold for a while.
+ *
+ * Not thread-safe: use from the sensor pipeline thread.
+ */
+public final class MotionClassifier {
+
+    static final float RIDING_SPEED_KMH = 10f;
+    static final float MOVING_SPEED_KMH = 2f;
+    static final float RIDING_ACTIVITY_G = 0.25f;
+    static final float MOVING_ACTIVITY_G = 0.04f;
+    static final long STEP_RECENT_NANOS = 5_000_000_000L;
+    static final long RIDING_HOLD_NANOS = 10_000_000_000L;
+    static final long WALKING_HOLD_NANOS = 30_000_000_000L;
+
+    private static final float GRAVITY = 9.81f;
+    private static final float ACTIVITY_TIME_CONSTANT_S = 1.0f;
+
+    private MotionState state = MotionState.IDLE;
+    private long calmerSinceNanos = -1;
+
+    // Activity window
+    private float meanG = 1f;
+    private float varianceG = 0f;
+    private long lastSampleNanos = 0;
+
+    private int lastSteps = -1;
+    private long lastStepNanos = Long.MIN_VALUE / 2;
+
+    private long transitions = 0;
+
+    // ========================================
+    // INPUT
+    // ========================================
+
+    /**
+     * @return true if the state changed
+     */
+    public boolean onAccelerometer(float x, float y, float z, long timestampNanos,
+                                   float speedKmh, boolean airborne) {
+        float g = (float) Math.sqrt(x * x + y * y + z * z) / GRAVITY;
+
+        long previous = lastSampleNanos;
+        lastSampleNanos = timestampNanos;
+        if (previous != 0 && timestampNanos > previous) {
+            float dt = (timestampNanos - previous) * 1e-9f;
+            float alpha = 1f - (float) Math.exp(-dt / ACTIVITY_TIME_CONSTANT_S);
+            float diff = g - meanG;
+            meanG += alpha * diff;
+            varianceG = (1f - alpha) * (varianceG + alpha * diff * diff);
+        }
+
+        return transition(classify(timestampNanos, speedKmh, airborne), timestampNanos);
+    }
+
+    /**
+     * @param sessionSteps steps counted so far this session
+     */
+    public void onSteps(int sessionSteps, long timestampNanos) {
+        if (lastSteps >= 0 && sessionSteps > lastSteps) {
+            lastStepNanos = timestampNanos;
+        }
+        lastSteps = sessionSteps;
+    }
+
+    // ========================================
+    // CLASSIFICATION
+    // ========================================
+
+    private MotionState classify(long timestampNanos, float speedKmh, boolean airborne) {
+        if (airborne) {
+            return MotionState.AIRBORNE;
+        }
+
+        float activity = getActivityG();
+        boolean stepping = timestampNanos - lastStepNanos <= STEP_RECENT_NANOS;
+
+        if (speedKmh >= RIDING_SPEED_KMH || (activity >= RIDING_ACTIVITY_G && !stepping)) {
+            return MotionState.RIDING;
+        }
+        if (stepping || activity >= MOVING_ACTIVITY_G || speedKmh >= MOVING_SPEED_KMH) {
+            return MotionState.WALKING;
+        }
+        return MotionState.IDLE;
+    }
+
+    private boolean transition(MotionState candidate, long timestampNanos) {
+        if (candidate == state) {
+            calmerSinceNanos = -1;
+            return false;
+        }
+
+        boolean calmer = candidate.ordinal() < state.ordinal()
+                && !(state == MotionState.AIRBORNE && candidate == MotionState.RIDING);
+        if (calmer) {
+            if (calmerSinceNanos < 0) {
+                calmerSinceNanos = timestampNanos;
+            }
+            long hold = (state == MotionState.WALKING) ? WALKING_HOLD_NANOS : RIDING_HOLD_NANOS;
+            if (timestampNanos - calmerSinceNanos < hold) {
+                return false;
+            }
+        }
+
+        state = candidate;
+        calmerSinceNanos = -1;
+        transitions++;
+        return true;
+    }
+
+    // ========================================
+    // OUTPUT
+    // ========================================
+
+    public MotionState getState() { return state; }
+
+    /**
+     * Standard deviation of total acceleration over roughly the last second, in g
+     */
+    public float getActivityG() {
+        return (float) Math.sqrt(varianceG);
+    }
+
+    public long getTransitions() { return transitions; }
+}
@@ -0,0 +1,42 @@
+package com.example.gyrotest3.core;
+
+/**
+ * MotionState - What the rider is doing, and the sampling policy that goes with it
+ *
+ * States are ordered by activity; moving up is immediate, moving down is held back by
+ * {@link MotionClassifier}. AIRBORNE shares RIDING's rates so that sensors are never
+ * re-registered mid-jump.
+ */
+public enum MotionState {
+
+    //         period µs  latency µs  GPS ms  send ms
+    IDLE(      200_000,   1_000_000,  10_000, 1_000),
+    WALKING(    40_000,     500_000,   5_000,   500),
+    RIDING(     10_000,      50_000,   1_000,   100),
+    AIRBORNE(   10_000,      50_000,   1_000,   100);
+
+    /** Motion sensor sampling period for SensorManager.registerListener */
+    public final int samplingPeriodUs;
+    /** Hardware FIFO batching allowed; events may arrive this late */
+    public final int maxReportLatencyUs;
+    public final long gpsIntervalMillis;
+    /** Minimum spacing of attitude uploads */
+    public final long sendIntervalMillis;
+
+    MotionState(int samplingPeriodUs, int maxReportLatencyUs, long gpsIntervalMillis, long sendIntervalMillis) {
+        this.samplingPeriodUs = samplingPeriodUs;
+        this.maxReportLatencyUs = maxReportLatencyUs;
+        this.gpsIntervalMillis = gpsIntervalMillis;
+        this.sendIntervalMillis = sendIntervalMillis;
+    }
+
+    /**
+     * True if switching between the two states needs no sensor or GPS re-registration
+     */
+    public boolean samePolicyAs(MotionState other) {
+        return samplingPeriodUs == other.samplingPeriodUs
+                && maxReportLatencyUs == other.maxReportLatencyUs
+                && gpsIntervalMillis == other.gpsIntervalMillis
+                && sendIntervalMillis == other.sendIntervalMillis;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.gyrotest3.core;
+
+/**
+ * OrientationFusion - Pluggable attitude estimator fed by raw sensor events
+ *
+ * Implementations keep their state in primitive fields and must not allocate per event.
+ * The estimate is exposed as the device-to-world rotation matrix (world axes east,
+ * north, up), the same convention as SensorManager.getRotationMatrix, so angles derived
+ * from it match the accelerometer/magnetometer path.
+ *
+ * Not thread-safe: drive it from the sensor pipeline thread.
+ */
+public interface OrientationFusion {
+
+    /**
+     * @param x,y,z acceleration in m/s², device axes
+     */
+    void onAccelerometer(float x, float y, float z);
+
+    /**
+     * @param x,y,z magnetic field in µT, device axes
+     */
+    void onMagnetometer(float x, float y, float z);
+
+    /**
+     * @param x,y,z angular rate in rad/s, device axes
+     * @param timestampNanos sensor event timestamp
+     */
+    void onGyroscope(float x, float y, float z, long timestampNanos);
+
+    /**
+     * Unit quaternion from a rotation vector sensor (values[0..3] of the SensorEvent)
+     */
+    void onRotationVector(float x, float y, float z, float w);
+
+    /**
+     * @return true once the estimate is initialized
+     */
+    boolean isReady();
+
+    /**
+     * Writes the current estimate into {@code r} as a row-major 3x3 matrix
+     */
+    void getRotationMatrix(float[] r);
+}
@@ -0,0 +1,250 @@
+package com.example.gyrotest3.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * OutboundQueue - Bounded send queue in front of the socket, with per-message drop policies
+ *
+ * Socket.IO emits are fire-and-forget: on a slow uplink its send buffer grows without
+ * bound and samples arrive seconds late. Here at most {@code maxInFlight} messages are
+ * sent but not yet acked by the server; the rest wait in a queue of {@code capacity}
+ * messages. When the queue is full the {@link Policy} of each message decides what gives:
+ * stale samples are shed so the server gets fresh data late rather than old data later.
+ *
+ * An ack that does not arrive within {@code ackTimeoutNanos} frees its slot. If a
+ * connection times out before acking anything, the server is taken not to ack at all and
+ * the window is lifted for that connection, so old servers keep the previous behaviour.
+ * Likewise an event that times out without ever having been acked on the connection is
+ * taken to be one the server does not ack. Either way {@link Message#isAckExpected} turns
+ * false, so the sender stops registering ack callbacks that would never be called.
+ *
+ * Not thread-safe: drive it from one thread (the sensor pipeline thread on Android).
+ */
+public final class OutboundQueue {
+
+    public enum Policy {
+        /** Samples: when the queue is full the oldest queued sample is shed */
+        DROP_OLDEST,
+        /** Discrete events: always queued, even past capacity */
+        NEVER_DROP,
+        /** State: replaces the payload of a queued message for the same event */
+        COALESCE_LATEST
+    }
+
+    /**
+     * Platform side of the queue; called on the queue's thread
+     */
+    public interface Sender {
+        /**
+         * Emit the message; if {@link Message#isAckExpected}, report the server ack with
+         * {@link #onAcked}, otherwise emit without an ack
+         */
+        void send(Message message);
+
+        /** The message was shed without being sent */
+        void dropped(Message message);
+    }
+
+    private final Sender sender;
+    private final int capacity;
+    private final int maxInFlight;
+    private final long ackTimeoutNanos;
+
+    private final ArrayDeque<Message> queue = new ArrayDeque<>();
+    private final ArrayDeque<Message> inFlight = new ArrayDeque<>();
+    private boolean connected = false;
+    private boolean acksSeen = false;
+    private boolean ackless = false;
+    // Per connection: events acked at least once, and events taken not to be acked
+    private final Set<String> ackedEvents = new HashSet<>();
+    private final Set<String> acklessEvents = new HashSet<>();
+    private long nextId = 1;
+
+    // Metrics
+    private int maxDepth = 0;
+    private long sent = 0;
+    private long acked = 0;
+    private long dropped = 0;
+    private long coalesced = 0;
+    private long overCapacity = 0;
+    private long ackTimeouts = 0;
+
+    public OutboundQueue(Sender sender, int capacity, int maxInFlight, long ackTimeoutNanos) {
+        if (capacity <= 0 || maxInFlight <= 0) {
+            throw new IllegalArgumentException("Capacity and window must be positive, got "
+                    + capacity + " and " + maxInFlight);
+        }
+        this.sender = sender;
+        this.capacity = capacity;
+        this.maxInFlight = maxInFlight;
+        this.ackTimeoutNanos = ackTimeoutNanos;
+    }
+
+    // ========================================
+    // EVENTS
+    // ========================================
+
+    /**
+     * Queues a message and sends what the window allows
+     *
+     * @param context caller state handed back with the message, e.g. an ack callback
+     */
+    public void offer(String event, Object payload, Policy policy, Object context, long nowNanos) {
+        if (policy == Policy.COALESCE_LATEST) {
+            for (Message queued : queue) {
+                if (queued.policy == Policy.COALESCE_LATEST && queued.event.equals(event)) {
+                    queued.payload = payload;
+                    queued.context = context;
+                    coalesced++;
+                    pump(nowNanos);
+                    return;
+                }
+            }
+        }
+
+        Message message = new Message(nextId++, event, policy, payload, context, nowNanos);
+        if (queue.size() >= capacity && !shedOldestSample()) {
+            if (policy == Policy.DROP_OLDEST) {
+                dropped++;
+                sender.dropped(message);
+                return;
+            }
+            overCapacity++;
+        }
+        queue.addLast(message);
+        maxDepth = Math.max(maxDepth, queue.size());
+        pump(nowNanos);
+    }
+
+    public void onAcked(long id, long nowNanos) {
+        for (Iterator<Message> it = inFlight.iterator(); it.hasNext(); ) {
+            Message message = it.next();
+            if (message.id == id) {
+                it.remove();
+                acked++;
+                acksSeen = true;
+                ackedEvents.add(message.event);
+                pump(nowNanos);
+                return;
+            }
+        }
+        // Late ack for a timed-out message or one sent on a previous connection
+    }
+
+    /**
+     * Frees slots whose ack timed out, then sends what the window allows
+     */
+    public void onTick(long nowNanos) {
+        while (!inFlight.isEmpty() && nowNanos - inFlight.peekFirst().sentNanos >= ackTimeoutNanos) {
+            Message message = inFlight.removeFirst();
+            ackTimeouts++;
+            if (!acksSeen) {
+                ackless = true;
+            } else if (!ackedEvents.contains(message.event)) {
+                acklessEvents.add(message.event);
+            }
+        }
+        if (ackless) {
+            inFlight.clear();
+        }
+        pump(nowNanos);
+    }
+
+    /**
+     * A new connection starts with an empty window; acks still due on the old one are ignored
+     */
+    public void setConnected(boolean connected, long nowNanos) {
+        this.connected = connected;
+        inFlight.clear();
+        acksSeen = false;
+        ackless = false;
+        ackedEvents.clear();
+        acklessEvents.clear();
+        pump(nowNanos);
+    }
+
+    /**
+     * Removes and returns every queued message, oldest first, e.g. to journal them offline
+     */
+    public List<Message> takeQueued() {
+        List<Message> messages = new ArrayList<>(queue);
+        queue.clear();
+        return messages;
+    }
+
+    private void pump(long nowNanos) {
+        while (connected && !queue.isEmpty() && (ackless || inFlight.size() < maxInFlight)) {
+            Message message = queue.removeFirst();
+            message.sentNanos = nowNanos;
+            message.ackExpected = !ackless && !acklessEvents.contains(message.event);
+            if (message.ackExpected) {
+                inFlight.addLast(message);
+            }
+            sent++;
+            sender.send(message);
+        }
+    }
+
+    private boolean shedOldestSample() {
+        for (Iterator<Message> it = queue.iterator(); it.hasNext(); ) {
+            Message queued = it.next();
+            if (queued.policy == Policy.DROP_OLDEST) {
+                it.remove();
+                dropped++;
+                sender.dropped(queued);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ========================================
+    // STATE
+    // ========================================
+
+    public int getDepth() { return queue.size(); }
+    public int getInFlight() { return inFlight.size(); }
+    public boolean isAckless() { return ackless; }
+    /** Events on this connection the server is taken not to ack */
+    public int getAcklessEvents() { return acklessEvents.size(); }
+    public int getMaxDepth() { return maxDepth; }
+    public long getSent() { return sent; }
+    public long getAcked() { return acked; }
+    public long getDropped() { return dropped; }
+    public long getCoalesced() { return coalesced; }
+    public long getOverCapacity() { return overCapacity; }
+    public long getAckTimeouts() { return ackTimeouts; }
+
+    /**
+     * One queued message; payload and context are replaced when a newer state coalesces into it
+     */
+    public static final class Message {
+        public final long id;
+        public final String event;
+        public final Policy policy;
+        public final long enqueuedNanos;
+        private Object payload;
+        private Object context;
+        private long sentNanos;
+        private boolean ackExpected;
+
+        Message(long id, String event, Policy policy, Object payload, Object context, long enqueuedNanos) {
+            this.id = id;
+            this.event = event;
+            this.policy = policy;
+            this.payload = payload;
+            this.context = context;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+
+        public Object getPayload() { return payload; }
+        public Object getContext() { return context; }
+        /** Set when sent: false if the server is not expected to ack it, so no slot waits on it */
+        public boolean isAckExpected() { return ackExpected; }
+    }
+}
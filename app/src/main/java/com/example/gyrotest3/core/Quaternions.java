@@ -0,0 +1,55 @@
+package com.example.gyrotest3.core;
+
+/**
+ * Quaternions - Conversions shared by the fusion engines; quaternions are (w, x, y, z)
+ */
+final class Quaternions {
+
+    private Quaternions() {}
+
+    /**
+     * Same result as SensorManager.getRotationMatrixFromVector for a unit quaternion
+     */
+    static void toRotationMatrix(float w, float x, float y, float z, float[] r) {
+        float xx = 2 * x * x, yy = 2 * y * y, zz = 2 * z * z;
+        float xy = 2 * x * y, xz = 2 * x * z, yz = 2 * y * z;
+        float xw = 2 * x * w, yw = 2 * y * w, zw = 2 * z * w;
+
+        r[0] = 1 - yy - zz; r[1] = xy - zw;     r[2] = xz + yw;
+        r[3] = xy + zw;     r[4] = 1 - xx - zz; r[5] = yz - xw;
+        r[6] = xz - yw;     r[7] = yz + xw;     r[8] = 1 - xx - yy;
+    }
+
+    /**
+     * Inverse of {@link #toRotationMatrix}; writes (w, x, y, z) into {@code q}
+     */
+    static void fromRotationMatrix(float[] r, float[] q) {
+        float trace = r[0] + r[4] + r[8];
+
+        if (trace > 0) {
+            float s = (float) Math.sqrt(trace + 1) * 2;
+            q[0] = 0.25f * s;
+            q[1] = (r[7] - r[5]) / s;
+            q[2] = (r[2] - r[6]) / s;
+            q[3] = (r[3] - r[1]) / s;
+        } else if (r[0] > r[4] && r[0] > r[8]) {
+            float s = (float) Math.sqrt(1 + r[0] - r[4] - r[8]) * 2;
+            q[0] = (r[7] - r[5]) / s;
+            q[1] = 0.25f * s;
+            q[2] = (r[1] + r[3]) / s;
+            q[3] = (r[2] + r[6]) / s;
+        } else if (r[4] > r[8]) {
+            float s = (float) Math.sqrt(1 + r[4] - r[0] - r[8]) * 2;
+            q[0] = (r[2] - r[6]) / s;
+            q[1] = (r[1] + r[3]) / s;
+            q[2] = 0.25f * s;
+            q[3] = (r[5] + r[7]) / s;
+        } else {
+            float s = (float) Math.sqrt(1 + r[8] - r[0] - r[4]) * 2;
+            q[0] = (r[3] - r[1]) / s;
+            q[1] = (r[2] + r[6]) / s;
+            q[2] = (r[5] + r[7]) / s;
+            q[3] = 0.25f * s;
+        }
+    }
+}
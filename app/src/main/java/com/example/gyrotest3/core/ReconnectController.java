@@ -0,0 +1,177 @@
+package com.example.gyrotest3.core;
+
+/**
+ * ReconnectController - Single reconnect state machine for the telemetry socket
+ *
+ * All connection-loss signals funnel into one pending attempt, so disconnect and
+ * connect-error events arriving together can never stack retries. Attempts back off
+ * exponentially with full jitter, and are suspended entirely while the device has no
+ * network; the first attempt after the network returns starts the backoff over.
+ *
+ * Not thread-safe: drive it from one thread (the UI thread on Android).
+ */
+public final class ReconnectController {
+
+    public enum State {
+        /** Socket connected */
+        CONNECTED,
+        /** Attempt scheduled, waiting for its backoff delay */
+        WAITING,
+        /** Attempt in flight */
+        CONNECTING,
+        /** No network; nothing scheduled until it returns */
+        SUSPENDED,
+        /** Reconnection switched off (user disconnect, shutdown) */
+        DISABLED
+    }
+
+    /**
+     * Side effects the platform layer performs for the controller
+     */
+    public interface Actions {
+        void scheduleAttempt(long delayMillis);
+
+        void cancelAttempt();
+
+        void connectNow();
+    }
+
+    private final Actions actions;
+    private final ExponentialBackoff backoff;
+
+    private State state = State.DISABLED;
+    private boolean networkAvailable = true;
+    private int consecutiveFailures = 0;
+    private long disconnectedSinceMillis = -1;
+
+    // Metrics
+    private long attempts = 0;
+    private long reconnects = 0;
+    private long duplicateSignals = 0;
+    private long lastTimeToReconnectMillis = 0;
+    private long maxTimeToReconnectMillis = 0;
+
+    public ReconnectController(Actions actions, ExponentialBackoff backoff) {
+        this.actions = actions;
+        this.backoff = backoff;
+    }
+
+    // ========================================
+    // EVENTS
+    // ========================================
+
+    /**
+     * Explicit connect (startup, resume, user tap): connects immediately
+     */
+    public void requestConnect(long nowMillis) {
+        if (state == State.CONNECTED || state == State.CONNECTING) {
+            return;
+        }
+        if (disconnectedSinceMillis < 0) {
+            disconnectedSinceMillis = nowMillis;
+        }
+        actions.cancelAttempt();
+        if (!networkAvailable) {
+            state = State.SUSPENDED;
+            return;
+        }
+        startAttempt();
+    }
+
+    /**
+     * Explicit disconnect or shutdown: no further attempts until {@link #requestConnect}
+     */
+    public void disable() {
+        actions.cancelAttempt();
+        state = State.DISABLED;
+        disconnectedSinceMillis = -1;
+    }
+
+    public void onConnected(long nowMillis) {
+        actions.cancelAttempt();
+        if (disconnectedSinceMillis >= 0) {
+            lastTimeToReconnectMillis = nowMillis - disconnectedSinceMillis;
+            maxTimeToReconnectMillis = Math.max(maxTimeToReconnectMillis, lastTimeToReconnectMillis);
+            reconnects++;
+        }
+        disconnectedSinceMillis = -1;
+        consecutiveFailures = 0;
+        state = State.CONNECTED;
+    }
+
+    /**
+     * Disconnect or connect error; duplicate signals while an attempt is pending are ignored
+     */
+    public void onConnectionLost(long nowMillis) {
+        if (state == State.DISABLED) {
+            return;
+        }
+        if (state == State.WAITING || state == State.SUSPENDED) {
+            duplicateSignals++;
+            return;
+        }
+
+        if (disconnectedSinceMillis < 0) {
+            disconnectedSinceMillis = nowMillis;
+        }
+        if (state == State.CONNECTING) {
+            consecutiveFailures++;
+        }
+
+        if (!networkAvailable) {
+            state = State.SUSPENDED;
+            return;
+        }
+        scheduleNext();
+    }
+
+    /**
+     * The delay posted via {@link Actions#scheduleAttempt} elapsed
+     */
+    public void onAttemptDue() {
+        if (state != State.WAITING) {
+            return;
+        }
+        startAttempt();
+    }
+
+    public void onNetworkAvailable() {
+        networkAvailable = true;
+        if (state == State.SUSPENDED) {
+            consecutiveFailures = 0;
+            scheduleNext();
+        }
+    }
+
+    public void onNetworkLost() {
+        networkAvailable = false;
+        if (state == State.WAITING) {
+            actions.cancelAttempt();
+            state = State.SUSPENDED;
+        }
+    }
+
+    private void scheduleNext() {
+        state = State.WAITING;
+        actions.scheduleAttempt(backoff.delayMillis(consecutiveFailures));
+    }
+
+    private void startAttempt() {
+        state = State.CONNECTING;
+        attempts++;
+        actions.connectNow();
+    }
+
+    // ========================================
+    // METRICS
+    // ========================================
+
+    public State getState() { return state; }
+    public boolean isNetworkAvailable() { return networkAvailable; }
+    public int getConsecutiveFailures() { return consecutiveFailures; }
+    public long getAttempts() { return attempts; }
+    public long getReconnects() { return reconnects; }
+    public long getDuplicateSignals() { return duplicateSignals; }
+    public long getLastTimeToReconnectMillis() { return lastTimeToReconnectMillis; }
+    public long getMaxTimeToReconnectMillis() { return maxTimeToReconnectMillis; }
+}
@@ -0,0 +1,27 @@
+package com.example.gyrotest3.core;
+
+/**
+ * ReplayClock - Clock driven by trace timestamps instead of the system
+ */
+public final class ReplayClock implements Clock {
+
+    private long nowNanos = 0;
+
+    /**
+     * Moves the clock to a trace timestamp; never goes backwards
+     */
+    public void advanceTo(long timestampNanos) {
+        if (timestampNanos > nowNanos) {
+            nowNanos = timestampNanos;
+        }
+    }
+
+    public long nanoTime() {
+        return nowNanos;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return nowNanos / 1_000_000L;
+    }
+}
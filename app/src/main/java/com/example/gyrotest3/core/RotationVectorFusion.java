@@ -0,0 +1,48 @@
+package com.example.gyrotest3.core;
+
+/**
+ * RotationVectorFusion - Passes through the hardware rotation vector
+ *
+ * Used when the device exposes TYPE_ROTATION_VECTOR (or TYPE_GAME_ROTATION_VECTOR without
+ * a magnetometer), where the vendor's own fusion usually beats anything done in software.
+ * Raw sensor inputs are ignored.
+ */
+public final class RotationVectorFusion implements OrientationFusion {
+
+    private float qw = 1, qx = 0, qy = 0, qz = 0;
+    private boolean ready = false;
+
+    @Override
+    public void onAccelerometer(float x, float y, float z) {}
+
+    @Override
+    public void onMagnetometer(float x, float y, float z) {}
+
+    @Override
+    public void onGyroscope(float x, float y, float z, long timestampNanos) {}
+
+    @Override
+    public void onRotationVector(float x, float y, float z, float w) {
+        float norm = (float) Math.sqrt(w * w + x * x + y * y + z * z);
+        if (norm < 1e-6f) {
+            return;
+        }
+
+        float inv = 1.0f / norm;
+        qw = w * inv;
+        qx = x * inv;
+        qy = y * inv;
+        qz = z * inv;
+        ready = true;
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void getRotationMatrix(float[] r) {
+        Quaternions.toRotationMatrix(qw, qx, qy, qz, r);
+    }
+}
@@ -0,0 +1,302 @@
+package com.example.gyrotest3.core;
+
+import java.util.Arrays;
+
+/**
+ * RunAnalytics - Streaming per-run aggregates, so the server does not rebuild them from samples
+ *
+ * Every update is O(1) and allocation-free: running min/max/mean of pitch, roll, G-force and
+ * speed, fixed-bucket histograms of lean (roll), tilt (pitch) and G-force, jump tallies and
+ * GPS distance. {@link #summarize} copies the aggregates into a compact {@link Summary}.
+ *
+ * Means and histograms are weighted by time, not by sample count: the motion-adaptive
+ * sampling rate would otherwise over-count riding against standing still. Each sample
+ * stands for the time since the previous one, capped at {@link #MAX_SAMPLE_GAP_NANOS} so a
+ * paused sensor does not stretch the last reading over the gap.
+ *
+ * GPS distance only grows once the rider has moved further from the last counted fix than
+ * the fix accuracy, so a stationary receiver's jitter does not add up to kilometres.
+ *
+ * Not thread-safe: use from the sensor pipeline thread.
+ */
+public final class RunAnalytics {
+
+    static final long MAX_SAMPLE_GAP_NANOS = 1_000_000_000L;
+    static final float MOVING_SPEED_KMH = 2f;
+    // Fixes less accurate than this are ignored; jitter below the floor is never distance
+    static final float MAX_FIX_ACCURACY_M = 30f;
+    static final float MIN_SEGMENT_M = 5f;
+
+    private static final double EARTH_RADIUS_M = 6_371_000.0;
+
+    private long startNanos;
+    private long lastSampleNanos = -1;
+    private long samples = 0;
+    private long movingNanos = 0;
+
+    private final Stat pitch = new Stat();
+    private final Stat roll = new Stat();
+    private final Stat gForce = new Stat();
+    private final Stat speed = new Stat();
+
+    // Signed degrees in 10° buckets; G in quarter-G buckets up to 4 G
+    private final Histogram leanHistogram = new Histogram(-90f, 10f, 18);
+    private final Histogram tiltHistogram = new Histogram(-90f, 10f, 18);
+    private final Histogram gForceHistogram = new Histogram(0f, 0.25f, 16);
+
+    private int jumps = 0;
+    private long airtimeMillis = 0;
+    private long longestAirtimeMillis = 0;
+    private float maxLandingG = 0f;
+    private float maxRotationDegrees = Float.NaN;
+
+    private double distanceMeters = 0;
+    private boolean hasAnchor = false;
+    private double anchorLatitude;
+    private double anchorLongitude;
+
+    public RunAnalytics(long nowNanos) {
+        startNanos = nowNanos;
+    }
+
+    // ========================================
+    // INPUT
+    // ========================================
+
+    public void onSample(AttitudeSnapshot snapshot) {
+        long t = snapshot.timestampNanos;
+        long weight = 0;
+        if (lastSampleNanos >= 0 && t > lastSampleNanos) {
+            weight = Math.min(t - lastSampleNanos, MAX_SAMPLE_GAP_NANOS);
+        }
+        lastSampleNanos = Math.max(lastSampleNanos, t);
+        samples++;
+
+        pitch.record(snapshot.pitch, weight);
+        roll.record(snapshot.roll, weight);
+        gForce.record(snapshot.gForce, weight);
+        speed.record(snapshot.speed, weight);
+
+        leanHistogram.record(snapshot.roll, weight);
+        tiltHistogram.record(snapshot.pitch, weight);
+        gForceHistogram.record(snapshot.gForce, weight);
+
+        if (snapshot.speed >= MOVING_SPEED_KMH) {
+            movingNanos += weight;
+        }
+    }
+
+    public void onJump(JumpEvent jump) {
+        jumps++;
+        airtimeMillis += jump.airtimeMillis;
+        longestAirtimeMillis = Math.max(longestAirtimeMillis, jump.airtimeMillis);
+        maxLandingG = Math.max(maxLandingG, jump.peakLandingG);
+        if (jump.hasRotation()) {
+            float rotation = Math.abs(jump.rotationDegrees);
+            if (Float.isNaN(maxRotationDegrees) || rotation > maxRotationDegrees) {
+                maxRotationDegrees = rotation;
+            }
+        }
+    }
+
+    /**
+     * @param accuracyMeters horizontal accuracy, or NaN if unknown (taken as the floor)
+     */
+    public void onLocation(double latitude, double longitude, float accuracyMeters) {
+        if (accuracyMeters > MAX_FIX_ACCURACY_M) {
+            return;
+        }
+        if (!hasAnchor) {
+            anchorLatitude = latitude;
+            anchorLongitude = longitude;
+            hasAnchor = true;
+            return;
+        }
+
+        double segment = distanceMeters(anchorLatitude, anchorLongitude, latitude, longitude);
+        float threshold = Float.isNaN(accuracyMeters) ? MIN_SEGMENT_M : Math.max(MIN_SEGMENT_M, accuracyMeters);
+        if (segment >= threshold) {
+            distanceMeters += segment;
+            anchorLatitude = latitude;
+            anchorLongitude = longitude;
+        }
+    }
+
+    /**
+     * Starts a new run; the GPS anchor is kept so the first segment is not lost
+     */
+    public void reset(long nowNanos) {
+        startNanos = nowNanos;
+        lastSampleNanos = -1;
+        samples = 0;
+        movingNanos = 0;
+        pitch.clear();
+        roll.clear();
+        gForce.clear();
+        speed.clear();
+        leanHistogram.clear();
+        tiltHistogram.clear();
+        gForceHistogram.clear();
+        jumps = 0;
+        airtimeMillis = 0;
+        longestAirtimeMillis = 0;
+        maxLandingG = 0f;
+        maxRotationDegrees = Float.NaN;
+        distanceMeters = 0;
+    }
+
+    /**
+     * Great-circle distance by the haversine formula
+     */
+    static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_M * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    // ========================================
+    // SUMMARY
+    // ========================================
+
+    public Summary summarize(long nowNanos) {
+        return new Summary(this, nowNanos);
+    }
+
+    /**
+     * Immutable copy of the aggregates at one point in the run
+     */
+    public static final class Summary {
+        public final long durationMillis;
+        public final long samples;
+        public final long movingMillis;
+        public final double distanceMeters;
+
+        public final Stat pitch;
+        public final Stat roll;
+        public final Stat gForce;
+        public final Stat speed;
+        public final Histogram leanHistogram;
+        public final Histogram tiltHistogram;
+        public final Histogram gForceHistogram;
+
+        public final int jumps;
+        public final long airtimeMillis;
+        public final long longestAirtimeMillis;
+        public final float maxLandingG;
+        /** NaN if no jump measured rotation */
+        public final float maxRotationDegrees;
+
+        private Summary(RunAnalytics run, long nowNanos) {
+            durationMillis = Math.max(0, nowNanos - run.startNanos) / 1_000_000L;
+            samples = run.samples;
+            movingMillis = run.movingNanos / 1_000_000L;
+            distanceMeters = run.distanceMeters;
+            pitch = new Stat(run.pitch);
+            roll = new Stat(run.roll);
+            gForce = new Stat(run.gForce);
+            speed = new Stat(run.speed);
+            leanHistogram = new Histogram(run.leanHistogram);
+            tiltHistogram = new Histogram(run.tiltHistogram);
+            gForceHistogram = new Histogram(run.gForceHistogram);
+            jumps = run.jumps;
+            airtimeMillis = run.airtimeMillis;
+            longestAirtimeMillis = run.longestAirtimeMillis;
+            maxLandingG = run.maxLandingG;
+            maxRotationDegrees = run.maxRotationDegrees;
+        }
+    }
+
+    // ========================================
+    // AGGREGATES
+    // ========================================
+
+    /**
+     * Min, max and time-weighted mean of one value
+     */
+    public static final class Stat {
+        private long count = 0;
+        private float min = Float.POSITIVE_INFINITY;
+        private float max = Float.NEGATIVE_INFINITY;
+        private double weightedSum = 0;
+        private long weightNanos = 0;
+
+        Stat() {}
+
+        Stat(Stat other) {
+            count = other.count;
+            min = other.min;
+            max = other.max;
+            weightedSum = other.weightedSum;
+            weightNanos = other.weightNanos;
+        }
+
+        void record(float value, long weight) {
+            count++;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            weightedSum += (double) value * weight;
+            weightNanos += weight;
+        }
+
+        void clear() {
+            count = 0;
+            min = Float.POSITIVE_INFINITY;
+            max = Float.NEGATIVE_INFINITY;
+            weightedSum = 0;
+            weightNanos = 0;
+        }
+
+        public long getCount() { return count; }
+
+        /** NaN before the first sample */
+        public float getMin() { return count > 0 ? min : Float.NaN; }
+
+        public float getMax() { return count > 0 ? max : Float.NaN; }
+
+        /** NaN until two samples span some time */
+        public float getMean() { return weightNanos > 0 ? (float) (weightedSum / weightNanos) : Float.NaN; }
+    }
+
+    /**
+     * Time spent per fixed-width bucket; values outside the range count in the edge buckets
+     */
+    public static final class Histogram {
+        public final float min;
+        public final float bucketWidth;
+        private final long[] nanos;
+
+        Histogram(float min, float bucketWidth, int buckets) {
+            this.min = min;
+            this.bucketWidth = bucketWidth;
+            this.nanos = new long[buckets];
+        }
+
+        Histogram(Histogram other) {
+            min = other.min;
+            bucketWidth = other.bucketWidth;
+            nanos = other.nanos.clone();
+        }
+
+        void record(float value, long weight) {
+            if (weight == 0 || Float.isNaN(value)) {
+                return;
+            }
+            int bucket = (int) Math.floor((value - min) / bucketWidth);
+            nanos[Math.max(0, Math.min(nanos.length - 1, bucket))] += weight;
+        }
+
+        void clear() {
+            Arrays.fill(nanos, 0);
+        }
+
+        public int bucketCount() { return nanos.length; }
+
+        /** Lower bound of bucket {@code index} */
+        public float bucketStart(int index) { return min + index * bucketWidth; }
+
+        public long millisAt(int index) { return nanos[index] / 1_000_000L; }
+    }
+}
@@ -0,0 +1,257 @@
+package com.example.gyrotest3.core;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * SensorHistory - Recent sensor values in primitive columns, one writer and many readers
+ *
+ * A ring of {@code capacity} samples, each a timestamp plus one float per channel, stored
+ * column by column so a reader scanning one channel touches one array. Appending copies
+ * the values into the ring without allocating; once full, the oldest sample is overwritten.
+ *
+ * Readers never lock and never block the writer. They copy a time window ({@link #read}) or
+ * reduce it to min/max buckets ({@link #downsample}), then check the write counter: if the
+ * writer lapped the oldest sample they used while they were reading, the read is retried
+ * on the newer window. One slot is kept back for the sample being written, so readers see
+ * at most {@code capacity - 1} samples.
+ *
+ * The check only holds if no slot load can be reordered after the counter re-read, which a
+ * plain array load can be (a volatile read is only an acquire; on ARM64 an {@code ldar}).
+ * So slots are written with release stores and read with acquire loads through atomic
+ * arrays, floats as their raw bits: a reader that sees a slot the writer overwrote is then
+ * guaranteed to see the counter the writer published before overwriting it.
+ *
+ * Timestamps are sensor nanoseconds and must not go backwards; an older sample is dropped
+ * and counted, since binary search over the window relies on the order.
+ *
+ * Thread-safety: {@link #append} from one thread (the sensor pipeline thread); reads from any.
+ */
+public final class SensorHistory {
+
+    /** Channel layout of {@link #append(AttitudeSnapshot)} */
+    public static final int PITCH = 0;
+    public static final int ROLL = 1;
+    public static final int YAW = 2;
+    public static final int GFORCE = 3;
+    public static final int SPEED = 4;
+    public static final int ATTITUDE_CHANNELS = 5;
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicLongArray timestamps;
+    private final AtomicIntegerArray[] columns; // Float.floatToRawIntBits
+
+    // Samples ever appended; the volatile write publishes the slot written before it
+    private volatile long writeCount = 0;
+
+    // Writer thread only
+    private long lastTimestampNanos = Long.MIN_VALUE;
+    private long outOfOrder = 0;
+
+    /**
+     * @param capacity ring size, a power of two
+     */
+    public SensorHistory(int capacity, int channels) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two >= 2, got " + capacity);
+        }
+        if (channels <= 0) {
+            throw new IllegalArgumentException("Channels must be positive, got " + channels);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.timestamps = new AtomicLongArray(capacity);
+        this.columns = new AtomicIntegerArray[channels];
+        for (int c = 0; c < channels; c++) {
+            columns[c] = new AtomicIntegerArray(capacity);
+        }
+    }
+
+    // ========================================
+    // WRITING (one thread)
+    // ========================================
+
+    /**
+     * @param values one value per channel; copied
+     */
+    public void append(long timestampNanos, float[] values) {
+        if (values.length < columns.length) {
+            throw new IllegalArgumentException("Need " + columns.length + " values, got " + values.length);
+        }
+        if (!accept(timestampNanos)) {
+            return;
+        }
+        long count = writeCount;
+        int slot = (int) count & mask;
+        timestamps.lazySet(slot, timestampNanos);
+        for (int c = 0; c < columns.length; c++) {
+            columns[c].lazySet(slot, Float.floatToRawIntBits(values[c]));
+        }
+        writeCount = count + 1;
+    }
+
+    /**
+     * Appends pitch, roll, yaw, G-force and speed; needs {@link #ATTITUDE_CHANNELS} channels
+     */
+    public void append(AttitudeSnapshot snapshot) {
+        if (columns.length != ATTITUDE_CHANNELS) {
+            throw new IllegalArgumentException("Not an attitude history: " + columns.length + " channels");
+        }
+        if (!accept(snapshot.timestampNanos)) {
+            return;
+        }
+        long count = writeCount;
+        int slot = (int) count & mask;
+        timestamps.lazySet(slot, snapshot.timestampNanos);
+        columns[PITCH].lazySet(slot, Float.floatToRawIntBits(snapshot.pitch));
+        columns[ROLL].lazySet(slot, Float.floatToRawIntBits(snapshot.roll));
+        columns[YAW].lazySet(slot, Float.floatToRawIntBits(snapshot.yaw));
+        columns[GFORCE].lazySet(slot, Float.floatToRawIntBits(snapshot.gForce));
+        columns[SPEED].lazySet(slot, Float.floatToRawIntBits(snapshot.speed));
+        writeCount = count + 1;
+    }
+
+    private boolean accept(long timestampNanos) {
+        if (timestampNanos < lastTimestampNanos) {
+            outOfOrder++;
+            return false;
+        }
+        lastTimestampNanos = timestampNanos;
+        return true;
+    }
+
+    // ========================================
+    // READING (any thread)
+    // ========================================
+
+    /**
+     * Copies the samples in {@code [fromNanos, toNanos)}, oldest first, as far as the output
+     * arrays reach
+     *
+     * @return the number of samples copied
+     */
+    public int read(int channel, long fromNanos, long toNanos, long[] timestampsOut, float[] valuesOut) {
+        AtomicIntegerArray column = column(channel);
+        int limit = Math.min(timestampsOut.length, valuesOut.length);
+        while (true) {
+            long end = writeCount;
+            long first = firstAtOrAfter(oldestReadable(end), end, fromNanos);
+            int n = 0;
+            for (long i = first; i < end && n < limit; i++) {
+                int slot = (int) i & mask;
+                long t = timestamps.get(slot);
+                if (t >= toNanos) {
+                    break;
+                }
+                timestampsOut[n] = t;
+                valuesOut[n] = Float.intBitsToFloat(column.get(slot));
+                n++;
+            }
+            if (first >= oldestReadable(writeCount)) {
+                return n;
+            }
+        }
+    }
+
+    /**
+     * Splits {@code [fromNanos, toNanos)} into {@code minOut.length} equal time buckets and
+     * stores each bucket's min and max; buckets without samples get NaN. The cost depends on
+     * the number of samples in the window, the output size does not.
+     *
+     * @return the number of samples in the window
+     */
+    public int downsample(int channel, long fromNanos, long toNanos, float[] minOut, float[] maxOut) {
+        AtomicIntegerArray column = column(channel);
+        int buckets = minOut.length;
+        if (maxOut.length != buckets || buckets == 0) {
+            throw new IllegalArgumentException("Need equal, non-empty min/max arrays");
+        }
+        if (toNanos <= fromNanos) {
+            throw new IllegalArgumentException("Empty window: " + fromNanos + ".." + toNanos);
+        }
+        double bucketsPerNano = (double) buckets / (toNanos - fromNanos);
+        while (true) {
+            Arrays.fill(minOut, Float.NaN);
+            Arrays.fill(maxOut, Float.NaN);
+            long end = writeCount;
+            long first = firstAtOrAfter(oldestReadable(end), end, fromNanos);
+            int n = 0;
+            for (long i = first; i < end; i++) {
+                int slot = (int) i & mask;
+                long t = timestamps.get(slot);
+                if (t >= toNanos) {
+                    break;
+                }
+                int bucket = Math.min(buckets - 1, (int) ((t - fromNanos) * bucketsPerNano));
+                float value = Float.intBitsToFloat(column.get(slot));
+                if (!(value >= minOut[bucket])) { // also replaces NaN
+                    minOut[bucket] = value;
+                }
+                if (!(value <= maxOut[bucket])) {
+                    maxOut[bucket] = value;
+                }
+                n++;
+            }
+            if (first >= oldestReadable(writeCount)) {
+                return n;
+            }
+        }
+    }
+
+    /**
+     * Timestamp of the newest sample, or {@link Long#MIN_VALUE} while empty
+     */
+    public long getLatestTimestampNanos() {
+        long end = writeCount;
+        return end > 0 ? timestamps.get((int) (end - 1) & mask) : Long.MIN_VALUE;
+    }
+
+    /**
+     * Newest value of {@code channel}, or NaN while empty
+     */
+    public float getLatest(int channel) {
+        AtomicIntegerArray column = column(channel);
+        long end = writeCount;
+        return end > 0 ? Float.intBitsToFloat(column.get((int) (end - 1) & mask)) : Float.NaN;
+    }
+
+    public int getCapacity() { return capacity; }
+    public int getChannels() { return columns.length; }
+    public long getWriteCount() { return writeCount; }
+
+    /** Writer thread only */
+    public long getOutOfOrder() { return outOfOrder; }
+
+    private AtomicIntegerArray column(int channel) {
+        if (channel < 0 || channel >= columns.length) {
+            throw new IllegalArgumentException("No channel " + channel + " of " + columns.length);
+        }
+        return columns[channel];
+    }
+
+    /**
+     * Oldest sample the writer cannot be overwriting while {@code end} samples are published
+     */
+    private long oldestReadable(long end) {
+        return Math.max(0, end - capacity + 1);
+    }
+
+    /**
+     * Binary search for the first sample in {@code [start, end)} at or after {@code nanos}
+     */
+    private long firstAtOrAfter(long start, long end, long nanos) {
+        long low = start;
+        long high = end;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (timestamps.get((int) mid & mask) < nanos) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
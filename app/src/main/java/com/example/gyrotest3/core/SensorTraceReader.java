@@ -0,0 +1,132 @@
+package com.example.gyrotest3.core;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * SensorTraceReader - Streams records out of a {@link SensorTraceWriter} trace
+ *
+ * The values array handed to {@link Visitor#onSensor} is reused between records; copy it
+ * if it must outlive the callback.
+ */
+public final class SensorTraceReader implements Closeable {
+
+    public interface Visitor {
+        void onSensor(int sensorType, long timestampNanos, float[] values, int valueCount, int accuracy);
+
+        void onLocation(long elapsedNanos, double latitude, double longitude,
+                        float speed, float speedAccuracy, float accuracy, float bearing);
+    }
+
+    private final DataInputStream in;
+    private final float[] values = new float[SensorTraceWriter.MAX_VALUES];
+    private final int version;
+    private long lastTimestampNanos = 0;
+    private long recordsRead = 0;
+    private boolean truncated = false;
+
+    public SensorTraceReader(InputStream stream) throws IOException {
+        in = new DataInputStream(new BufferedInputStream(stream, 64 * 1024));
+        if (in.readInt() != SensorTraceWriter.MAGIC) {
+            throw new IOException("Not a sensor trace");
+        }
+        version = in.readUnsignedByte();
+        if (version < 1 || version > SensorTraceWriter.VERSION) {
+            throw new IOException("Unsupported trace version " + version);
+        }
+    }
+
+    /**
+     * Reads one record into {@code visitor}
+     *
+     * @return false at the end of the trace, including a torn final record
+     */
+    public boolean next(Visitor visitor) throws IOException {
+        int tag = in.read();
+        if (tag < 0) {
+            return false;
+        }
+
+        try {
+            switch (tag) {
+                case SensorTraceWriter.TAG_SENSOR: {
+                    int sensorType = (int) readVarint();
+                    long timestamp = readTimestamp();
+                    int accuracy = in.readByte();
+                    int count = in.readUnsignedByte();
+                    if (count > values.length) {
+                        throw new IOException("Corrupt trace: " + count + " sensor values");
+                    }
+                    for (int i = 0; i < count; i++) {
+                        values[i] = in.readFloat();
+                    }
+                    recordsRead++;
+                    visitor.onSensor(sensorType, timestamp, values, count, accuracy);
+                    return true;
+                }
+                case SensorTraceWriter.TAG_LOCATION: {
+                    long timestamp = readTimestamp();
+                    double latitude = in.readDouble();
+                    double longitude = in.readDouble();
+                    float speed = in.readFloat();
+                    float speedAccuracy = in.readFloat();
+                    float accuracy = in.readFloat();
+                    float bearing = version >= 2 ? in.readFloat() : Float.NaN;
+                    recordsRead++;
+                    visitor.onLocation(timestamp, latitude, longitude, speed, speedAccuracy, accuracy, bearing);
+                    return true;
+                }
+                default:
+                    throw new IOException("Corrupt trace: unknown record tag " + tag);
+            }
+        } catch (EOFException e) {
+            truncated = true;
+            return false;
+        }
+    }
+
+    /**
+     * @return number of records read
+     */
+    public long readAll(Visitor visitor) throws IOException {
+        long start = recordsRead;
+        while (next(visitor)) {
+            // Visitor does the work
+        }
+        return recordsRead - start;
+    }
+
+    public long getRecordsRead() { return recordsRead; }
+
+    /**
+     * True if the trace ended in the middle of a record (recording was killed)
+     */
+    public boolean isTruncated() { return truncated; }
+
+    private long readTimestamp() throws IOException {
+        long zigzag = readVarint();
+        lastTimestampNanos += (zigzag >>> 1) ^ -(zigzag & 1);
+        return lastTimestampNanos;
+    }
+
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt trace: varint too long");
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
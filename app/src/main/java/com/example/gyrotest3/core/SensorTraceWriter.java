@@ -0,0 +1,109 @@
+package com.example.gyrotest3.core;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * SensorTraceWriter - Compact binary recorder for raw sensor and location streams
+ *
+ * Trace layout (big-endian):
+ *
+ *   header      "GTRC" + version byte
+ *   record*     tag byte, then:
+ *
+ *   {@link #TAG_SENSOR}    type varint, time delta, accuracy byte, count byte, count x float32
+ *   {@link #TAG_LOCATION}  time delta, latitude/longitude float64, speed m/s, speed accuracy,
+ *                          horizontal accuracy, bearing float32 (NaN when the fix has none)
+ *
+ * Version 1 traces have no bearing field; readers still accept them.
+ *
+ * Time deltas are zigzag varints in nanoseconds from the previous record, since events
+ * from different sensors may arrive slightly out of order. A trace cut short by process
+ * death simply ends at the last complete record.
+ *
+ * Not thread-safe: write from the sensor pipeline thread.
+ */
+public final class SensorTraceWriter implements Closeable, Flushable {
+
+    static final int MAGIC = 0x47545243; // "GTRC"
+    static final int VERSION = 2;
+
+    static final int TAG_SENSOR = 1;
+    static final int TAG_LOCATION = 2;
+
+    static final int MAX_VALUES = 16;
+
+    private final DataOutputStream out;
+    private long lastTimestampNanos = 0;
+    private long recordsWritten = 0;
+
+    public SensorTraceWriter(OutputStream stream) throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(stream, 64 * 1024));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+    }
+
+    public void writeSensor(int sensorType, long timestampNanos, float[] values, int valueCount, int accuracy)
+            throws IOException {
+        int count = Math.min(valueCount, MAX_VALUES);
+
+        out.writeByte(TAG_SENSOR);
+        writeVarint(sensorType);
+        writeTimestamp(timestampNanos);
+        out.writeByte(accuracy);
+        out.writeByte(count);
+        for (int i = 0; i < count; i++) {
+            out.writeFloat(values[i]);
+        }
+        recordsWritten++;
+    }
+
+    /**
+     * @param elapsedNanos  fix time on the same clock as sensor timestamps (elapsed realtime)
+     * @param speedAccuracy m/s, NaN if unknown
+     * @param accuracy      metres, NaN if unknown
+     * @param bearing       degrees clockwise from north, NaN if unknown
+     */
+    public void writeLocation(long elapsedNanos, double latitude, double longitude,
+                              float speed, float speedAccuracy, float accuracy, float bearing) throws IOException {
+        out.writeByte(TAG_LOCATION);
+        writeTimestamp(elapsedNanos);
+        out.writeDouble(latitude);
+        out.writeDouble(longitude);
+        out.writeFloat(speed);
+        out.writeFloat(speedAccuracy);
+        out.writeFloat(accuracy);
+        out.writeFloat(bearing);
+        recordsWritten++;
+    }
+
+    public long getRecordsWritten() { return recordsWritten; }
+
+    private void writeTimestamp(long timestampNanos) throws IOException {
+        long delta = timestampNanos - lastTimestampNanos;
+        lastTimestampNanos = timestampNanos;
+        writeVarint((delta << 1) ^ (delta >> 63));
+    }
+
+    private void writeVarint(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
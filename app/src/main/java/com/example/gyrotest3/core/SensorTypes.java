@@ -0,0 +1,17 @@
+package com.example.gyrotest3.core;
+
+/**
+ * SensorTypes - The android.hardware.Sensor type constants the processing path uses,
+ * mirrored so traces can be replayed without the Android framework
+ */
+public final class SensorTypes {
+
+    public static final int ACCELEROMETER = 1;         // Sensor.TYPE_ACCELEROMETER
+    public static final int MAGNETIC_FIELD = 2;        // Sensor.TYPE_MAGNETIC_FIELD
+    public static final int GYROSCOPE = 4;             // Sensor.TYPE_GYROSCOPE
+    public static final int ROTATION_VECTOR = 11;      // Sensor.TYPE_ROTATION_VECTOR
+    public static final int GAME_ROTATION_VECTOR = 15; // Sensor.TYPE_GAME_ROTATION_VECTOR
+    public static final int STEP_COUNTER = 19;         // Sensor.TYPE_STEP_COUNTER
+
+    private SensorTypes() {}
+}
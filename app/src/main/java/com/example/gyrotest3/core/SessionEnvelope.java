@@ -0,0 +1,65 @@
+package com.example.gyrotest3.core;
+
+/**
+ * SessionEnvelope - Session id prefix for binary telemetry on a registered connection
+ *
+ * Layout:
+ *
+ *   tag        1 byte   0xA5, never the first byte of a frame, batch or stream message
+ *   sessionId  varint   id the server returned for register_session
+ *   payload    rest     attitude_frame / attitude_batch / attitude_stream message, unchanged
+ *
+ * The session carries device id, rider and sensor setup once, so hot messages carry only
+ * the id and the measurements. Messages without the tag are legacy, unregistered senders.
+ */
+public final class SessionEnvelope {
+
+    public static final int TAG = 0xA5;
+    public static final int MAX_HEADER_SIZE = 1 + 5;
+
+    private SessionEnvelope() {}
+
+    public static byte[] wrap(int sessionId, byte[] payload) {
+        return wrap(sessionId, payload, 0, payload.length);
+    }
+
+    /**
+     * Copies {@code payload[offset, offset + length)} behind a session header
+     */
+    public static byte[] wrap(int sessionId, byte[] payload, int offset, int length) {
+        if (sessionId <= 0) {
+            throw new IllegalArgumentException("Invalid session id: " + sessionId);
+        }
+        int headerLength = 1 + AttitudeFrameCodec.varintLength(sessionId);
+        byte[] out = new byte[headerLength + length];
+        out[0] = (byte) TAG;
+        AttitudeFrameCodec.putVarint(out, 1, sessionId);
+        System.arraycopy(payload, offset, out, headerLength, length);
+        return out;
+    }
+
+    public static boolean isEnveloped(byte[] in, int offset, int length) {
+        return length > 0 && (in[offset] & 0xFF) == TAG;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the message has no envelope or it is truncated
+     */
+    public static int sessionId(byte[] in, int offset, int length) {
+        if (!isEnveloped(in, offset, length)) {
+            throw new IllegalArgumentException("No session envelope");
+        }
+        long sessionId = AttitudeFrameCodec.getVarint(in, offset + 1, offset + length);
+        if (sessionId <= 0 || sessionId > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid session id: " + sessionId);
+        }
+        return (int) sessionId;
+    }
+
+    /**
+     * Bytes before the payload of an enveloped message
+     */
+    public static int headerLength(byte[] in, int offset, int length) {
+        return 1 + AttitudeFrameCodec.varintLength(sessionId(in, offset, length));
+    }
+}
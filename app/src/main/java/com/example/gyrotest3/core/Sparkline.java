@@ -0,0 +1,211 @@
+package com.example.gyrotest3.core;
+
+import java.util.Arrays;
+
+/**
+ * Sparkline - Rolling graph of one {@link SensorHistory} channel at a fixed number of columns
+ *
+ * The window is split into {@code buckets} equal time columns, each keeping the first, last,
+ * min and max sample that fell into it. Drawing a vertical min..max line per column and
+ * joining each column's last value to the next column's first draws the same picture as
+ * the raw samples at that width, so a 200 Hz spike still shows up.
+ *
+ * {@link #update} only reads samples newer than the previous call and advances the column
+ * ring as time passes, so a frame costs the samples that arrived since the last frame plus
+ * {@code buckets} columns in {@link #toLines}, whatever the sample rate and window length.
+ *
+ * Not thread-safe: update and draw from one thread (the main thread on Android).
+ */
+public final class Sparkline {
+
+    private static final int READ_CHUNK = 64;
+    // Columns further apart than this are not joined: the sensors were off in between
+    static final long MAX_JOIN_GAP_NANOS = 1_000_000_000L;
+
+    private final int channel;
+    private final int buckets;
+    private long bucketNanos;
+    private int maxJoinBuckets;
+
+    // Column ring indexed by absolute bucket number (timestamp / bucketNanos) modulo buckets
+    private final float[] first;
+    private final float[] last;
+    private final float[] min;
+    private final float[] max;
+    private long newestBucket = Long.MIN_VALUE;
+    private long lastReadNanos = Long.MIN_VALUE;
+
+    private final long[] chunkTimes = new long[READ_CHUNK];
+    private final float[] chunkValues = new float[READ_CHUNK];
+
+    public Sparkline(int channel, int buckets, long windowNanos) {
+        if (buckets < 2) {
+            throw new IllegalArgumentException("Need at least 2 buckets, got " + buckets);
+        }
+        this.channel = channel;
+        this.buckets = buckets;
+        first = new float[buckets];
+        last = new float[buckets];
+        min = new float[buckets];
+        max = new float[buckets];
+        setWindow(windowNanos);
+    }
+
+    /**
+     * Changes the time span shown; clears the graph, which refills from history on the next update
+     */
+    public void setWindow(long windowNanos) {
+        if (windowNanos < buckets) {
+            throw new IllegalArgumentException("Window too short for " + buckets + " buckets: " + windowNanos);
+        }
+        bucketNanos = windowNanos / buckets;
+        maxJoinBuckets = Math.max(1, (int) (MAX_JOIN_GAP_NANOS / bucketNanos));
+        clear();
+    }
+
+    public void clear() {
+        Arrays.fill(first, Float.NaN);
+        Arrays.fill(last, Float.NaN);
+        Arrays.fill(min, Float.NaN);
+        Arrays.fill(max, Float.NaN);
+        newestBucket = Long.MIN_VALUE;
+        lastReadNanos = Long.MIN_VALUE;
+    }
+
+    // ========================================
+    // UPDATE
+    // ========================================
+
+    /**
+     * Takes in the samples appended since the last call; the graph ends at the newest sample
+     *
+     * @return true if the graph changed
+     */
+    public boolean update(SensorHistory history) {
+        long latest = history.getLatestTimestampNanos();
+        if (latest == Long.MIN_VALUE || latest <= lastReadNanos) {
+            return false;
+        }
+        // After a long pause only the visible window is worth reading
+        long from = Math.max(lastReadNanos + 1, latest - bucketNanos * buckets);
+        int n;
+        do {
+            n = history.read(channel, from, Long.MAX_VALUE, chunkTimes, chunkValues);
+            for (int i = 0; i < n; i++) {
+                add(chunkTimes[i], chunkValues[i]);
+            }
+            if (n > 0) {
+                from = chunkTimes[n - 1] + 1;
+                lastReadNanos = chunkTimes[n - 1];
+            }
+        } while (n == READ_CHUNK);
+        return true;
+    }
+
+    /**
+     * Adds one sample; samples older than the window are ignored
+     */
+    void add(long timestampNanos, float value) {
+        long bucket = Math.floorDiv(timestampNanos, bucketNanos);
+        if (newestBucket == Long.MIN_VALUE) {
+            newestBucket = bucket;
+        } else if (bucket > newestBucket) {
+            // Columns scrolling in start empty; a gap longer than the window empties them all
+            long clearFrom = Math.max(newestBucket + 1, bucket - buckets + 1);
+            for (long b = clearFrom; b <= bucket; b++) {
+                int slot = slot(b);
+                first[slot] = Float.NaN;
+                last[slot] = Float.NaN;
+                min[slot] = Float.NaN;
+                max[slot] = Float.NaN;
+            }
+            newestBucket = bucket;
+        } else if (bucket <= newestBucket - buckets) {
+            return;
+        }
+
+        int slot = slot(bucket);
+        if (Float.isNaN(first[slot])) {
+            first[slot] = value;
+            min[slot] = value;
+            max[slot] = value;
+        } else {
+            min[slot] = Math.min(min[slot], value);
+            max[slot] = Math.max(max[slot], value);
+        }
+        last[slot] = value;
+    }
+
+    private int slot(long bucket) {
+        return (int) Math.floorMod(bucket, (long) buckets);
+    }
+
+    // ========================================
+    // DRAWING
+    // ========================================
+
+    /**
+     * Floats needed by {@link #toLines}: two segments per column
+     */
+    public int maxLineFloats() {
+        return buckets * 8;
+    }
+
+    /**
+     * Largest value in the window, or NaN while empty; for auto-scaling
+     */
+    public float maxValue() {
+        float result = Float.NaN;
+        for (float value : max) {
+            if (!Float.isNaN(value) && !(value <= result)) {
+                result = value;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes line segments (x0, y0, x1, y1 each) for Canvas.drawLines into {@code out}, oldest
+     * column at {@code left}; values are clamped to {@code [low, high]}, high at {@code top}
+     *
+     * @return the number of floats written
+     */
+    public int toLines(float[] out, float left, float top, float width, float height, float low, float high) {
+        if (newestBucket == Long.MIN_VALUE) {
+            return 0;
+        }
+        float columnWidth = width / (buckets - 1);
+        float scale = height / (high - low);
+        float bottom = top + height;
+        int n = 0;
+        int previous = -1;
+        float previousX = 0;
+        float previousY = 0;
+        for (int i = 0; i < buckets; i++) {
+            int slot = slot(newestBucket - buckets + 1 + i);
+            if (Float.isNaN(first[slot])) {
+                continue; // slow sensors leave columns empty
+            }
+            float x = left + i * columnWidth;
+            float firstY = y(first[slot], low, high, bottom, scale);
+            if (previous >= 0 && i - previous <= maxJoinBuckets) {
+                out[n++] = previousX;
+                out[n++] = previousY;
+                out[n++] = x;
+                out[n++] = firstY;
+            }
+            out[n++] = x;
+            out[n++] = y(max[slot], low, high, bottom, scale);
+            out[n++] = x;
+            out[n++] = y(min[slot], low, high, bottom, scale);
+            previous = i;
+            previousX = x;
+            previousY = y(last[slot], low, high, bottom, scale);
+        }
+        return n;
+    }
+
+    private static float y(float value, float low, float high, float bottom, float scale) {
+        return bottom - (Math.max(low, Math.min(high, value)) - low) * scale;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.gyrotest3.core;
+
+/**
+ * SpeedKalmanFilter - Ground speed from GPS fixes and integrated forward acceleration
+ *
+ * Two-state Kalman filter over [speed m/s, accelerometer bias m/s²]. Between fixes the
+ * speed is propagated with the measured forward acceleration, minus the learned bias;
+ * each GPS fix is then weighted by its own reported speed accuracy, so a poor fix nudges
+ * the estimate instead of snapping it. Every step uses the real event time delta, so
+ * the result does not depend on the sensor rate.
+ *
+ * When no fix has arrived for {@link #GPS_STALE_NANOS}, integrated acceleration can no
+ * longer be trusted and the speed decays towards zero with a fixed time constant.
+ *
+ * Not thread-safe: use from the sensor pipeline thread.
+ */
+public final class SpeedKalmanFilter {
+
+    /** Fixes without a reported speed accuracy are assumed this good, m/s */
+    static final float DEFAULT_GPS_SPEED_ACCURACY = 1.0f;
+    static final long GPS_STALE_NANOS = 3_000_000_000L;
+    static final float STALE_DECAY_SECONDS = 3.0f;
+
+    private static final float ACCEL_NOISE_PSD = 0.5f;      // (m/s²)²/Hz with a forward acceleration
+    private static final float UNMODELED_ACCEL_PSD = 4.0f;  // without one
+    private static final float BIAS_DRIFT_PSD = 0.001f;
+    private static final float INITIAL_SPEED_VARIANCE = 100f;
+    private static final float INITIAL_BIAS_VARIANCE = 0.25f;
+    private static final long MAX_STEP_NANOS = 500_000_000L;
+    private static final float MIN_SPEED = 0.1f / 3.6f; // below 0.1 km/h reads as stopped
+
+    private float speed = 0;
+    private float bias = 0;
+    private float pSpeed = INITIAL_SPEED_VARIANCE;
+    private float pCross = 0;
+    private float pBias = INITIAL_BIAS_VARIANCE;
+
+    private long lastTimestampNanos = 0;
+    private long lastFixNanos = Long.MIN_VALUE;
+    private long fixes = 0;
+
+    // ========================================
+    // PREDICT
+    // ========================================
+
+    /**
+     * Advances the estimate to {@code timestampNanos}
+     *
+     * @param forwardAccel acceleration along the direction of travel in m/s², or NaN if unknown
+     */
+    public void predict(long timestampNanos, float forwardAccel) {
+        long previous = lastTimestampNanos;
+        if (previous == 0 || timestampNanos <= previous) {
+            if (previous == 0) {
+                lastTimestampNanos = timestampNanos;
+            }
+            return;
+        }
+        lastTimestampNanos = timestampNanos;
+
+        long stepNanos = timestampNanos - previous;
+        boolean integrate = !Float.isNaN(forwardAccel) && stepNanos <= MAX_STEP_NANOS;
+        float dt = stepNanos * 1e-9f;
+
+        if (isGpsStale(timestampNanos)) {
+            speed *= (float) Math.exp(-dt / STALE_DECAY_SECONDS);
+            pSpeed += UNMODELED_ACCEL_PSD * dt;
+        } else if (integrate) {
+            // F = [1 -dt; 0 1], u = forwardAccel * dt
+            speed += (forwardAccel - bias) * dt;
+            pSpeed += -2 * dt * pCross + dt * dt * pBias + ACCEL_NOISE_PSD * dt;
+            pCross -= dt * pBias;
+        } else {
+            pSpeed += UNMODELED_ACCEL_PSD * dt;
+        }
+        pBias += BIAS_DRIFT_PSD * dt;
+
+        if (speed < 0) {
+            speed = 0;
+        }
+    }
+
+    // ========================================
+    // UPDATE
+    // ========================================
+
+    /**
+     * @param speedMs         GPS ground speed, m/s
+     * @param speedAccuracyMs 1-sigma speed accuracy reported with the fix, or NaN
+     */
+    public void onGpsSpeed(long timestampNanos, float speedMs, float speedAccuracyMs) {
+        predict(timestampNanos, Float.NaN);
+
+        float sigma = (Float.isNaN(speedAccuracyMs) || speedAccuracyMs <= 0)
+                ? DEFAULT_GPS_SPEED_ACCURACY : speedAccuracyMs;
+        float innovation = speedMs - speed;
+        float s = pSpeed + sigma * sigma;
+        float kSpeed = pSpeed / s;
+        float kBias = pCross / s;
+
+        speed += kSpeed * innovation;
+        bias += kBias * innovation;
+        pBias -= kBias * pCross;
+        pCross *= 1 - kSpeed;
+        pSpeed *= 1 - kSpeed;
+
+        if (speed < 0) {
+            speed = 0;
+        }
+        lastFixNanos = timestampNanos;
+        fixes++;
+    }
+
+    private boolean isGpsStale(long timestampNanos) {
+        return fixes == 0 || timestampNanos - lastFixNanos > GPS_STALE_NANOS;
+    }
+
+    // ========================================
+    // OUTPUT
+    // ========================================
+
+    public float getSpeed() {
+        return speed < MIN_SPEED ? 0 : speed;
+    }
+
+    public float getSpeedKmh() {
+        return getSpeed() * 3.6f;
+    }
+
+    /**
+     * 1-sigma uncertainty of {@link #getSpeed}, m/s
+     */
+    public float getSpeedStdDev() {
+        return (float) Math.sqrt(pSpeed);
+    }
+
+    public float getBias() { return bias; }
+    public long getFixes() { return fixes; }
+}
@@ -0,0 +1,222 @@
+package com.example.gyrotest3.core;
+
+/**
+ * StreamControl - Per-device telemetry settings pushed by the server
+ *
+ * A {@code stream_control} command can pause the stream, stretch the upload spacing,
+ * trim the field set, pick the encoding and slow the motion sensors. Unset values leave
+ * the client's own choice in place: the motion-adaptive rates of {@link MotionState} and
+ * the wire format from preferences. Rates only ever get slower than the motion state asks
+ * for, so a server shedding load cannot make an idle phone sample at riding rates.
+ *
+ * While the stream is paused the client sends nothing and samples at {@link MotionState#IDLE}
+ * rates. Settings belong to the server that sent them and are cleared on reconnect.
+ *
+ * Not thread-safe: drive it from one thread (the sensor pipeline thread on Android).
+ */
+public final class StreamControl {
+
+    public static final String ENCODING_JSON = "json";
+    public static final String ENCODING_BINARY = "binary";
+    public static final String ENCODING_DELTA = "delta";
+
+    /** Field bits, shared with the delta stream's change mask */
+    public static final int ALL_FIELDS = AttitudeStreamEncoder.FIELD_PITCH | AttitudeStreamEncoder.FIELD_YAW
+            | AttitudeStreamEncoder.FIELD_ROLL | AttitudeStreamEncoder.FIELD_GFORCE
+            | AttitudeStreamEncoder.FIELD_SPEED | AttitudeStreamEncoder.FIELD_FLAGS
+            | AttitudeStreamEncoder.FIELD_STEPS;
+
+    private static final String[] FIELD_NAMES = {"pitch", "yaw", "roll", "gforce", "speed", "airborne", "steps"};
+    private static final int[] FIELD_BITS = {AttitudeStreamEncoder.FIELD_PITCH, AttitudeStreamEncoder.FIELD_YAW,
+            AttitudeStreamEncoder.FIELD_ROLL, AttitudeStreamEncoder.FIELD_GFORCE, AttitudeStreamEncoder.FIELD_SPEED,
+            AttitudeStreamEncoder.FIELD_FLAGS, AttitudeStreamEncoder.FIELD_STEPS};
+
+    // Longest spacing a server may ask for; anything slower looks like a paused stream anyway
+    static final long MAX_SEND_INTERVAL_MILLIS = 60_000;
+    static final int MAX_SAMPLING_PERIOD_US = 1_000_000;
+
+    private boolean streaming = true;
+    private long minSendIntervalMillis = 0;
+    private int minSamplingPeriodUs = 0;
+    private int fields = ALL_FIELDS;
+    private String encoding = null;
+
+    private long commandsApplied = 0;
+    private long commandsRejected = 0;
+
+    /**
+     * One server command; null values leave the current setting unchanged
+     */
+    public static final class Command {
+        public final boolean reset;
+        public final Boolean streaming;
+        public final Long sendIntervalMillis;
+        public final Integer samplingPeriodUs;
+        public final String[] fields;
+        public final String encoding;
+
+        /**
+         * @param reset applied first: back to the client's defaults
+         */
+        public Command(boolean reset, Boolean streaming, Long sendIntervalMillis, Integer samplingPeriodUs,
+                       String[] fields, String encoding) {
+            this.reset = reset;
+            this.streaming = streaming;
+            this.sendIntervalMillis = sendIntervalMillis;
+            this.samplingPeriodUs = samplingPeriodUs;
+            this.fields = fields;
+            this.encoding = encoding;
+        }
+    }
+
+    /**
+     * Validates the whole command before changing anything, so a bad command changes nothing
+     *
+     * @return true if any setting changed
+     * @throws IllegalArgumentException on an out-of-range rate, unknown field or encoding
+     */
+    public boolean apply(Command command) {
+        int newFields;
+        try {
+            if (command.sendIntervalMillis != null) {
+                checkRange("sendIntervalMs", command.sendIntervalMillis, MAX_SEND_INTERVAL_MILLIS);
+            }
+            if (command.samplingPeriodUs != null) {
+                checkRange("samplingPeriodUs", command.samplingPeriodUs, MAX_SAMPLING_PERIOD_US);
+            }
+            if (command.encoding != null && !isEncoding(command.encoding)) {
+                throw new IllegalArgumentException("Unknown encoding: " + command.encoding);
+            }
+            newFields = command.fields != null ? fieldMask(command.fields) : -1;
+        } catch (IllegalArgumentException e) {
+            commandsRejected++;
+            throw e;
+        }
+
+        boolean wasStreaming = streaming;
+        long wasInterval = minSendIntervalMillis;
+        int wasPeriod = minSamplingPeriodUs;
+        int wasFields = fields;
+        String wasEncoding = encoding;
+
+        if (command.reset) {
+            reset();
+        }
+        if (command.streaming != null) {
+            streaming = command.streaming;
+        }
+        if (command.sendIntervalMillis != null) {
+            minSendIntervalMillis = command.sendIntervalMillis;
+        }
+        if (command.samplingPeriodUs != null) {
+            minSamplingPeriodUs = command.samplingPeriodUs;
+        }
+        if (newFields >= 0) {
+            fields = newFields;
+        }
+        if (command.encoding != null) {
+            encoding = command.encoding;
+        }
+        commandsApplied++;
+
+        return streaming != wasStreaming || minSendIntervalMillis != wasInterval
+                || minSamplingPeriodUs != wasPeriod || fields != wasFields
+                || !java.util.Objects.equals(encoding, wasEncoding);
+    }
+
+    /**
+     * Back to the client's defaults, e.g. for a new server
+     */
+    public void reset() {
+        streaming = true;
+        minSendIntervalMillis = 0;
+        minSamplingPeriodUs = 0;
+        fields = ALL_FIELDS;
+        encoding = null;
+    }
+
+    private static void checkRange(String name, long value, long max) {
+        if (value < 0 || value > max) {
+            throw new IllegalArgumentException(name + " must be 0.." + max + ", got " + value);
+        }
+    }
+
+    // ========================================
+    // EFFECTIVE SETTINGS
+    // ========================================
+
+    public boolean isStreaming() { return streaming; }
+
+    /**
+     * Upload spacing: the motion state's, or the server's if that is longer
+     */
+    public long sendIntervalMillis(MotionState state) {
+        return Math.max(state.sendIntervalMillis, minSendIntervalMillis);
+    }
+
+    /**
+     * Motion sensor period the server allows at most; {@link MotionState#IDLE}'s while paused
+     */
+    public int minSamplingPeriodUs() {
+        return streaming ? minSamplingPeriodUs : Math.max(minSamplingPeriodUs, MotionState.IDLE.samplingPeriodUs);
+    }
+
+    /**
+     * Bits of {@link AttitudeStreamEncoder}'s FIELD_* constants to send
+     */
+    public int getFields() { return fields; }
+
+    public boolean includes(int field) { return (fields & field) != 0; }
+
+    /**
+     * @return the server's encoding, or {@code preferred} if it did not pick one
+     */
+    public String encoding(String preferred) {
+        return encoding != null ? encoding : preferred;
+    }
+
+    public long getCommandsApplied() { return commandsApplied; }
+    public long getCommandsRejected() { return commandsRejected; }
+
+    // ========================================
+    // NAMES
+    // ========================================
+
+    public static boolean isEncoding(String name) {
+        return ENCODING_JSON.equals(name) || ENCODING_BINARY.equals(name) || ENCODING_DELTA.equals(name);
+    }
+
+    /**
+     * @param names JSON field names: pitch, yaw, roll, gforce, speed, airborne, steps
+     */
+    public static int fieldMask(String[] names) {
+        int mask = 0;
+        for (String name : names) {
+            mask |= fieldBit(name);
+        }
+        return mask;
+    }
+
+    /**
+     * Inverse of {@link #fieldMask}, in wire order
+     */
+    public static String[] fieldNames(int mask) {
+        int count = 0;
+        String[] names = new String[FIELD_NAMES.length];
+        for (int i = 0; i < FIELD_BITS.length; i++) {
+            if ((mask & FIELD_BITS[i]) != 0) {
+                names[count++] = FIELD_NAMES[i];
+            }
+        }
+        return java.util.Arrays.copyOf(names, count);
+    }
+
+    private static int fieldBit(String name) {
+        for (int i = 0; i < FIELD_NAMES.length; i++) {
+            if (FIELD_NAMES[i].equals(name)) {
+                return FIELD_BITS[i];
+            }
+        }
+        throw new IllegalArgumentException("Unknown field: " + name);
+    }
+}
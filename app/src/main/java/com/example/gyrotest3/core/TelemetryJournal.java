@@ -0,0 +1,326 @@
+package com.example.gyrotest3.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * TelemetryJournal - Append-only, memory-mapped store for telemetry sent while offline
+ *
+ * The journal is a directory of fixed-size segment files plus a cursor file. Records are
+ * appended to the newest segment and replayed from the cursor in order; fully replayed
+ * segments are deleted. When more than {@code maxSegments} segments exist, the oldest is
+ * evicted even if it was not replayed, so disk use stays bounded.
+ *
+ * Record layout (big-endian):
+ *
+ *   length      4 bytes  size of everything after this field
+ *   kind        1 byte   {@link #KIND_BINARY} or {@link #KIND_JSON}
+ *   nameLength  1 byte
+ *   name        UTF-8 event name
+ *   payload     remaining bytes
+ *
+ * The length is written last, so a record torn by process death reads as end-of-data.
+ * Both the segments and the cursor are mapped files, so a restarted process resumes
+ * exactly where the previous one stopped.
+ *
+ * Not thread-safe: use from a single thread.
+ */
+public final class TelemetryJournal implements Closeable {
+
+    public static final int KIND_BINARY = 1;
+    public static final int KIND_JSON = 2;
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CURSOR_FILE = "cursor";
+    private static final int RECORD_HEADER_SIZE = 4 + 1 + 1;
+
+    /**
+     * Receives replayed records; return false to stop before consuming this record
+     */
+    public interface RecordVisitor {
+        boolean onRecord(String event, int kind, byte[] payload);
+    }
+
+    private final File directory;
+    private final int segmentSize;
+    private final int maxSegments;
+
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private final MappedByteBuffer cursorBuffer;
+    private final RandomAccessFile cursorFile;
+    private int cursorOffset; // read position within the oldest segment
+
+    private long recordsAppended = 0;
+    private long recordsReplayed = 0;
+    private long segmentsEvicted = 0;
+
+    public TelemetryJournal(File directory, int segmentSize, int maxSegments) throws IOException {
+        if (segmentSize < 64 || maxSegments < 2) {
+            throw new IllegalArgumentException("Journal too small: " + maxSegments + " x " + segmentSize);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create journal directory " + directory);
+        }
+
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+
+        for (long sequence : listSegmentSequences()) {
+            segments.addLast(Segment.open(segmentFile(sequence), sequence, segmentSize));
+        }
+        if (segments.isEmpty()) {
+            segments.addLast(Segment.open(segmentFile(0), 0, segmentSize));
+        }
+
+        cursorFile = new RandomAccessFile(new File(directory, CURSOR_FILE), "rw");
+        cursorBuffer = cursorFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, 12);
+        restoreCursor();
+    }
+
+    // ========================================
+    // WRITING
+    // ========================================
+
+    public void append(String event, int kind, byte[] payload) throws IOException {
+        append(event, kind, payload, 0, payload.length);
+    }
+
+    public void append(String event, int kind, byte[] payload, int offset, int length) throws IOException {
+        byte[] name = event.getBytes(StandardCharsets.UTF_8);
+        if (name.length > 255) {
+            throw new IllegalArgumentException("Event name too long: " + event);
+        }
+
+        int recordSize = RECORD_HEADER_SIZE + name.length + length;
+        if (recordSize > segmentSize) {
+            throw new IllegalArgumentException("Record of " + recordSize + " bytes exceeds segment size");
+        }
+
+        Segment tail = segments.peekLast();
+        if (tail.writeLimit + recordSize > segmentSize) {
+            tail = roll();
+        }
+
+        MappedByteBuffer buffer = tail.buffer;
+        int position = tail.writeLimit;
+        buffer.put(position + 4, (byte) kind);
+        buffer.put(position + 5, (byte) name.length);
+        for (int i = 0; i < name.length; i++) {
+            buffer.put(position + RECORD_HEADER_SIZE + i, name[i]);
+        }
+        int payloadStart = position + RECORD_HEADER_SIZE + name.length;
+        for (int i = 0; i < length; i++) {
+            buffer.put(payloadStart + i, payload[offset + i]);
+        }
+        buffer.putInt(position, recordSize - 4);
+
+        tail.writeLimit += recordSize;
+        recordsAppended++;
+    }
+
+    private Segment roll() throws IOException {
+        long sequence = segments.peekLast().sequence + 1;
+        segments.addLast(Segment.open(segmentFile(sequence), sequence, segmentSize));
+
+        while (segments.size() > maxSegments) {
+            deleteHead();
+            cursorOffset = 0;
+            segmentsEvicted++;
+        }
+        persistCursor();
+
+        return segments.peekLast();
+    }
+
+    // ========================================
+    // REPLAY
+    // ========================================
+
+    /**
+     * Hands up to {@code maxRecords} records to {@code visitor}, oldest first, and
+     * durably advances the cursor past each one it accepts
+     *
+     * @return number of records consumed
+     */
+    public int replay(int maxRecords, RecordVisitor visitor) throws IOException {
+        int replayed = 0;
+
+        while (replayed < maxRecords) {
+            Segment head = segments.peekFirst();
+
+            if (cursorOffset >= head.writeLimit) {
+                if (segments.size() == 1) {
+                    break;
+                }
+                deleteHead();
+                cursorOffset = 0;
+                persistCursor();
+                continue;
+            }
+
+            MappedByteBuffer buffer = head.buffer;
+            int length = buffer.getInt(cursorOffset);
+            int kind = buffer.get(cursorOffset + 4);
+            int nameLength = buffer.get(cursorOffset + 5) & 0xFF;
+
+            byte[] name = new byte[nameLength];
+            for (int i = 0; i < nameLength; i++) {
+                name[i] = buffer.get(cursorOffset + RECORD_HEADER_SIZE + i);
+            }
+            int payloadStart = cursorOffset + RECORD_HEADER_SIZE + nameLength;
+            byte[] payload = new byte[length + 4 - RECORD_HEADER_SIZE - nameLength];
+            for (int i = 0; i < payload.length; i++) {
+                payload[i] = buffer.get(payloadStart + i);
+            }
+
+            if (!visitor.onRecord(new String(name, StandardCharsets.UTF_8), kind, payload)) {
+                break;
+            }
+
+            cursorOffset += 4 + length;
+            persistCursor();
+            replayed++;
+            recordsReplayed++;
+        }
+
+        return replayed;
+    }
+
+    public boolean isEmpty() {
+        return segments.size() == 1 && cursorOffset >= segments.peekFirst().writeLimit;
+    }
+
+    /**
+     * Bytes appended but not yet replayed, including record headers
+     */
+    public long pendingBytes() {
+        long pending = -cursorOffset;
+        for (Segment segment : segments) {
+            pending += segment.writeLimit;
+        }
+        return pending;
+    }
+
+    public long getRecordsAppended() { return recordsAppended; }
+    public long getRecordsReplayed() { return recordsReplayed; }
+    public long getSegmentsEvicted() { return segmentsEvicted; }
+
+    // ========================================
+    // FILES
+    // ========================================
+
+    private void deleteHead() throws IOException {
+        Segment head = segments.pollFirst();
+        head.close();
+        if (!head.file.delete()) {
+            throw new IOException("Cannot delete journal segment " + head.file);
+        }
+    }
+
+    private void restoreCursor() throws IOException {
+        long sequence = cursorBuffer.getLong(0);
+        int offset = cursorBuffer.getInt(8);
+
+        // Segments older than the cursor were replayed but not yet deleted
+        while (segments.size() > 1 && segments.peekFirst().sequence < sequence) {
+            deleteHead();
+        }
+
+        Segment head = segments.peekFirst();
+        cursorOffset = (head.sequence == sequence) ? Math.max(0, Math.min(offset, head.writeLimit)) : 0;
+        persistCursor();
+    }
+
+    private void persistCursor() {
+        cursorBuffer.putLong(0, segments.peekFirst().sequence);
+        cursorBuffer.putInt(8, cursorOffset);
+    }
+
+    private List<Long> listSegmentSequences() {
+        List<Long> sequences = new ArrayList<>();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (name.endsWith(SEGMENT_SUFFIX)) {
+                    try {
+                        sequences.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+                    } catch (NumberFormatException ignored) {
+                        // Not one of ours
+                    }
+                }
+            }
+        }
+        Collections.sort(sequences);
+        return sequences;
+    }
+
+    private File segmentFile(long sequence) {
+        return new File(directory, sequence + SEGMENT_SUFFIX);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Segment segment : segments) {
+            segment.buffer.force();
+            segment.close();
+        }
+        cursorBuffer.force();
+        cursorFile.close();
+    }
+
+    /**
+     * One mapped segment file; {@code writeLimit} is the end of its valid records
+     */
+    private static final class Segment {
+        final long sequence;
+        final File file;
+        final RandomAccessFile raf;
+        final MappedByteBuffer buffer;
+        int writeLimit;
+
+        private Segment(long sequence, File file, RandomAccessFile raf, MappedByteBuffer buffer) {
+            this.sequence = sequence;
+            this.file = file;
+            this.raf = raf;
+            this.buffer = buffer;
+        }
+
+        static Segment open(File file, long sequence, int size) throws IOException {
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            Segment segment = new Segment(sequence, file, raf, buffer);
+            segment.writeLimit = segment.scanWriteLimit(size);
+            return segment;
+        }
+
+        /**
+         * Walks complete records; a zero or implausible length marks the end
+         */
+        private int scanWriteLimit(int size) {
+            int position = 0;
+            while (position + 4 <= size) {
+                int length = buffer.getInt(position);
+                if (length < RECORD_HEADER_SIZE - 4 || position + 4 + length > size) {
+                    break;
+                }
+                position += 4 + length;
+            }
+            return position;
+        }
+
+        void close() throws IOException {
+            raf.close();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.gyrotest3.core;
+
+/**
+ * TelemetryLatency - Per-stage latency distributions from sensor timestamp to server ack
+ *
+ * A live telemetry message passes through these stages:
+ * <pre>
+ *   sensor event ── PROCESS ──▶ snapshot published ── QUEUE ──▶ handed to emit
+ *                ── WRITE ──▶ written to the transport ── ACK ──▶ server ack
+ * </pre>
+ * PROCESS and QUEUE are recorded for every message. Every {@code ackSampleInterval}-th
+ * message is traced further, through WRITE, ACK and END_TO_END (sensor event to ack);
+ * it must be emitted with an ack.
+ *
+ * Each stage has its own {@link LatencyHistogram} in microseconds. {@link #takeReport}
+ * summarizes the interval since the previous report and starts a new one, so exported
+ * percentiles describe recent behaviour rather than the whole ride.
+ *
+ * All timestamps are nanoseconds on the sensor clock (elapsed realtime on Android).
+ * Thread-safe: stages are recorded from the sensor and network threads.
+ */
+public final class TelemetryLatency {
+
+    public enum Stage {
+        PROCESS("process"),
+        QUEUE("queue"),
+        WRITE("write"),
+        ACK("ack"),
+        END_TO_END("e2e");
+
+        public final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+    }
+
+    public static final double[] PERCENTILES = {50, 99, 99.9};
+    public static final String[] PERCENTILE_LABELS = {"p50", "p99", "p999"};
+
+    // One minute at 2 significant digits; anything slower is clamped and counted
+    private static final long HIGHEST_MICROS = 60_000_000L;
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final int ackSampleInterval;
+    private final LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+    private long intervalStartNanos;
+    private long messages = 0;
+    private long sampled = 0;
+    private long acked = 0;
+    private volatile Report lastReport;
+
+    /**
+     * @param ackSampleInterval trace one message in this many through write and ack
+     */
+    public TelemetryLatency(int ackSampleInterval, long nowNanos) {
+        if (ackSampleInterval <= 0) {
+            throw new IllegalArgumentException("Ack sample interval must be positive, got " + ackSampleInterval);
+        }
+        this.ackSampleInterval = ackSampleInterval;
+        this.intervalStartNanos = nowNanos;
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram(HIGHEST_MICROS, SIGNIFICANT_DIGITS);
+        }
+    }
+
+    // ========================================
+    // RECORDING
+    // ========================================
+
+    /**
+     * Records PROCESS and QUEUE for a message about to be emitted
+     *
+     * @return true if the message is sampled: report {@link #onWritten} and
+     *         {@link #onAcked} for it
+     */
+    public synchronized boolean onQueued(long sensorNanos, long processedNanos, long queuedNanos) {
+        record(Stage.PROCESS, processedNanos - sensorNanos);
+        record(Stage.QUEUE, queuedNanos - processedNanos);
+        if (messages++ % ackSampleInterval != 0) {
+            return false;
+        }
+        sampled++;
+        return true;
+    }
+
+    public synchronized void onWritten(long queuedNanos, long writtenNanos) {
+        record(Stage.WRITE, writtenNanos - queuedNanos);
+    }
+
+    public synchronized void onAcked(long sensorNanos, long writtenNanos, long ackedNanos) {
+        acked++;
+        record(Stage.ACK, ackedNanos - writtenNanos);
+        record(Stage.END_TO_END, ackedNanos - sensorNanos);
+    }
+
+    private void record(Stage stage, long nanos) {
+        histograms[stage.ordinal()].recordValue(nanos / 1_000);
+    }
+
+    // ========================================
+    // REPORTING
+    // ========================================
+
+    /**
+     * Summarizes the interval since the last report and starts a new interval
+     */
+    public synchronized Report takeReport(long nowNanos) {
+        long[][] percentiles = new long[STAGES.length][PERCENTILES.length];
+        long[] counts = new long[STAGES.length];
+        long[] max = new long[STAGES.length];
+        for (int s = 0; s < STAGES.length; s++) {
+            LatencyHistogram histogram = histograms[s];
+            counts[s] = histogram.getTotalCount();
+            max[s] = histogram.getMaxValue();
+            for (int p = 0; p < PERCENTILES.length; p++) {
+                percentiles[s][p] = histogram.getValueAtPercentile(PERCENTILES[p]);
+            }
+            histogram.reset();
+        }
+
+        Report report = new Report(nowNanos - intervalStartNanos, messages, sampled, acked,
+                counts, percentiles, max);
+        intervalStartNanos = nowNanos;
+        messages = 0;
+        sampled = 0;
+        acked = 0;
+        lastReport = report;
+        return report;
+    }
+
+    /**
+     * Most recent {@link #takeReport} result, or null before the first one
+     */
+    public Report getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Immutable summary of one interval; latencies in microseconds
+     */
+    public static final class Report {
+        public final long intervalNanos;
+        public final long messages;
+        /** Messages emitted with an ack */
+        public final long sampled;
+        /** Acks received in the interval, possibly for messages sampled in the previous one */
+        public final long acked;
+        private final long[] counts;
+        private final long[][] percentiles;
+        private final long[] max;
+
+        Report(long intervalNanos, long messages, long sampled, long acked,
+               long[] counts, long[][] percentiles, long[] max) {
+            this.intervalNanos = intervalNanos;
+            this.messages = messages;
+            this.sampled = sampled;
+            this.acked = acked;
+            this.counts = counts;
+            this.percentiles = percentiles;
+            this.max = max;
+        }
+
+        public long count(Stage stage) {
+            return counts[stage.ordinal()];
+        }
+
+        /**
+         * @param percentileIndex index into {@link #PERCENTILES}
+         */
+        public long percentileMicros(Stage stage, int percentileIndex) {
+            return percentiles[stage.ordinal()][percentileIndex];
+        }
+
+        public long maxMicros(Stage stage) {
+            return max[stage.ordinal()];
+        }
+    }
+}
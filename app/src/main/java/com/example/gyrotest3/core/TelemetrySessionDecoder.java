@@ -0,0 +1,135 @@
+package com.example.gyrotest3.core;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * TelemetrySessionDecoder - Reference for the server side of the session handshake
+ *
+ * {@link #register} is what the server does with a {@code register_session} request: it
+ * assigns a short numeric id and acks it back. {@link #decode} then resolves the
+ * {@link SessionEnvelope} of each hot binary message to that session and decodes the payload
+ * by event name. Stream messages go through a per-session {@link AttitudeStreamDecoder}.
+ *
+ * A message for an unknown id (for example after a server restart) decodes to null; the
+ * server should answer with {@code session_unknown} so the client registers again.
+ */
+public final class TelemetrySessionDecoder {
+
+    public static final String EVENT_FRAME = "attitude_frame";
+    public static final String EVENT_BATCH = "attitude_batch";
+    public static final String EVENT_STREAM = "attitude_stream";
+
+    private final Map<Integer, Session> sessions = new HashMap<>();
+    private final Map<String, Session> sessionsByDevice = new HashMap<>();
+    private int nextSessionId = 1;
+
+    private long unknownSessionMessages = 0;
+
+    /**
+     * Opens a session; a device registering again replaces its previous session
+     *
+     * @param sensors sensor names as listed in the registration
+     */
+    public Session register(String deviceId, String riderDisplayName, String[] sensors,
+                            int samplingPeriodUs, long sendIntervalMillis) {
+        Session previous = sessionsByDevice.remove(deviceId);
+        if (previous != null) {
+            sessions.remove(previous.id);
+        }
+
+        Session session = new Session(nextSessionId++, deviceId, riderDisplayName, sensors.clone(),
+                samplingPeriodUs, sendIntervalMillis);
+        sessions.put(session.id, session);
+        sessionsByDevice.put(deviceId, session);
+        return session;
+    }
+
+    public Session session(int sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    public Message decode(String event, byte[] payload) {
+        return decode(event, payload, 0, payload.length);
+    }
+
+    /**
+     * @return the decoded message, or null if its session is unknown
+     * @throws IllegalArgumentException if the message has no envelope, is malformed or
+     *                                  the event is not a hot binary event
+     */
+    public Message decode(String event, byte[] in, int offset, int length) {
+        int sessionId = SessionEnvelope.sessionId(in, offset, length);
+        int headerLength = SessionEnvelope.headerLength(in, offset, length);
+        int bodyOffset = offset + headerLength;
+        int bodyLength = length - headerLength;
+
+        Session session = sessions.get(sessionId);
+        if (session == null) {
+            unknownSessionMessages++;
+            return null;
+        }
+
+        switch (event) {
+            case EVENT_FRAME:
+                return new Message(session, AttitudeFrameCodec.decode(in, bodyOffset, bodyLength), null, null);
+            case EVENT_BATCH:
+                return new Message(session, null, AttitudeBatchCodec.decode(in, bodyOffset, bodyLength), null);
+            case EVENT_STREAM:
+                return new Message(session, null, null, session.stream.decode(in, bodyOffset, bodyLength));
+            default:
+                throw new IllegalArgumentException("Not a session telemetry event: " + event);
+        }
+    }
+
+    public long getUnknownSessionMessages() { return unknownSessionMessages; }
+
+    /**
+     * What the client registered, plus the session's stream decoding state
+     */
+    public static final class Session {
+        public final int id;
+        public final String deviceId;
+        public final String riderDisplayName;
+        public final String[] sensors;
+        public final int samplingPeriodUs;
+        public final long sendIntervalMillis;
+        public final AttitudeStreamDecoder stream = new AttitudeStreamDecoder();
+
+        Session(int id, String deviceId, String riderDisplayName, String[] sensors,
+                int samplingPeriodUs, long sendIntervalMillis) {
+            this.id = id;
+            this.deviceId = deviceId;
+            this.riderDisplayName = riderDisplayName;
+            this.sensors = sensors;
+            this.samplingPeriodUs = samplingPeriodUs;
+            this.sendIntervalMillis = sendIntervalMillis;
+        }
+    }
+
+    /**
+     * One decoded message; exactly one of frame, batch and sample is set, except that a
+     * stream delta dropped for a gap leaves all three null
+     */
+    public static final class Message {
+        public final Session session;
+        public final AttitudeFrame frame;
+        public final AttitudeBatchCodec.Batch batch;
+        public final AttitudeStreamDecoder.Sample sample;
+
+        Message(Session session, AttitudeFrame frame, AttitudeBatchCodec.Batch batch,
+                AttitudeStreamDecoder.Sample sample) {
+            this.session = session;
+            this.frame = frame;
+            this.batch = batch;
+            this.sample = sample;
+        }
+
+        /**
+         * True if the server should send {@code attitude_resync} for this session
+         */
+        public boolean isResyncNeeded() {
+            return session.stream.isResyncNeeded();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.gyrotest3.core;
+
+/**
+ * TelemetryTransport - The slice of the Socket.IO client that replay needs
+ *
+ * Lets journal replay run against a stand-in socket in JVM tests.
+ */
+public interface TelemetryTransport {
+
+    boolean isConnected();
+
+    /**
+     * @param kind {@link TelemetryJournal#KIND_BINARY} or {@link TelemetryJournal#KIND_JSON} (UTF-8 text)
+     */
+    void emit(String event, int kind, byte[] payload);
+}
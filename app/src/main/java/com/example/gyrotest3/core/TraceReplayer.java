@@ -0,0 +1,78 @@
+package com.example.gyrotest3.core;
+
+import java.io.IOException;
+
+/**
+ * TraceReplayer - Feeds a recorded trace through the processing chain, faster than real time
+ *
+ * Sensor events go through {@link AttitudeProcessor#onSensor} exactly as on the device and
+ * location fixes through {@link AttitudeProcessor#onLocation}. The {@link ReplayClock} the
+ * processor was built with is advanced to each record's timestamp first, so anything
+ * time-dependent (speed decay, airtime) sees recorded time rather than replay time.
+ */
+public final class TraceReplayer implements SensorTraceReader.Visitor {
+
+    /**
+     * Called after every record; read the processor's state here
+     */
+    public interface Listener {
+        void onProcessed(AttitudeProcessor processor, int sensorType, long timestampNanos);
+    }
+
+    /** Sensor type reported to the listener for location fixes */
+    public static final int TYPE_LOCATION = -1;
+
+    private final AttitudeProcessor processor;
+    private final ReplayClock clock;
+    private Listener listener;
+
+    private long sensorEvents = 0;
+    private long locationFixes = 0;
+
+    public TraceReplayer(AttitudeProcessor processor, ReplayClock clock) {
+        this.processor = processor;
+        this.clock = clock;
+    }
+
+    /**
+     * @param listener may be null
+     * @return number of records replayed
+     */
+    public long replay(SensorTraceReader reader, Listener listener) throws IOException {
+        this.listener = listener;
+        try {
+            return reader.readAll(this);
+        } finally {
+            this.listener = null;
+        }
+    }
+
+    @Override
+    public void onSensor(int sensorType, long timestampNanos, float[] values, int valueCount, int accuracy) {
+        clock.advanceTo(timestampNanos);
+        if (!processor.onSensor(sensorType, values, valueCount, timestampNanos)) {
+            return;
+        }
+        processor.updateOrientation();
+        sensorEvents++;
+
+        if (listener != null) {
+            listener.onProcessed(processor, sensorType, timestampNanos);
+        }
+    }
+
+    @Override
+    public void onLocation(long elapsedNanos, double latitude, double longitude,
+                           float speed, float speedAccuracy, float accuracy, float bearing) {
+        clock.advanceTo(elapsedNanos);
+        processor.onLocation(elapsedNanos, speed, speedAccuracy, bearing);
+        locationFixes++;
+
+        if (listener != null) {
+            listener.onProcessed(processor, TYPE_LOCATION, elapsedNanos);
+        }
+    }
+
+    public long getSensorEvents() { return sensorEvents; }
+    public long getLocationFixes() { return locationFixes; }
+}
@@ -0,0 +1,65 @@
+package com.example.gyrotest3.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AttitudeBatchCodecTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void roundTrip_preservesTimestampsAndSamples() {
+        AttitudeBatcher batcher = new AttitudeBatcher(32, 20, 250 * MS);
+        for (int i = 0; i < 20; i++) {
+            batcher.record(5_000 * MS + i * 16 * MS, i, 100 + i, -i, 1.05f, 12.5f, i == 3, true, 40 + i);
+        }
+        long epochOffsetNanos = 1_700_000_000_000L * MS;
+
+        byte[] out = new byte[AttitudeBatchCodec.maxEncodedSize(20)];
+        int length = AttitudeBatchCodec.encode(batcher, epochOffsetNanos, out);
+        AttitudeBatchCodec.Batch batch = AttitudeBatchCodec.decode(out, 0, length);
+
+        assertEquals(20, batch.size());
+        assertEquals((5_000 * MS + epochOffsetNanos) / 1000, batch.timestampMicros[0]);
+        assertEquals(16_000, batch.timestampMicros[1] - batch.timestampMicros[0]);
+        assertEquals(119f, batch.frames[19].yaw, 0.001f);
+        assertEquals(-19f, batch.frames[19].roll, 0.001f);
+        assertTrue(batch.frames[3].airborne);
+        assertFalse(batch.frames[4].airborne);
+        assertEquals(59, batch.frames[19].steps);
+    }
+
+    @Test
+    public void encode_sharesHeaderAcrossSamples() {
+        AttitudeBatcher batcher = new AttitudeBatcher(32, 20, 250 * MS);
+        for (int i = 0; i < 20; i++) {
+            batcher.record(i * 16 * MS, 0, 0, 0, 1f, 0, false, true, 0);
+        }
+
+        int length = AttitudeBatchCodec.encode(batcher, 0, new byte[AttitudeBatchCodec.maxEncodedSize(20)]);
+
+        // 10 header bytes, 12 body bytes per sample, 2-byte deltas after the first sample
+        assertEquals(10 + 20 * 12 + 1 + 19 * 2, length);
+    }
+
+    @Test
+    public void encode_emptyBatch() {
+        AttitudeBatcher batcher = new AttitudeBatcher(4, 2, MS);
+        byte[] out = new byte[AttitudeBatchCodec.maxEncodedSize(0)];
+
+        int length = AttitudeBatchCodec.encode(batcher, 0, out);
+
+        assertEquals(0, AttitudeBatchCodec.decode(out, 0, length).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_rejectsTruncatedBatch() {
+        AttitudeBatcher batcher = new AttitudeBatcher(4, 2, MS);
+        batcher.record(0, 0, 0, 0, 0, 0, false, false, 0);
+        byte[] out = new byte[AttitudeBatchCodec.maxEncodedSize(1)];
+        int length = AttitudeBatchCodec.encode(batcher, 0, out);
+
+        AttitudeBatchCodec.decode(out, 0, length - 2);
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.gyrotest3.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AttitudeBatcherTest {
+
+    private static final long MS = 1_000_000L;
+
+    private static void recordAt(AttitudeBatcher batcher, long timestampNanos, float pitch) {
+        batcher.record(timestampNanos, pitch, 0, 0, 1f, 0, false, true, 0);
+    }
+
+    @Test
+    public void flushDue_whenBatchSizeReached() {
+        AttitudeBatcher batcher = new AttitudeBatcher(8, 3, 250 * MS);
+
+        recordAt(batcher, 0, 1);
+        recordAt(batcher, 10 * MS, 2);
+        assertFalse(batcher.isFlushDue(20 * MS));
+
+        recordAt(batcher, 20 * MS, 3);
+        assertTrue(batcher.isFlushDue(20 * MS));
+        assertEquals(3, batcher.batchSize());
+    }
+
+    @Test
+    public void flushDue_whenOldestSampleExceedsLatencyBudget() {
+        AttitudeBatcher batcher = new AttitudeBatcher(32, 20, 250 * MS);
+
+        recordAt(batcher, 100 * MS, 1);
+        assertFalse(batcher.isFlushDue(349 * MS));
+        assertTrue(batcher.isFlushDue(350 * MS));
+    }
+
+    @Test
+    public void setMaxLatency_appliesToPendingSamples() {
+        AttitudeBatcher batcher = new AttitudeBatcher(32, 20, 250 * MS);
+
+        recordAt(batcher, 100 * MS, 1);
+        batcher.setMaxLatencyNanos(1000 * MS);
+        assertFalse(batcher.isFlushDue(350 * MS));
+        assertTrue(batcher.isFlushDue(1100 * MS));
+    }
+
+    @Test
+    public void commitBatch_releasesOnlyOneBatchAndRecordsStats() {
+        AttitudeBatcher batcher = new AttitudeBatcher(8, 2, 250 * MS);
+        for (int i = 0; i < 5; i++) {
+            recordAt(batcher, i * 10 * MS, i);
+        }
+
+        batcher.commitBatch(45 * MS);
+
+        assertEquals(3, batcher.pendingSamples());
+        assertEquals(2f, batcher.pitchAt(0), 0f);
+        assertEquals(1, batcher.getBatchesFlushed());
+        assertEquals(2, batcher.getSamplesFlushed());
+        assertEquals(2, batcher.getLastBatchSize());
+        assertEquals(45 * MS, batcher.getLastFlushLatencyNanos());
+    }
+
+    @Test
+    public void record_overwritesOldestWhenFull() {
+        AttitudeBatcher batcher = new AttitudeBatcher(4, 2, 250 * MS);
+        for (int i = 0; i < 6; i++) {
+            recordAt(batcher, i * MS, i);
+        }
+
+        assertEquals(4, batcher.pendingSamples());
+        assertEquals(2, batcher.getSamplesDropped());
+        assertEquals(2 * MS, batcher.timestampAt(0));
+        assertEquals(2f, batcher.pitchAt(0), 0f);
+    }
+
+    @Test
+    public void flags_packAirborneAndStream() {
+        AttitudeBatcher batcher = new AttitudeBatcher(2, 1, MS);
+        batcher.record(0, 0, 0, 0, 0, 0, true, false, 0);
+
+        assertEquals(AttitudeFrameCodec.FLAG_AIRBORNE, batcher.flagsAt(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsBatchLargerThanCapacity() {
+        new AttitudeBatcher(4, 8, MS);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.gyrotest3.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AttitudeFrameCodecTest {
+
+    @Test
+    public void roundTrip_preservesValuesAtWirePrecision() {
+        AttitudeFrame frame = new AttitudeFrame(-12.34f, 271.96f, 45.05f, 1.237f, 38.456f, true, false, 1234);
+
+        AttitudeFrame decoded = AttitudeFrameCodec.decode(AttitudeFrameCodec.encode(frame));
+
+        assertEquals(-12.3f, decoded.pitch, 0.001f);
+        assertEquals(272.0f, decoded.yaw, 0.001f);
+        assertEquals(45.1f, decoded.roll, 0.001f);
+        assertEquals(1.24f, decoded.gForce, 0.001f);
+        assertEquals(38.46f, decoded.speed, 0.001f);
+        assertTrue(decoded.airborne);
+        assertFalse(decoded.streamOn);
+        assertEquals(1234, decoded.steps);
+    }
+
+    @Test
+    public void encode_usesFixedHeaderAndShortVarint() {
+        byte[] encoded = AttitudeFrameCodec.encode(new AttitudeFrame(0, 0, 0, 1f, 0, false, true, 5));
+
+        assertEquals(13, encoded.length);
+        assertEquals(AttitudeFrameCodec.VERSION, encoded[0]);
+        assertEquals(AttitudeFrameCodec.FLAG_STREAM_ON, encoded[1]);
+    }
+
+    @Test
+    public void encode_growsVarintForLargeStepCounts() {
+        byte[] encoded = AttitudeFrameCodec.encode(new AttitudeFrame(0, 0, 0, 0, 0, false, false, 300_000));
+
+        assertEquals(15, encoded.length);
+        assertEquals(300_000, AttitudeFrameCodec.decode(encoded).steps);
+    }
+
+    @Test
+    public void encode_clampsOutOfRangeValues() {
+        AttitudeFrame decoded = AttitudeFrameCodec.decode(AttitudeFrameCodec.encode(
+                new AttitudeFrame(Float.NaN, 0, 0, 1000f, -1000f, false, false, -3)));
+
+        assertEquals(0f, decoded.pitch, 0f);
+        assertEquals(Short.MAX_VALUE / AttitudeFrameCodec.GFORCE_SCALE, decoded.gForce, 0.001f);
+        assertEquals(Short.MIN_VALUE / AttitudeFrameCodec.SPEED_SCALE, decoded.speed, 0.001f);
+        assertEquals(0, decoded.steps);
+    }
+
+    @Test
+    public void encode_writesAtOffsetIntoSharedBuffer() {
+        byte[] buffer = new byte[4 + AttitudeFrameCodec.MAX_FRAME_SIZE];
+        int length = AttitudeFrameCodec.encode(buffer, 4, 10f, 20f, 30f, 1f, 2f, false, true, 7);
+
+        AttitudeFrame decoded = AttitudeFrameCodec.decode(buffer, 4, length);
+        assertEquals(20f, decoded.yaw, 0.001f);
+        assertEquals(7, decoded.steps);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_rejectsUnknownVersion() {
+        byte[] encoded = AttitudeFrameCodec.encode(new AttitudeFrame(0, 0, 0, 0, 0, false, false, 0));
+        encoded[0] = 99;
+        AttitudeFrameCodec.decode(encoded);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_rejectsTruncatedFrame() {
+        byte[] encoded = AttitudeFrameCodec.encode(new AttitudeFrame(0, 0, 0, 0, 0, false, false, 0));
+        AttitudeFrameCodec.decode(encoded, 0, encoded.length - 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_rejectsUnterminatedVarint() {
+        byte[] encoded = AttitudeFrameCodec.encode(new AttitudeFrame(0, 0, 0, 0, 0, false, false, 200));
+        AttitudeFrameCodec.decode(encoded, 0, encoded.length - 1);
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.gyrotest3.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AttitudeProcessorTest {
+
+    @Test
+    public void accelerometer_derivesPitchRollAndGForce() {
+        AttitudeProcessor processor = new AttitudeProcessor(true);
+
+        processor.onAccelerometer(9.81f, 0, 0);
+        AttitudeSnapshot snapshot = processor.snapshot(42);
+
+        assertEquals(42, snapshot.timestampNanos);
+        assertEquals(90f, snapshot.pitch, 0.01f);
+        assertEquals(0f, snapshot.roll, 0.01f);
+        assertEquals(1f, snapshot.gForce, 0.001f);
+    }
+
+    @Test
+    public void orientation_requiresBothSensors() {
+        AttitudeProcessor processor = new AttitudeProcessor(true);
+
+        processor.onAccelerometer(0, 0, 9.81f);
+        assertFalse(processor.updateOrientation());
+
+        processor.onMagnetometer(0, 20, -40);
+        assertTrue(processor.updateOrientation());
+        assertEquals(0f, processor.snapshot(0).yaw, 0.01f);
+    }
+
+    @Test
+    public void orientation_wrapsAzimuthIntoPositiveRange() {
+        AttitudeProcessor processor = new AttitudeProcessor(true);
+
+        processor.onAccelerometer(0, 0, 9.81f);
+        processor.onMagnetometer(20, 0, -40);
+        processor.updateOrientation();
+
+        assertEquals(270f, processor.snapshot(0).yaw, 0.01f);
+    }
+
+    @Test
+    public void orientation_rejectsFreeFall() {
+        AttitudeProcessor processor = new AttitudeProcessor(true);
+
+        processor.onAccelerometer(0, 0, 0.1f);
+        processor.onMagnetometer(0, 20, -40);
+
+        assertFalse(processor.updateOrientation());
+    }
+
+    @Test
+    public void stepCounter_countsFromFirstReading() {
+        AttitudeProcessor processor = new AttitudeProcessor(false);
+
+        processor.onStepCounter(1000);
+        assertEquals(0, processor.getSessionSteps());
+
+        processor.onStepCounter(1012);
+        assertEquals(12, processor.snapshot(0).steps);
+    }
+
+    @Test
+    public void jump_flaggedOnceFreeFallOutlastsDebounce() {
+        AttitudeProcessor processor = new AttitudeProcessor(false);
+        long t = 1_000_000_000L;
+
+        for (int i = 0; i < 15; i++, t += 10_000_000L) {
+            processor.onAccelerometer(0, 0.3f, 0.5f, t);
+        }
+        assertTrue(processor.snapshot(0).airborne);
+
+        for (int i = 0; i < 5; i++, t += 10_000_000L) {
+            processor.onAccelerometer(0, 0, 9.81f, t);
+        }
+        assertFalse(processor.isAirborne());
+        assertEquals(150, processor.getLastFlightTime());
+    }
+
+    @Test
+    public void jump_tiltedPhoneIsNotAirborne() {
+        AttitudeProcessor processor = new AttitudeProcessor(false);
+        long t = 1_000_000_000L;
+
+        // Lying on its side: Z reads ~0 but total acceleration is still 1 g
+        for (int i = 0; i < 100; i++, t += 10_000_000L) {
+            processor.onAccelerometer(9.81f, 0, 0.2f, t);
+        }
+
+        assertFalse(processor.isAirborne());
+        assertNull(processor.pollJump());
+    }
+
+    @Test
+    public void jump_airtimeFromEventTimestampsWhenDeliveredInOneBurst() {
+        ReplayClock clock = new ReplayClock();
+        AttitudeProcessor processor = new AttitudeProcessor(false, null, clock);
+        long t = 1_000_000_000L;
+
+        // The whole second arrives from the sensor FIFO at once, long after it happened
+        clock.advanceTo(t + 5_000_000_000L);
+        for (int i = 0; i < 30; i++, t += 10_000_000L) {
+            processor.onAccelerometer(0, 0, 9.81f, t);
+        }
+        for (int i = 0; i < 40; i++, t += 10_000_000L) {
+            processor.onAccelerometer(0, 0, 0.5f, t);
+        }
+        for (int i = 0; i < 30; i++, t += 10_000_000L) {
+            processor.onAccelerometer(0, 0, 9.81f, t);
+        }
+
+        JumpEvent jump = processor.pollJump();
+        assertNotNull(jump);
+        assertEquals(400, jump.airtimeMillis);
+        assertEquals(1_300_000_000L, jump.takeoffNanos);
+    }
+}
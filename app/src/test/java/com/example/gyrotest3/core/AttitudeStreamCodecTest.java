@@ -0,0 +1,143 @@
+package com.example.gyrotest3.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AttitudeStreamCodecTest {
+
+    private static final long START_MILLIS = 1_700_000_000_000L;
+
+    private final byte[] out = new byte[AttitudeStreamEncoder.MAX_MESSAGE_SIZE];
+
+    @Test
+    public void roundTrip_reconstructsQuantizedValues() {
+        AttitudeStreamEncoder encoder = new AttitudeStreamEncoder(10);
+        AttitudeStreamDecoder decoder = new AttitudeStreamDecoder();
+
+        for (int i = 0; i < 25; i++) {
+            float pitch = 10f + i * 0.37f;
+            float yaw = (350f + i * 1.3f) % 360f;
+            int length = encoder.encode(out, 0, START_MILLIS + i * 100, pitch, yaw, -5f + i, 1.02f + i * 0.01f,
+                    20f + i * 0.05f, i == 7, true, 100 + i / 3);
+
+            AttitudeStreamDecoder.Sample sample = decoder.decode(out, 0, length);
+
+            assertNotNull(sample);
+            assertEquals(i % 10 == 0, sample.keyframe);
+            assertEquals(START_MILLIS + i * 100, sample.epochMillis);
+            assertEquals(Math.round(pitch * 10) / 10f, sample.frame.pitch, 0.0001f);
+            assertEquals(Math.round(yaw * 10) / 10f, sample.frame.yaw, 0.0001f);
+            assertEquals(-5f + i, sample.frame.roll, 0.0001f);
+            assertEquals(Math.round((1.02f + i * 0.01f) * 100) / 100f, sample.frame.gForce, 0.0001f);
+            assertEquals(i == 7, sample.frame.airborne);
+            assertTrue(sample.frame.streamOn);
+            assertEquals(100 + i / 3, sample.frame.steps);
+        }
+
+        assertEquals(3, encoder.getKeyframesSent());
+        assertEquals(22, encoder.getDeltasSent());
+    }
+
+    @Test
+    public void delta_unchangedSampleIsFourBytes() {
+        AttitudeStreamEncoder encoder = new AttitudeStreamEncoder(50);
+        encoder.encode(out, 0, START_MILLIS, 1f, 2f, 3f, 1f, 0f, false, true, 5);
+
+        int length = encoder.encode(out, 0, START_MILLIS + 100, 1f, 2f, 3f, 1f, 0f, false, true, 5);
+
+        // header, sequence, 1-byte time delta, empty field mask
+        assertEquals(4, length);
+    }
+
+    @Test
+    public void delta_yawTakesShortWayRound() {
+        AttitudeStreamEncoder encoder = new AttitudeStreamEncoder(50);
+        AttitudeStreamDecoder decoder = new AttitudeStreamDecoder();
+        decoder.decode(out, 0, encoder.encode(out, 0, START_MILLIS, 0f, 359.9f, 0f, 1f, 0f, false, true, 0));
+
+        int length = encoder.encode(out, 0, START_MILLIS + 100, 0f, 0.2f, 0f, 1f, 0f, false, true, 0);
+        AttitudeStreamDecoder.Sample sample = decoder.decode(out, 0, length);
+
+        assertEquals(5, length); // +3 tenths fits one varint byte
+        assertEquals(0.2f, sample.frame.yaw, 0.0001f);
+    }
+
+    @Test
+    public void gap_dropsDeltasUntilKeyframe() {
+        AttitudeStreamEncoder encoder = new AttitudeStreamEncoder(50);
+        AttitudeStreamDecoder decoder = new AttitudeStreamDecoder();
+        decoder.decode(out, 0, encoder.encode(out, 0, START_MILLIS, 0f, 0f, 0f, 1f, 0f, false, true, 0));
+
+        encoder.encode(out, 0, START_MILLIS + 100, 1f, 0f, 0f, 1f, 0f, false, true, 0); // lost
+        int length = encoder.encode(out, 0, START_MILLIS + 200, 2f, 0f, 0f, 1f, 0f, false, true, 0);
+
+        assertNull(decoder.decode(out, 0, length));
+        assertTrue(decoder.isResyncNeeded());
+        assertNull(decoder.decode(out, 0, encoder.encode(out, 0, START_MILLIS + 300, 3f, 0f, 0f, 1f, 0f,
+                false, true, 0)));
+        assertEquals(1, decoder.getGapsDetected());
+        assertEquals(2, decoder.getDeltasDropped());
+
+        encoder.requestKeyframe();
+        AttitudeStreamDecoder.Sample sample = decoder.decode(out, 0,
+                encoder.encode(out, 0, START_MILLIS + 400, 4f, 0f, 0f, 1f, 0f, false, true, 0));
+
+        assertTrue(sample.keyframe);
+        assertFalse(decoder.isResyncNeeded());
+        assertEquals(4f, sample.frame.pitch, 0.0001f);
+        assertNotNull(decoder.decode(out, 0,
+                encoder.encode(out, 0, START_MILLIS + 500, 5f, 0f, 0f, 1f, 0f, false, true, 0)));
+    }
+
+    @Test
+    public void delta_beforeAnyKeyframeNeedsResync() {
+        AttitudeStreamEncoder encoder = new AttitudeStreamEncoder(50);
+        encoder.encode(out, 0, START_MILLIS, 0f, 0f, 0f, 1f, 0f, false, true, 0);
+        int length = encoder.encode(out, 0, START_MILLIS + 100, 1f, 0f, 0f, 1f, 0f, false, true, 0);
+
+        AttitudeStreamDecoder decoder = new AttitudeStreamDecoder();
+
+        assertNull(decoder.decode(out, 0, length));
+        assertTrue(decoder.isResyncNeeded());
+    }
+
+    @Test
+    public void smoothRide_isSmallerThanFixedFrames() {
+        AttitudeStreamEncoder encoder = new AttitudeStreamEncoder(50);
+        byte[] frame = new byte[AttitudeFrameCodec.MAX_FRAME_SIZE];
+        long streamBytes = 0;
+        long frameBytes = 0;
+
+        // One minute at 10 Hz of gentle carving
+        for (int i = 0; i < 600; i++) {
+            double t = i * 0.1;
+            float pitch = (float) (8 * Math.sin(t * 0.7));
+            float roll = (float) (25 * Math.sin(t * 0.9));
+            float yaw = (float) ((90 + 40 * Math.sin(t * 0.3) + 360) % 360);
+            float gForce = (float) (1 + 0.2 * Math.sin(t * 1.8));
+            float speed = (float) (25 + 3 * Math.sin(t * 0.1));
+            streamBytes += encoder.encode(out, 0, START_MILLIS + i * 100, pitch, yaw, roll, gForce, speed,
+                    false, true, 0);
+            frameBytes += AttitudeFrameCodec.encode(frame, 0, pitch, yaw, roll, gForce, speed, false, true, 0);
+        }
+
+        assertEquals(streamBytes, encoder.getBytesEncoded());
+        assertTrue("stream " + streamBytes + " vs frames " + frameBytes, streamBytes * 10 < frameBytes * 7);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_rejectsUnknownVersion() {
+        int length = new AttitudeStreamEncoder(50).encode(out, 0, START_MILLIS, 0f, 0f, 0f, 1f, 0f, false, true, 0);
+        out[0] = (byte) (0x70 | AttitudeStreamEncoder.TYPE_KEYFRAME);
+
+        new AttitudeStreamDecoder().decode(out, 0, length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_rejectsTruncatedKeyframe() {
+        int length = new AttitudeStreamEncoder(50).encode(out, 0, START_MILLIS, 0f, 0f, 0f, 1f, 0f, false, true, 0);
+
+        new AttitudeStreamDecoder().decode(out, 0, length - 3);
+    }
+}
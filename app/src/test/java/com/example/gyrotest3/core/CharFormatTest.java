@@ -0,0 +1,78 @@
+package com.example.gyrotest3.core;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+public class CharFormatTest {
+
+    private static String fixed(float value, int decimals) {
+        char[] buffer = new char[32];
+        int length = CharFormat.formatFixed(value, decimals, buffer, 0);
+        return new String(buffer, 0, length);
+    }
+
+    @Test
+    public void formatFixed_matchesStringFormat() {
+        float[] values = {0f, 1f, -1f, 12.345f, -45.67f, 359.96f, 0.005f, 1234567.8f, 89.5f, -0.5f};
+        for (float value : values) {
+            for (int decimals = 0; decimals <= 2; decimals++) {
+                String expected = String.format(Locale.US, "%." + decimals + "f", value);
+                assertEquals(value + " / " + decimals, expected, fixed(value, decimals));
+            }
+        }
+    }
+
+    @Test
+    public void formatFixed_dropsSignOfNegativeZero() {
+        assertEquals("0", fixed(-0.3f, 0));
+        assertEquals("0.00", fixed(-0.001f, 2));
+    }
+
+    @Test
+    public void formatFixed_handlesNaN() {
+        assertEquals("NaN", fixed(Float.NaN, 1));
+    }
+
+    @Test
+    public void formatInt_writesAtOffset() {
+        char[] buffer = new char[16];
+        buffer[0] = '#';
+        int length = CharFormat.formatInt(-2048, buffer, 1);
+
+        assertEquals("#-2048", new String(buffer, 0, 1 + length));
+        assertEquals("2147483647", new String(buffer, 0, CharFormat.formatInt(Integer.MAX_VALUE, buffer, 0)));
+        assertEquals("-2147483648", new String(buffer, 0, CharFormat.formatInt(Integer.MIN_VALUE, buffer, 0)));
+    }
+
+    @Test
+    public void format_allocatesNothing() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        char[] buffer = new char[32];
+
+        // Warm up so the JIT has compiled the paths being measured
+        for (int i = 0; i < 20_000; i++) {
+            formatFrame(buffer, i);
+        }
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 1_000; i++) {
+            formatFrame(buffer, i);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(0, allocated);
+    }
+
+    private static void formatFrame(char[] buffer, int i) {
+        int length = CharFormat.formatFixed(i * 0.37f - 90f, 0, buffer, 0);
+        length += CharFormat.formatFixed(i * 0.01f, 1, buffer, length);
+        length += CharFormat.append(" km/h", buffer, length);
+        CharFormat.formatInt(i, buffer, length);
+    }
+}
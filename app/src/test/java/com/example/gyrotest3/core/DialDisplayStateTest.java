@@ -0,0 +1,38 @@
+package com.example.gyrotest3.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DialDisplayStateTest {
+
+    private static AttitudeSnapshot snapshot(float pitch, float speed, float gForce) {
+        return new AttitudeSnapshot(0, pitch, 120.2f, -3.4f, gForce, speed, false, 7);
+    }
+
+    @Test
+    public void firstUpdate_alwaysChanges() {
+        assertTrue(new DialDisplayState().update(AttitudeSnapshot.EMPTY));
+    }
+
+    @Test
+    public void subPrecisionChanges_areIgnored() {
+        DialDisplayState state = new DialDisplayState();
+        state.update(snapshot(10.1f, 12.31f, 1.001f));
+
+        assertFalse(state.update(snapshot(10.4f, 12.34f, 1.004f)));
+        assertEquals(10, state.pitchDegrees);
+        assertEquals(123, state.speedTenths);
+        assertEquals(100, state.gForceHundredths);
+    }
+
+    @Test
+    public void changesAtDisplayPrecision_areReported() {
+        DialDisplayState state = new DialDisplayState();
+        state.update(snapshot(10.1f, 12.31f, 1.001f));
+
+        assertTrue(state.update(snapshot(10.6f, 12.31f, 1.001f)));
+        assertTrue(state.update(snapshot(10.6f, 12.36f, 1.001f)));
+        assertTrue(state.update(snapshot(10.6f, 12.36f, 1.006f)));
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.gyrotest3.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EndpointPoolTest {
+
+    private static final long TICK_MS = 1_000;
+    private static final long STEP_MS = 10;
+
+    /**
+     * Local stand-in servers: connect once up, answer probes after their RTT unless hung
+     */
+    private static final class StandInServers implements EndpointPool.Actions {
+        final boolean[] up;
+        final boolean[] hung;
+        final long[] rttMillis;
+        final boolean[] wanted;
+        final boolean[] connected;
+        final List<long[]> pendingAcks = new ArrayList<>(); // endpoint, probeId, due
+        final List<Integer> activeChanges = new ArrayList<>();
+        int connectCalls = 0;
+        EndpointPool pool;
+        long now = 0;
+
+        StandInServers(long... rttMillis) {
+            int n = rttMillis.length;
+            this.rttMillis = rttMillis;
+            up = new boolean[n];
+            hung = new boolean[n];
+            wanted = new boolean[n];
+            connected = new boolean[n];
+            java.util.Arrays.fill(up, true);
+        }
+
+        @Override
+        public void connect(int endpoint) {
+            connectCalls++;
+            wanted[endpoint] = true;
+        }
+
+        @Override
+        public void disconnect(int endpoint) {
+            wanted[endpoint] = false;
+            connected[endpoint] = false;
+        }
+
+        @Override
+        public void probe(int endpoint, int probeId) {
+            if (!hung[endpoint]) {
+                pendingAcks.add(new long[]{endpoint, probeId, now + rttMillis[endpoint]});
+            }
+        }
+
+        @Override
+        public void activeChanged(int previous, int active) {
+            activeChanges.add(active);
+        }
+
+        void kill(int endpoint) {
+            up[endpoint] = false;
+            if (connected[endpoint]) {
+                connected[endpoint] = false;
+                pool.onDisconnected(endpoint);
+            }
+        }
+
+        /**
+         * Runs the platform side for {@code millis}: connects, acks and the probe tick
+         */
+        void run(long millis) {
+            for (long end = now + millis; now < end; ) {
+                now += STEP_MS;
+                for (int i = 0; i < up.length; i++) {
+                    if (wanted[i] && up[i] && !connected[i]) {
+                        connected[i] = true;
+                        pool.onConnected(i);
+                    }
+                }
+                for (int i = pendingAcks.size() - 1; i >= 0; i--) {
+                    long[] ack = pendingAcks.get(i);
+                    if (ack[2] <= now) {
+                        pendingAcks.remove(i);
+                        if (connected[(int) ack[0]]) {
+                            pool.onProbeAck((int) ack[0], (int) ack[1], now);
+                        }
+                    }
+                }
+                if (now % TICK_MS == 0) {
+                    pool.onTick(now);
+                }
+            }
+        }
+    }
+
+    private static StandInServers servers(long... rttMillis) {
+        StandInServers servers = new StandInServers(rttMillis);
+        servers.pool = new EndpointPool(rttMillis.length, servers, 2_000, 2, 0.7f, 30);
+        servers.pool.start();
+        return servers;
+    }
+
+    @Test
+    public void start_connectsActiveAndHotStandby() {
+        StandInServers servers = servers(50, 60);
+        servers.run(3_000);
+
+        assertEquals(0, servers.pool.getActive());
+        assertEquals(1, servers.pool.getStandby());
+        assertTrue(servers.connected[0]);
+        assertTrue(servers.connected[1]);
+        assertEquals(50f, servers.pool.getRttMillis(0), 0.01f);
+    }
+
+    @Test
+    public void activeDrops_standbyTakesOverWithoutNewHandshake() {
+        StandInServers servers = servers(50, 60);
+        servers.run(3_000);
+        int connectsBefore = servers.connectCalls;
+
+        servers.kill(0);
+
+        assertEquals(1, servers.pool.getActive());
+        assertEquals(connectsBefore, servers.connectCalls);
+        assertEquals(1, servers.pool.getFailovers());
+        assertFalse(servers.activeChanges.contains(EndpointPool.NONE));
+        assertTrue("dropped endpoint keeps reconnecting as standby", servers.wanted[0]);
+    }
+
+    @Test
+    public void unansweredProbes_failOverWhileSocketLooksConnected() {
+        StandInServers servers = servers(50, 60);
+        servers.run(3_000);
+
+        servers.hung[0] = true;
+        servers.run(6_000);
+
+        assertFalse(servers.pool.isHealthy(0));
+        assertEquals(1, servers.pool.getActive());
+        assertTrue(servers.pool.getProbesLost() >= 2);
+
+        servers.hung[0] = false;
+        servers.run(3_000);
+        assertTrue(servers.pool.isHealthy(0));
+        assertEquals("no switch back without a clear latency gain", 1, servers.pool.getActive());
+    }
+
+    @Test
+    public void serverWithoutProbeSupport_staysActive() {
+        StandInServers servers = servers(50);
+        servers.hung[0] = true;
+        servers.run(20_000);
+
+        assertEquals(0, servers.pool.getActive());
+        assertTrue(servers.pool.isHealthy(0));
+        assertFalse("no longer probed", servers.pool.isProbing(0));
+        assertTrue(Float.isNaN(servers.pool.getRttMillis(0)));
+        assertFalse(servers.activeChanges.contains(EndpointPool.NONE));
+    }
+
+    @Test
+    public void serverWithoutProbeSupport_isNotSwitchedAwayOnLatency() {
+        StandInServers servers = servers(200, 40);
+        servers.hung[0] = true;
+        servers.run(10_000);
+
+        assertEquals(0, servers.pool.getActive());
+        assertEquals(0, servers.pool.getLatencySwitches());
+        assertEquals(40f, servers.pool.getRttMillis(1), 0.01f);
+    }
+
+    @Test
+    public void muchFasterStandby_becomesActive() {
+        StandInServers servers = servers(200, 40);
+        servers.run(5_000);
+
+        assertEquals(1, servers.pool.getActive());
+        assertEquals(1, servers.pool.getLatencySwitches());
+        assertTrue(servers.connected[0]);
+    }
+
+    @Test
+    public void similarLatency_doesNotFlap() {
+        StandInServers servers = servers(60, 45);
+        servers.run(10_000);
+
+        assertEquals(0, servers.pool.getActive());
+        assertEquals(0, servers.pool.getLatencySwitches());
+    }
+
+    @Test
+    public void allDown_noActiveUntilOneReturns() {
+        StandInServers servers = servers(50, 60);
+        servers.run(2_000);
+
+        servers.kill(0);
+        servers.kill(1);
+        assertEquals(EndpointPool.NONE, servers.pool.getActive());
+        assertTrue(servers.wanted[0] && servers.wanted[1]);
+
+        servers.up[1] = true;
+        servers.run(100);
+        assertEquals(1, servers.pool.getActive());
+    }
+
+    @Test
+    public void thirdEndpoint_staysDisconnectedWhileTwoAreHealthy() {
+        StandInServers servers = servers(50, 60, 70);
+        servers.run(3_000);
+
+        assertFalse(servers.wanted[2]);
+
+        servers.kill(1);
+        servers.run(100);
+        assertTrue(servers.connected[2]);
+        assertEquals(2, servers.pool.getStandby());
+    }
+
+    @Test
+    public void stop_disconnectsEverything() {
+        StandInServers servers = servers(50, 60);
+        servers.run(2_000);
+
+        servers.pool.stop();
+
+        assertFalse(servers.wanted[0] || servers.wanted[1]);
+        assertEquals(EndpointPool.NONE, servers.pool.getActive());
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.gyrotest3.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FifoDrainTest {
+
+    private static final class RecordingSensors implements FifoDrain.Sensors {
+        final List<String> calls = new ArrayList<>();
+
+        @Override
+        public void register() {
+            calls.add("register");
+        }
+
+        @Override
+        public void reregister() {
+            calls.add("reregister");
+        }
+
+        @Override
+        public void unregister() {
+            calls.add("unregister");
+        }
+    }
+
+    private final RecordingSensors sensors = new RecordingSensors();
+    private final FifoDrain drain = new FifoDrain(sensors);
+
+    @Test
+    public void stop_unregistersAfterTheLastFlush() {
+        drain.start();
+        int generation = drain.stop();
+        assertFalse(drain.beginDrain(generation, 3));
+
+        assertFalse(drain.onFlushCompleted());
+        assertFalse(drain.onFlushCompleted());
+        assertTrue("still delivering queued events", drain.isRegistered());
+
+        assertTrue(drain.onFlushCompleted());
+        assertFalse(drain.isRegistered());
+        assertFalse(drain.isDraining());
+        assertEquals(Arrays.asList("register", "unregister"), sensors.calls);
+    }
+
+    @Test
+    public void timeout_finishesWithFlushesOutstanding() {
+        drain.start();
+        int generation = drain.stop();
+        drain.beginDrain(generation, 2);
+        drain.onFlushCompleted();
+
+        assertTrue(drain.finishDrain(generation));
+        assertEquals(1, drain.getPendingFlushes());
+        assertFalse(drain.isRegistered());
+
+        assertFalse("late flush after the timeout", drain.onFlushCompleted());
+        assertFalse("timeout after it finished", drain.finishDrain(generation));
+    }
+
+    @Test
+    public void noFlushes_finishesRightAway() {
+        drain.start();
+        int generation = drain.stop();
+        drain.beginDrain(generation, 0);
+
+        assertTrue(drain.finishDrain(generation));
+        assertFalse(drain.isRegistered());
+    }
+
+    @Test
+    public void startWhileDraining_keepsSensorsRegistered() {
+        drain.start();
+        int generation = drain.stop();
+        drain.beginDrain(generation, 1);
+        drain.start();
+
+        assertTrue("the drain still completes", drain.onFlushCompleted());
+        assertTrue(drain.isRegistered());
+        assertEquals(Arrays.asList("register"), sensors.calls);
+    }
+
+    @Test
+    public void rateChangeWhileDraining_isAppliedOnResume() {
+        drain.start();
+        int generation = drain.stop();
+        drain.beginDrain(generation, 1);
+
+        drain.onRatesChanged();
+        assertEquals("held back, the drain unregisters anyway", Arrays.asList("register"), sensors.calls);
+
+        drain.start();
+        assertEquals(Arrays.asList("register", "reregister"), sensors.calls);
+        drain.onFlushCompleted();
+        assertTrue(drain.isRegistered());
+    }
+
+    @Test
+    public void rateChangeAfterResume_reregistersBeforeStaleDrainEnds() {
+        drain.start();
+        int generation = drain.stop();
+        drain.beginDrain(generation, 1);
+        drain.start();
+
+        drain.onRatesChanged();
+
+        assertEquals(Arrays.asList("register", "reregister"), sensors.calls);
+        assertTrue(drain.isDraining());
+    }
+
+    @Test
+    public void rateChangeWhileDraining_isDroppedWhenTheDrainUnregisters() {
+        drain.start();
+        int generation = drain.stop();
+        drain.beginDrain(generation, 1);
+        drain.onRatesChanged();
+        drain.onFlushCompleted();
+
+        drain.start();
+
+        assertEquals(Arrays.asList("register", "unregister", "register"), sensors.calls);
+    }
+
+    @Test
+    public void secondStop_supersedesTheFirstDrain() {
+        drain.start();
+        int first = drain.stop();
+        drain.beginDrain(first, 1);
+        int second = drain.stop();
+
+        assertTrue("first drain handed back", drain.beginDrain(second, 1));
+        assertFalse("first drain's timeout", drain.finishDrain(first));
+        assertTrue(drain.isRegistered());
+
+        assertFalse("the first drain's flush", drain.onFlushCompleted());
+        assertTrue(drain.isRegistered());
+        assertTrue(drain.onFlushCompleted());
+        assertFalse(drain.isRegistered());
+    }
+
+    @Test
+    public void lateFlushOfResumedDrain_doesNotEndTheNextDrain() {
+        drain.start();
+        drain.beginDrain(drain.stop(), 2);
+        drain.start();
+        assertFalse(drain.onFlushCompleted());
+
+        assertTrue(drain.beginDrain(drain.stop(), 2));
+        assertFalse("late flush of the resumed drain", drain.onFlushCompleted());
+        assertFalse(drain.onFlushCompleted());
+        assertTrue("own flushes still queued", drain.isRegistered());
+
+        assertTrue(drain.onFlushCompleted());
+        assertFalse(drain.isRegistered());
+    }
+
+    @Test
+    public void lateFlushAfterTimeout_doesNotEndTheNextDrain() {
+        drain.start();
+        int first = drain.stop();
+        drain.beginDrain(first, 1);
+        drain.finishDrain(first);
+        drain.start();
+
+        drain.beginDrain(drain.stop(), 1);
+        assertFalse(drain.onFlushCompleted());
+        assertTrue(drain.onFlushCompleted());
+    }
+
+    @Test
+    public void unregisterNow_makesDrainStale() {
+        drain.start();
+        int generation = drain.stop();
+        drain.beginDrain(generation, 1);
+        drain.unregisterNow();
+
+        assertTrue(drain.onFlushCompleted());
+        assertEquals(Arrays.asList("register", "unregister"), sensors.calls);
+    }
+}
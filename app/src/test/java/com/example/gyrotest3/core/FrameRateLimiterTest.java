@@ -0,0 +1,42 @@
+package com.example.gyrotest3.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameRateLimiterTest {
+
+    private static final long VSYNC_60HZ = 16_666_667L;
+
+    private static int renderedFrames(FrameRateLimiter limiter, long vsyncNanos, int vsyncs, long jitterNanos) {
+        int rendered = 0;
+        for (int i = 0; i < vsyncs; i++) {
+            long frameTime = i * vsyncNanos + ((i % 2 == 0) ? jitterNanos : -jitterNanos);
+            if (limiter.isFrameDue(frameTime)) {
+                limiter.onFrameRendered(frameTime);
+                rendered++;
+            }
+        }
+        return rendered;
+    }
+
+    @Test
+    public void cap30_rendersEveryOtherVsyncAt60Hz() {
+        assertEquals(30, renderedFrames(new FrameRateLimiter(30), VSYNC_60HZ, 60, 500_000L));
+    }
+
+    @Test
+    public void cap60_rendersEveryVsyncAt60Hz() {
+        assertEquals(60, renderedFrames(new FrameRateLimiter(60), VSYNC_60HZ, 60, 500_000L));
+    }
+
+    @Test
+    public void cap60_halvesA120HzDisplay() {
+        assertEquals(60, renderedFrames(new FrameRateLimiter(60), VSYNC_60HZ / 2, 120, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveCap() {
+        new FrameRateLimiter(0);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.gyrotest3.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JournalReplayerTest {
+
+    /**
+     * Local stand-in for the Socket.IO client: records emits and can drop the link
+     */
+    private static final class FakeSocket implements TelemetryTransport {
+        boolean connected = true;
+        int disconnectAfter = Integer.MAX_VALUE;
+        final List<Integer> received = new ArrayList<>();
+
+        @Override
+        public boolean isConnected() {
+            return connected;
+        }
+
+        @Override
+        public void emit(String event, int kind, byte[] payload) {
+            received.add(payload[0] & 0xFF);
+            if (received.size() >= disconnectAfter) {
+                connected = false;
+            }
+        }
+    }
+
+    private File directory;
+    private TelemetryJournal journal;
+
+    @Before
+    public void openJournal() throws IOException {
+        directory = Files.createTempDirectory("replay").toFile();
+        journal = new TelemetryJournal(directory, 4096, 4);
+        for (int i = 0; i < 25; i++) {
+            journal.append("attitude_batch", TelemetryJournal.KIND_BINARY, new byte[]{(byte) i});
+        }
+    }
+
+    @After
+    public void closeJournal() throws IOException {
+        journal.close();
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void replayBatch_sendsAtMostBatchSizePerCall() throws IOException {
+        FakeSocket socket = new FakeSocket();
+        JournalReplayer replayer = new JournalReplayer(journal, socket, 10);
+
+        assertTrue(replayer.replayBatch());
+        assertEquals(10, socket.received.size());
+        assertTrue(replayer.replayBatch());
+        assertFalse(replayer.replayBatch());
+        assertEquals(25, socket.received.size());
+        assertTrue(journal.isEmpty());
+    }
+
+    @Test
+    public void disconnectMidReplay_resumesWithoutLossOrDuplicates() throws IOException {
+        FakeSocket socket = new FakeSocket();
+        socket.disconnectAfter = 7;
+        JournalReplayer replayer = new JournalReplayer(journal, socket, 10);
+
+        assertFalse(replayer.replayBatch());
+        assertEquals(7, socket.received.size());
+
+        socket.connected = true;
+        socket.disconnectAfter = Integer.MAX_VALUE;
+        while (replayer.replayBatch()) {
+            // drain
+        }
+
+        assertEquals(25, socket.received.size());
+        for (int i = 0; i < 25; i++) {
+            assertEquals(i, (int) socket.received.get(i));
+        }
+    }
+
+    @Test
+    public void replayBatch_doesNothingWhileDisconnected() throws IOException {
+        FakeSocket socket = new FakeSocket();
+        socket.connected = false;
+
+        assertFalse(new JournalReplayer(journal, socket, 10).replayBatch());
+        assertTrue(socket.received.isEmpty());
+        assertFalse(journal.isEmpty());
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.gyrotest3.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class JumpDetectorTest {
+
+    private static final float G = 9.81f;
+    private static final long STEP = 5_000_000L; // 200 Hz
+
+    private final JumpDetector detector = new JumpDetector();
+    private long t = 1_000_000_000L;
+
+    @Test
+    public void jump_reportsAirtimePeakAndRotation() {
+        run(500, 0, 0, G, 0);
+        long takeoff = t;
+        run(600, 0.5f, 0, 0.5f, (float) Math.PI); // half a turn per second in the air
+        run(40, 0, 0, 4.2f * G, 0);              // landing impact
+        run(300, 0, 0, G, 0);
+
+        JumpEvent jump = detector.pollJump();
+        assertNotNull(jump);
+        assertEquals(takeoff, jump.takeoffNanos);
+        assertEquals(600, jump.airtimeMillis);
+        assertEquals(4.2f, jump.peakLandingG, 0.01f);
+        assertEquals(108f, jump.rotationDegrees, 2f);
+        assertNull(detector.pollJump());
+    }
+
+    @Test
+    public void shortDip_isDebounced() {
+        run(200, 0, 0, G, 0);
+        run(60, 0, 0, 0.2f * G, 0); // under the minimum airtime
+        run(500, 0, 0, G, 0);
+
+        assertNull(detector.pollJump());
+        assertEquals(1, detector.getRejectedTakeoffs());
+    }
+
+    @Test
+    public void midAirBump_doesNotEndFlight() {
+        run(200, 0, 0, G, 0);
+        run(300, 0, 0, 0.1f * G, 0);
+        run(15, 0, 0, 0.8f * G, 0);  // brief contact shorter than the landing debounce
+        run(300, 0, 0, 0.1f * G, 0);
+        run(300, 0, 0, 2f * G, 0);
+
+        JumpEvent jump = detector.pollJump();
+        assertNotNull(jump);
+        assertEquals(615, jump.airtimeMillis);
+    }
+
+    @Test
+    public void hysteresis_ignoresHoverBetweenThresholds() {
+        run(200, 0, 0, G, 0);
+        run(500, 0, 0, 0.5f * G, 0); // between takeoff and exit thresholds, never below takeoff
+
+        assertFalse(detector.isAirborne());
+    }
+
+    @Test
+    public void droppedPhone_isNotAJump() {
+        run(200, 0, 0, G, 0);
+        run(5_000, 0, 0, 0.05f * G, 0);
+        run(500, 0, 0, G, 0);
+
+        assertNull(detector.pollJump());
+    }
+
+    @Test
+    public void withoutGyroscope_rotationUnknown() {
+        run(200, 0, 0, G, 0);
+        run(300, 0, 0, 0, 0);
+        run(300, 0, 0, G, 0);
+
+        // run() only feeds the gyro when the rate is non-zero
+        JumpEvent jump = detector.pollJump();
+        assertNotNull(jump);
+        assertFalse(jump.hasRotation());
+    }
+
+    private void run(int millis, float x, float y, float z, float rate) {
+        for (long end = t + millis * 1_000_000L; t < end; t += STEP) {
+            detector.onAccelerometer(x, y, z, t);
+            if (rate != 0) {
+                detector.onGyroscope(0, 0, rate, t);
+            }
+        }
+    }
+}
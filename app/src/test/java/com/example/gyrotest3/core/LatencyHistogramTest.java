@@ -0,0 +1,76 @@
+package com.example.gyrotest3.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void smallValues_areExact() {
+        LatencyHistogram histogram = new LatencyHistogram(1_000_000, 2);
+        for (int v = 1; v <= 100; v++) {
+            histogram.recordValue(v);
+        }
+
+        assertEquals(50, histogram.getValueAtPercentile(50));
+        assertEquals(99, histogram.getValueAtPercentile(99));
+        assertEquals(100, histogram.getValueAtPercentile(100));
+        assertEquals(1, histogram.getMinValue());
+        assertEquals(50.5, histogram.getMean(), 1e-9);
+    }
+
+    @Test
+    public void percentiles_stayWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram(60_000_000, 2);
+        long[] values = new long[10_000];
+        Random random = new Random(7);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp(random.nextDouble() * 15); // 1 us .. ~3 s
+            histogram.recordValue(values[i]);
+        }
+        java.util.Arrays.sort(values);
+
+        for (double percentile : new double[]{50, 90, 99, 99.9}) {
+            long exact = values[(int) (percentile / 100 * values.length + 0.5) - 1];
+            long reported = histogram.getValueAtPercentile(percentile);
+            assertTrue(percentile + ": " + reported + " vs " + exact, reported >= exact);
+            assertTrue(percentile + ": " + reported + " vs " + exact, reported <= exact + exact / 100 + 1);
+        }
+    }
+
+    @Test
+    public void outOfRange_isClampedAndCounted() {
+        LatencyHistogram histogram = new LatencyHistogram(1_000, 2);
+        histogram.recordValue(-5);
+        histogram.recordValue(5_000);
+
+        assertEquals(0, histogram.getMinValue());
+        assertEquals(1_000, histogram.getMaxValue());
+        assertEquals(1, histogram.getClampedCount());
+        assertEquals(1_000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void add_thenReset() {
+        LatencyHistogram a = new LatencyHistogram(10_000, 2);
+        LatencyHistogram b = new LatencyHistogram(10_000, 2);
+        a.recordValue(10);
+        b.recordValue(9_000);
+
+        a.add(b);
+        assertEquals(2, a.getTotalCount());
+        assertEquals(9_000, a.getMaxValue(), 9_000 / 100);
+
+        a.reset();
+        assertEquals(0, a.getTotalCount());
+        assertEquals(0, a.getValueAtPercentile(99));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnsupportedPrecision() {
+        new LatencyHistogram(1_000, 6);
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.gyrotest3.core;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MahonyFusionTest {
+
+    private static final float G = 9.81f;
+    private static final long STEP_NANOS = 10_000_000L; // 100 Hz
+
+    @Test
+    public void stationaryTrace_settlesOnAccelerometerMagnetometerAngles() {
+        AttitudeProcessor processor = new AttitudeProcessor(true, new MahonyFusion(true));
+        Trace trace = new Trace(processor, 1);
+        trace.gyroBias = 0.02f; // rad/s, typical uncalibrated MEMS bias
+
+        trace.run(10_000, 0, 0, G, 0, 20, -40, 0, 0, 0);
+
+        AttitudeSnapshot snapshot = processor.snapshot(0);
+        assertEquals(0f, snapshot.pitch, 1f);
+        assertEquals(0f, snapshot.roll, 1f);
+        assertEquals(0f, headingError(snapshot.yaw, 0f), 2f);
+    }
+
+    @Test
+    public void yawTurn_withoutMagnetometer_followsGyro() {
+        AttitudeProcessor processor = new AttitudeProcessor(false, new MahonyFusion(false));
+        Trace trace = new Trace(processor, 2);
+
+        trace.run(100, 0, 0, G, 0, 0, 0, 0, 0, 0);
+        assertEquals(0f, headingError(processor.snapshot(0).yaw, 0f), 0.5f);
+
+        // Counter-clockwise quarter turn seen from above: heading goes from north to west
+        trace.run(1_000, 0, 0, G, 0, 0, 0, 0, 0, (float) Math.PI / 2);
+
+        assertEquals(0f, headingError(processor.snapshot(0).yaw, 270f), 2f);
+    }
+
+    @Test
+    public void jump_freeFallAndLandingDoNotTiltEstimate() {
+        MahonyFusion fusion = new MahonyFusion(false);
+        AttitudeProcessor processor = new AttitudeProcessor(false, fusion);
+        Trace trace = new Trace(processor, 3);
+
+        trace.run(1_000, 0, 0, G, 0, 0, 0, 0, 0, 0);
+        trace.run(500, 0, 0, 0.3f, 0, 0, 0, 0, 0, 0);       // airborne
+        trace.run(50, 2.5f * G, 0, 3.5f * G, 0, 0, 0, 0, 0, 0); // landing impact, lurching forward
+        trace.run(500, 0, 0, G, 0, 0, 0, 0, 0, 0);
+
+        AttitudeSnapshot snapshot = processor.snapshot(0);
+        assertEquals(0f, snapshot.pitch, 1f);
+        assertEquals(0f, snapshot.roll, 1f);
+        assertTrue(fusion.getRejectedAccelerometerSamples() >= 55);
+    }
+
+    @Test
+    public void tiltChange_missedByGyro_convergesToAccelerometer() {
+        AttitudeProcessor processor = new AttitudeProcessor(false, new MahonyFusion(false));
+        Trace trace = new Trace(processor, 4);
+        float pitch = (float) Math.toRadians(30);
+
+        trace.run(500, 0, 0, G, 0, 0, 0, 0, 0, 0);
+        trace.run(6_000, G * (float) Math.sin(pitch), 0, G * (float) Math.cos(pitch), 0, 0, 0, 0, 0, 0);
+
+        assertEquals(30f, processor.snapshot(0).pitch, 1f);
+    }
+
+    @Test
+    public void firstSamples_initializeFromAccelerometerAndMagnetometer() {
+        AttitudeProcessor processor = new AttitudeProcessor(true, new MahonyFusion(true));
+        float pitch = (float) Math.toRadians(20);
+
+        assertFalse(processor.updateOrientation());
+        processor.onAccelerometer(G * (float) Math.sin(pitch), 0, G * (float) Math.cos(pitch));
+        processor.onMagnetometer(20, 0, -40);
+        assertTrue(processor.updateOrientation());
+
+        AttitudeSnapshot snapshot = processor.snapshot(0);
+        assertEquals(20f, snapshot.pitch, 0.1f);
+        assertEquals(0f, snapshot.roll, 0.1f);
+        assertEquals(0f, headingError(snapshot.yaw, 270f), 0.5f);
+    }
+
+    @Test
+    public void gyroGap_isNotIntegrated() {
+        AttitudeProcessor processor = new AttitudeProcessor(false, new MahonyFusion(false));
+        processor.onAccelerometer(0, 0, G);
+
+        processor.onGyroscope(0, 0, 0, 1_000_000_000L);
+        processor.onGyroscope(0, 0, 5, 2_000_000_000L); // 1 s gap, e.g. after onPause
+        processor.updateOrientation();
+
+        assertEquals(0f, processor.snapshot(0).yaw, 0.01f);
+    }
+
+    @Test
+    public void update_allocatesNothing() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        MahonyFusion fusion = new MahonyFusion(true);
+        AttitudeProcessor processor = new AttitudeProcessor(true, fusion);
+        long[] clock = {1};
+
+        // Warm up so the JIT has compiled the paths being measured
+        for (int i = 0; i < 20_000; i++) {
+            step(processor, clock, i);
+        }
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 1_000; i++) {
+            step(processor, clock, i);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(0, allocated);
+    }
+
+    private static void step(AttitudeProcessor processor, long[] clock, int i) {
+        clock[0] += STEP_NANOS;
+        processor.onAccelerometer(0.1f * (i & 7), 0, G);
+        processor.onMagnetometer(0, 20, -40);
+        processor.onGyroscope(0.01f, -0.02f, 0.03f, clock[0]);
+        processor.updateOrientation();
+    }
+
+    /**
+     * Signed difference in degrees, wrapped into [-180, 180)
+     */
+    private static float headingError(float yaw, float expected) {
+        float error = (yaw - expected) % 360;
+        if (error >= 180) error -= 360;
+        if (error < -180) error += 360;
+        return error;
+    }
+
+    /**
+     * Deterministic 100 Hz sensor trace with noise on every channel, as a phone held
+     * still on a board would record
+     */
+    private static final class Trace {
+        final AttitudeProcessor processor;
+        final Random noise;
+        float gyroBias = 0;
+        long timestamp = 1;
+
+        Trace(AttitudeProcessor processor, long seed) {
+            this.processor = processor;
+            this.noise = new Random(seed);
+        }
+
+        void run(int millis, float ax, float ay, float az, float mx, float my, float mz,
+                 float gx, float gy, float gz) {
+            for (int t = 0; t < millis; t += STEP_NANOS / 1_000_000) {
+                timestamp += STEP_NANOS;
+                processor.onAccelerometer(ax + jitter(0.05f), ay + jitter(0.05f), az + jitter(0.05f));
+                if (mx != 0 || my != 0 || mz != 0) {
+                    processor.onMagnetometer(mx + jitter(0.5f), my + jitter(0.5f), mz + jitter(0.5f));
+                }
+                processor.onGyroscope(gx + gyroBias + jitter(0.005f), gy + jitter(0.005f),
+                        gz + jitter(0.005f), timestamp);
+                processor.updateOrientation();
+            }
+        }
+
+        private float jitter(float sigma) {
+            return (float) noise.nextGaussian() * sigma;
+        }
+    }
+}
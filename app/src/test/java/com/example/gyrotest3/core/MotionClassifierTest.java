@@ -0,0 +1,125 @@
+package com.example.gyrotest3.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MotionClassifierTest {
+
+    private static final float G = 9.81f;
+    private static final long STEP = 20_000_000L; // 50 Hz
+
+    private final MotionClassifier classifier = new MotionClassifier();
+    private long t = 1_000_000_000L;
+
+    @Test
+    public void stillPhone_staysIdle() {
+        run(10_000, 0, 0, false);
+
+        assertEquals(MotionState.IDLE, classifier.getState());
+        assertEquals(0, classifier.getTransitions());
+        assertEquals(0f, classifier.getActivityG(), 0.001f);
+    }
+
+    @Test
+    public void gpsSpeed_promotesToRidingImmediately() {
+        run(2_000, 0, 0, false);
+        assertTrue(classifier.onAccelerometer(0, 0, G, t, 25f, false));
+
+        assertEquals(MotionState.RIDING, classifier.getState());
+    }
+
+    @Test
+    public void roughTerrain_isRidingEvenWithoutGps() {
+        run(3_000, 0.6f, 0, false); // ±0.6 g chatter, no steps
+
+        assertEquals(MotionState.RIDING, classifier.getState());
+    }
+
+    @Test
+    public void steps_meanWalking() {
+        classifier.onSteps(0, t);
+        run(1_000, 0, 0, false);
+        classifier.onSteps(3, t);
+        run(1_000, 0.6f, 0, false); // arm swing while stepping is not riding
+
+        assertEquals(MotionState.WALKING, classifier.getState());
+    }
+
+    @Test
+    public void airborne_thenBackToRidingWithoutHold() {
+        run(1_000, 0, 20f, false);
+        run(500, 0, 20f, true);
+        assertEquals(MotionState.AIRBORNE, classifier.getState());
+
+        run(100, 0, 20f, false);
+        assertEquals(MotionState.RIDING, classifier.getState());
+    }
+
+    @Test
+    public void stoppingAfterRide_isHeldBeforeDemotion() {
+        run(2_000, 0, 20f, false);
+        assertEquals(MotionState.RIDING, classifier.getState());
+
+        run(9_000, 0, 0, false); // brief stop in a line at the lift
+        assertEquals(MotionState.RIDING, classifier.getState());
+
+        run(2_000, 0, 0, false);
+        assertEquals(MotionState.IDLE, classifier.getState());
+    }
+
+    @Test
+    public void reboundDuringHold_restartsTheHold() {
+        run(2_000, 0, 20f, false);
+        run(8_000, 0, 0, false);
+        run(100, 0, 20f, false);
+        run(8_000, 0, 0, false);
+
+        assertEquals(MotionState.RIDING, classifier.getState());
+    }
+
+    @Test
+    public void walkingToIdle_usesTheLongerHold() {
+        run(2_000, 0, 5f, false);
+        assertEquals(MotionState.WALKING, classifier.getState());
+
+        run(29_000, 0, 0, false);
+        assertEquals(MotionState.WALKING, classifier.getState());
+        run(2_000, 0, 0, false);
+        assertEquals(MotionState.IDLE, classifier.getState());
+    }
+
+    @Test
+    public void activity_isIndependentOfSampleRate() {
+        MotionClassifier slow = new MotionClassifier();
+        long ts = t;
+        for (int i = 0; i < 5 * 10; i++) { // 10 Hz
+            float z = G * (1 + ((i & 1) == 0 ? 0.3f : -0.3f));
+            slow.onAccelerometer(0, 0, z, ts, 0, false);
+            ts += 100_000_000L;
+        }
+        run(5_000, 0.3f, 0, false);
+
+        assertEquals(classifier.getActivityG(), slow.getActivityG(), 0.05f);
+    }
+
+    @Test
+    public void policies_rideFasterThanIdle() {
+        assertTrue(MotionState.RIDING.samplingPeriodUs < MotionState.IDLE.samplingPeriodUs);
+        assertTrue(MotionState.RIDING.gpsIntervalMillis < MotionState.IDLE.gpsIntervalMillis);
+        assertTrue(MotionState.RIDING.sendIntervalMillis < MotionState.IDLE.sendIntervalMillis);
+        assertTrue(MotionState.AIRBORNE.samePolicyAs(MotionState.RIDING));
+        assertFalse(MotionState.WALKING.samePolicyAs(MotionState.RIDING));
+    }
+
+    /**
+     * Vertical acceleration alternating ±{@code swingG} around 1 g
+     */
+    private void run(long millis, float swingG, float speedKmh, boolean airborne) {
+        for (long elapsed = 0; elapsed < millis; elapsed += STEP / 1_000_000L) {
+            float z = G * (1 + (((t / STEP) & 1) == 0 ? swingG : -swingG));
+            classifier.onAccelerometer(0, 0, z, t, speedKmh, airborne);
+            t += STEP;
+        }
+    }
+}
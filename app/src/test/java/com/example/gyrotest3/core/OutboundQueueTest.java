@@ -0,0 +1,196 @@
+package com.example.gyrotest3.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OutboundQueueTest {
+
+    private static final long MS = 1_000_000L;
+
+    private static final class RecordingSender implements OutboundQueue.Sender {
+        final List<OutboundQueue.Message> sent = new ArrayList<>();
+        final List<OutboundQueue.Message> dropped = new ArrayList<>();
+
+        @Override
+        public void send(OutboundQueue.Message message) {
+            sent.add(message);
+        }
+
+        @Override
+        public void dropped(OutboundQueue.Message message) {
+            dropped.add(message);
+        }
+
+        List<Object> sentPayloads() {
+            List<Object> payloads = new ArrayList<>();
+            for (OutboundQueue.Message message : sent) {
+                payloads.add(message.getPayload());
+            }
+            return payloads;
+        }
+    }
+
+    private static OutboundQueue connectedQueue(RecordingSender sender, int capacity, int maxInFlight) {
+        OutboundQueue queue = new OutboundQueue(sender, capacity, maxInFlight, 2_000 * MS);
+        queue.setConnected(true, 0);
+        return queue;
+    }
+
+    @Test
+    public void window_holdsMessagesUntilAcked() {
+        RecordingSender sender = new RecordingSender();
+        OutboundQueue queue = connectedQueue(sender, 10, 2);
+
+        for (int i = 0; i < 4; i++) {
+            queue.offer("attitude_frame", i, OutboundQueue.Policy.DROP_OLDEST, null, i * MS);
+        }
+        assertEquals(2, sender.sent.size());
+        assertEquals(2, queue.getDepth());
+
+        queue.onAcked(sender.sent.get(0).id, 10 * MS);
+        assertEquals(3, sender.sent.size());
+        assertEquals(2, queue.getInFlight());
+    }
+
+    @Test
+    public void slowUplink_shedsOldestSamplesButKeepsEvents() {
+        RecordingSender sender = new RecordingSender();
+        OutboundQueue queue = connectedQueue(sender, 3, 1);
+
+        queue.offer("attitude_frame", "a0", OutboundQueue.Policy.DROP_OLDEST, null, 0); // sent, unacked
+        queue.offer("attitude_frame", "a1", OutboundQueue.Policy.DROP_OLDEST, null, 0);
+        queue.offer("jump", "j", OutboundQueue.Policy.NEVER_DROP, null, 0);
+        queue.offer("attitude_frame", "a2", OutboundQueue.Policy.DROP_OLDEST, null, 0);
+        queue.offer("attitude_frame", "a3", OutboundQueue.Policy.DROP_OLDEST, null, 0);
+
+        assertEquals(1, queue.getDropped());
+        assertEquals("a1", sender.dropped.get(0).getPayload());
+        assertEquals(3, queue.getDepth());
+
+        for (int i = 0; i < 4; i++) {
+            queue.onAcked(sender.sent.get(sender.sent.size() - 1).id, MS);
+        }
+        assertEquals(java.util.Arrays.asList("a0", "j", "a2", "a3"), sender.sentPayloads());
+    }
+
+    @Test
+    public void neverDrop_exceedsCapacityRatherThanLosingEvents() {
+        RecordingSender sender = new RecordingSender();
+        OutboundQueue queue = connectedQueue(sender, 2, 1);
+
+        for (int i = 0; i < 4; i++) {
+            queue.offer("jump", i, OutboundQueue.Policy.NEVER_DROP, null, 0);
+        }
+        queue.offer("attitude_frame", "late", OutboundQueue.Policy.DROP_OLDEST, null, 0);
+
+        assertEquals(3, queue.getDepth());
+        assertEquals(1, queue.getOverCapacity());
+        assertEquals("late", sender.dropped.get(0).getPayload());
+    }
+
+    @Test
+    public void coalesceLatest_keepsOnePendingStatePerEvent() {
+        RecordingSender sender = new RecordingSender();
+        OutboundQueue queue = connectedQueue(sender, 10, 1);
+        queue.offer("attitude_frame", "a", OutboundQueue.Policy.DROP_OLDEST, null, 0);
+
+        queue.offer("latency_metrics", "m1", OutboundQueue.Policy.COALESCE_LATEST, "c1", 0);
+        queue.offer("latency_metrics", "m2", OutboundQueue.Policy.COALESCE_LATEST, "c2", 0);
+        queue.offer("get_device_state", "s", OutboundQueue.Policy.COALESCE_LATEST, null, 0);
+
+        assertEquals(2, queue.getDepth());
+        assertEquals(1, queue.getCoalesced());
+        queue.onAcked(sender.sent.get(0).id, MS);
+        assertEquals("m2", sender.sent.get(1).getPayload());
+        assertEquals("c2", sender.sent.get(1).getContext());
+    }
+
+    @Test
+    public void ackTimeout_freesSlot() {
+        RecordingSender sender = new RecordingSender();
+        OutboundQueue queue = connectedQueue(sender, 10, 1);
+        queue.offer("attitude_frame", 0, OutboundQueue.Policy.DROP_OLDEST, null, 0);
+        queue.onAcked(sender.sent.get(0).id, MS);
+        queue.offer("attitude_frame", 1, OutboundQueue.Policy.DROP_OLDEST, null, MS);
+        queue.offer("attitude_frame", 2, OutboundQueue.Policy.DROP_OLDEST, null, MS);
+
+        queue.onTick(1_000 * MS);
+        assertEquals(2, sender.sent.size());
+
+        queue.onTick(2_001 * MS);
+        assertEquals(3, sender.sent.size());
+        assertEquals(1, queue.getAckTimeouts());
+        assertFalse("acks were seen, so the window stays", queue.isAckless());
+    }
+
+    @Test
+    public void serverWithoutAcks_liftsWindowForConnection() {
+        RecordingSender sender = new RecordingSender();
+        OutboundQueue queue = connectedQueue(sender, 10, 1);
+        for (int i = 0; i < 3; i++) {
+            queue.offer("attitude_frame", i, OutboundQueue.Policy.DROP_OLDEST, null, 0);
+        }
+
+        queue.onTick(2_000 * MS);
+        assertTrue(queue.isAckless());
+        assertEquals(3, sender.sent.size());
+
+        queue.setConnected(true, 3_000 * MS);
+        assertFalse("a new connection probes for acks again", queue.isAckless());
+    }
+
+    @Test
+    public void serverWithoutAcks_sendsWithoutAcks() {
+        RecordingSender sender = new RecordingSender();
+        OutboundQueue queue = connectedQueue(sender, 10, 1);
+        queue.offer("attitude_frame", 0, OutboundQueue.Policy.DROP_OLDEST, null, 0);
+        assertTrue(sender.sent.get(0).isAckExpected());
+
+        queue.onTick(2_000 * MS);
+        queue.offer("attitude_frame", 1, OutboundQueue.Policy.DROP_OLDEST, null, 2_000 * MS);
+
+        assertFalse("no ack callback left waiting", sender.sent.get(1).isAckExpected());
+        assertEquals(0, queue.getInFlight());
+    }
+
+    @Test
+    public void eventNeverAcked_isSentWithoutAcks() {
+        RecordingSender sender = new RecordingSender();
+        OutboundQueue queue = connectedQueue(sender, 10, 4);
+        queue.offer("attitude_frame", "a0", OutboundQueue.Policy.DROP_OLDEST, null, 0);
+        queue.offer("latency_metrics", "m0", OutboundQueue.Policy.COALESCE_LATEST, null, 0);
+        queue.onAcked(sender.sent.get(0).id, MS);
+
+        queue.onTick(2_000 * MS);
+        assertFalse(queue.isAckless());
+        assertEquals(1, queue.getAcklessEvents());
+
+        queue.offer("latency_metrics", "m1", OutboundQueue.Policy.COALESCE_LATEST, null, 2_000 * MS);
+        queue.offer("attitude_frame", "a1", OutboundQueue.Policy.DROP_OLDEST, null, 2_000 * MS);
+        assertFalse(sender.sent.get(2).isAckExpected());
+        assertTrue("acked events still wait for acks", sender.sent.get(3).isAckExpected());
+        assertEquals(1, queue.getInFlight());
+
+        queue.setConnected(true, 3_000 * MS);
+        assertEquals("a new connection probes every event again", 0, queue.getAcklessEvents());
+    }
+
+    @Test
+    public void disconnected_holdsMessagesForJournal() {
+        RecordingSender sender = new RecordingSender();
+        OutboundQueue queue = new OutboundQueue(sender, 10, 4, 2_000 * MS);
+
+        queue.offer("attitude_frame", "a", OutboundQueue.Policy.DROP_OLDEST, null, 0);
+        queue.offer("jump", "j", OutboundQueue.Policy.NEVER_DROP, null, 0);
+        List<OutboundQueue.Message> pending = queue.takeQueued();
+
+        assertTrue(sender.sent.isEmpty());
+        assertEquals(2, pending.size());
+        assertEquals("a", pending.get(0).getPayload());
+        assertEquals(0, queue.getDepth());
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.gyrotest3.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ReconnectControllerTest {
+
+    private final List<Long> scheduled = new ArrayList<>();
+    private int cancels = 0;
+    private int connects = 0;
+    private ReconnectController controller;
+
+    @Before
+    public void createController() {
+        ReconnectController.Actions actions = new ReconnectController.Actions() {
+            @Override
+            public void scheduleAttempt(long delayMillis) {
+                scheduled.add(delayMillis);
+            }
+
+            @Override
+            public void cancelAttempt() {
+                cancels++;
+            }
+
+            @Override
+            public void connectNow() {
+                connects++;
+            }
+        };
+        controller = new ReconnectController(actions, new ExponentialBackoff(1_000, 60_000, new Random(7)));
+        controller.requestConnect(0);
+        controller.onConnected(100);
+    }
+
+    @Test
+    public void disconnectAndErrorTogether_scheduleOneAttempt() {
+        controller.onConnectionLost(1_000);
+        controller.onConnectionLost(1_001);
+
+        assertEquals(1, scheduled.size());
+        assertEquals(1, controller.getDuplicateSignals());
+        assertEquals(ReconnectController.State.WAITING, controller.getState());
+    }
+
+    @Test
+    public void failedAttempts_backOffWithinGrowingCeilings() {
+        controller.onConnectionLost(1_000);
+        for (int i = 0; i < 8; i++) {
+            controller.onAttemptDue();
+            controller.onConnectionLost(2_000 + i);
+        }
+
+        assertEquals(9, scheduled.size());
+        assertEquals(8, controller.getAttempts() - 1);
+        for (int i = 0; i < scheduled.size(); i++) {
+            long ceiling = Math.min(60_000, 1_000L << i);
+            assertTrue("attempt " + i, scheduled.get(i) >= 0 && scheduled.get(i) < ceiling);
+        }
+    }
+
+    @Test
+    public void success_resetsBackoffAndRecordsTimeToReconnect() {
+        controller.onConnectionLost(10_000);
+        controller.onAttemptDue();
+        controller.onConnectionLost(11_000);
+        controller.onAttemptDue();
+        controller.onConnected(14_500);
+
+        assertEquals(ReconnectController.State.CONNECTED, controller.getState());
+        assertEquals(0, controller.getConsecutiveFailures());
+        assertEquals(4_500, controller.getLastTimeToReconnectMillis());
+        assertEquals(2, controller.getReconnects());
+    }
+
+    @Test
+    public void noNetwork_suspendsUntilNetworkReturns() {
+        controller.onConnectionLost(1_000);
+        controller.onNetworkLost();
+
+        assertEquals(ReconnectController.State.SUSPENDED, controller.getState());
+        controller.onAttemptDue();
+        assertEquals(1, connects); // only the initial connect
+
+        controller.onNetworkAvailable();
+        assertEquals(ReconnectController.State.WAITING, controller.getState());
+        assertEquals(2, scheduled.size());
+        assertTrue(scheduled.get(1) < 1_000);
+    }
+
+    @Test
+    public void lossWithoutNetwork_doesNotSchedule() {
+        controller.onNetworkLost();
+        controller.onConnectionLost(1_000);
+
+        assertTrue(scheduled.isEmpty());
+        assertEquals(ReconnectController.State.SUSPENDED, controller.getState());
+    }
+
+    @Test
+    public void disabled_ignoresLossUntilExplicitConnect() {
+        controller.disable();
+        controller.onConnectionLost(1_000);
+        assertTrue(scheduled.isEmpty());
+
+        controller.requestConnect(2_000);
+        assertEquals(ReconnectController.State.CONNECTING, controller.getState());
+        assertEquals(2, connects);
+    }
+
+    @Test
+    public void backoffCeiling_saturatesWithoutOverflow() {
+        ExponentialBackoff backoff = new ExponentialBackoff(1_000, 60_000, new Random(1));
+        assertEquals(1_000, backoff.ceilingMillis(0));
+        assertEquals(32_000, backoff.ceilingMillis(5));
+        assertEquals(60_000, backoff.ceilingMillis(6));
+        assertEquals(60_000, backoff.ceilingMillis(500));
+    }
+}
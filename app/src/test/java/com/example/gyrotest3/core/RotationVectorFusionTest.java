@@ -0,0 +1,46 @@
+package com.example.gyrotest3.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RotationVectorFusionTest {
+
+    @Test
+    public void notReadyUntilFirstRotationVector() {
+        AttitudeProcessor processor = new AttitudeProcessor(true, new RotationVectorFusion());
+
+        processor.onAccelerometer(0, 0, 9.81f);
+        processor.onMagnetometer(0, 20, -40);
+        assertFalse(processor.updateOrientation());
+
+        processor.onRotationVector(0, 0, 0, 1);
+        assertTrue(processor.updateOrientation());
+    }
+
+    @Test
+    public void quarterTurnAboutZ_isHeadingWest() {
+        AttitudeProcessor processor = new AttitudeProcessor(true, new RotationVectorFusion());
+        float half = (float) Math.toRadians(45);
+
+        processor.onRotationVector(0, 0, (float) Math.sin(half), (float) Math.cos(half));
+        processor.updateOrientation();
+
+        AttitudeSnapshot snapshot = processor.snapshot(0);
+        assertEquals(270f, snapshot.yaw, 0.01f);
+        assertEquals(0f, snapshot.pitch, 0.01f);
+        assertEquals(0f, snapshot.roll, 0.01f);
+    }
+
+    @Test
+    public void tiltAboutY_matchesAccelerometerPitch() {
+        AttitudeProcessor processor = new AttitudeProcessor(true, new RotationVectorFusion());
+        float half = (float) Math.toRadians(-15); // device x axis tipped toward the sky by 30°
+
+        // Unnormalized on purpose: some HALs report slightly off-unit quaternions
+        processor.onRotationVector(0, 1.01f * (float) Math.sin(half), 0, 1.01f * (float) Math.cos(half));
+        processor.updateOrientation();
+
+        assertEquals(30f, processor.snapshot(0).pitch, 0.01f);
+    }
+}
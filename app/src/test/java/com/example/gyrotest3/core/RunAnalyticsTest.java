@@ -0,0 +1,114 @@
+package com.example.gyrotest3.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RunAnalyticsTest {
+
+    private static final long MS = 1_000_000L;
+
+    private final RunAnalytics run = new RunAnalytics(0);
+
+    private void sample(long millis, float pitch, float roll, float gForce, float speed) {
+        run.onSample(new AttitudeSnapshot(millis * MS, pitch, 0, roll, gForce, speed, false, 0));
+    }
+
+    @Test
+    public void stats_areWeightedByTimeNotSampleCount() {
+        sample(0, 0, 0, 1f, 0);
+        sample(1_000, 0, 0, 1f, 0);          // 1 s standing
+        for (int i = 1; i <= 100; i++) {
+            sample(1_000 + i * 10, 0, 0, 1f, 30f); // 1 s riding at 100 Hz
+        }
+
+        RunAnalytics.Summary summary = run.summarize(2_000 * MS);
+        assertEquals(15f, summary.speed.getMean(), 0.01f);
+        assertEquals(30f, summary.speed.getMax(), 0f);
+        assertEquals(0f, summary.speed.getMin(), 0f);
+        assertEquals(1_000, summary.movingMillis);
+        assertEquals(102, summary.samples);
+        assertEquals(2_000, summary.durationMillis);
+    }
+
+    @Test
+    public void sensorGap_isCapped() {
+        sample(0, 0, 0, 1f, 20f);
+        sample(60_000, 0, 0, 1f, 20f);
+
+        assertEquals(RunAnalytics.MAX_SAMPLE_GAP_NANOS / MS, run.summarize(60_000 * MS).movingMillis);
+    }
+
+    @Test
+    public void histograms_bucketTimeAndClampOutliers() {
+        sample(0, 0, 0, 1f, 0);
+        sample(500, 5f, -25f, 1.1f, 0);
+        sample(1_000, 120f, 35f, 9f, 0);
+
+        RunAnalytics.Summary summary = run.summarize(1_000 * MS);
+        RunAnalytics.Histogram lean = summary.leanHistogram;
+        assertEquals(-30f, lean.bucketStart(6), 0f);
+        assertEquals(500, lean.millisAt(6));
+        assertEquals(500, lean.millisAt(12));
+        assertEquals("tilt beyond 90° lands in the last bucket", 500,
+                summary.tiltHistogram.millisAt(summary.tiltHistogram.bucketCount() - 1));
+        assertEquals(500, summary.gForceHistogram.millisAt(4));
+        assertEquals(500, summary.gForceHistogram.millisAt(15));
+    }
+
+    @Test
+    public void jumps_areTallied() {
+        run.onJump(new JumpEvent(0, 400, 3.1f, Float.NaN));
+        run.onJump(new JumpEvent(0, 900, 2.4f, -370f));
+
+        RunAnalytics.Summary summary = run.summarize(0);
+        assertEquals(2, summary.jumps);
+        assertEquals(1_300, summary.airtimeMillis);
+        assertEquals(900, summary.longestAirtimeMillis);
+        assertEquals(3.1f, summary.maxLandingG, 0f);
+        assertEquals(370f, summary.maxRotationDegrees, 0f);
+    }
+
+    @Test
+    public void distance_ignoresJitterAndInaccurateFixes() {
+        double lat = 46.0;
+        double metersPerDegree = RunAnalytics.distanceMeters(lat, 7.0, lat + 1, 7.0);
+        assertEquals(111_195, metersPerDegree, 10);
+
+        run.onLocation(lat, 7.0, 4f);
+        for (int i = 0; i < 50; i++) {
+            run.onLocation(lat + (i % 2) * 3 / metersPerDegree, 7.0, 4f); // 3 m jitter
+        }
+        assertEquals(0, run.summarize(0).distanceMeters, 0);
+
+        run.onLocation(lat + 100 / metersPerDegree, 7.0, 4f);
+        run.onLocation(lat + 5_000 / metersPerDegree, 7.0, 200f); // cell-tower fix
+        run.onLocation(lat + 200 / metersPerDegree, 7.0, 4f);
+        assertEquals(200, run.summarize(0).distanceMeters, 0.5);
+    }
+
+    @Test
+    public void reset_startsNewRun() {
+        sample(0, 10f, 10f, 1f, 10f);
+        sample(100, 10f, 10f, 1f, 10f);
+        run.onJump(new JumpEvent(0, 400, 3.1f, Float.NaN));
+
+        run.reset(1_000 * MS);
+        RunAnalytics.Summary summary = run.summarize(1_500 * MS);
+
+        assertEquals(0, summary.samples);
+        assertEquals(0, summary.jumps);
+        assertTrue(Float.isNaN(summary.pitch.getMax()));
+        assertTrue(Float.isNaN(summary.maxRotationDegrees));
+        assertEquals(500, summary.durationMillis);
+    }
+
+    @Test
+    public void summary_isACopy() {
+        sample(0, 0, 0, 1f, 5f);
+        RunAnalytics.Summary before = run.summarize(0);
+        sample(100, 0, 0, 1f, 50f);
+
+        assertEquals(5f, before.speed.getMax(), 0f);
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.gyrotest3.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SensorHistoryTest {
+
+    private static final long MS = 1_000_000L;
+
+    private static void append(SensorHistory history, long millis, float value) {
+        history.append(millis * MS, new float[]{value});
+    }
+
+    @Test
+    public void read_returnsWindowOldestFirst() {
+        SensorHistory history = new SensorHistory(16, 1);
+        for (int i = 0; i < 10; i++) {
+            append(history, i * 10, i);
+        }
+
+        long[] times = new long[16];
+        float[] values = new float[16];
+        int n = history.read(0, 25 * MS, 60 * MS, times, values);
+
+        assertEquals(3, n);
+        assertEquals(30 * MS, times[0]);
+        assertEquals(3f, values[0], 0f);
+        assertEquals(5f, values[2], 0f);
+        assertEquals(9f, history.getLatest(0), 0f);
+        assertEquals(90 * MS, history.getLatestTimestampNanos());
+    }
+
+    @Test
+    public void fullRing_keepsNewestCapacityMinusOne() {
+        SensorHistory history = new SensorHistory(8, 1);
+        for (int i = 0; i < 20; i++) {
+            append(history, i, i);
+        }
+
+        long[] times = new long[8];
+        float[] values = new float[8];
+        int n = history.read(0, 0, Long.MAX_VALUE, times, values);
+
+        assertEquals(7, n);
+        assertEquals(13f, values[0], 0f);
+        assertEquals(19f, values[6], 0f);
+        assertEquals(20, history.getWriteCount());
+    }
+
+    @Test
+    public void read_stopsAtOutputLength() {
+        SensorHistory history = new SensorHistory(16, 1);
+        for (int i = 0; i < 10; i++) {
+            append(history, i, i);
+        }
+
+        assertEquals(4, history.read(0, 0, Long.MAX_VALUE, new long[4], new float[4]));
+    }
+
+    @Test
+    public void downsample_keepsMinAndMaxPerBucket() {
+        SensorHistory history = new SensorHistory(64, 1);
+        float[] spiky = {0, 5, -3, 1, 2, 2, 9, 2};
+        for (int i = 0; i < spiky.length; i++) {
+            append(history, i * 10, spiky[i]);
+        }
+
+        float[] min = new float[4];
+        float[] max = new float[4];
+        int n = history.downsample(0, 0, 80 * MS, min, max);
+
+        assertEquals(8, n);
+        assertEquals(0f, min[0], 0f);
+        assertEquals(5f, max[0], 0f);
+        assertEquals(-3f, min[1], 0f);
+        assertEquals(9f, max[3], 0f);
+    }
+
+    @Test
+    public void downsample_leavesEmptyBucketsNaN() {
+        SensorHistory history = new SensorHistory(16, 1);
+        append(history, 5, 1f);
+        append(history, 95, 2f);
+
+        float[] min = new float[10];
+        float[] max = new float[10];
+        history.downsample(0, 0, 100 * MS, min, max);
+
+        assertEquals(1f, min[0], 0f);
+        assertTrue(Float.isNaN(min[5]));
+        assertEquals(2f, max[9], 0f);
+    }
+
+    @Test
+    public void attitudeSnapshot_fillsNamedChannels() {
+        SensorHistory history = new SensorHistory(4, SensorHistory.ATTITUDE_CHANNELS);
+        history.append(new AttitudeSnapshot(7, 10f, 20f, 30f, 1.5f, 42f, false, 0));
+
+        assertEquals(10f, history.getLatest(SensorHistory.PITCH), 0f);
+        assertEquals(30f, history.getLatest(SensorHistory.ROLL), 0f);
+        assertEquals(20f, history.getLatest(SensorHistory.YAW), 0f);
+        assertEquals(1.5f, history.getLatest(SensorHistory.GFORCE), 0f);
+        assertEquals(42f, history.getLatest(SensorHistory.SPEED), 0f);
+    }
+
+    @Test
+    public void olderTimestamp_isDroppedAndCounted() {
+        SensorHistory history = new SensorHistory(4, 1);
+        append(history, 10, 1f);
+        append(history, 5, 2f);
+
+        assertEquals(1, history.getWriteCount());
+        assertEquals(1, history.getOutOfOrder());
+    }
+
+    @Test
+    public void concurrentReader_neverSeesTornSamples() throws InterruptedException {
+        SensorHistory history = new SensorHistory(64, 2);
+        int total = 200_000;
+        Thread writer = new Thread(() -> {
+            float[] values = new float[2];
+            for (int i = 0; i < total; i++) {
+                values[0] = i;
+                values[1] = -i;
+                history.append(i, values);
+            }
+        });
+        writer.start();
+
+        long[] times = new long[64];
+        float[] a = new float[64];
+        float[] b = new float[64];
+        while (writer.isAlive()) {
+            int n = history.read(0, 0, Long.MAX_VALUE, times, a);
+            for (int i = 0; i < n; i++) {
+                assertEquals("value matches its timestamp", times[i], (long) a[i]);
+                if (i > 0) {
+                    assertTrue(times[i] > times[i - 1]);
+                }
+            }
+            history.read(1, 0, Long.MAX_VALUE, times, b);
+        }
+        writer.join();
+
+        assertEquals(total, history.getWriteCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsCapacityNotPowerOfTwo() {
+        new SensorHistory(100, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownChannel() {
+        new SensorHistory(4, 1).getLatest(1);
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.gyrotest3.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SensorTraceTest {
+
+    @Test
+    public void roundTrip_preservesSensorAndLocationRecords() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (SensorTraceWriter writer = new SensorTraceWriter(bytes)) {
+            writer.writeSensor(SensorTypes.ACCELEROMETER, 1_000_000_000L, new float[]{0.1f, -0.2f, 9.81f}, 3, 3);
+            writer.writeLocation(1_020_000_000L, 37.7749, -122.4194, 8.5f, 0.4f, 4.0f, 271.5f);
+            writer.writeSensor(SensorTypes.ROTATION_VECTOR, 1_010_000_000L,
+                    new float[]{0.1f, 0.2f, 0.3f, 0.9f, 0.05f}, 5, 2); // earlier than the fix
+        }
+
+        List<String> records = readAll(bytes.toByteArray());
+
+        assertEquals(Arrays.asList(
+                "sensor 1 @1000000000 acc=3 [0.1, -0.2, 9.81]",
+                "location @1020000000 37.7749,-122.4194 speed=8.5±0.4 acc=4.0 bearing=271.5",
+                "sensor 11 @1010000000 acc=2 [0.1, 0.2, 0.3, 0.9, 0.05]"), records);
+    }
+
+    @Test
+    public void sensorRecord_isCompact() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (SensorTraceWriter writer = new SensorTraceWriter(bytes)) {
+            writer.writeSensor(SensorTypes.ACCELEROMETER, 0, new float[3], 3, 3);
+            writer.flush();
+            int before = bytes.size();
+            writer.writeSensor(SensorTypes.ACCELEROMETER, 5_000_000L, new float[3], 3, 3);
+            writer.flush();
+
+            // tag + type + 4-byte delta + accuracy + count + 3 floats
+            assertEquals(1 + 1 + 4 + 1 + 1 + 12, bytes.size() - before);
+        }
+    }
+
+    @Test
+    public void truncatedTail_endsAtLastCompleteRecord() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (SensorTraceWriter writer = new SensorTraceWriter(bytes)) {
+            writer.writeSensor(SensorTypes.STEP_COUNTER, 1, new float[]{1200}, 1, 3);
+            writer.writeSensor(SensorTypes.STEP_COUNTER, 2, new float[]{1201}, 1, 3);
+        }
+        byte[] torn = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 2);
+
+        SensorTraceReader reader = new SensorTraceReader(new ByteArrayInputStream(torn));
+        List<String> records = new ArrayList<>();
+        reader.readAll(new Collector(records));
+
+        assertEquals(1, records.size());
+        assertTrue(reader.isTruncated());
+    }
+
+    @Test
+    public void versionOneTrace_readsWithoutBearing() throws IOException {
+        ByteBuffer v1 = ByteBuffer.allocate(5 + 1 + 1 + 8 + 8 + 4 * 3);
+        v1.putInt(SensorTraceWriter.MAGIC).put((byte) 1);
+        v1.put((byte) SensorTraceWriter.TAG_LOCATION).put((byte) 4); // zigzag(2)
+        v1.putDouble(1.5).putDouble(2.5).putFloat(3f).putFloat(0.5f).putFloat(6f);
+
+        assertEquals(Arrays.asList("location @2 1.5,2.5 speed=3.0±0.5 acc=6.0 bearing=NaN"), readAll(v1.array()));
+    }
+
+    @Test(expected = IOException.class)
+    public void reader_rejectsForeignFile() throws IOException {
+        new SensorTraceReader(new ByteArrayInputStream("not a trace".getBytes()));
+    }
+
+    private static List<String> readAll(byte[] trace) throws IOException {
+        List<String> records = new ArrayList<>();
+        try (SensorTraceReader reader = new SensorTraceReader(new ByteArrayInputStream(trace))) {
+            reader.readAll(new Collector(records));
+            assertFalse(reader.isTruncated());
+        }
+        return records;
+    }
+
+    private static final class Collector implements SensorTraceReader.Visitor {
+        final List<String> records;
+
+        Collector(List<String> records) {
+            this.records = records;
+        }
+
+        @Override
+        public void onSensor(int sensorType, long timestampNanos, float[] values, int valueCount, int accuracy) {
+            records.add("sensor " + sensorType + " @" + timestampNanos + " acc=" + accuracy + " "
+                    + Arrays.toString(Arrays.copyOf(values, valueCount)));
+        }
+
+        @Override
+        public void onLocation(long elapsedNanos, double latitude, double longitude,
+                               float speed, float speedAccuracy, float accuracy, float bearing) {
+            records.add("location @" + elapsedNanos + " " + latitude + "," + longitude
+                    + " speed=" + speed + "±" + speedAccuracy + " acc=" + accuracy + " bearing=" + bearing);
+        }
+    }
+}
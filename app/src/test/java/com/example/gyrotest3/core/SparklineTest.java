@@ -0,0 +1,103 @@
+package com.example.gyrotest3.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SparklineTest {
+
+    private static final long MS = 1_000_000L;
+
+    private final SensorHistory history = new SensorHistory(4096, 1);
+    private final float[] value = new float[1];
+
+    private void append(long millis, float v) {
+        value[0] = v;
+        history.append(millis * MS, value);
+    }
+
+    @Test
+    public void spikeBetweenColumns_survivesDecimation() {
+        Sparkline line = new Sparkline(0, 10, 1_000 * MS); // 100 ms columns
+        for (int t = 0; t < 1_000; t += 5) {
+            append(t, t == 505 ? 50f : 0f); // one 200 Hz spike
+        }
+        assertTrue(line.update(history));
+
+        float[] out = new float[line.maxLineFloats()];
+        int n = line.toLines(out, 0, 0, 90, 100, 0, 100);
+
+        assertEquals("10 columns plus 9 joins", 19 * 4, n);
+        assertEquals(50f, line.maxValue(), 0f);
+        // Column 5 is at x = 50, its max at y = 100 - 50
+        boolean found = false;
+        for (int i = 0; i < n; i += 4) {
+            if (out[i] == 50f && out[i + 2] == 50f && out[i + 1] == 50f) {
+                found = true;
+            }
+        }
+        assertTrue("spike column drawn", found);
+    }
+
+    @Test
+    public void update_onlyReadsNewSamples() {
+        Sparkline line = new Sparkline(0, 10, 1_000 * MS);
+        append(0, 1f);
+        assertTrue(line.update(history));
+        assertFalse("nothing new", line.update(history));
+
+        append(50, 3f);
+        assertTrue(line.update(history));
+        assertEquals(3f, line.maxValue(), 0f);
+    }
+
+    @Test
+    public void oldColumns_scrollOut() {
+        Sparkline line = new Sparkline(0, 10, 1_000 * MS);
+        append(0, 99f);
+        for (int t = 100; t <= 1_500; t += 100) {
+            append(t, 1f);
+        }
+        line.update(history);
+
+        assertEquals("the 99 is older than the window", 1f, line.maxValue(), 0f);
+    }
+
+    @Test
+    public void longGap_isNotJoined() {
+        Sparkline line = new Sparkline(0, 10, 10_000 * MS); // 1 s columns
+        append(0, 1f);
+        append(5_000, 2f);
+        line.update(history);
+
+        float[] out = new float[line.maxLineFloats()];
+        assertEquals("two columns, no join", 8, line.toLines(out, 0, 0, 90, 10, 0, 10));
+    }
+
+    @Test
+    public void valuesAreClampedToRange() {
+        Sparkline line = new Sparkline(0, 2, 100 * MS);
+        append(0, -20f);
+        append(60, 20f);
+        line.update(history);
+
+        float[] out = new float[line.maxLineFloats()];
+        int n = line.toLines(out, 0, 10, 100, 10, -10, 10);
+        for (int i = 1; i < n; i += 2) {
+            assertTrue(out[i] >= 10f && out[i] <= 20f);
+        }
+    }
+
+    @Test
+    public void setWindow_clears() {
+        Sparkline line = new Sparkline(0, 10, 1_000 * MS);
+        append(0, 5f);
+        line.update(history);
+
+        line.setWindow(2_000 * MS);
+
+        assertTrue(Float.isNaN(line.maxValue()));
+        assertEquals(0, line.toLines(new float[line.maxLineFloats()], 0, 0, 10, 10, 0, 10));
+        assertTrue("refills from history", line.update(history));
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.gyrotest3.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SpeedKalmanFilterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    public void firstFix_isAdoptedAlmostFully() {
+        SpeedKalmanFilter filter = new SpeedKalmanFilter();
+
+        filter.onGpsSpeed(SECOND, 10f, 0.5f);
+
+        assertEquals(10f, filter.getSpeed(), 0.05f);
+    }
+
+    @Test
+    public void noisyFix_nudgesInsteadOfJumping() {
+        SpeedKalmanFilter filter = cruising(10f);
+        long t = 10 * SECOND;
+
+        filter.onGpsSpeed(t + SECOND, 20f, 5f);
+
+        assertTrue(filter.getSpeed() > 10.1f);
+        assertTrue(filter.getSpeed() < 13f);
+    }
+
+    @Test
+    public void accurateFix_dominates() {
+        SpeedKalmanFilter filter = cruising(10f);
+
+        filter.onGpsSpeed(11 * SECOND, 20f, 0.05f);
+
+        assertEquals(20f, filter.getSpeed(), 0.2f);
+    }
+
+    @Test
+    public void acceleration_isIntegratedBetweenFixes() {
+        SpeedKalmanFilter filter = cruising(10f);
+        long t = 10 * SECOND;
+
+        for (int i = 1; i <= 100; i++) {
+            filter.predict(t + i * 10_000_000L, 2f); // 2 m/s² for 1 s
+        }
+
+        assertEquals(12f, filter.getSpeed(), 0.1f);
+    }
+
+    @Test
+    public void staleGps_decayIndependentOfSensorRate() {
+        SpeedKalmanFilter slow = cruising(10f);
+        SpeedKalmanFilter fast = cruising(10f);
+        long start = 10 * SECOND + SpeedKalmanFilter.GPS_STALE_NANOS;
+
+        for (long t = start; t <= start + 2 * SECOND; t += 20_000_000L) {
+            slow.predict(t, Float.NaN); // 50 Hz
+        }
+        for (long t = start; t <= start + 2 * SECOND; t += 5_000_000L) {
+            fast.predict(t, Float.NaN); // 200 Hz
+        }
+
+        assertEquals(slow.getSpeed(), fast.getSpeed(), 0.01f);
+        assertTrue(slow.getSpeed() < 10f);
+    }
+
+    @Test
+    public void accelerometerBias_isLearnedFromFixes() {
+        SpeedKalmanFilter filter = new SpeedKalmanFilter();
+        long t = SECOND;
+        filter.onGpsSpeed(t, 10f, 0.3f);
+
+        // Constant 10 m/s, but the accelerometer reads 0.3 m/s² too high
+        for (int second = 0; second < 120; second++) {
+            for (int i = 0; i < 50; i++) {
+                t += 20_000_000L;
+                filter.predict(t, 0.3f);
+            }
+            filter.onGpsSpeed(t, 10f, 0.3f);
+        }
+
+        assertEquals(0.3f, filter.getBias(), 0.05f);
+        assertEquals(10f, filter.getSpeed(), 0.1f);
+    }
+
+    @Test
+    public void speed_neverNegative() {
+        SpeedKalmanFilter filter = cruising(1f);
+
+        for (int i = 1; i <= 100; i++) {
+            filter.predict(10 * SECOND + i * 10_000_000L, -5f);
+        }
+
+        assertEquals(0f, filter.getSpeed(), 0f);
+    }
+
+    /**
+     * Ten seconds of 1 Hz fixes at {@code speed}, with no acceleration input
+     */
+    private static SpeedKalmanFilter cruising(float speed) {
+        SpeedKalmanFilter filter = new SpeedKalmanFilter();
+        for (int second = 1; second <= 10; second++) {
+            filter.predict(second * SECOND - 1, 0f);
+            filter.onGpsSpeed(second * SECOND, speed, 0.5f);
+        }
+        return filter;
+    }
+}
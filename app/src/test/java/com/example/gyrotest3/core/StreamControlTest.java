@@ -0,0 +1,100 @@
+package com.example.gyrotest3.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StreamControlTest {
+
+    private static StreamControl.Command command(Boolean streaming, Long sendIntervalMillis,
+                                                 Integer samplingPeriodUs, String[] fields, String encoding) {
+        return new StreamControl.Command(false, streaming, sendIntervalMillis, samplingPeriodUs, fields, encoding);
+    }
+
+    @Test
+    public void defaults_followMotionStateAndPreferences() {
+        StreamControl control = new StreamControl();
+
+        assertTrue(control.isStreaming());
+        assertEquals(100, control.sendIntervalMillis(MotionState.RIDING));
+        assertEquals(0, control.minSamplingPeriodUs());
+        assertEquals(StreamControl.ALL_FIELDS, control.getFields());
+        assertEquals("binary", control.encoding("binary"));
+    }
+
+    @Test
+    public void serverRates_onlySlowDown() {
+        StreamControl control = new StreamControl();
+
+        assertTrue(control.apply(command(null, 500L, 40_000, null, null)));
+
+        assertEquals(500, control.sendIntervalMillis(MotionState.RIDING));
+        assertEquals("idle is already slower", 1_000, control.sendIntervalMillis(MotionState.IDLE));
+        assertEquals(40_000, control.minSamplingPeriodUs());
+    }
+
+    @Test
+    public void pausedStream_slowsSensorsToIdle() {
+        StreamControl control = new StreamControl();
+
+        control.apply(command(false, null, null, null, null));
+
+        assertFalse(control.isStreaming());
+        assertEquals(MotionState.IDLE.samplingPeriodUs, control.minSamplingPeriodUs());
+    }
+
+    @Test
+    public void fieldsAndEncoding() {
+        StreamControl control = new StreamControl();
+
+        control.apply(command(null, null, null, new String[]{"pitch", "roll", "airborne"}, "delta"));
+
+        assertTrue(control.includes(AttitudeStreamEncoder.FIELD_ROLL));
+        assertTrue(control.includes(AttitudeStreamEncoder.FIELD_FLAGS));
+        assertFalse(control.includes(AttitudeStreamEncoder.FIELD_YAW));
+        assertEquals("delta", control.encoding("binary"));
+        assertArrayEquals(new String[]{"pitch", "roll", "airborne"}, StreamControl.fieldNames(control.getFields()));
+    }
+
+    @Test
+    public void sameValues_reportNoChange() {
+        StreamControl control = new StreamControl();
+        control.apply(command(true, 200L, null, null, "json"));
+
+        assertFalse(control.apply(command(true, 200L, null, null, "json")));
+        assertEquals(2, control.getCommandsApplied());
+    }
+
+    @Test
+    public void badCommand_changesNothing() {
+        StreamControl control = new StreamControl();
+
+        try {
+            control.apply(command(false, 200L, null, new String[]{"pitch", "altitude"}, null));
+            fail("unknown field accepted");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+
+        assertTrue(control.isStreaming());
+        assertEquals(100, control.sendIntervalMillis(MotionState.RIDING));
+        assertEquals(1, control.getCommandsRejected());
+    }
+
+    @Test
+    public void reset_restoresClientDefaults() {
+        StreamControl control = new StreamControl();
+        control.apply(command(false, 2_000L, 200_000, new String[]{"speed"}, "json"));
+
+        control.apply(new StreamControl.Command(true, null, null, null, null, null));
+
+        assertTrue(control.isStreaming());
+        assertEquals(StreamControl.ALL_FIELDS, control.getFields());
+        assertEquals("delta", control.encoding("delta"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeInterval() {
+        new StreamControl().apply(command(null, -1L, null, null, null));
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.gyrotest3.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TelemetryJournalTest {
+
+    private File directory;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("journal").toFile();
+    }
+
+    @After
+    public void deleteDirectory() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private static byte[] payload(int value) {
+        return new byte[]{(byte) (value >> 8), (byte) value, 42};
+    }
+
+    private static int valueOf(byte[] payload) {
+        return ((payload[0] & 0xFF) << 8) | (payload[1] & 0xFF);
+    }
+
+    private static List<Integer> drain(TelemetryJournal journal, int maxRecords) throws IOException {
+        List<Integer> values = new ArrayList<>();
+        journal.replay(maxRecords, (event, kind, payload) -> {
+            values.add(valueOf(payload));
+            return true;
+        });
+        return values;
+    }
+
+    private int segmentFiles() {
+        int count = 0;
+        for (File file : directory.listFiles()) {
+            if (file.getName().endsWith(".seg")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void replay_returnsRecordsInOrderWithEventAndKind() throws IOException {
+        try (TelemetryJournal journal = new TelemetryJournal(directory, 4096, 4)) {
+            journal.append("attitude_batch", TelemetryJournal.KIND_BINARY, payload(1));
+            journal.append("attitude_update", TelemetryJournal.KIND_JSON, "{\"a\":1}".getBytes("UTF-8"));
+
+            List<String> seen = new ArrayList<>();
+            journal.replay(10, (event, kind, payload) -> {
+                seen.add(event + "/" + kind + "/" + payload.length);
+                return true;
+            });
+
+            assertEquals(2, seen.size());
+            assertEquals("attitude_batch/1/3", seen.get(0));
+            assertEquals("attitude_update/2/7", seen.get(1));
+            assertTrue(journal.isEmpty());
+        }
+    }
+
+    @Test
+    public void replay_resumesFromCursorAfterReopen() throws IOException {
+        try (TelemetryJournal journal = new TelemetryJournal(directory, 4096, 4)) {
+            for (int i = 0; i < 5; i++) {
+                journal.append("e", TelemetryJournal.KIND_BINARY, payload(i));
+            }
+            assertEquals(2, drain(journal, 2).size());
+        }
+
+        try (TelemetryJournal reopened = new TelemetryJournal(directory, 4096, 4)) {
+            assertFalse(reopened.isEmpty());
+            List<Integer> rest = drain(reopened, 10);
+            assertEquals(3, rest.size());
+            assertEquals(2, (int) rest.get(0));
+            assertEquals(4, (int) rest.get(2));
+        }
+    }
+
+    @Test
+    public void append_afterReopenContinuesAtEndOfData() throws IOException {
+        try (TelemetryJournal journal = new TelemetryJournal(directory, 4096, 4)) {
+            journal.append("e", TelemetryJournal.KIND_BINARY, payload(1));
+        }
+        try (TelemetryJournal journal = new TelemetryJournal(directory, 4096, 4)) {
+            journal.append("e", TelemetryJournal.KIND_BINARY, payload(2));
+            List<Integer> values = drain(journal, 10);
+            assertEquals(2, values.size());
+            assertEquals(1, (int) values.get(0));
+            assertEquals(2, (int) values.get(1));
+        }
+    }
+
+    @Test
+    public void visitorRefusal_leavesRecordPending() throws IOException {
+        try (TelemetryJournal journal = new TelemetryJournal(directory, 4096, 4)) {
+            journal.append("e", TelemetryJournal.KIND_BINARY, payload(7));
+
+            assertEquals(0, journal.replay(10, (event, kind, payload) -> false));
+            assertEquals(7, (int) drain(journal, 10).get(0));
+        }
+    }
+
+    @Test
+    public void replayedSegments_areDeleted() throws IOException {
+        try (TelemetryJournal journal = new TelemetryJournal(directory, 64, 100)) {
+            for (int i = 0; i < 20; i++) {
+                journal.append("e", TelemetryJournal.KIND_BINARY, payload(i));
+            }
+            assertTrue(segmentFiles() > 2);
+
+            assertEquals(20, drain(journal, 100).size());
+            assertEquals(1, segmentFiles());
+            assertEquals(0, journal.pendingBytes());
+        }
+    }
+
+    @Test
+    public void append_evictsOldestSegmentWhenFull() throws IOException {
+        // 10-byte records, six per 64-byte segment
+        try (TelemetryJournal journal = new TelemetryJournal(directory, 64, 3)) {
+            for (int i = 0; i < 30; i++) {
+                journal.append("e", TelemetryJournal.KIND_BINARY, payload(i));
+            }
+
+            assertEquals(3, segmentFiles());
+            assertTrue(journal.getSegmentsEvicted() > 0);
+
+            List<Integer> values = drain(journal, 100);
+            assertTrue(values.size() < 30);
+            assertEquals(29, (int) values.get(values.size() - 1));
+            for (int i = 1; i < values.size(); i++) {
+                assertEquals(values.get(i - 1) + 1, (int) values.get(i));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void append_rejectsRecordLargerThanSegment() throws IOException {
+        try (TelemetryJournal journal = new TelemetryJournal(directory, 64, 2)) {
+            journal.append("e", TelemetryJournal.KIND_BINARY, new byte[64]);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.gyrotest3.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TelemetryLatencyTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void onQueued_samplesEveryNthMessage() {
+        TelemetryLatency latency = new TelemetryLatency(10, 0);
+        int sampled = 0;
+        for (int i = 0; i < 100; i++) {
+            if (latency.onQueued(i * MS, i * MS + MS, i * MS + 2 * MS)) {
+                sampled++;
+            }
+        }
+
+        assertEquals(10, sampled);
+        TelemetryLatency.Report report = latency.takeReport(1_000 * MS);
+        assertEquals(100, report.messages);
+        assertEquals(10, report.sampled);
+        assertEquals(100, report.count(TelemetryLatency.Stage.PROCESS));
+        assertEquals(0, report.count(TelemetryLatency.Stage.ACK));
+    }
+
+    @Test
+    public void stages_reportPercentilesInMicros() {
+        TelemetryLatency latency = new TelemetryLatency(1, 0);
+        for (int i = 0; i < 1_000; i++) {
+            long sensor = i * 100 * MS;
+            long processed = sensor + 2 * MS;
+            long queued = processed + MS;
+            long written = queued + MS;
+            long ackDelay = i >= 998 ? 500 * MS : 40 * MS; // two slow acks in the tail
+            latency.onQueued(sensor, processed, queued);
+            latency.onWritten(queued, written);
+            latency.onAcked(sensor, written, written + ackDelay);
+        }
+
+        TelemetryLatency.Report report = latency.takeReport(100_000 * MS);
+
+        assertEquals(2_000, report.percentileMicros(TelemetryLatency.Stage.PROCESS, 0), 20);
+        assertEquals(44_000, report.percentileMicros(TelemetryLatency.Stage.END_TO_END, 1), 440);
+        assertEquals(504_000, report.percentileMicros(TelemetryLatency.Stage.END_TO_END, 2), 5_040);
+        assertEquals(504_000, report.maxMicros(TelemetryLatency.Stage.END_TO_END));
+        assertEquals(1_000, report.acked);
+    }
+
+    @Test
+    public void takeReport_startsNewInterval() {
+        TelemetryLatency latency = new TelemetryLatency(1, 0);
+        latency.onQueued(0, 5 * MS, 6 * MS);
+        TelemetryLatency.Report first = latency.takeReport(1_000 * MS);
+
+        TelemetryLatency.Report second = latency.takeReport(3_000 * MS);
+
+        assertEquals(1, first.count(TelemetryLatency.Stage.QUEUE));
+        assertEquals(0, second.count(TelemetryLatency.Stage.QUEUE));
+        assertEquals(2_000 * MS, second.intervalNanos);
+        assertSame(second, latency.getLastReport());
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.gyrotest3.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TelemetrySessionDecoderTest {
+
+    private static final String[] SENSORS = {"Accelerometer", "Gyroscope"};
+
+    @Test
+    public void envelope_addsTwoBytesForSmallIds() {
+        byte[] frame = AttitudeFrameCodec.encode(new AttitudeFrame(1f, 2f, 3f, 1f, 10f, false, true, 7));
+
+        byte[] wrapped = SessionEnvelope.wrap(42, frame);
+
+        assertEquals(frame.length + 2, wrapped.length);
+        assertEquals(42, SessionEnvelope.sessionId(wrapped, 0, wrapped.length));
+        assertFalse(SessionEnvelope.isEnveloped(frame, 0, frame.length));
+    }
+
+    @Test
+    public void decode_resolvesSessionAndFrame() {
+        TelemetrySessionDecoder decoder = new TelemetrySessionDecoder();
+        TelemetrySessionDecoder.Session session = decoder.register("device-1", "Alex", SENSORS, 10_000, 100);
+        byte[] frame = AttitudeFrameCodec.encode(new AttitudeFrame(1f, 2f, 3f, 1f, 10f, false, true, 7));
+
+        TelemetrySessionDecoder.Message message = decoder.decode(TelemetrySessionDecoder.EVENT_FRAME,
+                SessionEnvelope.wrap(session.id, frame));
+
+        assertSame(session, message.session);
+        assertEquals("device-1", message.session.deviceId);
+        assertEquals("Alex", message.session.riderDisplayName);
+        assertEquals(7, message.frame.steps);
+    }
+
+    @Test
+    public void decode_keepsStreamStatePerSession() {
+        TelemetrySessionDecoder decoder = new TelemetrySessionDecoder();
+        int first = decoder.register("device-1", "Alex", SENSORS, 10_000, 100).id;
+        int second = decoder.register("device-2", "Sam", SENSORS, 10_000, 100).id;
+        AttitudeStreamEncoder firstEncoder = new AttitudeStreamEncoder(50);
+        AttitudeStreamEncoder secondEncoder = new AttitudeStreamEncoder(50);
+        byte[] out = new byte[AttitudeStreamEncoder.MAX_MESSAGE_SIZE];
+
+        decoder.decode(TelemetrySessionDecoder.EVENT_STREAM, SessionEnvelope.wrap(first, out, 0,
+                firstEncoder.encode(out, 0, 1000, 10f, 0f, 0f, 1f, 0f, false, true, 0)));
+        decoder.decode(TelemetrySessionDecoder.EVENT_STREAM, SessionEnvelope.wrap(second, out, 0,
+                secondEncoder.encode(out, 0, 1000, 20f, 0f, 0f, 1f, 0f, false, true, 0)));
+        TelemetrySessionDecoder.Message message = decoder.decode(TelemetrySessionDecoder.EVENT_STREAM,
+                SessionEnvelope.wrap(first, out, 0, firstEncoder.encode(out, 0, 1100, 11f, 0f, 0f, 1f, 0f,
+                        false, true, 0)));
+
+        assertFalse(message.sample.keyframe);
+        assertEquals(11f, message.sample.frame.pitch, 0.0001f);
+        assertFalse(message.isResyncNeeded());
+    }
+
+    @Test
+    public void reRegistration_replacesDeviceSession() {
+        TelemetrySessionDecoder decoder = new TelemetrySessionDecoder();
+        int old = decoder.register("device-1", "Alex", SENSORS, 10_000, 100).id;
+        int current = decoder.register("device-1", "Alex", SENSORS, 200_000, 1000).id;
+        byte[] frame = AttitudeFrameCodec.encode(new AttitudeFrame(0f, 0f, 0f, 1f, 0f, false, true, 0));
+
+        assertNotEquals(old, current);
+        assertNull(decoder.session(old));
+        assertNull(decoder.decode(TelemetrySessionDecoder.EVENT_FRAME, SessionEnvelope.wrap(old, frame)));
+        assertEquals(1, decoder.getUnknownSessionMessages());
+        assertEquals(200_000, decoder.decode(TelemetrySessionDecoder.EVENT_FRAME,
+                SessionEnvelope.wrap(current, frame)).session.samplingPeriodUs);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_rejectsMessageWithoutEnvelope() {
+        TelemetrySessionDecoder decoder = new TelemetrySessionDecoder();
+        decoder.register("device-1", "Alex", SENSORS, 10_000, 100);
+
+        decoder.decode(TelemetrySessionDecoder.EVENT_FRAME,
+                AttitudeFrameCodec.encode(new AttitudeFrame(0f, 0f, 0f, 1f, 0f, false, true, 0)));
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.gyrotest3.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TraceReplayerTest {
+
+    private static final long STEP_NANOS = 20_000_000L; // 50 Hz
+    private static final long START_NANOS = 5_000_000_000L;
+
+    @Test
+    public void airtime_isMeasuredInTraceTime() throws IOException {
+        byte[] trace = record(writer -> {
+            long t = START_NANOS;
+            t = accelerometer(writer, t, 50, 9.81f);
+            t = accelerometer(writer, t, 35, 0.4f); // 700 ms in the air
+            accelerometer(writer, t, 50, 9.81f);
+        });
+
+        ReplayClock clock = new ReplayClock();
+        AttitudeProcessor processor = new AttitudeProcessor(false, null, clock);
+        new TraceReplayer(processor, clock).replay(reader(trace), null);
+
+        assertEquals(700, processor.getLastFlightTime());
+    }
+
+    @Test
+    public void gpsFix_pullsSpeedEstimate() throws IOException {
+        byte[] trace = record(writer -> {
+            long t = accelerometer(writer, START_NANOS, 10, 9.81f);
+            writer.writeLocation(t, 46.5, 7.9, 10f, 0.5f, 5f, Float.NaN); // 36 km/h
+            accelerometer(writer, t + STEP_NANOS, 10, 9.81f);
+        });
+
+        ReplayClock clock = new ReplayClock();
+        AttitudeProcessor processor = new AttitudeProcessor(false, null, clock);
+        TraceReplayer replayer = new TraceReplayer(processor, clock);
+        replayer.replay(reader(trace), null);
+
+        assertEquals(36f, processor.snapshot(0).speed, 0.5f);
+        assertEquals(20, replayer.getSensorEvents());
+        assertEquals(1, replayer.getLocationFixes());
+    }
+
+    @Test
+    public void speed_followsAccelerationBetweenFixes() throws IOException {
+        // Flat on the board, top edge pointing north, riding north at 10 m/s
+        byte[] trace = record(writer -> {
+            float speed = 10f;
+            long t = START_NANOS;
+            for (int i = 0; i < 600; i++, t += STEP_NANOS) {
+                float forward = (i >= 500) ? 2f : 0f; // last second: 2 m/s² forward
+                speed += forward * STEP_NANOS * 1e-9f;
+                writer.writeSensor(SensorTypes.ACCELEROMETER, t, new float[]{0, forward, 9.81f}, 3, 3);
+                writer.writeSensor(SensorTypes.GYROSCOPE, t + 1, new float[]{0, 0, 0}, 3, 3);
+                writer.writeSensor(SensorTypes.MAGNETIC_FIELD, t + 2, new float[]{0, 20, -40}, 3, 3);
+                if (i % 50 == 0 && i <= 500) {
+                    writer.writeLocation(t + 3, 46.5, 7.9, speed, 0.3f, 5f, 0f);
+                }
+            }
+        });
+
+        ReplayClock clock = new ReplayClock();
+        AttitudeProcessor processor = new AttitudeProcessor(true, new MahonyFusion(true), clock);
+        new TraceReplayer(processor, clock).replay(reader(trace), null);
+
+        assertEquals(12f * 3.6f, processor.snapshot(0).speed, 1f);
+    }
+
+    @Test
+    public void replay_isDeterministic() throws IOException {
+        byte[] trace = record(writer -> {
+            long t = START_NANOS;
+            for (int i = 0; i < 500; i++, t += STEP_NANOS) {
+                float wobble = (float) Math.sin(i * 0.1);
+                writer.writeSensor(SensorTypes.ACCELEROMETER, t, new float[]{wobble, 0.5f, 9.7f}, 3, 3);
+                writer.writeSensor(SensorTypes.GYROSCOPE, t + 1, new float[]{0.01f, wobble * 0.2f, 0.3f}, 3, 3);
+                writer.writeSensor(SensorTypes.MAGNETIC_FIELD, t + 2, new float[]{3, 20, -40}, 3, 3);
+                if (i % 50 == 0) {
+                    writer.writeLocation(t + 3, 46.5, 7.9, i * 0.02f, 0.5f, 5f, 0f);
+                }
+            }
+        });
+
+        assertEquals(replaySnapshots(trace), replaySnapshots(trace));
+    }
+
+    @Test
+    public void hourLongTrace_replaysFasterThanRealTime() throws IOException {
+        int events = 60 * 60 * 50; // one hour of 50 Hz accelerometer
+        byte[] trace = record(writer -> accelerometer(writer, START_NANOS, events, 9.81f));
+
+        ReplayClock clock = new ReplayClock();
+        AttitudeProcessor processor = new AttitudeProcessor(false, null, clock);
+        long started = System.nanoTime();
+        long replayed = new TraceReplayer(processor, clock).replay(reader(trace), null);
+        long elapsedNanos = System.nanoTime() - started;
+
+        assertEquals(events, replayed);
+        assertTrue("replay took " + elapsedNanos / 1_000_000 + " ms", elapsedNanos < 60_000_000_000L);
+    }
+
+    private static List<String> replaySnapshots(byte[] trace) throws IOException {
+        List<String> snapshots = new ArrayList<>();
+        ReplayClock clock = new ReplayClock();
+        AttitudeProcessor processor = new AttitudeProcessor(true, new MahonyFusion(true), clock);
+        new TraceReplayer(processor, clock).replay(reader(trace), (p, type, timestamp) -> {
+            AttitudeSnapshot s = p.snapshot(timestamp);
+            snapshots.add(type + "@" + timestamp + " " + s.pitch + "/" + s.roll + "/" + s.yaw
+                    + " " + s.speed + " " + s.airborne);
+        });
+        return snapshots;
+    }
+
+    private static long accelerometer(SensorTraceWriter writer, long t, int count, float z) throws IOException {
+        float[] values = {0, 0, z};
+        for (int i = 0; i < count; i++, t += STEP_NANOS) {
+            writer.writeSensor(SensorTypes.ACCELEROMETER, t, values, 3, 3);
+        }
+        return t;
+    }
+
+    private interface TraceScript {
+        void write(SensorTraceWriter writer) throws IOException;
+    }
+
+    private static byte[] record(TraceScript script) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (SensorTraceWriter writer = new SensorTraceWriter(bytes)) {
+            script.write(writer);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static SensorTraceReader reader(byte[] trace) throws IOException {
+        return new SensorTraceReader(new ByteArrayInputStream(trace));
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.gyrotest3.benchmark;
+
+import com.example.gyrotest3.core.AttitudeProcessor;
+import com.example.gyrotest3.core.AttitudeSnapshot;
+import com.example.gyrotest3.core.MahonyFusion;
+import com.example.gyrotest3.core.RotationVectorFusion;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Per-event cost of the processing chain on the sensor pipeline thread
+ */
+@State(Scope.Thread)
+public class AttitudeProcessorBenchmark {
+
+    private static final long STEP_NANOS = 5_000_000L; // SENSOR_DELAY_GAME
+
+    private final Samples samples = new Samples();
+    private AttitudeProcessor raw;
+    private AttitudeProcessor complementary;
+    private AttitudeProcessor rotationVector;
+    private int index;
+    private long timestamp;
+
+    @Setup
+    public void setUp() {
+        raw = new AttitudeProcessor(true);
+        raw.onMagnetometer(3, 20, -40);
+
+        complementary = new AttitudeProcessor(true, new MahonyFusion(true));
+        complementary.onAccelerometer(0, 0, 9.81f);
+        complementary.onMagnetometer(3, 20, -40);
+
+        rotationVector = new AttitudeProcessor(true, new RotationVectorFusion());
+        timestamp = 1;
+    }
+
+    /**
+     * Pitch/roll, G-force, speed smoothing and jump detection for one accelerometer sample
+     */
+    @Benchmark
+    public AttitudeProcessor accelerometerEvent() {
+        int i = index++ & Samples.MASK;
+        raw.onAccelerometer(samples.ax[i], samples.ay[i], samples.az[i]);
+        return raw;
+    }
+
+    /**
+     * Yaw from accelerometer + magnetometer rotation matrix
+     */
+    @Benchmark
+    public boolean rawOrientation() {
+        int i = index++ & Samples.MASK;
+        raw.onAccelerometer(samples.ax[i], samples.ay[i], samples.az[i]);
+        return raw.updateOrientation();
+    }
+
+    /**
+     * One gyro step of the quaternion complementary filter plus angle extraction
+     */
+    @Benchmark
+    public boolean complementaryGyroEvent() {
+        int i = index++ & Samples.MASK;
+        timestamp += STEP_NANOS;
+        complementary.onGyroscope(samples.gx[i], samples.gy[i], samples.gz[i], timestamp);
+        return complementary.updateOrientation();
+    }
+
+    @Benchmark
+    public boolean rotationVectorEvent() {
+        int i = index++ & Samples.MASK;
+        rotationVector.onRotationVector(samples.gx[i] * 0.1f, samples.gy[i] * 0.1f, samples.gz[i] * 0.1f, 0.9f);
+        return rotationVector.updateOrientation();
+    }
+
+    /**
+     * The one allocation per event that remains: publishing an immutable snapshot
+     */
+    @Benchmark
+    public AttitudeSnapshot snapshot() {
+        return raw.snapshot(timestamp++);
+    }
+}
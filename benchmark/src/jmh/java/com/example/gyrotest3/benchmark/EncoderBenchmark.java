@@ -0,0 +1,78 @@
+package com.example.gyrotest3.benchmark;
+
+import com.example.gyrotest3.core.AttitudeBatchCodec;
+import com.example.gyrotest3.core.AttitudeBatcher;
+import com.example.gyrotest3.core.AttitudeFrameCodec;
+import com.example.gyrotest3.core.AttitudeSnapshot;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost per sample of each attitude wire encoding
+ */
+@State(Scope.Thread)
+public class EncoderBenchmark {
+
+    private static final int BATCH = 20;
+
+    private final Samples samples = new Samples();
+    private final byte[] frameBuffer = new byte[AttitudeFrameCodec.MAX_FRAME_SIZE];
+    private final byte[] batchBuffer = new byte[AttitudeBatchCodec.maxEncodedSize(BATCH)];
+    private AttitudeBatcher batcher;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        batcher = new AttitudeBatcher(2 * BATCH, BATCH, Long.MAX_VALUE);
+    }
+
+    /**
+     * Legacy attitude_update: same fields as MainActivity.createAttitudeDataJson, serialized
+     * to text as the socket would
+     */
+    @Benchmark
+    public String legacyJson() throws JSONException {
+        AttitudeSnapshot s = samples.snapshots[index++ & Samples.MASK];
+
+        JSONObject attitudeData = new JSONObject();
+        attitudeData.put("pitch", Math.round(s.pitch * 10.0) / 10.0);
+        attitudeData.put("yaw", Math.round(s.yaw * 10.0) / 10.0);
+        attitudeData.put("roll", Math.round(s.roll * 10.0) / 10.0);
+        attitudeData.put("stream", "on");
+        attitudeData.put("rider", "gyro_app");
+        attitudeData.put("riderDisplayName", "Rider");
+        attitudeData.put("gforce", Math.round(s.gForce * 100.0) / 100.0);
+        attitudeData.put("speed", Math.round(s.speed * 100.0) / 100.0);
+        attitudeData.put("airborne", s.airborne);
+        attitudeData.put("steps", s.steps);
+        return attitudeData.toString();
+    }
+
+    @Benchmark
+    public int binaryFrame() {
+        AttitudeSnapshot s = samples.snapshots[index++ & Samples.MASK];
+        return AttitudeFrameCodec.encode(frameBuffer, 0, s.pitch, s.yaw, s.roll,
+                s.gForce, s.speed, s.airborne, true, s.steps);
+    }
+
+    /**
+     * Record + encode + commit of a full attitude_batch, reported per sample
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int binaryBatch() {
+        for (int n = 0; n < BATCH; n++) {
+            AttitudeSnapshot s = samples.snapshots[index++ & Samples.MASK];
+            batcher.record(s.timestampNanos, s.pitch, s.yaw, s.roll, s.gForce, s.speed, s.airborne, true, s.steps);
+        }
+        int length = AttitudeBatchCodec.encode(batcher, 0, batchBuffer);
+        batcher.commitBatch(0);
+        return length;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.gyrotest3.benchmark;
+
+import com.example.gyrotest3.core.AttitudeSnapshot;
+import com.example.gyrotest3.core.CharFormat;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Text formatting on the send path: String.format as in logDataTransmission vs CharFormat
+ */
+@State(Scope.Thread)
+public class LogFormatBenchmark {
+
+    private final Samples samples = new Samples();
+    private final char[] buffer = new char[128];
+    private int index;
+
+    @Benchmark
+    public String stringFormat() {
+        AttitudeSnapshot s = samples.snapshots[index++ & Samples.MASK];
+        return String.format("Sent [%s]: P=%.1f°, Y=%.1f°, R=%.1f°, Speed=%.1f km/h, Stream=%s",
+                "Rider", s.pitch, s.yaw, s.roll, s.speed, "on");
+    }
+
+    @Benchmark
+    public int charFormat() {
+        AttitudeSnapshot s = samples.snapshots[index++ & Samples.MASK];
+        int length = CharFormat.append("Sent [Rider]: P=", buffer, 0);
+        length += CharFormat.formatFixed(s.pitch, 1, buffer, length);
+        length += CharFormat.append("°, Y=", buffer, length);
+        length += CharFormat.formatFixed(s.yaw, 1, buffer, length);
+        length += CharFormat.append("°, R=", buffer, length);
+        length += CharFormat.formatFixed(s.roll, 1, buffer, length);
+        length += CharFormat.append("°, Speed=", buffer, length);
+        length += CharFormat.formatFixed(s.speed, 1, buffer, length);
+        length += CharFormat.append(" km/h, Stream=on", buffer, length);
+        return length;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.gyrotest3.benchmark;
+
+import com.example.gyrotest3.core.AttitudeSnapshot;
+
+import java.util.Random;
+
+/**
+ * Samples - Fixed pseudo-random ride data so benchmarks never run on constants
+ */
+final class Samples {
+
+    static final int COUNT = 1024; // power of two, index with & MASK
+    static final int MASK = COUNT - 1;
+
+    final float[] ax = new float[COUNT];
+    final float[] ay = new float[COUNT];
+    final float[] az = new float[COUNT];
+    final float[] gx = new float[COUNT];
+    final float[] gy = new float[COUNT];
+    final float[] gz = new float[COUNT];
+    final AttitudeSnapshot[] snapshots = new AttitudeSnapshot[COUNT];
+
+    Samples() {
+        Random random = new Random(42);
+        for (int i = 0; i < COUNT; i++) {
+            ax[i] = (float) random.nextGaussian() * 2f;
+            ay[i] = (float) random.nextGaussian() * 2f;
+            az[i] = 9.81f + (float) random.nextGaussian() * 3f;
+            gx[i] = (float) random.nextGaussian() * 0.5f;
+            gy[i] = (float) random.nextGaussian() * 0.5f;
+            gz[i] = (float) random.nextGaussian() * 0.5f;
+            snapshots[i] = new AttitudeSnapshot(i * 20_000_000L,
+                    random.nextFloat() * 180 - 90, random.nextFloat() * 360, random.nextFloat() * 180 - 90,
+                    0.5f + random.nextFloat() * 2, random.nextFloat() * 60, random.nextInt(20) == 0, 1000 + i);
+        }
+    }
+}
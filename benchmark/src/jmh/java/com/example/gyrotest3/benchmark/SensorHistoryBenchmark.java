@@ -0,0 +1,133 @@
+package com.example.gyrotest3.benchmark;
+
+import com.example.gyrotest3.core.AttitudeSnapshot;
+import com.example.gyrotest3.core.SensorHistory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Append and windowed reads of the attitude history at 200 Hz; the deque of snapshots is the
+ * boxed alternative for the sparkline read
+ *
+ * Windows: 1 s copied out (200 samples), 10 s reduced to 120 min/max buckets (a sparkline).
+ * The contended group runs the pipeline writer against two UI-style readers.
+ */
+@State(Scope.Group)
+public class SensorHistoryBenchmark {
+
+    private static final int CAPACITY = 16_384;
+    private static final long PERIOD_NANOS = 5_000_000L; // 200 Hz
+    private static final long SECOND = 1_000_000_000L;
+    private static final int BUCKETS = 120;
+
+    private final Samples samples = new Samples();
+    private final SensorHistory history = new SensorHistory(CAPACITY, SensorHistory.ATTITUDE_CHANNELS);
+    private final ArrayDeque<AttitudeSnapshot> deque = new ArrayDeque<>(CAPACITY);
+    private final float[] values = new float[SensorHistory.ATTITUDE_CHANNELS];
+    private long now;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        // Values from Samples on a steady 200 Hz clock, one ring's worth pre-filled
+        for (int i = 0; i < CAPACITY; i++) {
+            appendNext();
+            AttitudeSnapshot s = samples.snapshots[i & Samples.MASK];
+            deque.addLast(new AttitudeSnapshot(now, s.pitch, s.yaw, s.roll, s.gForce, s.speed, s.airborne, s.steps));
+        }
+    }
+
+    private void appendNext() {
+        AttitudeSnapshot s = samples.snapshots[index++ & Samples.MASK];
+        values[SensorHistory.PITCH] = s.pitch;
+        values[SensorHistory.ROLL] = s.roll;
+        values[SensorHistory.YAW] = s.yaw;
+        values[SensorHistory.GFORCE] = s.gForce;
+        values[SensorHistory.SPEED] = s.speed;
+        now += PERIOD_NANOS;
+        history.append(now, values);
+    }
+
+    @State(Scope.Thread)
+    public static class Reader {
+        final long[] times = new long[256];
+        final float[] values = new float[256];
+        final float[] min = new float[BUCKETS];
+        final float[] max = new float[BUCKETS];
+    }
+
+    // ========================================
+    // SINGLE THREAD
+    // ========================================
+
+    @Benchmark
+    @Group("append")
+    public void append() {
+        appendNext();
+    }
+
+    @Benchmark
+    @Group("readOneSecond")
+    public int readOneSecond(Reader reader) {
+        long end = history.getLatestTimestampNanos();
+        return history.read(SensorHistory.ROLL, end - SECOND, end + 1, reader.times, reader.values);
+    }
+
+    @Benchmark
+    @Group("downsampleTenSeconds")
+    public int downsampleTenSeconds(Reader reader) {
+        long end = history.getLatestTimestampNanos();
+        return history.downsample(SensorHistory.ROLL, end - 10 * SECOND, end + 1, reader.min, reader.max);
+    }
+
+    /**
+     * The deque equivalent of downsampleTenSeconds: walk back over boxed snapshots
+     */
+    @Benchmark
+    @Group("dequeDownsampleTenSeconds")
+    public float dequeDownsampleTenSeconds(Reader reader) {
+        AttitudeSnapshot newest = deque.peekLast();
+        long from = newest.timestampNanos - 10 * SECOND;
+        Arrays.fill(reader.min, Float.NaN);
+        Arrays.fill(reader.max, Float.NaN);
+        Iterator<AttitudeSnapshot> it = deque.descendingIterator();
+        while (it.hasNext()) {
+            AttitudeSnapshot s = it.next();
+            if (s.timestampNanos < from) {
+                break;
+            }
+            int bucket = (int) Math.min(BUCKETS - 1, (s.timestampNanos - from) * BUCKETS / (10 * SECOND));
+            reader.min[bucket] = Float.isNaN(reader.min[bucket]) ? s.roll : Math.min(reader.min[bucket], s.roll);
+            reader.max[bucket] = Float.isNaN(reader.max[bucket]) ? s.roll : Math.max(reader.max[bucket], s.roll);
+        }
+        return reader.min[0];
+    }
+
+    // ========================================
+    // CONTENDED: one writer, two readers
+    // ========================================
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public void contendedAppend() {
+        appendNext();
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(2)
+    public int contendedDownsample(Reader reader) {
+        long end = history.getLatestTimestampNanos();
+        return history.downsample(SensorHistory.ROLL, end - 10 * SECOND, end + 1, reader.min, reader.max);
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.gyrotest3.benchmark;
+
+import com.example.gyrotest3.core.AttitudeFrameCodec;
+import com.example.gyrotest3.core.AttitudeProcessor;
+import com.example.gyrotest3.core.AttitudeSnapshot;
+import com.example.gyrotest3.core.AttitudeStreamEncoder;
+import com.example.gyrotest3.core.MahonyFusion;
+import com.example.gyrotest3.core.ReplayClock;
+import com.example.gyrotest3.core.SensorTraceReader;
+import com.example.gyrotest3.core.SensorTraceWriter;
+import com.example.gyrotest3.core.SensorTypes;
+import com.example.gyrotest3.core.TraceReplayer;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Bytes and encode time for one minute of attitude updates, per wire format
+ *
+ * Replays a recorded sensor trace ({@code -Ptrace=ride.trace}, pulled from the device's
+ * files/traces) or, without one, a synthetic 60 s ride, and samples it every 100 ms like
+ * the legacy per-update path. Each benchmark returns the bytes it produced; the byte
+ * counts per rider-minute are printed once at setup.
+ */
+@State(Scope.Thread)
+public class StreamCompressionBenchmark {
+
+    private static final long SEND_INTERVAL_NANOS = 100_000_000L;
+    private static final int KEYFRAME_INTERVAL = 50;
+    private static final long START_MILLIS = 1_700_000_000_000L;
+
+    private AttitudeSnapshot[] updates;
+    private final byte[] buffer = new byte[Math.max(AttitudeFrameCodec.MAX_FRAME_SIZE,
+            AttitudeStreamEncoder.MAX_MESSAGE_SIZE)];
+
+    @Setup
+    public void setUp() throws IOException, JSONException {
+        String trace = System.getProperty("trace");
+        try (InputStream in = trace != null ? new FileInputStream(trace) : new ByteArrayInputStream(syntheticRide())) {
+            updates = sampleUpdates(new SensorTraceReader(in));
+        }
+
+        double minutes = Math.max(1, updates.length) * (SEND_INTERVAL_NANOS / 1e9) / 60;
+        long json = legacyJson();
+        long stream = deltaStream();
+        System.out.printf("%n%s: %d updates, bytes/min json=%.0f frame=%.0f stream=%.0f (%.1fx smaller than json)%n",
+                trace != null ? trace : "synthetic ride", updates.length, json / minutes,
+                binaryFrame() / minutes, stream / minutes, (double) json / Math.max(1, stream));
+    }
+
+    /**
+     * attitude_update as MainActivity.createAttitudeDataJson builds it
+     */
+    @Benchmark
+    public long legacyJson() throws JSONException {
+        long bytes = 0;
+        for (AttitudeSnapshot s : updates) {
+            JSONObject attitudeData = new JSONObject();
+            attitudeData.put("pitch", Math.round(s.pitch * 10.0) / 10.0);
+            attitudeData.put("yaw", Math.round(s.yaw * 10.0) / 10.0);
+            attitudeData.put("roll", Math.round(s.roll * 10.0) / 10.0);
+            attitudeData.put("stream", "on");
+            attitudeData.put("rider", "gyro_app");
+            attitudeData.put("riderDisplayName", "Rider");
+            attitudeData.put("gforce", Math.round(s.gForce * 100.0) / 100.0);
+            attitudeData.put("speed", Math.round(s.speed * 100.0) / 100.0);
+            attitudeData.put("airborne", s.airborne);
+            attitudeData.put("steps", s.steps);
+            bytes += attitudeData.toString().getBytes(StandardCharsets.UTF_8).length;
+        }
+        return bytes;
+    }
+
+    @Benchmark
+    public long binaryFrame() {
+        long bytes = 0;
+        for (AttitudeSnapshot s : updates) {
+            bytes += AttitudeFrameCodec.encode(buffer, 0, s.pitch, s.yaw, s.roll, s.gForce, s.speed,
+                    s.airborne, true, s.steps);
+        }
+        return bytes;
+    }
+
+    @Benchmark
+    public long deltaStream() {
+        AttitudeStreamEncoder encoder = new AttitudeStreamEncoder(KEYFRAME_INTERVAL);
+        long bytes = 0;
+        for (AttitudeSnapshot s : updates) {
+            bytes += encoder.encode(buffer, 0, START_MILLIS + s.timestampNanos / 1_000_000L,
+                    s.pitch, s.yaw, s.roll, s.gForce, s.speed, s.airborne, true, s.steps);
+        }
+        return bytes;
+    }
+
+    // ========================================
+    // TRACES
+    // ========================================
+
+    /**
+     * Snapshot after the first accelerometer event of each send interval, as sendAttitudeData spaces them
+     */
+    private static AttitudeSnapshot[] sampleUpdates(SensorTraceReader reader) throws IOException {
+        ReplayClock clock = new ReplayClock();
+        AttitudeProcessor processor = new AttitudeProcessor(true, new MahonyFusion(true), clock);
+        List<AttitudeSnapshot> sampled = new ArrayList<>();
+        long[] nextSend = {Long.MIN_VALUE};
+
+        new TraceReplayer(processor, clock).replay(reader, (p, sensorType, timestampNanos) -> {
+            if (sensorType != SensorTypes.ACCELEROMETER || timestampNanos < nextSend[0]) {
+                return;
+            }
+            nextSend[0] = timestampNanos + SEND_INTERVAL_NANOS;
+            sampled.add(p.snapshot(timestampNanos));
+        });
+        return sampled.toArray(new AttitudeSnapshot[0]);
+    }
+
+    /**
+     * 60 s of carving at 100 Hz with one jump, magnetometer at 20 Hz and GPS at 1 Hz
+     */
+    private static byte[] syntheticRide() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Random random = new Random(42);
+        float[] values = new float[3];
+
+        try (SensorTraceWriter writer = new SensorTraceWriter(bytes)) {
+            for (int i = 0; i < 6000; i++) {
+                long t = 1_000_000_000L + i * 10_000_000L;
+                double s = i / 100.0;
+                boolean air = i >= 3000 && i < 3060;
+                float lean = (float) (0.4 * Math.sin(s * 0.9));
+
+                values[0] = air ? 0.2f : (float) (9.81 * Math.sin(lean) + random.nextGaussian() * 0.3);
+                values[1] = air ? 0.1f : (float) (1.5 * Math.sin(s * 0.7) + random.nextGaussian() * 0.3);
+                values[2] = air ? 0.3f : (float) (9.81 * Math.cos(lean) + random.nextGaussian() * 0.3);
+                writer.writeSensor(SensorTypes.ACCELEROMETER, t, values, 3, 3);
+
+                values[0] = (float) (0.36 * Math.cos(s * 0.9) + random.nextGaussian() * 0.02);
+                values[1] = (float) (random.nextGaussian() * 0.02);
+                values[2] = (float) (0.1 * Math.cos(s * 0.3) + random.nextGaussian() * 0.02);
+                writer.writeSensor(SensorTypes.GYROSCOPE, t, values, 3, 3);
+
+                if (i % 5 == 0) {
+                    values[0] = 3f;
+                    values[1] = 20f;
+                    values[2] = -40f;
+                    writer.writeSensor(SensorTypes.MAGNETIC_FIELD, t, values, 3, 3);
+                }
+                if (i % 100 == 0) {
+                    writer.writeLocation(t, 46.5, 7.9, (float) (7 + Math.sin(s * 0.1)), 0.5f, 5f, Float.NaN);
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+}